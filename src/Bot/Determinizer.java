@@ -0,0 +1,186 @@
+package Bot;
+
+import Model.GameState;
+import Model.PawnBeliefTracker;
+
+import java.util.SplittableRandom;
+
+/**
+ * Deals the cards a player cannot see, so that the game as they see it can be searched as a game
+ * whose every card is known.
+ * <p>
+ * A copy of {@link GameState#observedBy} holds placeholders for the opponent's hand and the deck,
+ * and puts an opponent's Theseus that has not been revealed on their first hidden pawn. A deal
+ * fills the placeholders at random from the cards that are neither in the player's own hand nor
+ * played or discarded, and hides Theseus on one of the hidden pawns as often as the beliefs say.
+ * The searches value a view by the average over several deals.
+ * <p>
+ * The beliefs are either given, such as by the {@link PawnBeliefTracker} of a live game, or learnt
+ * by the determinizer's own tracker from the views it is shown with {@link #observe}: an opponent
+ * pawn that moves, one that stops on a box it could have opened and leaves it, and the pawns that
+ * are revealed.
+ * <p>
+ * A determinizer keeps its own random numbers and must not be shared between threads.
+ */
+public class Determinizer {
+    private final SplittableRandom random;
+    private final PawnBeliefTracker tracker = new PawnBeliefTracker(GameState.PATHS); // by path of the opponent
+    private double[] givenBeliefs; // by path, null to use the tracker
+    private GameState last;        // the last view observed, null before the first
+    private final int[] pool = new int[GameState.CARD_CODES * 3];
+
+    /**
+     * Constructs a determinizer that believes every hidden pawn as likely to be Theseus.
+     * @param seed the seed of its deals.
+     */
+    public Determinizer(long seed) {
+        this.random = new SplittableRandom(seed);
+    }
+
+    /**
+     * Forgets the game observed so far.
+     */
+    public void reset() {
+        tracker.reset();
+        last = null;
+    }
+
+    /**
+     * Learns about the opponent's pawns from what changed since the last view, which is
+     * forgotten if the view is of another game or another player. Views of games whose every card
+     * is known are ignored.
+     *
+     * @param view the game as the player sees it now.
+     */
+    public void observe(GameState view) {
+        int observer = view.getObserver();
+        if (observer < 0) {
+            return;
+        }
+        int opponent = 1 - observer;
+        if (last == null || last.getObserver() != observer || view.getTurn() < last.getTurn()) {
+            tracker.reset();
+        } else {
+            for (int path = 0; path < GameState.PATHS; path++) {
+                int before = last.getPawnIndex(opponent, path);
+                int after = view.getPawnIndex(opponent, path);
+                if (before == 0 || after <= before || view.isRevealed(opponent, path)) {
+                    continue; // only the owner moves a pawn forward, and a revealed one is known
+                }
+                tracker.observeMove(path);
+                int box = GameState.boxOf(after);
+                int finding = box < 0 ? GameState.NO_FINDING : last.getFinding(path, box);
+                if (finding != GameState.NO_FINDING && view.getFinding(path, box) == finding) {
+                    boolean fresco = finding == GameState.FRESCO_15 || finding == GameState.FRESCO_20;
+                    tracker.observeSkippedBox(path, !(fresco && last.isPhotographedBy(path, box, opponent)),
+                            last.getDestroysLeft(opponent) > 0);
+                }
+            }
+        }
+        for (int path = 0; path < GameState.PATHS; path++) {
+            if (view.getPawnIndex(opponent, path) != 0 && view.isRevealed(opponent, path)) {
+                tracker.observeReveal(path, view.isTheseus(opponent, path));
+            }
+        }
+        if (last == null) {
+            last = new GameState();
+        }
+        last.copyFrom(view);
+    }
+
+    /**
+     * Replaces what the determinizer learnt with the given beliefs, until they are taken back
+     * with null.
+     *
+     * @param byPath how likely each path is to hide the opponent's Theseus, or null.
+     */
+    public void setTheseusBeliefs(double[] byPath) {
+        this.givenBeliefs = byPath == null ? null : byPath.clone();
+    }
+
+    /**
+     * Returns how likely each path is to hide the opponent's Theseus, before the hidden pawns are
+     * narrowed down to the ones on the board.
+     * @return the beliefs by path.
+     */
+    public double[] getTheseusBeliefs() {
+        double[] beliefs = new double[GameState.PATHS];
+        for (int path = 0; path < GameState.PATHS; path++) {
+            beliefs[path] = belief(path);
+        }
+        return beliefs;
+    }
+
+    /**
+     * Deals a game the player's view may be of.
+     *
+     * @param view the game as a player sees it; a game whose every card is known is only copied.
+     * @param into the state that receives the game, marked as one whose every card is known.
+     */
+    public void deal(GameState view, GameState into) {
+        into.copyFrom(view);
+        int observer = view.getObserver();
+        if (observer < 0) {
+            return;
+        }
+        int opponent = 1 - observer;
+
+        int size = 0;
+        for (int code = 0; code < GameState.CARD_CODES; code++) {
+            int copies = GameState.cardCopies(code) - view.getSpent(code);
+            for (int slot = 0; slot < view.getHandSize(observer); slot++) {
+                if (view.getHandCard(observer, slot) == code) {
+                    copies--;
+                }
+            }
+            for (int copy = 0; copy < copies; copy++) {
+                pool[size++] = code;
+            }
+        }
+        for (int slot = 0; slot < into.getHandSize(opponent) && size > 0; slot++) {
+            into.setHandCard(opponent, slot, draw(size--));
+        }
+        for (int depth = 0; depth < into.getDeckSize() && size > 0; depth++) {
+            into.setDeckCard(depth, draw(size--));
+        }
+        hideTheseus(into, opponent);
+        into.setObserver(-1);
+    }
+
+    /**
+     * Puts an opponent's Theseus that has not been revealed on one of their hidden pawns, each
+     * chosen as often as the beliefs say.
+     */
+    private void hideTheseus(GameState game, int opponent) {
+        int theseus = game.getTheseusPath(opponent);
+        if (theseus < 0 || game.isRevealed(opponent, theseus)) {
+            return;
+        }
+        double total = 0.0;
+        int chosen = theseus;
+        for (int path = 0; path < GameState.PATHS; path++) {
+            if (game.getPawnIndex(opponent, path) == 0 || game.isRevealed(opponent, path)) {
+                continue;
+            }
+            double weight = belief(path);
+            total += weight;
+            if (weight > 0.0 && random.nextDouble() * total < weight) {
+                chosen = path;
+            }
+        }
+        if (chosen != theseus) {
+            game.setTheseusPath(opponent, chosen);
+        }
+    }
+
+    private double belief(int path) {
+        return givenBeliefs != null ? givenBeliefs[path] : tracker.getTheseusProbability(path);
+    }
+
+    private int draw(int size) {
+        int pick = random.nextInt(size);
+        int code = pool[pick];
+        pool[pick] = pool[size - 1];
+        return code;
+    }
+}
@@ -0,0 +1,133 @@
+package Bot;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The levels a bot plays at. Every level plays with the same {@link SearchDriver} and
+ * {@link Evaluator}; they only differ in how long and how deep the bot may search, on how many
+ * threads, and how often it plays a random action instead.
+ * <p>
+ * An easy bot looks one move ahead for a couple of milliseconds, so a server can run many of its
+ * games at once, while a hard bot searches for a second on every core. The helper threads of every
+ * bot come from one pool, one fewer than there are cores, so that many bots do not each start
+ * threads of their own; bots that search at the same time wait for the helpers in turn.
+ */
+public enum Difficulty {
+    EASY("Easy", 2, 1, 0.25, 1, false, false),
+    MEDIUM("Medium", 50, 4, 0.05, 1, true, true),
+    HARD("Hard", 1000, SearchDriver.MAX_PLY, 0.0, 0, true, true);
+
+    private final String label;
+    private final long moveMillis;
+    private final int maxDepth;
+    private final double noise;
+    private final int threads;         // 0 for every core
+    private final boolean solvesEndgame; // whether it plays the last cards with the EndgameSolver
+    private final boolean thinksAhead;   // whether it searches during the opponent's turn
+
+    Difficulty(String label, long moveMillis, int maxDepth, double noise, int threads, boolean solvesEndgame, boolean thinksAhead) {
+        this.label = label;
+        this.moveMillis = moveMillis;
+        this.maxDepth = maxDepth;
+        this.noise = noise;
+        this.threads = threads;
+        this.solvesEndgame = solvesEndgame;
+        this.thinksAhead = thinksAhead;
+    }
+
+    /**
+     * Returns the level with the given name, in any case.
+     *
+     * @param name the name, such as "easy".
+     * @return the level.
+     * @throws IllegalArgumentException if there is no such level.
+     */
+    public static Difficulty of(String name) {
+        for (Difficulty level : values()) {
+            if (level.name().equalsIgnoreCase(name)) {
+                return level;
+            }
+        }
+        throw new IllegalArgumentException("Unknown difficulty: " + name);
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public long getMoveMillis() {
+        return moveMillis;
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    public double getNoise() {
+        return noise;
+    }
+
+    /**
+     * Returns the number of threads the bot searches on.
+     * @return the threads, at least 1.
+     */
+    public int getThreads() {
+        return threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    }
+
+    public boolean solvesEndgame() {
+        return solvesEndgame;
+    }
+
+    public boolean thinksAhead() {
+        return thinksAhead;
+    }
+
+    /**
+     * Constructs the search of this level, whose helpers run on the pool every level shares.
+     *
+     * @param evaluator the evaluation of positions.
+     * @return the driver.
+     */
+    public SearchDriver newDriver(Evaluator evaluator) {
+        int threads = getThreads();
+        return new SearchDriver(evaluator::evaluate, maxDepth, threads, threads > 1 ? Helpers.POOL : null);
+    }
+
+    /**
+     * Constructs a bot of this level for harnesses such as a tournament.
+     *
+     * @param evaluator the evaluation of positions.
+     * @param solver the solver for the end of the deck, used if the level solves the endgame.
+     * @param seed the seed of its random actions and of its deals of the cards it cannot see.
+     * @return the policy.
+     */
+    public Policy newPolicy(Evaluator evaluator, EndgameSolver solver, long seed) {
+        Policy policy = new SearchPolicy(name().toLowerCase(), newDriver(evaluator), solvesEndgame ? solver : null, moveMillis, seed);
+        return noise > 0 ? new NoisyPolicy(policy, noise, seed) : policy;
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+
+    /**
+     * The helper threads, started when a level first searches on more than one thread.
+     */
+    private static final class Helpers {
+        private static final ExecutorService POOL = newPool();
+
+        private static ExecutorService newPool() {
+            AtomicInteger threadNumber = new AtomicInteger();
+            int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+            return Executors.newFixedThreadPool(threads, task -> {
+                Thread thread = new Thread(task, "level-search-helper-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+}
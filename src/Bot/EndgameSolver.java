@@ -0,0 +1,237 @@
+package Bot;
+
+import Model.GameState;
+
+import java.util.Arrays;
+
+/**
+ * Solves positions near the end of the deck exactly with expectiminimax.
+ * <p>
+ * Every turn consumes one card of the deck, so when only a few cards are left the game tree is
+ * small enough to search to the end. The players choose their actions and the draws are chance
+ * events over the cards still in the deck. Hands and pawn identities are taken as visible, so the
+ * result is the value of the perfect-information game, and only a game whose every card is known
+ * can be solved. A player's view of a game, a copy of {@link GameState#observedBy}, is played by
+ * {@link #bestAction(GameState, Determinizer, int)}: it solves a number of deals of the hidden
+ * cards and plays the action that does best on average. Solved positions are memoized in a
+ * {@link TranspositionTable} at depth {@link TranspositionTable#MAX_DEPTH}, which marks an exact value.
+ * <p>
+ * A solver keeps scratch buffers for every ply and must not be shared between threads.
+ */
+public class EndgameSolver {
+    public static final int DEFAULT_MAX_DECK_SIZE = 3;
+    public static final int DEFAULT_DEALS = 16;
+
+    private static final int EXACT = TranspositionTable.MAX_DEPTH;
+
+    private final int maxDeckSize;
+    private final TranspositionTable table;
+    private final GameState[] children;   // one scratch state per ply
+    private final int[][] actions;        // legal actions per ply
+    private final int[][] drawCounts;     // copies of every card left in the deck, per ply
+    private long nodes;
+
+    /**
+     * Constructs a solver for positions with at most the given number of cards in the deck.
+     *
+     * @param maxDeckSize the largest deck the solver accepts.
+     * @param table the table used for memoization, may be shared with other searches.
+     */
+    public EndgameSolver(int maxDeckSize, TranspositionTable table) {
+        if (maxDeckSize < 0) {
+            throw new IllegalArgumentException("Deck size must not be negative: " + maxDeckSize);
+        }
+        this.maxDeckSize = maxDeckSize;
+        this.table = table;
+
+        int plies = maxDeckSize + 1;
+        this.children = new GameState[plies];
+        this.actions = new int[plies][GameState.MAX_ACTIONS];
+        this.drawCounts = new int[plies][GameState.CARD_CODES];
+        for (int i = 0; i < plies; i++) {
+            children[i] = new GameState();
+        }
+    }
+
+    /**
+     * Checks whether a position is small enough for the solver.
+     *
+     * @param state the position.
+     * @return true if the deck holds at most the configured number of cards.
+     */
+    public boolean canSolve(GameState state) {
+        return state.getDeckSize() <= maxDeckSize;
+    }
+
+    /**
+     * Returns the expected result of a position under perfect play.
+     *
+     * @param state the position, which is not modified.
+     * @return the expected result for the first player, between -1 (loss) and 1 (win).
+     * @throws IllegalArgumentException if the deck is larger than the solver accepts or the
+     *                                  position is a player's view of a game.
+     */
+    public double solve(GameState state) {
+        checkKnown(state);
+        checkSize(state);
+        return value(state, 0);
+    }
+
+    /**
+     * Returns the best action of the active player.
+     *
+     * @param state the position, which is not modified.
+     * @return the action with the best expected result for the active player, or -1 if the game is over.
+     * @throws IllegalArgumentException if the deck is larger than the solver accepts or the
+     *                                  position is a player's view of a game.
+     */
+    public int bestAction(GameState state) {
+        checkKnown(state);
+        checkSize(state);
+        if (state.isTerminal()) {
+            return -1;
+        }
+
+        int sign = state.getActivePlayer() == 0 ? 1 : -1;
+        int[] rootActions = new int[GameState.MAX_ACTIONS];
+        int count = state.legalActions(rootActions);
+
+        int best = rootActions[0];
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < count; i++) {
+            double value = sign * expectedValue(state, rootActions[i], 0);
+            if (value > bestValue) {
+                bestValue = value;
+                best = rootActions[i];
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Returns the best action of the active player in the game as they see it: the action with the
+     * best expected result averaged over deals of the cards they cannot see. A game whose every
+     * card is known is solved as it is. A view with the opponent to move is solved for one deal, as
+     * the opponent's actions depend on the hand dealt to them.
+     *
+     * @param view the position, such as a copy of {@link GameState#observedBy}, which is not modified.
+     * @param determinizer what deals the hidden cards.
+     * @param deals the number of deals.
+     * @return the action, or -1 if the game is over.
+     * @throws IllegalArgumentException if the deck is larger than the solver accepts.
+     */
+    public int bestAction(GameState view, Determinizer determinizer, int deals) {
+        checkSize(view);
+        if (view.getObserver() < 0) {
+            return bestAction(view);
+        }
+        GameState dealt = new GameState();
+        if (view.getActivePlayer() != view.getObserver()) {
+            determinizer.deal(view, dealt);
+            return bestAction(dealt);
+        }
+        if (view.isTerminal()) {
+            return -1;
+        }
+
+        // the active player's hand is known, so every deal has the same actions
+        int sign = view.getActivePlayer() == 0 ? 1 : -1;
+        int[] rootActions = new int[GameState.MAX_ACTIONS];
+        int count = view.legalActions(rootActions);
+        double[] totals = new double[count];
+        for (int deal = 0; deal < deals; deal++) {
+            determinizer.deal(view, dealt);
+            for (int i = 0; i < count; i++) {
+                totals[i] += sign * expectedValue(dealt, rootActions[i], 0);
+            }
+        }
+
+        int best = 0;
+        for (int i = 1; i < count; i++) {
+            if (totals[i] > totals[best]) {
+                best = i;
+            }
+        }
+        return rootActions[best];
+    }
+
+    /**
+     * Returns the number of positions visited since the solver was created.
+     * @return the node count.
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    private static void checkKnown(GameState state) {
+        if (state.getObserver() >= 0) {
+            throw new IllegalArgumentException("Player " + state.getObserver() + "'s view hides cards the solver needs, deal them first");
+        }
+    }
+
+    private void checkSize(GameState state) {
+        if (!canSolve(state)) {
+            throw new IllegalArgumentException("Deck of " + state.getDeckSize() + " cards is too large to solve (limit " + maxDeckSize + ")");
+        }
+    }
+
+    /**
+     * Decision node: the active player picks the action with the best expected result.
+     */
+    private double value(GameState state, int ply) {
+        nodes++;
+        if (state.isTerminal()) {
+            return state.getResult();
+        }
+
+        long key = state.hash();
+        long entry = table.probe(key);
+        if (entry != TranspositionTable.MISS && TranspositionTable.depth(entry) == EXACT) {
+            return TranspositionTable.value(entry);
+        }
+
+        boolean maximizing = state.getActivePlayer() == 0;
+        int count = state.legalActions(actions[ply]);
+        double best = maximizing ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+        for (int i = 0; i < count; i++) {
+            double value = expectedValue(state, actions[ply][i], ply);
+            best = maximizing ? Math.max(best, value) : Math.min(best, value);
+        }
+
+        table.store(key, (float) best, 1, EXACT);
+        return best;
+    }
+
+    /**
+     * Chance node: averages the result of an action over every card that can be drawn after it.
+     */
+    private double expectedValue(GameState state, int action, int ply) {
+        GameState child = children[ply];
+        int deckSize = state.getDeckSize();
+
+        // the last card is drawn into a finished game, so which one it is does not matter
+        if (deckSize <= 1) {
+            child.copyFrom(state);
+            child.apply(action);
+            return value(child, ply + 1);
+        }
+
+        int[] counts = drawCounts[ply];
+        Arrays.fill(counts, 0);
+        for (int i = 0; i < deckSize; i++) {
+            counts[state.getDeckCard(i)]++;
+        }
+
+        double expected = 0.0;
+        for (int code = 0; code < GameState.CARD_CODES; code++) {
+            if (counts[code] == 0) {
+                continue;
+            }
+            child.copyFrom(state);
+            child.moveDeckCardToTop(code);
+            child.apply(action);
+            expected += (double) counts[code] / deckSize * value(child, ply + 1);
+        }
+        return expected;
+    }
+}
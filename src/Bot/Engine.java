@@ -0,0 +1,541 @@
+package Bot;
+
+import Model.GameState;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * A bot that plays over standard input and output, in the engine protocol that
+ * {@link ExternalEngine} speaks. Any program that speaks the protocol can take its place.
+ * <p>
+ * The protocol is line based, one command per line, in the manner of chess engines:
+ * <pre>
+ * hello                              -> id name &lt;name&gt;, then hellook
+ * isready                            -> readyok, once every command before it is done
+ * newgame                            forget the last game
+ * level &lt;easy|medium|hard&gt;           play at a {@link Difficulty}: its search, time and noise
+ * position seed &lt;hex&gt; [moves a ...] the game GameState.newGame(seed) after the given actions
+ * position state &lt;hex&gt; [moves a ...] the game GameState.readFrom(bytes) after the given actions
+ * legal                              -> legal a ..., the actions of the player to move
+ * go [movetime &lt;ms&gt;] [ponder]        -> bestmove a [ponder b], b being the expected reply
+ * go time &lt;ms&gt; [ponder]             the same, sharing the given clock out over the rest of the game
+ * speculate [movetime &lt;ms&gt;]         search ahead, with the opponent to move, for every reply they may make
+ * ponderhit                          the expected reply was played: the pondering search counts
+ * stop                               answer the search now
+ * quit
+ * </pre>
+ * Actions are numbers as in {@link GameState#apply}. Before its bestmove a search reports
+ * {@code info depth <d> nodes <n> nps <n>}. The expected reply is the second move of the line the
+ * search found, left out when the move was solved, speculated or its line is one move long. A
+ * search started with {@code go ponder}
+ * runs on the position after the expected reply and holds its answer until {@code ponderhit} or
+ * {@code stop}; after {@code stop} the answer is discarded by the other side. Commands may be sent
+ * without waiting for answers, which come in the order of the commands that asked for them; only
+ * while a search ponders are {@code isready} and {@code legal} answered ahead of its bestmove.
+ * <p>
+ * {@code speculate} answers nothing. While the opponent thinks, it searches the position after
+ * every distinct action they could take, whatever cards they hold, each for the given time and
+ * the likeliest first, on a thread of the lowest priority. It stops at the next command that sets
+ * up or searches a position, and a {@code go} on a position it reached answers with its move at
+ * once, with {@code info string speculated}. The answers are kept until the next
+ * {@code speculate} or {@code newgame}.
+ * <p>
+ * A game set up from a seed holds every hand, as the seed decides them all; a game set up from a
+ * state holds what the state holds, such as the copy of {@link GameState#observedBy}.
+ */
+public class Engine {
+    public static final String NAME = "Knossos reference engine";
+
+    private final PrintWriter out;
+    private final Evaluator evaluator = Evaluator.loadDefault();
+    private final EndgameSolver solver = new EndgameSolver(EndgameSolver.DEFAULT_MAX_DECK_SIZE, new TranspositionTable(1 << 20));
+    private SearchDriver driver = new SearchDriver(evaluator::evaluate);
+    private Difficulty level;          // null to search as long as asked and never play at random
+    private final Determinizer beliefs = new Determinizer(System.nanoTime()); // used by the search thread once a search starts
+    private final Determinizer speculationBeliefs = new Determinizer(System.nanoTime() + 1); // a copy of the beliefs for speculation
+    private final SplittableRandom noise = new SplittableRandom();
+    private final Object searchLock = new Object();
+
+    private GameState position;
+    private long seed;                 // the seed of position, if it was set up from one
+    private boolean fromSeed;
+    private int[] played = new int[64]; // the actions played on the seed, to extend it by the new ones only
+    private int playedCount;
+
+    private final ExecutorService searchThread = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "engine-search");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private Future<?> search;          // the last search, null once it has answered
+    private volatile boolean stopRequested;
+    private volatile boolean pondering;
+    private Future<double[]> beliefsSnapshot; // the beliefs the last search started with, taken on its thread
+
+    private SearchDriver speculationDriver = new SearchDriver(evaluator::evaluate); // one thread, whatever the level
+    private final ExecutorService speculationThread = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "engine-speculation");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+    private final Map<Long, Integer> speculated = new ConcurrentHashMap<>(); // move by position hash
+    private Future<?> speculation;     // the running speculation, null if there is none
+    private volatile boolean speculating;
+
+    /**
+     * Constructs an engine that answers on the given writer.
+     * @param out where the answers go.
+     */
+    public Engine(PrintWriter out) {
+        this.out = out;
+        driver.setDeterminizer(beliefs);
+        speculationDriver.setDeterminizer(speculationBeliefs);
+    }
+
+    public static void main(String[] args) throws IOException {
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.US_ASCII));
+        Engine engine = new Engine(new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.US_ASCII))));
+        String line;
+        while ((line = in.readLine()) != null) {
+            if (!engine.handle(line)) {
+                break;
+            }
+        }
+        engine.stopSearch();
+    }
+
+    /**
+     * Handles one command.
+     *
+     * @param line the command.
+     * @return false once the engine is asked to quit.
+     */
+    public boolean handle(String line) {
+        String[] words = line.trim().split("\\s+");
+        switch (words[0]) {
+            case "" -> {
+                // empty lines are ignored
+            }
+            case "hello" -> send("id name " + NAME + "\nhellook");
+            case "isready" -> {
+                waitUnlessPondering();
+                send("readyok");
+            }
+            case "newgame" -> {
+                finishSpeculation();
+                speculated.clear();
+                finishSearch();
+                position = null;
+                fromSeed = false;
+                playedCount = 0;
+                beliefs.reset();
+                beliefsSnapshot = null;
+            }
+            case "position" -> {
+                finishSpeculation();
+                finishSearch();
+                try {
+                    setPosition(words);
+                } catch (IllegalArgumentException | IOException e) {
+                    position = null;
+                    send("info string error " + e.getMessage());
+                }
+            }
+            case "legal" -> {
+                waitUnlessPondering();
+                send(legal());
+            }
+            case "level" -> {
+                finishSpeculation();
+                finishSearch();
+                try {
+                    level = Difficulty.of(words.length > 1 ? words[1] : "");
+                    driver.close();
+                    driver = level.newDriver(evaluator);
+                    driver.setDeterminizer(beliefs);
+                    speculationDriver.close();
+                    speculationDriver = new SearchDriver(evaluator::evaluate, level.getMaxDepth(), 1);
+                    speculationDriver.setDeterminizer(speculationBeliefs);
+                } catch (IllegalArgumentException e) {
+                    send("info string error " + e.getMessage());
+                }
+            }
+            case "go" -> go(words);
+            case "speculate" -> speculate(words);
+            case "ponderhit" -> release(false);
+            case "stop" -> release(true);
+            case "quit" -> {
+                return false;
+            }
+            default -> send("info string error unknown command " + words[0]);
+        }
+        return true;
+    }
+
+    // ---------------------------------------------
+    // Commands
+    // ---------------------------------------------
+
+    private void setPosition(String[] words) throws IOException {
+        if (words.length < 3) {
+            throw new IllegalArgumentException("position needs seed or state");
+        }
+        int moves = 3;
+        if (moves < words.length && !words[moves].equals("moves")) {
+            throw new IllegalArgumentException("expected moves, got " + words[moves]);
+        }
+        int[] actions = new int[Math.max(0, words.length - moves - 1)];
+        for (int i = 0; i < actions.length; i++) {
+            actions[i] = Integer.parseInt(words[moves + 1 + i]);
+        }
+
+        switch (words[1]) {
+            case "seed" -> {
+                long newSeed = Long.parseUnsignedLong(words[2], 16);
+                // a position that extends the last one only needs the new actions
+                boolean continues = fromSeed && position != null && newSeed == seed && actions.length >= playedCount
+                        && Arrays.equals(played, 0, playedCount, actions, 0, playedCount);
+                if (!continues) {
+                    position = GameState.newGame(newSeed);
+                    seed = newSeed;
+                    fromSeed = true;
+                    playedCount = 0;
+                }
+                for (int i = playedCount; i < actions.length; i++) {
+                    applyChecked(actions[i]);
+                    if (playedCount == played.length) {
+                        played = Arrays.copyOf(played, played.length * 2);
+                    }
+                    played[playedCount++] = actions[i];
+                }
+            }
+            case "state" -> {
+                position = GameState.readFrom(ByteBuffer.wrap(fromHex(words[2])));
+                fromSeed = false;
+                for (int action : actions) {
+                    applyChecked(action);
+                }
+            }
+            default -> throw new IllegalArgumentException("unknown position " + words[1]);
+        }
+    }
+
+    private void applyChecked(int action) {
+        if (position.isTerminal() || action < 0 || GameState.actionSlot(action) >= position.getHandSize(position.getActivePlayer())) {
+            throw new IllegalArgumentException("illegal action " + action);
+        }
+        position.apply(action);
+    }
+
+    private String legal() {
+        StringBuilder line = new StringBuilder("legal");
+        if (position != null && !position.isTerminal()) {
+            int[] actions = new int[GameState.MAX_ACTIONS];
+            int count = position.legalActions(actions);
+            for (int i = 0; i < count; i++) {
+                line.append(' ').append(actions[i]);
+            }
+        }
+        return line.toString();
+    }
+
+    private void go(String[] words) {
+        long moveMillis = 1000;
+        long clockMillis = -1;
+        boolean ponder = false;
+        for (int i = 1; i < words.length; i++) {
+            if (words[i].equals("movetime") && i + 1 < words.length) {
+                moveMillis = Long.parseLong(words[++i]);
+            } else if (words[i].equals("time") && i + 1 < words.length) {
+                clockMillis = Long.parseLong(words[++i]);
+            } else if (words[i].equals("ponder")) {
+                ponder = true;
+            }
+        }
+        finishSpeculation();
+        finishSearch();
+        if (position == null || position.isTerminal()) {
+            send("bestmove none");
+            return;
+        }
+
+        GameState root = position.copy();
+        beliefs.observe(root);
+        beliefsSnapshot = searchThread.submit(beliefs::getTheseusBeliefs);
+        Integer known = speculated.get(root.hash());
+        long budget;
+        if (clockMillis < 0) {
+            budget = level == null ? moveMillis : Math.min(moveMillis, level.getMoveMillis());
+        } else {
+            // a level spends no more of the clock than its time per move over the moves left
+            long clock = level == null ? clockMillis : Math.min(clockMillis, TimeManager.clockFor(root, level.getMoveMillis()));
+            budget = TimeManager.budget(root, clock);
+        }
+        stopRequested = false;
+        pondering = ponder;
+        search = searchThread.submit(() -> {
+            long deadline = System.nanoTime() + budget * 1_000_000;
+            int best;
+            if (known != null) {
+                best = known;
+                send("info string speculated");
+            } else {
+                best = bestAction(root, deadline);
+            }
+            if (level != null && noise.nextDouble() < level.getNoise()) {
+                int[] actions = new int[GameState.MAX_ACTIONS];
+                best = actions[noise.nextInt(root.legalActions(actions))];
+            }
+            // the reply to ponder on is the next move of the line the search expects, if it has one
+            int reply = -1;
+            if (known == null && !solves(root)) {
+                send("info depth " + driver.getDepth() + " nodes " + driver.getNodes() + " nps " + driver.getNodesPerSecond());
+                int[] pv = driver.getPrincipalVariation();
+                if (pv.length > 1 && pv[0] == best) {
+                    reply = pv[1];
+                }
+            }
+            // a pondering search holds its answer until the expected reply is played or it is stopped
+            synchronized (searchLock) {
+                while (pondering && !stopRequested) {
+                    try {
+                        searchLock.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+            }
+            send(reply < 0 ? "bestmove " + best : "bestmove " + best + " ponder " + reply);
+        });
+    }
+
+    /**
+     * Ends the pondering of the search, which then answers.
+     * @param stop whether the search is stopped rather than continued as a normal one.
+     */
+    private void release(boolean stop) {
+        synchronized (searchLock) {
+            if (stop) {
+                stopRequested = true;
+                driver.stop();
+            }
+            pondering = false;
+            searchLock.notifyAll();
+        }
+    }
+
+    private void waitUnlessPondering() {
+        if (!pondering) {
+            waitForSearch();
+        }
+    }
+
+    private void waitForSearch() {
+        Future<?> running = search;
+        if (running == null) {
+            return;
+        }
+        try {
+            running.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            send("info string error " + e.getCause());
+        }
+        search = null;
+    }
+
+    /**
+     * Waits for the running search to answer; one that ponders is stopped, as the game has moved on.
+     */
+    private void finishSearch() {
+        if (pondering) {
+            release(true);
+        }
+        waitForSearch();
+    }
+
+    private void stopSearch() {
+        finishSpeculation();
+        release(true);
+        waitForSearch();
+    }
+
+    // ---------------------------------------------
+    // Speculation
+    // ---------------------------------------------
+
+    private void speculate(String[] words) {
+        long moveMillis = 1000;
+        for (int i = 1; i < words.length; i++) {
+            if (words[i].equals("movetime") && i + 1 < words.length) {
+                moveMillis = Long.parseLong(words[++i]);
+            }
+        }
+        finishSpeculation();
+        speculated.clear();
+        if (position == null || position.isTerminal() || level != null && !level.thinksAhead()) {
+            return;
+        }
+
+        List<GameState> replies = likelyReplies(position);
+        long budget = moveMillis * 1_000_000;
+        speculationBeliefs.setTheseusBeliefs(snapshotBeliefs());
+        speculating = true;
+        speculation = speculationThread.submit(() -> {
+            for (GameState reply : replies) {
+                if (!speculating) {
+                    break;
+                }
+                // the solver answers fast enough, and its buffers belong to the search thread
+                if (!reply.isTerminal() && !solver.canSolve(reply)) {
+                    int best = speculationDriver.search(reply, System.nanoTime() + budget);
+                    if (speculating) {
+                        speculated.put(reply.hash(), best);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Returns the beliefs the last search started with. They are read on the search thread ahead
+     * of that search, as the determinizer is not safe to share, so they are ready before it runs.
+     */
+    private double[] snapshotBeliefs() {
+        if (beliefsSnapshot == null) {
+            return null;
+        }
+        try {
+            return beliefsSnapshot.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            send("info string error " + e.getCause());
+            return null;
+        }
+    }
+
+    /**
+     * Lists the positions the opponent to move can reach, one per distinct position. Their hand may
+     * hold any card, so every card is tried in its first slot; the positions come in the order the
+     * evaluation thinks best for the opponent, the way a good player is likeliest to go.
+     */
+    static List<GameState> likelyReplies(GameState state, Evaluator evaluator) {
+        int mover = state.getActivePlayer();
+        int sign = mover == 0 ? 1 : -1;
+        List<GameState> replies = new ArrayList<>();
+        if (state.getHandSize(mover) == 0) {
+            return replies;
+        }
+        List<Double> values = new ArrayList<>();
+        Set<Long> seen = new HashSet<>();
+        int[] actions = new int[GameState.MAX_ACTIONS];
+        GameState holding = state.copy();
+        for (int code = 0; code < GameState.CARD_CODES; code++) {
+            holding.setHandCard(mover, 0, code);
+            int count = holding.legalActions(actions);
+            for (int i = 0; i < count && GameState.actionSlot(actions[i]) == 0; i++) {
+                GameState reply = holding.copy();
+                reply.apply(actions[i]);
+                if (seen.add(reply.hash())) {
+                    double value = sign * evaluator.evaluate(reply);
+                    int at = 0;
+                    while (at < values.size() && values.get(at) >= value) {
+                        at++;
+                    }
+                    replies.add(at, reply);
+                    values.add(at, value);
+                }
+            }
+        }
+        return replies;
+    }
+
+    private List<GameState> likelyReplies(GameState state) {
+        return likelyReplies(state, evaluator);
+    }
+
+    /**
+     * Stops the running speculation and waits for it, keeping what it found.
+     */
+    private void finishSpeculation() {
+        Future<?> running = speculation;
+        if (running == null) {
+            return;
+        }
+        speculating = false;
+        speculationDriver.stop();
+        try {
+            running.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            send("info string error " + e.getCause());
+        }
+        speculation = null;
+    }
+
+    // ---------------------------------------------
+    // Search
+    // ---------------------------------------------
+
+    /**
+     * Chooses an action: exactly when the solver can reach the end of the deck, over deals of the
+     * cards the position hides, otherwise by the {@link SearchDriver} until the deadline.
+     *
+     * @param state the position, with the searching player to move.
+     * @param deadline the System.nanoTime() by which to answer.
+     * @return the action.
+     */
+    int bestAction(GameState state, long deadline) {
+        if (solves(state)) {
+            return solver.bestAction(state, beliefs, EndgameSolver.DEFAULT_DEALS);
+        }
+        return driver.search(state, stopRequested ? System.nanoTime() : deadline);
+    }
+
+    private boolean solves(GameState state) {
+        return solver.canSolve(state) && (level == null || level.solvesEndgame());
+    }
+
+    private void send(String line) {
+        synchronized (out) {
+            out.println(line);
+            out.flush();
+        }
+    }
+
+    static byte[] fromHex(String hex) {
+        if (hex.length() % 2 != 0) {
+            throw new IllegalArgumentException("odd hex length");
+        }
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) Integer.parseInt(hex, 2 * i, 2 * i + 2, 16);
+        }
+        return bytes;
+    }
+}
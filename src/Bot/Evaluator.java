@@ -0,0 +1,282 @@
+package Bot;
+
+import Model.GameState;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Locale;
+
+/**
+ * A static evaluation of positions that are not over yet.
+ * <p>
+ * The evaluation is a weighted sum of the differences between the two players' features, which
+ * GameState keeps up to date as pawns move and cards are played, so evaluating a position costs a
+ * handful of multiplications instead of a walk over the board. The sum is squashed to the range
+ * -1 to 1 so that it is on the same scale as the results of {@link EndgameSolver}.
+ * <p>
+ * Instead of the weighted sum, an evaluator can use a small network with one hidden layer of
+ * tanh units over the same differences. Neither has a bias, so swapping the players negates the
+ * score. Trained weights are kept in a text file, see {@link #load} and Simulation.Trainer.
+ */
+public class Evaluator {
+    public static final File DEFAULT_FILE = new File("weights", "evaluator.weights");
+
+    private final double[] weights;  // per feature, or null for a network
+    private final double[][] hidden; // per hidden unit, per feature; null for a weighted sum
+    private final double[] output;   // per hidden unit
+
+    /**
+     * Constructs an evaluator with the default, hand-tuned weights.
+     */
+    public Evaluator() {
+        this(defaultWeights());
+    }
+
+    /**
+     * Constructs an evaluator with the given weights.
+     *
+     * @param weights one weight per feature, indexed by the GameState.FEATURE_ constants.
+     * @throws IllegalArgumentException if the number of weights does not match the number of features.
+     */
+    public Evaluator(double[] weights) {
+        if (weights.length != GameState.FEATURES) {
+            throw new IllegalArgumentException("Expected " + GameState.FEATURES + " weights, got " + weights.length);
+        }
+        this.weights = weights.clone();
+        this.hidden = null;
+        this.output = null;
+    }
+
+    /**
+     * Constructs an evaluator that uses a network with one hidden layer.
+     *
+     * @param hidden the weights of every hidden unit, one per feature.
+     * @param output the weight of every hidden unit in the score.
+     * @throws IllegalArgumentException if the sizes do not match.
+     */
+    public Evaluator(double[][] hidden, double[] output) {
+        if (hidden.length != output.length || hidden.length == 0) {
+            throw new IllegalArgumentException("Expected as many output weights as hidden units, got " + output.length);
+        }
+        this.weights = null;
+        this.hidden = new double[hidden.length][];
+        for (int unit = 0; unit < hidden.length; unit++) {
+            if (hidden[unit].length != GameState.FEATURES) {
+                throw new IllegalArgumentException("Expected " + GameState.FEATURES + " weights per hidden unit, got " + hidden[unit].length);
+            }
+            this.hidden[unit] = hidden[unit].clone();
+        }
+        this.output = output.clone();
+    }
+
+    /**
+     * Constructs the evaluator the bots play with: the one of {@link #DEFAULT_FILE} if it can be
+     * read, the hand-tuned one otherwise.
+     *
+     * @return the evaluator.
+     */
+    public static Evaluator loadDefault() {
+        if (DEFAULT_FILE.exists()) {
+            try {
+                return load(DEFAULT_FILE);
+            } catch (IOException e) {
+                System.err.println("Ignoring unreadable weights " + DEFAULT_FILE.getPath() + ": " + e.getMessage());
+            }
+        }
+        return new Evaluator();
+    }
+
+    /**
+     * Loads an evaluator from a weight file. The file names its kind on the first line,
+     * {@code linear} or {@code mlp <units>}; a weighted sum then has a line per feature with its
+     * name and weight, a network a line {@code hidden <weight per feature>} per unit and a line
+     * {@code output <weight per unit>}. Lines starting with # are comments.
+     *
+     * @param file the file.
+     * @return the evaluator.
+     * @throws IOException if the file cannot be read or is not a weight file.
+     */
+    public static Evaluator load(File file) throws IOException {
+        try (BufferedReader in = new BufferedReader(new FileReader(file))) {
+            String[] kind = nextLine(in);
+            try {
+                if (kind[0].equals("linear")) {
+                    double[] weights = new double[GameState.FEATURES];
+                    for (int f = 0; f < GameState.FEATURES; f++) {
+                        String[] line = nextLine(in);
+                        if (!line[0].equals(GameState.FEATURE_NAMES[f])) {
+                            throw new IOException("Expected the weight of " + GameState.FEATURE_NAMES[f] + ", got " + line[0]);
+                        }
+                        weights[f] = Double.parseDouble(line[1]);
+                    }
+                    return new Evaluator(weights);
+                } else if (kind[0].equals("mlp")) {
+                    int units = Integer.parseInt(kind[1]);
+                    double[][] hidden = new double[units][];
+                    for (int unit = 0; unit < units; unit++) {
+                        hidden[unit] = values(nextLine(in), "hidden", GameState.FEATURES);
+                    }
+                    return new Evaluator(hidden, values(nextLine(in), "output", units));
+                }
+            } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                throw new IOException("Bad weight file: " + e.getMessage(), e);
+            } catch (IllegalArgumentException e) {
+                throw new IOException(e.getMessage(), e);
+            }
+            throw new IOException("Unknown kind of weights: " + kind[0]);
+        }
+    }
+
+    private static String[] nextLine(BufferedReader in) throws IOException {
+        String line;
+        while ((line = in.readLine()) != null) {
+            line = line.trim();
+            if (!line.isEmpty() && !line.startsWith("#")) {
+                return line.split("\\s+");
+            }
+        }
+        throw new IOException("Weight file ends early");
+    }
+
+    private static double[] values(String[] line, String name, int count) throws IOException {
+        if (!line[0].equals(name) || line.length != count + 1) {
+            throw new IOException("Expected " + name + " with " + count + " weights");
+        }
+        double[] values = new double[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = Double.parseDouble(line[i + 1]);
+        }
+        return values;
+    }
+
+    /**
+     * Saves the evaluator as a weight file, see {@link #load}.
+     *
+     * @param file the file.
+     * @param comment a line to start the file with, such as where the weights come from.
+     * @throws IOException if the file cannot be written.
+     */
+    public void save(File file, String comment) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Cannot create directory: " + parent);
+        }
+        try (PrintWriter out = new PrintWriter(new FileWriter(file))) {
+            out.println("# " + comment);
+            if (weights != null) {
+                out.println("linear");
+                for (int f = 0; f < GameState.FEATURES; f++) {
+                    out.println(GameState.FEATURE_NAMES[f] + " " + format(weights[f]));
+                }
+            } else {
+                out.println("mlp " + hidden.length);
+                for (double[] unit : hidden) {
+                    out.println("hidden" + format(unit));
+                }
+                out.println("output" + format(output));
+            }
+            if (out.checkError()) {
+                throw new IOException("Cannot write " + file);
+            }
+        }
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.9g", value);
+    }
+
+    private static String format(double[] values) {
+        StringBuilder line = new StringBuilder();
+        for (double value : values) {
+            line.append(' ').append(format(value));
+        }
+        return line.toString();
+    }
+
+    /**
+     * Returns the default weights.
+     * @return a new array of weights, indexed by the GameState.FEATURE_ constants.
+     */
+    public static double[] defaultWeights() {
+        double[] weights = new double[GameState.FEATURES];
+        weights[GameState.FEATURE_PROGRESS] = 0.04;
+        weights[GameState.FEATURE_REACHABLE] = 0.004;
+        weights[GameState.FEATURE_RARE] = 0.03;
+        weights[GameState.FEATURE_FRESCO] = 0.03;
+        weights[GameState.FEATURE_STATUES] = 0.1;
+        weights[GameState.FEATURE_DESTROYS] = 0.05;
+        weights[GameState.FEATURE_HAND] = 0.05;
+        return weights;
+    }
+
+    /**
+     * Returns a copy of the weights.
+     * @return the weights, indexed by the GameState.FEATURE_ constants, or null for a network.
+     */
+    public double[] getWeights() {
+        return weights == null ? null : weights.clone();
+    }
+
+    /**
+     * Evaluates a position. Finished games get their exact result.
+     *
+     * @param state the position.
+     * @return the value for the first player, between -1 and 1.
+     */
+    public double evaluate(GameState state) {
+        if (state.isTerminal()) {
+            return state.getResult();
+        }
+        return Math.tanh(0.5 * score(state));
+    }
+
+    /**
+     * Returns the weighted feature difference between the players, before squashing.
+     *
+     * @param state the position.
+     * @return the raw score for the first player.
+     */
+    public double score(GameState state) {
+        double score = 0.0;
+        if (weights != null) {
+            for (int f = 0; f < GameState.FEATURES; f++) {
+                score += weights[f] * (state.getFeature(0, f) - state.getFeature(1, f));
+            }
+            return score;
+        }
+        double[] differences = new double[GameState.FEATURES];
+        for (int f = 0; f < GameState.FEATURES; f++) {
+            differences[f] = state.getFeature(0, f) - state.getFeature(1, f);
+        }
+        return score(differences);
+    }
+
+    /**
+     * Returns the score of given feature differences, such as those of a recorded position.
+     *
+     * @param differences the features of the first player minus those of the second, indexed by
+     *                    the GameState.FEATURE_ constants.
+     * @return the raw score for the first player.
+     */
+    public double score(double[] differences) {
+        double score = 0.0;
+        if (weights != null) {
+            for (int f = 0; f < GameState.FEATURES; f++) {
+                score += weights[f] * differences[f];
+            }
+            return score;
+        }
+        for (int unit = 0; unit < hidden.length; unit++) {
+            double sum = 0.0;
+            for (int f = 0; f < GameState.FEATURES; f++) {
+                sum += hidden[unit][f] * differences[f];
+            }
+            score += output[unit] * Math.tanh(sum);
+        }
+        return score;
+    }
+}
@@ -0,0 +1,313 @@
+package Bot;
+
+import Model.GameState;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A bot that runs as a separate program and is spoken to in the engine protocol of {@link Engine}.
+ * <p>
+ * Commands are buffered and only sent when an answer is awaited or {@link #flush()} is called,
+ * so several requests can be pipelined into one write; the answers must then be awaited in the
+ * order the requests were made.
+ */
+public class ExternalEngine implements Closeable {
+    private final Process process;
+    private final BufferedWriter commands;
+    private final BufferedReader answers;
+    private String name = "engine"; // as the engine introduced itself
+    private int ponderMove = -1;
+
+    private ExternalEngine(Process process) throws IOException {
+        this.process = process;
+        this.commands = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.US_ASCII));
+        this.answers = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.US_ASCII));
+
+        send("hello");
+        flush();
+        String line;
+        while (!(line = readAnswer()).equals("hellook")) {
+            if (line.startsWith("id name ")) {
+                name = line.substring("id name ".length());
+            }
+        }
+    }
+
+    /**
+     * Starts an engine and greets it.
+     *
+     * @param command the program and its arguments.
+     * @return the engine, ready for a game.
+     * @throws IOException if the program cannot be started or does not speak the protocol.
+     */
+    public static ExternalEngine start(List<String> command) throws IOException {
+        Process process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+        try {
+            return new ExternalEngine(process);
+        } catch (IOException e) {
+            process.destroy();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the command that starts {@link Engine} with the Java and class path of this program.
+     * @return the command.
+     */
+    public static List<String> referenceCommand() {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        return List.of(java, "-cp", System.getProperty("java.class.path"), Engine.class.getName());
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void newGame() {
+        send("newgame");
+    }
+
+    /**
+     * Sets the level the engine plays at, which an engine that has no levels ignores.
+     * @param level the level.
+     */
+    public void level(Difficulty level) {
+        send("level " + level.name().toLowerCase());
+    }
+
+    /**
+     * Sets up a game by its seed and the actions played since. An engine may only apply the
+     * actions that follow the last position of the same game.
+     *
+     * @param seed the seed of GameState.newGame.
+     * @param actions the actions played.
+     * @param count the number of actions.
+     */
+    public void position(long seed, int[] actions, int count) {
+        StringBuilder line = new StringBuilder(24 + 3 * count).append("position seed ").append(Long.toHexString(seed));
+        if (count > 0) {
+            line.append(" moves");
+            for (int i = 0; i < count; i++) {
+                line.append(' ').append(actions[i]);
+            }
+        }
+        send(line.toString());
+    }
+
+    /**
+     * Sets up a game from a state, such as the copy of GameState.observedBy for the engine's seat.
+     * @param state the state.
+     */
+    public void position(GameState state) {
+        ByteBuffer bytes = ByteBuffer.allocate(512);
+        state.writeTo(bytes);
+        bytes.flip();
+        StringBuilder line = new StringBuilder(16 + 2 * bytes.remaining()).append("position state ");
+        while (bytes.hasRemaining()) {
+            int b = bytes.get() & 0xFF;
+            line.append(Character.forDigit(b >> 4, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        send(line.toString());
+    }
+
+    /**
+     * Starts a search of the position; the answer comes with {@link #awaitBestMove()}.
+     * @param moveMillis the time the engine may take.
+     */
+    public void go(long moveMillis) {
+        send("go movetime " + moveMillis);
+    }
+
+    /**
+     * Starts a search of the position that takes a share of the engine's clock; the answer comes
+     * with {@link #awaitBestMove()}.
+     *
+     * @param clockMillis the time the engine has left for the rest of the game.
+     */
+    public void goOnClock(long clockMillis) {
+        send("go time " + clockMillis);
+    }
+
+    /**
+     * Starts a search of the position after the expected reply, to be continued with
+     * {@link #ponderHit()} or abandoned with {@link #stop()}.
+     *
+     * @param moveMillis the time the engine may take once the reply is played.
+     */
+    public void ponder(long moveMillis) {
+        send("go ponder movetime " + moveMillis);
+    }
+
+    /**
+     * Lets the engine search ahead on the position, which has the opponent to move, while the
+     * opponent thinks. It stops at the next position or search, and answers nothing.
+     *
+     * @param moveMillis the time the engine may take on each reply of the opponent.
+     */
+    public void speculate(long moveMillis) {
+        send("speculate movetime " + moveMillis);
+    }
+
+    public void ponderHit() {
+        send("ponderhit");
+    }
+
+    public void stop() {
+        send("stop");
+    }
+
+    /**
+     * Sends the buffered commands.
+     * @throws IOException if the engine is gone.
+     */
+    public void flush() throws IOException {
+        commands.flush();
+    }
+
+    /**
+     * Waits for the answer of a search.
+     *
+     * @return the action, or -1 if the engine had no move to make.
+     * @throws IOException if the engine is gone or answers something else.
+     */
+    public int awaitBestMove() throws IOException {
+        flush();
+        String line = readAnswer();
+        if (!line.startsWith("bestmove ")) {
+            throw new IOException("Expected bestmove from " + name + ", got: " + line);
+        }
+        String[] words = line.split(" ");
+        try {
+            ponderMove = words.length >= 4 && words[2].equals("ponder") ? Integer.parseInt(words[3]) : -1;
+            return words[1].equals("none") ? -1 : Integer.parseInt(words[1]);
+        } catch (NumberFormatException e) {
+            throw new IOException("Bad bestmove from " + name + ": " + line, e);
+        }
+    }
+
+    /**
+     * Returns the reply the engine expected to its last best move.
+     * @return the action, or -1 if it named none.
+     */
+    public int getPonderMove() {
+        return ponderMove;
+    }
+
+    /**
+     * Asks for the actions of the player to move, as the engine sees them.
+     *
+     * @param actions an array of at least {@link GameState#MAX_ACTIONS} elements that receives the actions.
+     * @return the number of actions written.
+     * @throws IOException if the engine is gone or answers something else.
+     */
+    public int legalActions(int[] actions) throws IOException {
+        send("legal");
+        flush();
+        String line = readAnswer();
+        if (!line.startsWith("legal")) {
+            throw new IOException("Expected legal from " + name + ", got: " + line);
+        }
+        String[] words = line.split(" ");
+        int count = 0;
+        for (int i = 1; i < words.length && count < actions.length; i++) {
+            actions[count++] = Integer.parseInt(words[i]);
+        }
+        return count;
+    }
+
+    /**
+     * Waits until the engine has done every command sent before.
+     * @throws IOException if the engine is gone or answers something else.
+     */
+    public void awaitReady() throws IOException {
+        send("isready");
+        flush();
+        String line = readAnswer();
+        if (!line.equals("readyok")) {
+            throw new IOException("Expected readyok from " + name + ", got: " + line);
+        }
+    }
+
+    /**
+     * Asks for a move and waits for it.
+     *
+     * @param state the game, as the engine may see it.
+     * @param moveMillis the time the engine may take.
+     * @return the action, or -1 if the engine had no move to make.
+     * @throws IOException if the engine is gone or answers something else.
+     */
+    public int bestMove(GameState state, long moveMillis) throws IOException {
+        position(state);
+        go(moveMillis);
+        return awaitBestMove();
+    }
+
+    /**
+     * Asks for a move that takes a share of the engine's clock and waits for it.
+     *
+     * @param state the game, as the engine may see it.
+     * @param clockMillis the time the engine has left for the rest of the game.
+     * @return the action, or -1 if the engine had no move to make.
+     * @throws IOException if the engine is gone or answers something else.
+     */
+    public int bestMoveOnClock(GameState state, long clockMillis) throws IOException {
+        position(state);
+        goOnClock(clockMillis);
+        return awaitBestMove();
+    }
+
+    /**
+     * Asks the engine to quit, and ends it if it does not.
+     */
+    @Override
+    public void close() {
+        try {
+            send("quit");
+            flush();
+        } catch (IOException e) {
+            // the engine is gone already
+        }
+        try {
+            if (!process.waitFor(1, TimeUnit.SECONDS)) {
+                process.destroy();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            process.destroy();
+        }
+    }
+
+    private void send(String line) {
+        try {
+            commands.write(line);
+            commands.newLine();
+        } catch (IOException e) {
+            // the engine is gone; the next answer awaited reports it
+        }
+    }
+
+    /**
+     * Reads the next answer, passing over the information lines the engine may send at any time.
+     */
+    private String readAnswer() throws IOException {
+        String line;
+        while ((line = answers.readLine()) != null) {
+            if (line.startsWith("info string error")) {
+                System.err.println(name + ": " + line.substring("info string ".length()));
+            } else if (!line.startsWith("info")) {
+                return line;
+            }
+        }
+        throw new IOException("Engine " + name + " exited");
+    }
+}
@@ -0,0 +1,59 @@
+package Bot;
+
+import Model.GameState;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Plays the moves of a bot that runs as a separate program, see {@link ExternalEngine}.
+ */
+public class ExternalPolicy implements Policy, Closeable {
+    private final String name;
+    private final ExternalEngine engine;
+    private final GameClock clock;
+
+    /**
+     * Constructs a policy that asks an engine.
+     *
+     * @param name the name it is listed under.
+     * @param engine the engine, which the policy closes when it is closed.
+     * @param moveMillis the time the engine may take per move, on average over a game; the engine
+     *                   is given the clock and shares it out itself.
+     */
+    public ExternalPolicy(String name, ExternalEngine engine, long moveMillis) {
+        this.name = name;
+        this.engine = engine;
+        this.clock = new GameClock(moveMillis);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * {@inheritDoc}
+     * @throws IllegalStateException if the engine fails or has no move to make.
+     */
+    @Override
+    public int chooseAction(GameState view) {
+        int action;
+        long start = System.nanoTime();
+        try {
+            action = engine.bestMoveOnClock(view, clock.timeLeft(view));
+        } catch (IOException e) {
+            throw new IllegalStateException(name + " failed: " + e.getMessage(), e);
+        }
+        if (action < 0) {
+            throw new IllegalStateException(name + " had no move to make");
+        }
+        clock.spend((System.nanoTime() - start) / 1_000_000);
+        return action;
+    }
+
+    @Override
+    public void close() {
+        engine.close();
+    }
+}
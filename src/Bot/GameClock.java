@@ -0,0 +1,57 @@
+package Bot;
+
+import Model.GameState;
+
+/**
+ * The clock of one player over a game, for a player that is given a time per move: it starts with
+ * that time for every move of the game, see {@link TimeManager#clockFor}, and each move is given
+ * the share {@link TimeManager#budget} allows and is charged what it took. A clock follows the
+ * games it is shown and starts again when the deck is larger than at the last move, as only a new
+ * game refills it.
+ */
+public class GameClock {
+    private final long moveMillis;
+    private long leftMillis;
+    private int lastDeckSize = -1;
+
+    /**
+     * Constructs a clock.
+     * @param moveMillis the time per move, on average.
+     */
+    public GameClock(long moveMillis) {
+        this.moveMillis = moveMillis;
+    }
+
+    /**
+     * Returns the time left for the rest of the game, starting a new clock if the position is of
+     * a new game.
+     *
+     * @param state the position, with the player of the clock to move.
+     * @return the time left.
+     */
+    public long timeLeft(GameState state) {
+        if (state.getDeckSize() > lastDeckSize) {
+            leftMillis = TimeManager.clockFor(state, moveMillis);
+        }
+        lastDeckSize = state.getDeckSize();
+        return leftMillis;
+    }
+
+    /**
+     * Returns the time the move of a position may take.
+     *
+     * @param state the position, with the player of the clock to move.
+     * @return the time for the move.
+     */
+    public long budget(GameState state) {
+        return TimeManager.budget(state, timeLeft(state));
+    }
+
+    /**
+     * Charges the clock the time a move took.
+     * @param millis the time taken.
+     */
+    public void spend(long millis) {
+        leftMillis = Math.max(0, leftMillis - millis);
+    }
+}
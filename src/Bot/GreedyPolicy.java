@@ -0,0 +1,72 @@
+package Bot;
+
+import Model.GameState;
+
+/**
+ * Plays the action whose position the {@link Evaluator} likes best, one move ahead. With a
+ * solver it plays exactly once the deck is small enough for it, over deals of the cards it cannot
+ * see, see {@link EndgameSolver#bestAction(GameState, Determinizer, int)}.
+ */
+public class GreedyPolicy implements Policy {
+    private final String name;
+    private final Evaluator evaluator;
+    private final EndgameSolver solver;
+    private final Determinizer determinizer;
+    private final int[] actions = new int[GameState.MAX_ACTIONS];
+    private final GameState child = new GameState();
+
+    /**
+     * Constructs a greedy policy.
+     *
+     * @param name the name it is listed under.
+     * @param evaluator the evaluation of positions.
+     * @param solver the solver for the end of the deck, or null to evaluate to the end.
+     */
+    public GreedyPolicy(String name, Evaluator evaluator, EndgameSolver solver) {
+        this(name, evaluator, solver, 0);
+    }
+
+    /**
+     * Constructs a greedy policy.
+     *
+     * @param name the name it is listed under.
+     * @param evaluator the evaluation of positions.
+     * @param solver the solver for the end of the deck, or null to evaluate to the end.
+     * @param seed the seed of the deals the solver plays over.
+     */
+    public GreedyPolicy(String name, Evaluator evaluator, EndgameSolver solver, long seed) {
+        this.name = name;
+        this.evaluator = evaluator;
+        this.solver = solver;
+        this.determinizer = solver == null ? null : new Determinizer(seed);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public int chooseAction(GameState view) {
+        if (solver != null) {
+            determinizer.observe(view);
+            if (solver.canSolve(view)) {
+                return solver.bestAction(view, determinizer, EndgameSolver.DEFAULT_DEALS);
+            }
+        }
+        int count = view.legalActions(actions);
+        int sign = view.getActivePlayer() == 0 ? 1 : -1;
+        int best = actions[0];
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < count; i++) {
+            child.copyFrom(view);
+            child.apply(actions[i]);
+            double value = sign * evaluator.evaluate(child);
+            if (value > bestValue) {
+                bestValue = value;
+                best = actions[i];
+            }
+        }
+        return best;
+    }
+}
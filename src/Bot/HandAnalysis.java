@@ -0,0 +1,279 @@
+package Bot;
+
+import Model.GameState;
+
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+/**
+ * Estimates, for every card of the hand of the player to move, the chance to win if they play it
+ * and if they discard it, by playing the game out many times after each action.
+ * <p>
+ * The player cannot see the opponent's hand or the deck, so every game out is a new deal of a
+ * {@link Determinizer}, which hides an opponent's Theseus that has not been revealed as likely as
+ * the player believes it to be on each pawn. Both players then play as the greedy bot with some
+ * noise.
+ * <p>
+ * The games run on a shared pool of low-priority threads, one fewer than there are cores, and the
+ * estimates are sharpened round by round, every action getting a few more games per round. The
+ * listener gets the latest estimates on the event dispatch thread: at most one update waits there
+ * at a time and they are at least {@link #UPDATE_MILLIS} apart, so a busy analysis cannot flood it.
+ * An update waits rather than being dropped, and reads the estimates when it runs, so it carries
+ * every round that finished while it waited, and the last round of the analysis always arrives.
+ */
+public class HandAnalysis {
+    public static final long UPDATE_MILLIS = 50;
+    public static final int MAX_GAMES = 4000;   // per action, after which the estimate is good enough
+    public static final double NOISE = 0.15;
+
+    private static final int ROUND_GAMES = 2;   // games per action and round, after a first round of one
+    private static final ExecutorService workers = newWorkers();
+    private static final Evaluator evaluator = Evaluator.loadDefault();
+
+    private final GameState view;
+    private final int player;
+    private final int[] actions = new int[GameState.MAX_ACTIONS];
+    private final int count;
+    private final double[] theseusBeliefs; // by path of the opponent, null for all hidden pawns alike
+    private final AtomicLongArray points;  // half points of the player, per action
+    private final AtomicLongArray games;   // per action
+    private final Consumer<Estimate> listener;
+    private final AtomicBoolean updateWaiting = new AtomicBoolean();
+    private volatile long lastUpdate;      // System.nanoTime() of the last update delivered
+    private volatile boolean cancelled;
+
+    private HandAnalysis(GameState view, double[] theseusBeliefs, Consumer<Estimate> listener) {
+        this.view = view.copy();
+        this.theseusBeliefs = theseusBeliefs == null ? null : theseusBeliefs.clone();
+        this.player = view.getActivePlayer();
+        this.count = view.legalActions(actions);
+        this.points = new AtomicLongArray(count);
+        this.games = new AtomicLongArray(count);
+        this.listener = listener;
+    }
+
+    /**
+     * Starts the analysis of a position.
+     *
+     * @param view the game as the player to move sees it, see {@link GameState#observedBy}.
+     * @param theseusBeliefs how likely the player believes each path to hide the opponent's
+     *                       Theseus, as a {@link Model.PawnBeliefTracker} tells, or null to take
+     *                       every hidden pawn as equally likely.
+     * @param listener what gets the estimates, on the event dispatch thread.
+     * @return the running analysis.
+     */
+    public static HandAnalysis start(GameState view, double[] theseusBeliefs, Consumer<Estimate> listener) {
+        HandAnalysis analysis = new HandAnalysis(view, theseusBeliefs, listener);
+        if (view.isTerminal() || analysis.count == 0) {
+            return analysis;
+        }
+        long seed = System.nanoTime();
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        for (int t = 0; t < threads; t++) {
+            long threadSeed = seed + t;
+            workers.execute(() -> analysis.run(threadSeed));
+        }
+        return analysis;
+    }
+
+    /**
+     * Stops the analysis. No update reaches the listener afterwards, even one already on its way.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Returns the estimates so far.
+     * @return the estimates.
+     */
+    public Estimate getEstimate() {
+        int handSize = view.getHandSize(player);
+        int[] cards = new int[handSize];
+        double[] play = new double[handSize];
+        double[] discard = new double[handSize];
+        long total = 0;
+        for (int slot = 0; slot < handSize; slot++) {
+            cards[slot] = view.getHandCard(player, slot);
+            play[slot] = Double.NaN;
+            discard[slot] = Double.NaN;
+        }
+        for (int i = 0; i < count; i++) {
+            long played = games.get(i);
+            total += played;
+            if (played == 0) {
+                continue;
+            }
+            double chance = points.get(i) / (2.0 * played);
+            int slot = GameState.actionSlot(actions[i]);
+            if (GameState.actionKind(actions[i]) == GameState.DISCARD) {
+                discard[slot] = chance;
+            } else if (Double.isNaN(play[slot]) || chance > play[slot]) {
+                play[slot] = chance; // the better of playing and playing to open the box
+            }
+        }
+        // a card like one before it is listed once, and a card that cannot move a pawn plays as a discard
+        for (int slot = 0; slot < handSize; slot++) {
+            int code = view.getHandCard(player, slot);
+            for (int before = 0; before < slot; before++) {
+                if (view.getHandCard(player, before) == code) {
+                    play[slot] = play[before];
+                    discard[slot] = discard[before];
+                    break;
+                }
+            }
+            if (Double.isNaN(play[slot]) && !hasPlay(slot)) {
+                play[slot] = discard[slot];
+            }
+        }
+        return new Estimate(cards, play, discard, total);
+    }
+
+    private boolean hasPlay(int slot) {
+        for (int i = 0; i < count; i++) {
+            if (GameState.actionSlot(actions[i]) == slot && GameState.actionKind(actions[i]) != GameState.DISCARD) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Plays rounds of games until the analysis is cancelled or has enough.
+     */
+    private void run(long seed) {
+        Determinizer deals = new Determinizer(seed);
+        deals.setTheseusBeliefs(theseusBeliefs);
+        Policy rollout = new NoisyPolicy(new GreedyPolicy("rollout", evaluator, null), NOISE, seed);
+        GameState game = new GameState();
+
+        int roundGames = 1; // the first estimate comes quickly, if rough
+        while (!cancelled) {
+            boolean enough = true;
+            for (int i = 0; i < count && !cancelled; i++) {
+                if (games.get(i) >= MAX_GAMES) {
+                    continue;
+                }
+                enough = false;
+                long won = 0;
+                for (int g = 0; g < roundGames && !cancelled; g++) {
+                    deals.deal(view, game);
+                    game.apply(actions[i]);
+                    while (!game.isTerminal()) {
+                        game.apply(rollout.chooseAction(game));
+                    }
+                    int result = player == 0 ? game.getResult() : -game.getResult();
+                    won += result + 1;
+                }
+                if (!cancelled) {
+                    points.addAndGet(i, won);
+                    games.addAndGet(i, roundGames);
+                }
+            }
+            update();
+            roundGames = ROUND_GAMES;
+            if (enough) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Passes the estimates to the listener once the last update is {@link #UPDATE_MILLIS} old,
+     * unless an update is already waiting, which will read them when it runs.
+     */
+    private void update() {
+        if (cancelled || !updateWaiting.compareAndSet(false, true)) {
+            return;
+        }
+        long waitMillis = UPDATE_MILLIS - (System.nanoTime() - lastUpdate) / 1_000_000;
+        if (waitMillis <= 0) {
+            SwingUtilities.invokeLater(this::deliver);
+        } else {
+            Timer timer = new Timer((int) waitMillis, e -> deliver());
+            timer.setRepeats(false);
+            timer.start();
+        }
+    }
+
+    /**
+     * Runs a waiting update on the event dispatch thread. The flag is cleared before the
+     * estimates are read, so a round that finishes meanwhile either is read here or sends an
+     * update of its own.
+     */
+    private void deliver() {
+        updateWaiting.set(false);
+        lastUpdate = System.nanoTime();
+        if (!cancelled) {
+            listener.accept(getEstimate());
+        }
+    }
+
+    private static ExecutorService newWorkers() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return Executors.newCachedThreadPool(task -> {
+            Thread thread = new Thread(task, "hand-analysis-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+
+    /**
+     * The chances to win of every card of a hand, by the slot of the card; NaN where there are no
+     * games yet. A draw counts as half a win. The estimates hold the code of the card in every
+     * slot, so that they are only shown on the hand they were made for.
+     */
+    public static class Estimate {
+        private final int[] cards;
+        private final double[] play;
+        private final double[] discard;
+        private final long games;
+
+        Estimate(int[] cards, double[] play, double[] discard, long games) {
+            this.cards = cards;
+            this.play = play;
+            this.discard = discard;
+            this.games = games;
+        }
+
+        public int getSlots() {
+            return play.length;
+        }
+
+        /**
+         * Returns the card the estimates of a slot are for.
+         * @param slot the slot.
+         * @return the card code, as in GameState.cardCode.
+         */
+        public int getCard(int slot) {
+            return cards[slot];
+        }
+
+        public double getPlay(int slot) {
+            return play[slot];
+        }
+
+        public double getDiscard(int slot) {
+            return discard[slot];
+        }
+
+        /**
+         * Returns the number of games the estimates rest on, over every action.
+         * @return the games.
+         */
+        public long getGames() {
+            return games;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package Bot;
+
+import Model.GameState;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.SplittableRandom;
+
+/**
+ * Plays as another policy, but now and then plays a random action instead. Simulations use it
+ * to play many different games from one deal.
+ */
+public class NoisyPolicy implements Policy, Closeable {
+    private final Policy policy;
+    private final double noise;
+    private final SplittableRandom random;
+    private final int[] actions = new int[GameState.MAX_ACTIONS];
+
+    /**
+     * Constructs a noisy policy.
+     *
+     * @param policy the policy it plays as, which it closes when it is closed if it can be.
+     * @param noise the chance of a random action, 0 to 1.
+     * @param seed the seed of its random choices.
+     */
+    public NoisyPolicy(Policy policy, double noise, long seed) {
+        this.policy = policy;
+        this.noise = noise;
+        this.random = new SplittableRandom(seed);
+    }
+
+    @Override
+    public String getName() {
+        return "noisy " + policy.getName();
+    }
+
+    @Override
+    public int chooseAction(GameState view) {
+        if (random.nextDouble() < noise) {
+            int count = view.legalActions(actions);
+            return actions[random.nextInt(count)];
+        }
+        return policy.chooseAction(view);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (policy instanceof Closeable) {
+            ((Closeable) policy).close();
+        }
+    }
+}
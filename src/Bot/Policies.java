@@ -0,0 +1,94 @@
+package Bot;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * The policies a harness can play, by name.
+ * <ul>
+ * <li>{@code random}: {@link RandomPolicy}</li>
+ * <li>{@code greedy}: {@link GreedyPolicy} with the weights of {@link Evaluator#loadDefault} and no solver</li>
+ * <li>{@code greedy:<file>}: {@code greedy} with the weights of the given file</li>
+ * <li>{@code handtuned}: {@code greedy} with the hand-tuned weights, whatever the weight file</li>
+ * <li>{@code solver}: {@link GreedyPolicy} with an {@link EndgameSolver} for the last cards</li>
+ * <li>{@code search}: a {@link SearchPolicy} with the weights of {@link Evaluator#loadDefault}, a solver
+ *     and {@link #SEARCH_MOVE_MILLIS} per move</li>
+ * <li>{@code easy}, {@code medium} or {@code hard}: the bot of that {@link Difficulty}</li>
+ * <li>{@code noisy}: {@code greedy}, but a random action with the chance {@link #NOISE}</li>
+ * <li>{@code engine} or {@code engine:<command>}: an {@link ExternalPolicy} running the reference
+ *     engine or the given command, split at spaces</li>
+ * </ul>
+ */
+public final class Policies {
+    public static final long ENGINE_MOVE_MILLIS = 10;
+    public static final long SEARCH_MOVE_MILLIS = 10;
+    public static final double NOISE = 0.15;
+    private static final int SOLVER_TABLE_BYTES = 1 << 22;
+
+    private static final AtomicLong seeds = new AtomicLong(1);
+
+    private Policies() {
+    }
+
+    /**
+     * Returns a factory of the policy with the given name. Every policy it makes is independent,
+     * so each thread of a harness can have its own.
+     *
+     * @param spec the name, as listed above.
+     * @return the factory.
+     * @throws IllegalArgumentException if there is no such policy.
+     */
+    public static Supplier<Policy> factory(String spec) {
+        if (spec.equals("random")) {
+            return () -> new RandomPolicy(seeds.getAndIncrement());
+        } else if (spec.equals("greedy")) {
+            return () -> new GreedyPolicy(spec, Evaluator.loadDefault(), null);
+        } else if (spec.startsWith("greedy:")) {
+            File file = new File(spec.substring("greedy:".length()));
+            Evaluator evaluator;
+            try {
+                evaluator = Evaluator.load(file);
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Cannot load " + file + ": " + e.getMessage(), e);
+            }
+            return () -> new GreedyPolicy(spec, evaluator, null);
+        } else if (spec.equals("handtuned")) {
+            return () -> new GreedyPolicy(spec, new Evaluator(), null);
+        } else if (spec.equals("noisy")) {
+            return () -> new NoisyPolicy(new GreedyPolicy("greedy", Evaluator.loadDefault(), null), NOISE, seeds.getAndIncrement());
+        } else if (spec.equals("solver")) {
+            return () -> new GreedyPolicy(spec, Evaluator.loadDefault(),
+                    new EndgameSolver(EndgameSolver.DEFAULT_MAX_DECK_SIZE, new TranspositionTable(SOLVER_TABLE_BYTES)),
+                    seeds.getAndIncrement());
+        } else if (spec.equals("search")) {
+            return () -> {
+                Evaluator evaluator = Evaluator.loadDefault();
+                return new SearchPolicy(spec, new SearchDriver(evaluator::evaluate),
+                        new EndgameSolver(EndgameSolver.DEFAULT_MAX_DECK_SIZE, new TranspositionTable(SOLVER_TABLE_BYTES)),
+                        SEARCH_MOVE_MILLIS, seeds.getAndIncrement());
+            };
+        } else if (spec.equals("easy") || spec.equals("medium") || spec.equals("hard")) {
+            Difficulty level = Difficulty.of(spec);
+            return () -> level.newPolicy(Evaluator.loadDefault(),
+                    new EndgameSolver(EndgameSolver.DEFAULT_MAX_DECK_SIZE, new TranspositionTable(SOLVER_TABLE_BYTES)),
+                    seeds.getAndIncrement());
+        } else if (spec.equals("engine") || spec.startsWith("engine:")) {
+            List<String> command = spec.equals("engine")
+                    ? ExternalEngine.referenceCommand()
+                    : Arrays.asList(spec.substring("engine:".length()).trim().split("\\s+"));
+            return () -> {
+                try {
+                    return new ExternalPolicy(spec, ExternalEngine.start(command), ENGINE_MOVE_MILLIS);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Cannot start " + spec, e);
+                }
+            };
+        }
+        throw new IllegalArgumentException("Unknown policy: " + spec);
+    }
+}
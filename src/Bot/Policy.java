@@ -0,0 +1,27 @@
+package Bot;
+
+import Model.GameState;
+
+/**
+ * A way of choosing moves, as a tournament or a seat of a game plays it.
+ * <p>
+ * A policy is only ever asked by one thread at a time and may keep scratch state between moves.
+ * Harnesses that play several games at once make one policy per thread, see {@link Policies}.
+ */
+public interface Policy {
+
+    /**
+     * Returns the name the policy is listed under.
+     * @return the name.
+     */
+    String getName();
+
+    /**
+     * Chooses the action of the player to move.
+     *
+     * @param view the game as the player to move may see it, see {@link GameState#observedBy}.
+     *             The policy may change it.
+     * @return the action, as in {@link GameState#apply}.
+     */
+    int chooseAction(GameState view);
+}
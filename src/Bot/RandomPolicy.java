@@ -0,0 +1,33 @@
+package Bot;
+
+import Model.GameState;
+
+import java.util.SplittableRandom;
+
+/**
+ * Plays a uniformly random action among the ones that lead to different outcomes.
+ * A baseline every other policy should beat.
+ */
+public class RandomPolicy implements Policy {
+    private final SplittableRandom random;
+    private final int[] actions = new int[GameState.MAX_ACTIONS];
+
+    /**
+     * Constructs a random policy.
+     * @param seed the seed of its choices.
+     */
+    public RandomPolicy(long seed) {
+        this.random = new SplittableRandom(seed);
+    }
+
+    @Override
+    public String getName() {
+        return "random";
+    }
+
+    @Override
+    public int chooseAction(GameState view) {
+        int count = view.legalActions(actions);
+        return actions[random.nextInt(count)];
+    }
+}
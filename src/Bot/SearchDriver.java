@@ -0,0 +1,515 @@
+package Bot;
+
+import Model.GameState;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Searches a position with iterative deepening, so it has a move to give whenever it is stopped.
+ * <p>
+ * Every iteration is an alpha-beta search one ply deeper than the last, with the given evaluation
+ * at its leaves. The root actions are tried in the order of the scores of the last iteration, the
+ * line it found best is tried first below them, and the other actions in the order of how often
+ * they refuted a line before (the history heuristic). The search ends at the deadline, on
+ * {@link #stop()}, or once the next iteration is not expected to finish in the time left; an
+ * iteration that is cut short is discarded, and its move is the one of the last finished
+ * iteration. The first iteration, one evaluation per action, always finishes.
+ * <p>
+ * The cards are drawn as the position holds them, so a position whose every card is known is
+ * searched as it is. A player's view of a game, a copy of {@link GameState#observedBy}, is first
+ * dealt {@link #DEFAULT_DEALS} times by a {@link Determinizer}, and every iteration values each root
+ * action by its average over the deals. The deals are searched with a full window, as an average
+ * needs the exact value of each. When the opponent is to move in the view, the hand they play from
+ * is a guess either way, so one deal is searched.
+ * <p>
+ * A driver with more than one thread shares the root actions out between them, each deepening
+ * its share with a helper driver of its own over the same deals, and plays the best action of the
+ * deepest iteration they all finished. The helpers run on a pool of the driver's own unless it is
+ * given one; {@link #close()} shuts down a pool of its own.
+ * <p>
+ * A driver keeps scratch buffers for every ply and must not be shared between threads, but
+ * {@link #stop()} may be called from any thread.
+ */
+public class SearchDriver implements Closeable {
+    public static final int MAX_PLY = 32;
+    public static final int DEFAULT_DEALS = 8;
+
+    private static final int CHECK_NODES = 1023; // the clock is read once per this many nodes, plus one
+    private static final int HISTORY_SIZE = GameState.CARD_CODES * 3;
+
+    private final ToDoubleFunction<GameState> evaluation;
+    private final int maxDepth;
+    private final SearchDriver[] helpers;       // the drivers of the other threads
+    private final ExecutorService helperThreads;
+    private final boolean ownsHelperThreads;
+    private Determinizer determinizer;         // deals the hidden cards of a view
+    private final GameState[] children = new GameState[MAX_PLY + 1];
+    private final int[][] actions = new int[MAX_PLY + 1][GameState.MAX_ACTIONS];
+    private final int[][] scores = new int[MAX_PLY + 1][GameState.MAX_ACTIONS];
+    private final int[][] pv = new int[MAX_PLY + 1][MAX_PLY + 1];  // the best line from every ply
+    private final int[] pvLength = new int[MAX_PLY + 1];
+    private final int[] lastPv = new int[MAX_PLY + 1];            // the best line of the last iteration
+    private int lastPvLength;
+    private final int[] history = new int[HISTORY_SIZE];           // by card and kind of action
+    private final int[] bestAt = new int[MAX_PLY + 1];             // the best root action by finished depth
+    private final double[] valueAt = new double[MAX_PLY + 1];
+
+    private volatile boolean stopped;
+    private long deadline;
+    private boolean aborted;
+    private boolean reachedHorizon; // whether the iteration left some line unfinished at its depth
+    private boolean followingPv;
+    private boolean settled;        // whether the last search ended as deeper iterations would change nothing
+
+    private long nodes;
+    private long elapsedNanos;
+    private int depth;
+    private double value;
+
+    /**
+     * Constructs a driver that searches with the given evaluation.
+     * @param evaluation the value of a position for the first player, between -1 and 1, such as
+     *                   {@link Evaluator#evaluate}.
+     */
+    public SearchDriver(ToDoubleFunction<GameState> evaluation) {
+        this(evaluation, MAX_PLY, 1);
+    }
+
+    /**
+     * Constructs a driver that searches at most to the given depth, on the given number of threads.
+     * With more than one thread, every search shares the root actions out between them.
+     *
+     * @param evaluation the value of a position for the first player, between -1 and 1.
+     * @param maxDepth the deepest iteration, 1 for one evaluation per action.
+     * @param threads the number of threads, counting the one that calls {@link #search}.
+     * @throws IllegalArgumentException if the depth or the number of threads is out of range.
+     */
+    public SearchDriver(ToDoubleFunction<GameState> evaluation, int maxDepth, int threads) {
+        this(evaluation, maxDepth, threads, null);
+    }
+
+    /**
+     * Constructs a driver that searches at most to the given depth, on the given number of threads,
+     * whose helpers run on the given pool. Many drivers can so share one pool of threads.
+     *
+     * @param evaluation the value of a position for the first player, between -1 and 1.
+     * @param maxDepth the deepest iteration, 1 for one evaluation per action.
+     * @param threads the number of threads, counting the one that calls {@link #search}.
+     * @param helperThreads the pool the helpers run on, which the driver does not shut down, or
+     *                      null for a pool of its own.
+     * @throws IllegalArgumentException if the depth or the number of threads is out of range.
+     */
+    public SearchDriver(ToDoubleFunction<GameState> evaluation, int maxDepth, int threads, ExecutorService helperThreads) {
+        if (maxDepth < 1 || maxDepth > MAX_PLY) {
+            throw new IllegalArgumentException("Depth must be between 1 and " + MAX_PLY + ": " + maxDepth);
+        }
+        if (threads < 1) {
+            throw new IllegalArgumentException("At least one thread is needed: " + threads);
+        }
+        this.evaluation = evaluation;
+        this.maxDepth = maxDepth;
+        for (int ply = 0; ply <= MAX_PLY; ply++) {
+            children[ply] = new GameState();
+        }
+        this.helpers = new SearchDriver[threads - 1];
+        for (int i = 0; i < helpers.length; i++) {
+            helpers[i] = new SearchDriver(evaluation, maxDepth, 1);
+        }
+        this.ownsHelperThreads = helpers.length > 0 && helperThreads == null;
+        if (ownsHelperThreads) {
+            AtomicInteger threadNumber = new AtomicInteger();
+            helperThreads = Executors.newFixedThreadPool(helpers.length, task -> {
+                Thread thread = new Thread(task, "search-helper-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        this.helperThreads = helperThreads;
+    }
+
+    /**
+     * Sets what deals the hidden cards of the views the driver searches, such as one that follows
+     * the game the driver plays in with {@link Determinizer#observe}. It is used on the thread that
+     * calls {@link #search}.
+     *
+     * @param determinizer the determinizer.
+     */
+    public void setDeterminizer(Determinizer determinizer) {
+        this.determinizer = determinizer;
+    }
+
+    /**
+     * Shuts down the pool of the helpers if it is the driver's own. The driver must not search
+     * afterwards.
+     */
+    @Override
+    public void close() {
+        if (ownsHelperThreads) {
+            helperThreads.shutdownNow();
+        }
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    public int getThreads() {
+        return helpers.length + 1;
+    }
+
+    /**
+     * Chooses the action of the player to move.
+     *
+     * @param root the position, which is not modified.
+     * @param deadline the System.nanoTime() by which to answer.
+     * @return the best action of the deepest finished iteration, or -1 if the game is over.
+     */
+    public int search(GameState root, long deadline) {
+        long start = System.nanoTime();
+        stopped = false;
+        if (root.isTerminal()) {
+            nodes = 0;
+            depth = 0;
+            value = 0.0;
+            lastPvLength = 0;
+            elapsedNanos = 0;
+            return -1;
+        }
+        int[] rootActions = new int[GameState.MAX_ACTIONS];
+        int count = root.legalActions(rootActions);
+        GameState[] deals = deal(root);
+        int best = helpers.length == 0 || count == 1
+                ? deepen(deals, deadline, rootActions, count, true)
+                : searchInParallel(deals, deadline, rootActions, count);
+        elapsedNanos = System.nanoTime() - start;
+        return best;
+    }
+
+    /**
+     * Returns the positions to search for a root: the root itself if every card of it is known,
+     * otherwise deals of it.
+     */
+    private GameState[] deal(GameState root) {
+        if (root.getObserver() < 0) {
+            return new GameState[]{root};
+        }
+        if (determinizer == null) {
+            determinizer = new Determinizer(System.nanoTime());
+        }
+        GameState[] deals = new GameState[root.getActivePlayer() == root.getObserver() ? DEFAULT_DEALS : 1];
+        for (int i = 0; i < deals.length; i++) {
+            deals[i] = new GameState();
+            determinizer.deal(root, deals[i]);
+        }
+        return deals;
+    }
+
+    /**
+     * Deepens the search of the given root actions until it is done, and notes the best of them
+     * and its value at every depth it finishes. The value of an action is its average over the deals.
+     *
+     * @param alone whether the actions are all the actions of the root, rather than a share of them.
+     */
+    private int deepen(GameState[] deals, long deadline, int[] given, int count, boolean alone) {
+        this.deadline = deadline;
+        nodes = 0;
+        depth = 0;
+        value = 0.0;
+        lastPvLength = 0;
+        settled = false;
+        for (int i = 0; i < HISTORY_SIZE; i++) {
+            history[i] >>= 2; // the last move's refutations still say something, but less
+        }
+
+        int[] rootActions = actions[0];
+        System.arraycopy(given, 0, rootActions, 0, count);
+        double[] rootValues = new double[count];
+        int best = rootActions[0];
+        long lastIteration = 0;
+        long iterationBefore = 0;
+
+        for (int iteration = 1; iteration <= maxDepth; iteration++) {
+            long iterationStart = System.nanoTime();
+            aborted = false;
+            reachedHorizon = false;
+            followingPv = true;
+            double alpha = -2.0;
+            int iterationBest = -1;
+            for (int i = 0; i < count && !aborted; i++) {
+                double childValue = 0.0;
+                for (GameState root : deals) {
+                    GameState child = children[0];
+                    child.copyFrom(root);
+                    child.apply(rootActions[i]);
+                    followingPv = i == 0;
+                    // one deal can be cut off at alpha, but an average needs every deal's exact value
+                    double bound = deals.length == 1 ? -alpha : 2.0;
+                    childValue -= search(child, 1, iteration - 1, -2.0, bound);
+                    if (aborted) {
+                        break;
+                    }
+                }
+                if (aborted) {
+                    break;
+                }
+                childValue /= deals.length;
+                rootValues[i] = childValue;
+                if (childValue > alpha) {
+                    alpha = childValue;
+                    iterationBest = i;
+                    pv[0][0] = rootActions[i];
+                    System.arraycopy(pv[1], 0, pv[0], 1, pvLength[1]);
+                    pvLength[0] = pvLength[1] + 1;
+                }
+            }
+            if (aborted) {
+                break;
+            }
+
+            best = rootActions[iterationBest];
+            depth = iteration;
+            value = alpha;
+            bestAt[iteration] = best;
+            valueAt[iteration] = value;
+            System.arraycopy(pv[0], 0, lastPv, 0, pvLength[0]);
+            lastPvLength = pvLength[0];
+            orderByValue(rootActions, rootValues, count);
+
+            iterationBefore = lastIteration;
+            lastIteration = System.nanoTime() - iterationStart;
+            if (!reachedHorizon || Math.abs(value) >= 1.0) {
+                settled = true; // every line reaches the end of the game, or the best cannot get better
+                break;
+            }
+            if (alone && count == 1) {
+                break; // nothing to choose
+            }
+            // the next iteration takes about as much longer than this one as this one did than the last
+            long growth = iterationBefore > 0 ? Math.max(2, lastIteration / Math.max(1, iterationBefore)) : 4;
+            if (stopped || System.nanoTime() + lastIteration * growth > deadline) {
+                break;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Shares the root actions out between this thread and the helpers, each deepening its own
+     * share, and takes the best action of the deepest iteration every share finished. A share
+     * whose search settled early counts at any depth.
+     */
+    private int searchInParallel(GameState[] deals, long deadline, int[] rootActions, int count) {
+        int parts = Math.min(helpers.length + 1, count);
+        int[][] shares = new int[parts][GameState.MAX_ACTIONS];
+        int[] shareCounts = new int[parts];
+        for (int i = 0; i < count; i++) {
+            shares[i % parts][shareCounts[i % parts]++] = rootActions[i];
+        }
+
+        List<Future<?>> running = new ArrayList<>();
+        for (int part = 1; part < parts; part++) {
+            SearchDriver helper = helpers[part - 1];
+            int[] share = shares[part];
+            int shareCount = shareCounts[part];
+            helper.stopped = stopped;
+            running.add(helperThreads.submit(() -> helper.deepen(deals, deadline, share, shareCount, false)));
+        }
+        deepen(deals, deadline, shares[0], shareCounts[0], false);
+        for (Future<?> future : running) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("A search thread failed", e.getCause());
+            }
+        }
+
+        int common = maxDepth;
+        int deepest = 0;
+        boolean anyUnsettled = false;
+        long total = nodes;
+        for (int part = 0; part < parts; part++) {
+            SearchDriver searched = part == 0 ? this : helpers[part - 1];
+            if (!searched.settled) {
+                common = Math.min(common, searched.depth);
+                anyUnsettled = true;
+            }
+            deepest = Math.max(deepest, searched.depth);
+            total += part == 0 ? 0 : searched.nodes;
+        }
+        if (!anyUnsettled) {
+            common = deepest;
+        }
+        int best = rootActions[0];
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for (int part = 0; part < parts; part++) {
+            SearchDriver searched = part == 0 ? this : helpers[part - 1];
+            int at = searched.settled ? searched.depth : common;
+            if (at > 0 && searched.valueAt[at] > bestValue) {
+                bestValue = searched.valueAt[at];
+                best = searched.bestAt[at];
+            }
+        }
+        nodes = total;
+        depth = common;
+        value = bestValue;
+        lastPv[0] = best;
+        lastPvLength = 1;
+        return best;
+    }
+
+    /**
+     * Stops the running search, which then answers with the move it has.
+     */
+    public void stop() {
+        stopped = true;
+        for (SearchDriver helper : helpers) {
+            helper.stopped = true;
+        }
+    }
+
+    /**
+     * Returns the depth of the last finished iteration of the last search.
+     * @return the depth in plies.
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Returns the value of the last search's move, as its last finished iteration saw it.
+     * @return the value for the player who was to move, between -1 and 1.
+     */
+    public double getValue() {
+        return value;
+    }
+
+    /**
+     * Returns the number of positions the last search visited.
+     * @return the node count.
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Returns the speed of the last search.
+     * @return the positions visited per second.
+     */
+    public long getNodesPerSecond() {
+        return elapsedNanos == 0 ? 0 : nodes * 1_000_000_000L / elapsedNanos;
+    }
+
+    /**
+     * Returns the line the last search expects, starting with its move.
+     * @return the actions.
+     */
+    public int[] getPrincipalVariation() {
+        return Arrays.copyOf(lastPv, lastPvLength);
+    }
+
+    /**
+     * Alpha-beta search of a position, valued for the player to move.
+     */
+    private double search(GameState state, int ply, int depthLeft, double alpha, double beta) {
+        nodes++;
+        pvLength[ply] = 0;
+        if ((nodes & CHECK_NODES) == 0 && depth > 0 && (stopped || System.nanoTime() > deadline)) {
+            aborted = true;
+        }
+        if (aborted) {
+            return 0.0;
+        }
+        int sign = state.getActivePlayer() == 0 ? 1 : -1;
+        if (state.isTerminal()) {
+            return sign * state.getResult();
+        }
+        if (depthLeft == 0 || ply == MAX_PLY) {
+            reachedHorizon = true;
+            return sign * evaluation.applyAsDouble(state);
+        }
+
+        int[] moves = actions[ply];
+        int count = state.legalActions(moves);
+        orderMoves(state, ply, moves, count);
+
+        double best = -2.0;
+        GameState child = children[ply];
+        boolean onPv = followingPv;
+        for (int i = 0; i < count; i++) {
+            followingPv = onPv && i == 0;
+            child.copyFrom(state);
+            child.apply(moves[i]);
+            double childValue = -search(child, ply + 1, depthLeft - 1, -beta, -Math.max(alpha, best));
+            if (aborted) {
+                return 0.0;
+            }
+            if (childValue > best) {
+                best = childValue;
+                pv[ply][0] = moves[i];
+                System.arraycopy(pv[ply + 1], 0, pv[ply], 1, pvLength[ply + 1]);
+                pvLength[ply] = pvLength[ply + 1] + 1;
+                if (best >= beta) {
+                    history[historyIndex(state, moves[i])] += depthLeft * depthLeft;
+                    break;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Puts the action of the last iteration's line first while the search follows it, and the
+     * others by their history.
+     */
+    private void orderMoves(GameState state, int ply, int[] moves, int count) {
+        int[] keys = scores[ply];
+        int pvMove = followingPv && ply < lastPvLength ? lastPv[ply] : -1;
+        for (int i = 0; i < count; i++) {
+            keys[i] = moves[i] == pvMove ? Integer.MAX_VALUE : history[historyIndex(state, moves[i])];
+        }
+        // insertion sort, as there are at most a couple of dozen actions
+        for (int i = 1; i < count; i++) {
+            int move = moves[i];
+            int key = keys[i];
+            int j = i - 1;
+            while (j >= 0 && keys[j] < key) {
+                moves[j + 1] = moves[j];
+                keys[j + 1] = keys[j];
+                j--;
+            }
+            moves[j + 1] = move;
+            keys[j + 1] = key;
+        }
+    }
+
+    private static void orderByValue(int[] moves, double[] values, int count) {
+        for (int i = 1; i < count; i++) {
+            int move = moves[i];
+            double key = values[i];
+            int j = i - 1;
+            while (j >= 0 && values[j] < key) {
+                moves[j + 1] = moves[j];
+                values[j + 1] = values[j];
+                j--;
+            }
+            moves[j + 1] = move;
+            values[j + 1] = key;
+        }
+    }
+
+    private static int historyIndex(GameState state, int action) {
+        int card = state.getHandCard(state.getActivePlayer(), GameState.actionSlot(action));
+        return card * 3 + GameState.actionKind(action);
+    }
+}
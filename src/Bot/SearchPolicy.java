@@ -0,0 +1,62 @@
+package Bot;
+
+import Model.GameState;
+
+import java.io.Closeable;
+
+/**
+ * Plays the move a {@link SearchDriver} finds, and exactly once the deck is small enough for the
+ * solver, over deals of the cards it cannot see. The driver deals them too, with the same
+ * {@link Determinizer}, which follows the game from the views the policy is shown. Each move gets
+ * the time a {@link GameClock} allows, about the given time per move on average.
+ */
+public class SearchPolicy implements Policy, Closeable {
+    private final String name;
+    private final SearchDriver driver;
+    private final EndgameSolver solver;
+    private final Determinizer determinizer;
+    private final GameClock clock;
+
+    /**
+     * Constructs a searching policy.
+     *
+     * @param name the name it is listed under.
+     * @param driver the search, which the policy closes when it is closed.
+     * @param solver the solver for the end of the deck, or null to search to the end.
+     * @param moveMillis the time the search may take per move, on average over a game.
+     * @param seed the seed of the deals of the cards it cannot see.
+     */
+    public SearchPolicy(String name, SearchDriver driver, EndgameSolver solver, long moveMillis, long seed) {
+        this.name = name;
+        this.driver = driver;
+        this.solver = solver;
+        this.determinizer = new Determinizer(seed);
+        this.clock = new GameClock(moveMillis);
+        driver.setDeterminizer(determinizer);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public int chooseAction(GameState view) {
+        long start = System.nanoTime();
+        long budget = clock.budget(view);
+        determinizer.observe(view);
+        int action;
+        if (solver != null && solver.canSolve(view)) {
+            action = solver.bestAction(view, determinizer, EndgameSolver.DEFAULT_DEALS);
+        } else {
+            action = driver.search(view, start + budget * 1_000_000);
+        }
+        clock.spend((System.nanoTime() - start) / 1_000_000);
+        return action;
+    }
+
+    @Override
+    public void close() {
+        driver.close();
+    }
+}
@@ -0,0 +1,77 @@
+package Bot;
+
+import Model.GameState;
+
+/**
+ * Shares a player's clock out over the moves left in a game.
+ * <p>
+ * Every turn draws a card, so the deck tells how many moves a player has left at most. The clock
+ * is divided over those moves and weighted by the phase of the game: the first moves, while the
+ * pawns are still coming onto the paths, get less; the middle of the game, where the races for the
+ * findings are decided, gets more; and once the {@link EndgameSolver} can take over, the moves
+ * need next to nothing.
+ */
+public final class TimeManager {
+    public static final long MOVE_OVERHEAD_MILLIS = 20; // the time lost passing a move on, kept back every move
+    public static final long MIN_MILLIS = 1;
+
+    private static final int FULL_DECK = GameState.CARD_CODES * 2 + GameState.PATHS // see GameState.newGame
+            - GameState.PLAYERS * GameState.HAND_SIZE;
+    private static final double OPENING_WEIGHT = 0.6;
+    private static final double MIDDLE_WEIGHT = 1.4;
+    private static final double LATE_WEIGHT = 1.0;
+    private static final double SOLVED_WEIGHT = 0.1;
+    private static final int MAX_SHARE = 4; // no move takes more than a quarter of the clock
+
+    private TimeManager() {
+    }
+
+    /**
+     * Returns a clock that gives the player to move about the given time for each move they have
+     * left, for players that are given a time per move rather than for the game.
+     *
+     * @param state the position.
+     * @param moveMillis the time per move.
+     * @return the clock for the rest of the game.
+     */
+    public static long clockFor(GameState state, long moveMillis) {
+        return moveMillis * movesLeft(state) + MOVE_OVERHEAD_MILLIS;
+    }
+
+    /**
+     * Returns the time the player to move may spend on the move.
+     *
+     * @param state the position.
+     * @param clockMillis the time the player has left for the rest of the game.
+     * @return the time for this move, at least {@link #MIN_MILLIS}.
+     */
+    public static long budget(GameState state, long clockMillis) {
+        long usable = clockMillis - MOVE_OVERHEAD_MILLIS;
+        if (usable <= MIN_MILLIS) {
+            return MIN_MILLIS;
+        }
+        long share = (long) (usable / movesLeft(state) * phaseWeight(state));
+        return Math.max(MIN_MILLIS, Math.min(share, usable / MAX_SHARE));
+    }
+
+    private static int movesLeft(GameState state) {
+        return Math.max(1, (state.getDeckSize() + 1) / 2);
+    }
+
+    /**
+     * Returns how much of an even share of the clock a move of the given position deserves.
+     * @param state the position.
+     * @return the weight, 1 for an even share.
+     */
+    public static double phaseWeight(GameState state) {
+        int deckSize = state.getDeckSize();
+        if (deckSize <= EndgameSolver.DEFAULT_MAX_DECK_SIZE) {
+            return SOLVED_WEIGHT;
+        }
+        double played = 1.0 - (double) deckSize / FULL_DECK;
+        if (played < 0.2) {
+            return OPENING_WEIGHT;
+        }
+        return played < 0.7 ? MIDDLE_WEIGHT : LATE_WEIGHT;
+    }
+}
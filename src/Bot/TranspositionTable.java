@@ -0,0 +1,174 @@
+package Bot;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * A fixed-size transposition table shared by parallel searches.
+ * <p>
+ * The table lives in a direct buffer outside the Java heap and never allocates after construction.
+ * Every bucket holds two entries: the first is replaced only by deeper (or equally deep) results,
+ * the second always takes what the first refuses. An entry is two words, the packed data and the
+ * key xor-ed with the data, so a reader that races with a writer sees a key mismatch and treats
+ * the entry as a miss instead of taking a torn result.
+ * <p>
+ * Packed data layout, from the high bits down: value (32 bits, float), visits (16), depth (8),
+ * check (8). The check bits are a hash of the key and the rest of the data.
+ */
+public class TranspositionTable {
+    public static final long MISS = 0L;
+    public static final int MAX_DEPTH = 255;
+    public static final int MAX_VISITS = 0xFFFF;
+    public static final long MAX_BYTES = 1L << 30; // a ByteBuffer is indexed by int
+
+    private static final int ENTRY_BYTES = 16;
+    private static final int BUCKET_BYTES = 2 * ENTRY_BYTES;
+    private static final int CHECK_SALT = 0x5A; // keeps an all-zero entry from matching key 0
+
+    private static final VarHandle LONGS =
+            MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private final ByteBuffer buffer;
+    private final long bucketMask;
+
+    /**
+     * Constructs a table that uses at most the given number of bytes of off-heap memory.
+     * The size is rounded down to a power of two.
+     *
+     * @param bytes the memory budget of the table.
+     * @throws IllegalArgumentException if the budget is smaller than one bucket or larger than {@link #MAX_BYTES}.
+     */
+    public TranspositionTable(long bytes) {
+        if (bytes < BUCKET_BYTES || bytes > MAX_BYTES) {
+            throw new IllegalArgumentException("Table size must be between " + BUCKET_BYTES + " and " + MAX_BYTES + " bytes: " + bytes);
+        }
+        long buckets = Long.highestOneBit(bytes / BUCKET_BYTES);
+        this.buffer = ByteBuffer.allocateDirect((int) (buckets * BUCKET_BYTES)).order(ByteOrder.nativeOrder());
+        this.bucketMask = buckets - 1;
+    }
+
+    /**
+     * Looks up a state.
+     *
+     * @param key the 64-bit hash of the state.
+     * @return the packed data of the entry, or {@link #MISS} if the state is not in the table.
+     */
+    public long probe(long key) {
+        int bucket = bucketOffset(key);
+        long data = read(bucket, key);
+        return data != MISS ? data : read(bucket + ENTRY_BYTES, key);
+    }
+
+    /**
+     * Stores the result of a search, preferring deeper results over shallower ones.
+     *
+     * @param key the 64-bit hash of the state.
+     * @param value the value of the state.
+     * @param visits the number of visits behind the value (saturates at {@link #MAX_VISITS}).
+     * @param depth the search depth behind the value (0 to {@link #MAX_DEPTH}).
+     */
+    public void store(long key, float value, int visits, int depth) {
+        long data = pack(key, value, visits, depth);
+        int bucket = bucketOffset(key);
+
+        long oldData = (long) LONGS.getVolatile(buffer, bucket + 8);
+        long oldKey = (long) LONGS.getVolatile(buffer, bucket) ^ oldData;
+        boolean deeper = !isValid(oldKey, oldData) || oldKey == key || depth >= depth(oldData);
+        if (deeper && LONGS.compareAndSet(buffer, bucket + 8, oldData, data)) {
+            LONGS.setVolatile(buffer, bucket, key ^ data);
+            return;
+        }
+
+        int second = bucket + ENTRY_BYTES;
+        LONGS.setVolatile(buffer, second + 8, data);
+        LONGS.setVolatile(buffer, second, key ^ data);
+    }
+
+    /**
+     * Empties the table.
+     */
+    public void clear() {
+        for (int offset = 0; offset < buffer.capacity(); offset += 8) {
+            LONGS.setVolatile(buffer, offset, 0L);
+        }
+    }
+
+    /**
+     * Returns the number of bytes the table occupies.
+     * @return the size of the table in bytes.
+     */
+    public long getSizeInBytes() {
+        return buffer.capacity();
+    }
+
+    /**
+     * Estimates how full the table is by sampling its first buckets.
+     * @return the fraction of sampled entries in use, between 0 and 1.
+     */
+    public double getFillRate() {
+        int sampled = (int) Math.min(1000, bucketMask + 1) * 2;
+        int used = 0;
+        for (int i = 0; i < sampled; i++) {
+            if ((long) LONGS.getVolatile(buffer, i * ENTRY_BYTES + 8) != 0L) {
+                used++;
+            }
+        }
+        return (double) used / sampled;
+    }
+
+    /**
+     * Returns the value stored in packed data.
+     * @param data the packed data returned by {@link #probe}.
+     * @return the value.
+     */
+    public static float value(long data) {
+        return Float.intBitsToFloat((int) (data >>> 32));
+    }
+
+    /**
+     * Returns the number of visits stored in packed data.
+     * @param data the packed data returned by {@link #probe}.
+     * @return the number of visits.
+     */
+    public static int visits(long data) {
+        return (int) (data >>> 16) & 0xFFFF;
+    }
+
+    /**
+     * Returns the search depth stored in packed data.
+     * @param data the packed data returned by {@link #probe}.
+     * @return the depth.
+     */
+    public static int depth(long data) {
+        return (int) (data >>> 8) & 0xFF;
+    }
+
+    private int bucketOffset(long key) {
+        return (int) (key & bucketMask) * BUCKET_BYTES;
+    }
+
+    private long read(int offset, long key) {
+        long data = (long) LONGS.getVolatile(buffer, offset + 8);
+        long storedKey = (long) LONGS.getVolatile(buffer, offset) ^ data;
+        return storedKey == key && isValid(key, data) ? data : MISS;
+    }
+
+    private static long pack(long key, float value, int visits, int depth) {
+        long body = ((long) Float.floatToRawIntBits(value) << 32)
+                | ((long) Math.min(Math.max(visits, 0), MAX_VISITS) << 16)
+                | ((long) Math.min(Math.max(depth, 0), MAX_DEPTH) << 8);
+        return body | check(key, body);
+    }
+
+    private static boolean isValid(long key, long data) {
+        return (data & 0xFF) == check(key, data & ~0xFFL);
+    }
+
+    private static long check(long key, long body) {
+        long h = (key ^ body) * 0x9E3779B97F4A7C15L;
+        long check = ((h >>> 56) ^ CHECK_SALT) & 0xFF;
+        return check != 0 ? check : 1; // packed data is never MISS
+    }
+}
@@ -1,10 +1,17 @@
 package Controller;
 
+import Bot.Difficulty;
+import Bot.ExternalEngine;
+import Bot.GameClock;
+import Bot.HandAnalysis;
 import Model.*;
+import Network.HostSession;
+import Network.Protocol;
 import View.GameView;
 
 import javax.swing.*;
 import java.io.File;
+import java.io.IOException;
 import java.util.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -25,6 +32,28 @@ public class GameController {
     private boolean actionCompleted;
     public Player activePlayer; // για γρήγορη πρόσβαση στον ενεργό παίκτη
     private final MusicPlayer musicPlayer;
+    private final Map<Player, PawnBeliefTracker> beliefTrackers; // what each player believes about the opponent's pawns
+    private final long seed; // every random choice of the game comes from this seed
+    private final Random random;
+    private boolean ratedDeal; // whether the deal is the one GameState.newGame gives the seed
+    private GameJournal journal; // binary record of the game, null if it could not be created
+    private boolean boxOpened; // whether the active player opened or destroyed a box this turn
+    private int turn; // turns played so far
+    private TurnLog turnLog; // turns played since the last snapshot, null if it could not be opened
+    private long loggedSequence; // the last record appended to the turn log, 0 for none
+    private int nextCompactTurn; // the turn of the next snapshot
+    private int compactRetryTurns = 1; // turns to wait after a failed save, doubled on every failure
+    private static final int COMPACT_INTERVAL = 32; // turns between snapshots
+    private static final int MAX_COMPACT_RETRY_TURNS = 64;
+    private HostSession remoteSession; // the player on another machine, null if both players share this one
+    private ExternalEngine engine; // the bot that plays remotePlayer instead of a player on another machine
+    private long engineMoveMillis;
+    private GameClock engineClock; // the bot's time for the rest of the game, shared out by the bot
+    private Player remotePlayer;
+    private volatile boolean remoteActionExpected; // whether the game waits for the remote player's action
+    private volatile boolean remoteLeft;
+    private boolean remoteTurn; // whether the action being played came from the remote player
+    private boolean remoteOpensBox; // what the remote player chose to do with the box the pawn lands on
 
     /**
      * Constructs a GameController object.
@@ -36,6 +65,20 @@ public class GameController {
      * @param paths    The list of paths.
      */
     public GameController(GameView view, List<Player> players, Deck deck, Board board, List<Path> paths) {
+        this(view, players, deck, board, paths, new Random().nextLong());
+    }
+
+    /**
+     * Constructs a GameController object for a game with a known seed, such as a saved game.
+     *
+     * @param view     The GameView object.
+     * @param players  The list of players.
+     * @param deck     The deck of cards.
+     * @param board    The board of paths.
+     * @param paths    The list of paths.
+     * @param seed     The seed every random choice of the game comes from.
+     */
+    public GameController(GameView view, List<Player> players, Deck deck, Board board, List<Path> paths, long seed) {
         this.view = view;
         this.players = players;
         this.board = board;
@@ -47,7 +90,9 @@ public class GameController {
 
         // initialize actionCompleted
         this.actionCompleted = false;
-        this.currentPlayerIndex = new Random().nextInt(players.size());
+        this.seed = seed;
+        this.random = new Random(seed);
+        this.currentPlayerIndex = random.nextInt(players.size());
         this.activePlayer = players.get(currentPlayerIndex);
 
         // initialize pawns
@@ -56,6 +101,18 @@ public class GameController {
             pawns.addAll(initializePawns(player));
         }
 
+        // every player tracks the hidden pawns of the opponent
+        this.beliefTrackers = new HashMap<>();
+        for (Player player : players) {
+            List<Pawn> opponentPawns = new ArrayList<>();
+            for (Pawn pawn : pawns) {
+                if (!pawn.getPlayer().equals(player)) {
+                    opponentPawns.add(pawn);
+                }
+            }
+            beliefTrackers.put(player, new PawnBeliefTracker(opponentPawns));
+        }
+
         // initialize findings
         this.findings = new ArrayList<>();
         this.rareFindings = new ArrayList<>();
@@ -69,35 +126,195 @@ public class GameController {
         return players;
     }
 
+    /**
+     * Returns what the given player believes about the identities of the opponent's pawns.
+     *
+     * @param observer the player whose beliefs are requested.
+     * @return the belief tracker of the player.
+     */
+    public PawnBeliefTracker getBeliefTracker(Player observer) {
+        return beliefTrackers.get(observer);
+    }
+
+    /**
+     * Gives one seat to a player on another machine. They place their own pawns, their actions
+     * arrive through the session and are checked here, and after every turn they are sent the
+     * game as they may see it. Call before the game starts.
+     *
+     * @param player the player who plays remotely.
+     * @param session the connection to that player.
+     */
+    public void setRemotePlayer(Player player, HostSession session) {
+        this.remotePlayer = player;
+        this.remoteSession = session;
+        view.setLocalPlayer(getOpponent(player).getId());
+        session.setListener(new HostSession.Listener() {
+            @Override
+            public void onAction(int action) {
+                SwingUtilities.invokeLater(() -> handleRemoteAction(action));
+            }
+
+            @Override
+            public void onLeave() {
+                remoteLeft = true;
+                setActionCompleted(true);
+            }
+        });
+    }
+
+    /**
+     * Deals the game the way GameState.newGame does for the seed instead of the usual way, so that
+     * a seed drawn from a {@link SeedBank} is played with the deal it was rated with. The players
+     * still choose the paths of their pawns. Call before startGame.
+     */
+    public void useRatedDeal() {
+        this.ratedDeal = true;
+    }
+
+    /**
+     * Gives one seat to a bot that runs as a separate program. The bot is asked for a move at the
+     * start of each of its turns, and sees the game only as its player may. Its pawns are placed
+     * at random. Call before the game starts.
+     *
+     * @param player the player the bot plays.
+     * @param engine the bot.
+     * @param moveMillis the time the bot may take per move, on average over the game.
+     */
+    public void setEnginePlayer(Player player, ExternalEngine engine, long moveMillis) {
+        this.remotePlayer = player;
+        this.engine = engine;
+        this.engineMoveMillis = moveMillis;
+        this.engineClock = new GameClock(moveMillis);
+        view.setLocalPlayer(getOpponent(player).getId());
+        System.out.println(player.getName() + " is played by " + engine.getName());
+    }
+
+    /**
+     * Asks whether the second player is a person at this screen or a bot, and at which level.
+     * A bot runs as the reference engine in a program of its own, as with setEnginePlayer.
+     */
+    private void chooseOpponent() {
+        Difficulty[] levels = Difficulty.values();
+        Object[] options = new Object[levels.length + 1];
+        options[0] = "Two Players";
+        System.arraycopy(levels, 0, options, 1, levels.length);
+        int choice = JOptionPane.showOptionDialog(
+                view,
+                "Who plays " + players.get(1).getName() + "?",
+                "Opponent",
+                JOptionPane.DEFAULT_OPTION,
+                JOptionPane.QUESTION_MESSAGE,
+                null,
+                options,
+                options[0]
+        );
+        if (choice <= 0) {
+            return;
+        }
+
+        Difficulty level = levels[choice - 1];
+        ExternalEngine bot;
+        try {
+            bot = ExternalEngine.start(ExternalEngine.referenceCommand());
+        } catch (IOException e) {
+            System.err.println("Cannot start the bot, playing two players: " + e.getMessage());
+            return;
+        }
+        bot.level(level);
+        setEnginePlayer(players.get(1), bot, level.getMoveMillis());
+        System.out.println(players.get(1).getName() + " plays at level " + level);
+    }
+
     /**
      * Start the game.
      */
     public void startGame() {
+        // in a game at this screen, the second seat may be a bot
+        if (remotePlayer == null) {
+            chooseOpponent();
+        }
+
         // place pawns on paths
-        placePawnsOnPaths(pawns, paths, players.get(0));
-        placePawnsOnPaths(pawns, paths, players.get(1));
+        for (Player player : players) {
+            if (player == remotePlayer) {
+                placeRemotePawns(player);
+            } else {
+                placePawnsOnPaths(pawns, paths, player);
+            }
+        }
+        if (remoteLeft) {
+            System.out.println(remotePlayer.getName() + " left before the game started");
+            remoteSession.close(); // only a remote session can be left
+            view.displayGameOverMessage();
+            return;
+        }
 
         verifyPawnsPath(pawns);
 
-        this.deck = new Deck();
-        this.deck = initializeDeckData(this.deck);
-        deck.shuffle();
+        if (ratedDeal) {
+            // findings, hands, deck and starting player as the seed bank rated them
+            GameState deal = GameState.newGame(seed);
+            this.deck = new Deck();
+            this.board = new Board(paths);
+            deal.dealTo(board, players, deck);
+            currentPlayerIndex = deal.getActivePlayer();
+            activePlayer = players.get(currentPlayerIndex);
+        } else {
+            this.deck = new Deck();
+            this.deck = initializeDeckData(this.deck);
+            deck.shuffle(random);
 
-        this.board = new Board(paths);
+            this.board = new Board(paths);
 
-        // initialize findings
-        this.findings = initializeCommonFindings();
-        this.rareFindings = initializeRareFindings();
+            // initialize findings
+            this.findings = initializeCommonFindings();
+            this.rareFindings = initializeRareFindings();
+
+            // initialize board with findings first
+            board.initializeFindings(findings, rareFindings, paths, random);
+            // then deal cards
+            board.dealCards(deck, players.get(0), players.get(players.size() - 1));
 
-        // initialize board with findings first
-        board.initializeFindings(findings, rareFindings, paths);
-        // then deal cards
-        board.dealCards(deck, players.get(0), players.get(players.size() - 1));
+            // select a random player to start
+            currentPlayerIndex = random.nextInt(players.size());
+            activePlayer = players.get(currentPlayerIndex);
+        }
+
+        deleteSave(); // a new game replaces any unfinished one
+        openJournal();
 
         // start the game loop
         playGameLoop();
     }
 
+    /**
+     * Resumes a saved game where it was left. The game is not journaled, as a journal has to start
+     * at the first turn, and the belief trackers only keep what the revealed pawns tell.
+     *
+     * @param snapshot the saved game.
+     */
+    public void resumeGame(GameSnapshot snapshot) {
+        GameState state = snapshot.getState();
+        this.deck = new Deck();
+        this.board = new Board(paths);
+        state.applyTo(board, players, deck, pawns);
+
+        for (PawnBeliefTracker tracker : beliefTrackers.values()) {
+            tracker.reset();
+        }
+        for (Pawn pawn : pawns) {
+            beliefTrackers.get(getOpponent(pawn.getPlayer())).observeReveal(pawn);
+        }
+
+        turn = snapshot.getTurn();
+        currentPlayerIndex = state.getActivePlayer();
+        activePlayer = players.get(currentPlayerIndex);
+        System.out.println("Resuming game " + Long.toHexString(seed) + " at turn " + turn);
+
+        view.displayPlayerCards(players, players.get(0).getCardsOnHand(), players.get(1).getCardsOnHand());
+        playGameLoop();
+    }
+
     // ---------------------------------------------
     // Game loop method for looping the game
     // ---------------------------------------------
@@ -109,13 +326,15 @@ public class GameController {
 
         boolean gameOver = false;
 
-        // select a random player to start
-        currentPlayerIndex = new Random().nextInt(players.size());
-        activePlayer = players.get(currentPlayerIndex);
         view.updateCurrentPlayer(activePlayer.getName());
+        sendRemoteView(activePlayer);
 
         // main loop: keeps looping until gameOver = true
         while (!gameOver) {
+            if (turn >= nextCompactTurn) {
+                compact();
+            }
+
             // update UI (board, cards)
             view.updateBoard(board);
             view.updatePlayerHandPanel(activePlayer, activePlayer.getCardsOnHand());
@@ -123,29 +342,402 @@ public class GameController {
             // enable player interaction
             view.enablePlayerInteraction(players, currentPlayerIndex + 1, this);
 
+            // ask the bot for its move, if it is its turn, or let it think ahead during the player's
+            int engineAction = engine != null && activePlayer == remotePlayer ? requestEngineMove() : -1;
+            if (engine != null && activePlayer != remotePlayer) {
+                startEngineSpeculation();
+            }
+
+            // estimate the chances of the player's cards while they think
+            HandAnalysis analysis = activePlayer != remotePlayer ? startHandAnalysis() : null;
+
             // wait until the player completes their action
-            actionCompleted = false;
-            while (!actionCompleted) {
-                try {
-                    Thread.sleep(100);
-                } catch (InterruptedException e) {
-                    e.printStackTrace();
+            synchronized (this) {
+                actionCompleted = false;
+                remoteActionExpected = activePlayer == remotePlayer;
+                if (engineAction >= 0) {
+                    SwingUtilities.invokeLater(() -> handleRemoteAction(engineAction));
                 }
+                while (!actionCompleted) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        e.printStackTrace();
+                    }
+                }
+            }
+            if (analysis != null) {
+                analysis.cancel();
             }
+
             // disable player interaction
             view.disablePlayerInteraction();
 
             updatePlayerHand(activePlayer);
 
-            gameOver = isGameOver();
+            gameOver = isGameOver() || remoteLeft;
+            sendRemoteView(getOpponent(activePlayer));
 
             switchPlayerTurn();
+            turn++;
 
         }
 
+        closeJournal();
+        closeTurnLog();
+        deleteSave();
+        if (remoteSession != null) {
+            if (!remoteLeft) {
+                remoteSession.sendGameOver(Integer.signum(remotePlayer.getScore() - getOpponent(remotePlayer).getScore()));
+            }
+            remoteSession.close();
+        }
+        if (engine != null) {
+            engine.close();
+        }
         view.displayGameOverMessage();
     }
 
+    // ---------------------------------------------
+    // Remote player methods
+    // ---------------------------------------------
+
+    /**
+     * Sends the remote player the game as they may see it. It goes out as soon as a turn is played,
+     * before the view of this machine is redrawn.
+     *
+     * @param nextPlayer the player whose turn comes next.
+     */
+    private void sendRemoteView(Player nextPlayer) {
+        if (remoteSession != null && !remoteLeft) {
+            remoteSession.sendView(GameState.fromModel(board, players, deck, nextPlayer));
+        }
+    }
+
+    /**
+     * Plays an action the remote player sent, once it is checked to be theirs to play.
+     *
+     * @param action the action, as in GameState.apply.
+     */
+    private void handleRemoteAction(int action) {
+        if (!remoteActionExpected) {
+            rejectRemoteAction(Protocol.NOT_YOUR_TURN);
+            return;
+        }
+        int cardIndex = GameState.actionSlot(action);
+        if (action >= GameState.MAX_ACTIONS || cardIndex >= remotePlayer.getCardsOnHand().size()) {
+            rejectRemoteAction(Protocol.INVALID_ACTION);
+            return;
+        }
+
+        remoteActionExpected = false;
+        remoteTurn = true;
+        remoteOpensBox = GameState.actionKind(action) == GameState.PLAY_AND_OPEN;
+        try {
+            if (GameState.actionKind(action) == GameState.DISCARD) {
+                recordTurn(remotePlayer, cardIndex, remotePlayer.getCardsOnHand().get(cardIndex), GameState.DISCARD);
+                discardCard(remotePlayer, cardIndex);
+            } else {
+                playCard(remotePlayer, cardIndex);
+            }
+        } finally {
+            remoteTurn = false;
+        }
+    }
+
+    /**
+     * Refuses an action of the remote player. A bot that sends an action it cannot play discards
+     * its first card instead, so that the game goes on.
+     *
+     * @param reason one of the reasons of Protocol.REJECTED.
+     */
+    private void rejectRemoteAction(int reason) {
+        if (remoteSession != null) {
+            remoteSession.reject(reason);
+        } else if (reason == Protocol.INVALID_ACTION && !remotePlayer.getCardsOnHand().isEmpty()) {
+            System.err.println(engine.getName() + " made an invalid move, discarding its first card");
+            handleRemoteAction(GameState.action(0, GameState.DISCARD));
+        }
+    }
+
+    /**
+     * Asks the bot for the move of its turn. This runs on the game loop's thread, which waits
+     * for the move anyway.
+     *
+     * @return the action, or the discard of the first card if the bot fails to answer.
+     */
+    private int requestEngineMove() {
+        int seat = players.indexOf(remotePlayer);
+        GameState state = GameState.fromModel(board, players, deck, remotePlayer).observedBy(seat);
+        try {
+            long start = System.nanoTime();
+            int action = engine.bestMoveOnClock(state, engineClock.timeLeft(state));
+            engineClock.spend((System.nanoTime() - start) / 1_000_000);
+            if (action >= 0) {
+                return action;
+            }
+        } catch (IOException e) {
+            System.err.println("The bot failed to answer: " + e.getMessage());
+        }
+        return GameState.action(0, GameState.DISCARD);
+    }
+
+    /**
+     * Starts estimating, in the background, the chance to win of every card of the active player
+     * as they may see the game. The estimates reach the view as they sharpen.
+     *
+     * @return the running analysis, to be cancelled when the turn ends.
+     */
+    private HandAnalysis startHandAnalysis() {
+        GameState state = GameState.fromModel(board, players, deck, activePlayer).observedBy(currentPlayerIndex);
+        Player shown = activePlayer;
+        return HandAnalysis.start(state, theseusBeliefs(activePlayer), estimate -> view.showHandEstimates(shown, estimate));
+    }
+
+    /**
+     * Returns how likely the player believes each path to hide the opponent's Theseus, from their
+     * belief tracker.
+     *
+     * @param observer the player.
+     * @return the probabilities by path, in the order of GameState.PATH_NAMES.
+     */
+    private double[] theseusBeliefs(Player observer) {
+        PawnBeliefTracker tracker = getBeliefTracker(observer);
+        double[] beliefs = new double[GameState.PATHS];
+        for (Pawn pawn : pawns) {
+            if (!pawn.getPlayer().equals(observer) && pawn.getPath() != null) {
+                beliefs[GameState.pathIndexOf(pawn.getPath().getPathName())] = tracker.getTheseusProbability(pawn);
+            }
+        }
+        return beliefs;
+    }
+
+    /**
+     * Lets the bot search its replies to every move the player to move could make, while they
+     * think. The bot does this in its own process at low priority, so the only work here is
+     * sending the position, on the game loop's thread rather than the event dispatch thread; the
+     * next {@link #requestEngineMove()} is answered at once if the game reached a position the bot
+     * searched.
+     */
+    private void startEngineSpeculation() {
+        int seat = players.indexOf(remotePlayer);
+        GameState state = GameState.fromModel(board, players, deck, activePlayer).observedBy(seat);
+        if (state.isTerminal()) {
+            return;
+        }
+        engine.position(state);
+        engine.speculate(engineMoveMillis);
+        try {
+            engine.flush();
+        } catch (IOException e) {
+            System.err.println("The bot cannot think ahead: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Places the pawns of the remote player: Theseus on the path they chose, or a random path for
+     * a bot, and the archaeologists on the other paths, as no one can tell the archaeologists apart.
+     *
+     * @param player the remote player.
+     */
+    private void placeRemotePawns(Player player) {
+        int theseusPath;
+        if (engine != null) {
+            theseusPath = random.nextInt(paths.size());
+        } else {
+            System.out.println("Waiting for " + player.getName() + " to place their pawns");
+            try {
+                theseusPath = remoteSession.awaitPlacement();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                theseusPath = -1;
+            }
+        }
+        if (theseusPath < 0) {
+            remoteLeft = true;
+            return;
+        }
+
+        int nextPath = 0;
+        for (Pawn pawn : pawns) {
+            if (!pawn.getPlayer().equals(player)) {
+                continue;
+            }
+            int path;
+            if (pawn instanceof Theseus) {
+                path = theseusPath;
+            } else {
+                if (nextPath == theseusPath) {
+                    nextPath++;
+                }
+                path = nextPath++;
+            }
+            pawn.setCurrentPosition(paths.get(path).getPositionByIndex(1));
+        }
+    }
+
+    /**
+     * Tells the player what their card did. The turns of the remote player are only logged, so that
+     * nobody has to click through them here.
+     */
+    private void showMessage(String message, String title, int messageType) {
+        if (remoteTurn) {
+            System.out.println(title + ": " + message);
+        } else {
+            JOptionPane.showMessageDialog(view, message, title, messageType);
+        }
+    }
+
+    // ---------------------------------------------
+    // Save methods
+    // ---------------------------------------------
+
+    /**
+     * Saves the game as it stands before the active player's turn and empties the turn log, whose
+     * turns the snapshot now covers. Between snapshots every turn goes to the log only.
+     */
+    private void compact() {
+        try {
+            new GameSnapshot(seed, turn, GameState.fromModel(board, players, deck, activePlayer)).save(GameSnapshot.AUTOSAVE);
+            if (turnLog == null) {
+                turnLog = new TurnLog(TurnLog.DEFAULT_FILE);
+                loggedSequence = 0;
+            }
+            turnLog.truncate();
+            nextCompactTurn = turn + COMPACT_INTERVAL;
+            compactRetryTurns = 1;
+        } catch (IOException e) {
+            System.err.println("Could not save the game: " + GameSnapshot.AUTOSAVE.getPath() + " - " + e.getMessage());
+            saveFailed();
+        }
+    }
+
+    /**
+     * Appends a turn to the turn log without waiting for the disk; {@link #awaitTurnLog} waits
+     * before the board or the hand shows the turn.
+     */
+    private void logTurn(int action, int cardCode) {
+        if (turnLog == null) {
+            return;
+        }
+        try {
+            loggedSequence = turnLog.append(turn, action, cardCode);
+        } catch (IOException e) {
+            System.err.println("Could not write turn log: " + e.getMessage());
+            saveFailed();
+        }
+    }
+
+    /**
+     * Waits until every turn logged so far is on disk, so that the view never shows a turn a
+     * crash could lose. The turns logged since the last wait share one write.
+     */
+    private void awaitTurnLog() {
+        if (turnLog == null || loggedSequence == 0) {
+            return;
+        }
+        try {
+            turnLog.awaitDurable(loggedSequence);
+        } catch (IOException e) {
+            System.err.println("Could not write turn log: " + e.getMessage());
+            saveFailed();
+        }
+    }
+
+    /**
+     * Stops logging after a failed save and tries a new snapshot later, waiting twice as many turns
+     * after every failure in a row, so that a disk that keeps failing is not written every turn.
+     */
+    private void saveFailed() {
+        closeTurnLog();
+        nextCompactTurn = turn + compactRetryTurns;
+        compactRetryTurns = Math.min(compactRetryTurns * 2, MAX_COMPACT_RETRY_TURNS);
+    }
+
+    private void closeTurnLog() {
+        if (turnLog == null) {
+            return;
+        }
+        try {
+            turnLog.close();
+        } catch (IOException e) {
+            System.err.println("Could not close turn log: " + e.getMessage());
+        }
+        turnLog = null;
+        loggedSequence = 0;
+    }
+
+    /**
+     * Deletes the snapshot and the turn log, once the game is over or a new one replaces it.
+     */
+    private static void deleteSave() {
+        for (File file : new File[]{GameSnapshot.AUTOSAVE, TurnLog.DEFAULT_FILE}) {
+            if (file.exists() && !file.delete()) {
+                System.err.println("Could not delete save file: " + file.getPath());
+            }
+        }
+    }
+
+    // ---------------------------------------------
+    // Journal methods
+    // ---------------------------------------------
+
+    /**
+     * Starts the binary record of the game. The game goes on without one if the file cannot be created.
+     */
+    private void openJournal() {
+        File file = new File("journals", "game-" + Long.toHexString(seed) + ".journal");
+        try {
+            journal = GameJournal.create(file, seed, GameState.fromModel(board, players, deck, activePlayer));
+            System.out.println("Recording game to " + file.getPath());
+        } catch (IOException e) {
+            System.err.println("Could not create game journal: " + file.getPath() + " - " + e.getMessage());
+            journal = null;
+        }
+    }
+
+    /**
+     * Records a turn in the journal and the turn log.
+     *
+     * @param player the player who took the turn.
+     * @param cardIndex the index of the card in the player's hand.
+     * @param card the card played or discarded.
+     * @param kind GameState.DISCARD, PLAY or PLAY_AND_OPEN.
+     */
+    private void recordTurn(Player player, int cardIndex, Card card, int kind) {
+        logTurn(GameState.action(cardIndex, kind), GameState.cardCode(card));
+        if (journal == null) {
+            return;
+        }
+        int path = GameState.pathIndexOf(card.getPalaceName());
+        Player owner = (card instanceof MinotaurCard) ? getOpponent(player) : player;
+        int target = board.getPaths().get(path).getPlayerPawn(owner) != null
+                ? players.indexOf(owner) * GameState.PATHS + path + 1
+                : 0;
+        try {
+            journal.recordAction(GameState.action(cardIndex, kind), GameState.cardCode(card), target);
+        } catch (IOException e) {
+            System.err.println("Could not write game journal: " + e.getMessage());
+            journal = null;
+        }
+    }
+
+    /**
+     * Records the result and closes the journal.
+     */
+    private void closeJournal() {
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.recordEnd(Integer.signum(players.get(0).getScore() - players.get(1).getScore()));
+            journal.close();
+        } catch (IOException e) {
+            System.err.println("Could not finish game journal: " + e.getMessage());
+        }
+        journal = null;
+    }
+
 
     // ---------------------------------------------
     // Game initialization methods
@@ -490,17 +1082,30 @@ public class GameController {
         );
 
         if (choice == 1) { // Discard Card
+            recordTurn(currentPlayer, cardIndex, selectedCard, GameState.DISCARD);
             discardCard(currentPlayer, cardIndex);
             return;
         }
 
+        playCard(currentPlayer, cardIndex);
+    }
+
+    /**
+     * Plays a card of the player's hand and draws a new one.
+     *
+     * @param currentPlayer the player who plays the card.
+     * @param cardIndex the index of the card in the player's hand.
+     */
+    private void playCard(Player currentPlayer, int cardIndex) {
+        Card selectedCard = currentPlayer.getCardsOnHand().get(cardIndex);
+        boxOpened = false;
+
         // handle the card based on its type
         if (selectedCard instanceof MinotaurCard minotaurCard) {
 
             handleMinotaurCard(currentPlayer, minotaurCard);
 
-            JOptionPane.showMessageDialog(
-                    view,
+            showMessage(
                     "Minotaur card played on path "+ selectedCard.getPalaceName(),
                     "Played Minotaur Card",
                     JOptionPane.ERROR_MESSAGE
@@ -509,8 +1114,7 @@ public class GameController {
 
             handleAriadneCard(currentPlayer, ariadneCard);
 
-            JOptionPane.showMessageDialog(
-                    view,
+            showMessage(
                     "Ariadne card played on path "+ selectedCard.getPalaceName(),
                     "Played Ariadne Card",
                     JOptionPane.ERROR_MESSAGE
@@ -519,15 +1123,13 @@ public class GameController {
 
             handleNumberCard(currentPlayer, numberCard);
 
-            JOptionPane.showMessageDialog(
-                    view,
+            showMessage(
                     "Number card with value " + numberCard.getValue() + " played on path "+ selectedCard.getPalaceName(),
                     "Played Number Card",
                     JOptionPane.ERROR_MESSAGE
             );
         } else {
-            JOptionPane.showMessageDialog(
-                    view,
+            showMessage(
                     "Unknown card type!",
                     "Error",
                     JOptionPane.ERROR_MESSAGE
@@ -535,6 +1137,8 @@ public class GameController {
             return;
         }
 
+        recordTurn(currentPlayer, cardIndex, selectedCard, boxOpened ? GameState.PLAY_AND_OPEN : GameState.PLAY);
+
         // remove the card from the player's hand
         currentPlayer.getCardsOnHand().remove(cardIndex);
 
@@ -546,6 +1150,7 @@ public class GameController {
 
         currentPlayer.PlayedAnyCard = true;
 
+        awaitTurnLog();
         updateView(players);
 
         setActionCompleted(true);
@@ -565,6 +1170,7 @@ public class GameController {
         player.drawCard(deck);
 
         // update the view
+        awaitTurnLog();
         view.updatePlayerHandPanel(player, player.getCardsOnHand());
 
         System.out.println("Player " + player.getName() + " discarded: " + discardedCard);
@@ -584,18 +1190,19 @@ public class GameController {
         Path selectedPath = board.getPathByName(pathName);
 
         if (selectedPath == null) {
-            JOptionPane.showMessageDialog(view, "Invalid path for this card: " + pathName, "Error", JOptionPane.ERROR_MESSAGE);
+            showMessage("Invalid path for this card: " + pathName, "Error", JOptionPane.ERROR_MESSAGE);
             return;
         }
 
         Pawn targetPawn = selectedPath.getOpponentPawn(player);
         if (targetPawn == null) {
-            JOptionPane.showMessageDialog(view, "No opponent pawn found on path: " + pathName, "Error", JOptionPane.ERROR_MESSAGE);
+            showMessage("No opponent pawn found on path: " + pathName, "Error", JOptionPane.ERROR_MESSAGE);
             return;
         }
 
         card.attack(targetPawn, player);
-        JOptionPane.showMessageDialog(view, "Attack successful on " + targetPawn.getType() + "!", "Success", JOptionPane.INFORMATION_MESSAGE);
+        beliefTrackers.get(player).observeReveal(targetPawn);
+        showMessage("Attack successful on " + targetPawn.getType() + "!", "Success", JOptionPane.INFORMATION_MESSAGE);
     }
 
 
@@ -610,21 +1217,22 @@ public class GameController {
         Path selectedPath = board.getPathByName(pathName);
 
         if (selectedPath == null) {
-            JOptionPane.showMessageDialog(view, "Invalid path for this card!", "Error", JOptionPane.ERROR_MESSAGE);
+            showMessage("Invalid path for this card!", "Error", JOptionPane.ERROR_MESSAGE);
             return;
         }
 
         Pawn playerPawn = selectedPath.getPlayerPawn(player);
         if (playerPawn == null) {
-            JOptionPane.showMessageDialog(view, "No pawn found on this path for you!", "Error", JOptionPane.ERROR_MESSAGE);
+            showMessage("No pawn found on this path for you!", "Error", JOptionPane.ERROR_MESSAGE);
             return;
         }
 
         boolean success = playerPawn.move(2);
         if (success) {
-            JOptionPane.showMessageDialog(view, "Pawn moved two steps on path: " + selectedPath.getPathName());
+            showMessage("Pawn moved two steps on path: " + selectedPath.getPathName(), "Message", JOptionPane.INFORMATION_MESSAGE);
+            resolveLanding(player, playerPawn);
         } else {
-            JOptionPane.showMessageDialog(view, "Move failed!", "Error", JOptionPane.ERROR_MESSAGE);
+            showMessage("Move failed!", "Error", JOptionPane.ERROR_MESSAGE);
         }
 
         System.out.println("Ariadne card used on path: " + selectedPath.getPathName());
@@ -642,26 +1250,108 @@ public class GameController {
         Path selectedPath = board.getPathByName(pathName);
 
         if (selectedPath == null) {
-            JOptionPane.showMessageDialog(view, "Invalid path for this card: " + pathName, "Error", JOptionPane.ERROR_MESSAGE);
+            showMessage("Invalid path for this card: " + pathName, "Error", JOptionPane.ERROR_MESSAGE);
             return;
         }
 
         Pawn playerPawn = selectedPath.getPlayerPawn(player);
         if (playerPawn == null) {
-            JOptionPane.showMessageDialog(view, "No valid pawn to move on path: " + pathName, "Error", JOptionPane.ERROR_MESSAGE);
+            showMessage("No valid pawn to move on path: " + pathName, "Error", JOptionPane.ERROR_MESSAGE);
             return;
         }
 
         boolean success = card.isPlayable(card ,card.getPath());
         if (success) {
-            JOptionPane.showMessageDialog(view, "Pawn moved one step on path: " + selectedPath.getPathName());
-            playerPawn.move(1);
+            showMessage("Pawn moved one step on path: " + selectedPath.getPathName(), "Message", JOptionPane.INFORMATION_MESSAGE);
+            if (playerPawn.move(1)) {
+                resolveLanding(player, playerPawn);
+            }
         } else {
-            JOptionPane.showMessageDialog(view, "Move failed (probably because the card is not playable)! + " +
+            showMessage("Move failed (probably because the card is not playable)! + " +
                     "Last played number card value: "+ card.getPath().getLastCardPlayedValue(), "Error", JOptionPane.ERROR_MESSAGE);
         }
     }
 
+    /**
+     * Lets the player act on the box the pawn has just landed on, and tells the opponent what they
+     * could see of it.
+     *
+     * @param player the player who moved the pawn.
+     * @param pawn the pawn that landed.
+     */
+    private void resolveLanding(Player player, Pawn pawn) {
+        Position position = pawn.getPosition();
+        Finding finding = position.getFinding();
+        PawnBeliefTracker opponentTracker = beliefTrackers.get(getOpponent(player));
+        opponentTracker.observeMove(pawn);
+
+        if (finding == null) {
+            return;
+        }
+
+        // what either kind of pawn could do here, which the opponent can tell as well
+        boolean archaeologistCouldAct = !(finding instanceof FrescoFinding fresco && fresco.isPhotographedBy(player));
+        boolean theseusCouldAct = getTheseus(player).remainingDestroys > 0;
+        boolean canAct = pawn instanceof Theseus ? theseusCouldAct : archaeologistCouldAct;
+        boolean acted = canAct && actOnBox(player, pawn, position);
+
+        boxOpened = acted;
+        if (acted) {
+            opponentTracker.observeReveal(pawn);
+        } else if (pawn.isHidden()) {
+            opponentTracker.observeSkippedBox(pawn, archaeologistCouldAct, theseusCouldAct);
+        }
+    }
+
+    /**
+     * Asks the player whether to open (Archaeologist) or destroy (Theseus) the box at the pawn's
+     * position, and does so. An Archaeologist collects the finding or photographs the fresco, and
+     * Theseus uses up one of his destroys; either way the pawn is revealed.
+     *
+     * @param player the player who moved the pawn.
+     * @param pawn the pawn on the box.
+     * @param position the position of the box.
+     * @return true if the box was opened or destroyed, false if the player declined or could not.
+     */
+    private boolean actOnBox(Player player, Pawn pawn, Position position) {
+        String question = (pawn instanceof Theseus ? "Destroy" : "Open") + " the box at position " + position.getIndex() + "?";
+        boolean open = remoteTurn
+                ? remoteOpensBox
+                : JOptionPane.showConfirmDialog(view, question, "Box", JOptionPane.YES_NO_OPTION) == JOptionPane.YES_OPTION;
+        if (!open) {
+            return false;
+        }
+        if (pawn instanceof Theseus theseus) {
+            return theseus.destroyBox(position);
+        }
+        return player.collectFinding((Archaeologist) pawn, position);
+    }
+
+    /**
+     * Returns the Theseus of the given player.
+     *
+     * @param player the player.
+     * @return the pawn.
+     */
+    private Theseus getTheseus(Player player) {
+        for (Pawn pawn : pawns) {
+            if (pawn instanceof Theseus theseus && pawn.getPlayer().equals(player)) {
+                return theseus;
+            }
+        }
+        throw new IllegalStateException(player.getName() + " has no Theseus");
+    }
+
+    /**
+     * Returns the opponent of the given player.
+     *
+     * @param player the player.
+     * @return the other player.
+     */
+    private Player getOpponent(Player player) {
+        return players.get(0).equals(player) ? players.get(1) : players.get(0);
+    }
+
     /**
      * After the card is played, we move to a new card (if available) and update the UI.
      *
@@ -767,7 +1457,8 @@ public class GameController {
      *
      * @param actionCompleted the new value of the flag.
      */
-    public void setActionCompleted(boolean actionCompleted) {
+    public synchronized void setActionCompleted(boolean actionCompleted) {
         this.actionCompleted = actionCompleted;
+        notifyAll(); // wakes the game loop
     }
 }
@@ -0,0 +1,230 @@
+package Controller;
+
+import Model.*;
+import Network.LockstepSession;
+import View.GameView;
+
+import javax.swing.*;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Controller for a lockstep game between two machines.
+ * <p>
+ * Both machines run the same game from the same snapshot and only send each other the card each
+ * player chose, with a hash of the game after it that covers the order of the cards in the hands
+ * and the deck. When the hashes disagree the host's game
+ * wins: the host sends it whole and the other machine takes it over. Every machine holds the
+ * whole game, the other player's hand included, so this suits friends rather than strangers;
+ * the view still shows only the local player's cards.
+ */
+public class LockstepGameController implements SeatController, LockstepSession.Listener {
+    private final GameView view;
+    private final List<Player> players;
+    private final Board board;
+    private final Deck deck;
+    private final List<Pawn> pawns;
+    private volatile LockstepSession session;
+    private int seat;             // the seat of the player at this screen: 0 on the host, 1 on the other machine
+    private long seed;
+    private GameState state;      // the game, used on the event thread only
+    private boolean resyncing;    // whether this side waits for the host's game after a mismatch
+    private int desyncs;
+    private volatile boolean gameOver;
+
+    /**
+     * Constructs a LockstepGameController object.
+     *
+     * @param view    The GameView object.
+     * @param players The list of players.
+     * @param paths   The list of paths.
+     */
+    public LockstepGameController(GameView view, List<Player> players, List<Path> paths) {
+        this.view = view;
+        this.players = players;
+        this.board = new Board(paths);
+        this.deck = new Deck();
+
+        // the same pawns GameController creates, placed by the game state
+        this.pawns = new ArrayList<>();
+        for (Player player : players) {
+            pawns.add(new Archaeologist(player, null, null));
+            pawns.add(new Archaeologist(player, null, null));
+            pawns.add(new Archaeologist(player, null, null));
+            pawns.add(new Theseus(player, null, null));
+        }
+    }
+
+    /**
+     * Waits for the other player and starts a new game when they join. The player at this screen is Player 1.
+     *
+     * @param port the port, or 0 for any free port.
+     * @throws IOException if the port cannot be bound.
+     */
+    public void host(int port) throws IOException {
+        seat = 0;
+        seed = new Random().nextLong();
+        session = LockstepSession.host(port, this);
+        System.out.println("Waiting for a player on port " + session.getPort());
+        connectView();
+    }
+
+    /**
+     * Joins a game hosted with {@link #host}. The player at this screen is Player 2.
+     *
+     * @param address the address of the host.
+     * @throws IOException if the host cannot be reached.
+     */
+    public void join(InetSocketAddress address) throws IOException {
+        seat = 1;
+        session = LockstepSession.join(address, this);
+        connectView();
+    }
+
+    private void connectView() {
+        Player player = players.get(seat);
+        view.setSeatController(this, player.getId());
+        view.setTitle(view.getTitle() + " - " + player.getName());
+        view.updateCurrentPlayer("Waiting for the other player");
+    }
+
+    public int getDesyncCount() {
+        return desyncs;
+    }
+
+    @Override
+    public boolean isMyTurn() {
+        return state != null && !gameOver && !resyncing && state.getActivePlayer() == seat;
+    }
+
+    /**
+     * Asks the player what to do with the card, plays it here and sends it to the other machine.
+     *
+     * @param cardIndex the index of the card clicked.
+     */
+    @Override
+    public void handleCardClick(int cardIndex) {
+        if (!isMyTurn() || cardIndex >= state.getHandSize(seat)) {
+            return;
+        }
+        int kind = SeatController.chooseActionKind();
+        if (kind < 0 || !isMyTurn()) {
+            return;
+        }
+
+        int action = GameState.action(cardIndex, kind);
+        state.apply(action);
+        session.sendTurn(action, state.lockstepHash());
+        showState();
+    }
+
+    // ---------------------------------------------
+    // Messages of the other machine, on the network thread
+    // ---------------------------------------------
+
+    @Override
+    public void onPeerJoined() {
+        SwingUtilities.invokeLater(() -> {
+            state = GameState.newGame(seed);
+            System.out.println("Starting game " + Long.toHexString(seed));
+            session.sendSnapshot(new GameSnapshot(seed, 0, state));
+            showState();
+        });
+    }
+
+    @Override
+    public void onTurn(int action, int hash) {
+        SwingUtilities.invokeLater(() -> {
+            if (state == null || resyncing) {
+                return; // the host's game is on its way and replaces this one
+            }
+            int opponent = 1 - seat;
+            if (state.isTerminal() || state.getActivePlayer() != opponent
+                    || GameState.actionSlot(action) >= state.getHandSize(opponent)) {
+                System.err.println("Turn " + state.getTurn() + ": the other player's move does not fit this game");
+                desync();
+                return;
+            }
+            state.apply(action);
+            if ((int) state.lockstepHash() != hash) {
+                System.err.println("Turn " + state.getTurn() + ": the games differ after the other player's move");
+                desync();
+                return;
+            }
+            showState();
+        });
+    }
+
+    @Override
+    public void onResyncRequest() {
+        SwingUtilities.invokeLater(() -> {
+            if (state != null) {
+                desyncs++;
+                session.sendSnapshot(new GameSnapshot(seed, state.getTurn(), state));
+            }
+        });
+    }
+
+    @Override
+    public void onSnapshot(GameSnapshot snapshot) {
+        SwingUtilities.invokeLater(() -> {
+            if (state != null) {
+                System.out.println("Took over the host's game at turn " + snapshot.getTurn());
+            }
+            seed = snapshot.getSeed();
+            state = snapshot.getState();
+            resyncing = false;
+            showState();
+        });
+    }
+
+    @Override
+    public void onLeave() {
+        if (gameOver) {
+            return;
+        }
+        SwingUtilities.invokeLater(() -> {
+            JOptionPane.showMessageDialog(view, "The connection to the other player was lost.", "Error", JOptionPane.ERROR_MESSAGE);
+            view.displayGameOverMessage();
+        });
+    }
+
+    /**
+     * Brings the two games back together: the host sends its game, the other machine asks for it.
+     */
+    private void desync() {
+        desyncs++;
+        if (session.isHost()) {
+            session.sendSnapshot(new GameSnapshot(seed, state.getTurn(), state));
+            showState();
+        } else {
+            resyncing = true;
+            view.disablePlayerInteraction();
+            session.requestResync();
+        }
+    }
+
+    /**
+     * Draws the game and ends it once it is over.
+     */
+    private void showState() {
+        state.applyTo(board, players, deck, pawns);
+        view.updateBoard(board);
+        view.displayPlayerCards(players, players.get(0).getCardsOnHand(), players.get(1).getCardsOnHand());
+        view.updateCurrentPlayer(players.get(state.getActivePlayer()).getName()
+                + " - Score " + state.getScore(0) + " : " + state.getScore(1));
+        if (!state.isTerminal()) {
+            return;
+        }
+
+        gameOver = true; // the other machine may close first
+        int result = seat == 0 ? state.getResult() : -state.getResult();
+        String message = result > 0 ? "You won!" : result < 0 ? "You lost!" : "It's a tie!";
+        JOptionPane.showMessageDialog(view, message, "Result", JOptionPane.INFORMATION_MESSAGE);
+        session.close();
+        view.displayGameOverMessage();
+    }
+}
@@ -0,0 +1,186 @@
+package Controller;
+
+import Model.*;
+import Network.GuestSession;
+import Network.Protocol;
+import View.GameView;
+
+import javax.swing.*;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Controller for a game whose host runs on another machine.
+ * <p>
+ * The host plays the game by the rules; this side only draws the views the host sends and sends
+ * back the card the player chose. A view holds the player's own hand and the board, so the
+ * opponent's hand and hidden pawns are never known here.
+ */
+public class RemoteGameController implements SeatController, GuestSession.Listener {
+    private final GameView view;
+    private final List<Player> players;
+    private final Board board;
+    private final Deck deck;
+    private final List<Pawn> pawns;
+    private volatile GuestSession session;
+    private int seat = -1;        // the seat of the player at this screen, set on the event thread
+    private GameState state;      // the last view of the host, used on the event thread only
+    private boolean actionSent;   // whether the player's action of this turn is on its way
+    private long lastRoundTrip;   // the last round trip reported, used on the network thread only
+    private volatile boolean gameOver;
+
+    /**
+     * Constructs a RemoteGameController object.
+     *
+     * @param view    The GameView object.
+     * @param players The list of players.
+     * @param paths   The list of paths.
+     */
+    public RemoteGameController(GameView view, List<Player> players, List<Path> paths) {
+        this.view = view;
+        this.players = players;
+        this.board = new Board(paths);
+        this.deck = new Deck();
+
+        // the same pawns GameController creates, placed by the views of the host
+        this.pawns = new ArrayList<>();
+        for (Player player : players) {
+            pawns.add(new Archaeologist(player, null, null));
+            pawns.add(new Archaeologist(player, null, null));
+            pawns.add(new Archaeologist(player, null, null));
+            pawns.add(new Theseus(player, null, null));
+        }
+    }
+
+    /**
+     * Connects to the host and asks for a seat.
+     *
+     * @param address the address of the host.
+     * @throws IOException if the host cannot be reached.
+     */
+    public void join(InetSocketAddress address) throws IOException {
+        session = GuestSession.connect(address, this);
+        session.join();
+        view.updateCurrentPlayer("Waiting for the host");
+    }
+
+    @Override
+    public boolean isMyTurn() {
+        return state != null && state.getActivePlayer() == seat && !actionSent;
+    }
+
+    /**
+     * Asks the player what to do with the card and sends the action to the host.
+     *
+     * @param cardIndex the index of the card clicked.
+     */
+    @Override
+    public void handleCardClick(int cardIndex) {
+        if (!isMyTurn() || cardIndex >= state.getHandSize(seat)) {
+            return;
+        }
+        int kind = SeatController.chooseActionKind();
+        if (kind < 0) {
+            return;
+        }
+
+        actionSent = true;
+        view.disablePlayerInteraction();
+        session.sendAction(GameState.action(cardIndex, kind));
+    }
+
+    // ---------------------------------------------
+    // Messages of the host, on the network thread
+    // ---------------------------------------------
+
+    @Override
+    public void onJoined(int seat) {
+        SwingUtilities.invokeLater(() -> {
+            this.seat = seat;
+            Player player = players.get(seat);
+            view.setSeatController(this, player.getId());
+            view.setTitle(view.getTitle() + " - " + player.getName());
+            session.place(chooseTheseusPath(player));
+            view.updateCurrentPlayer("Waiting for the other player");
+        });
+    }
+
+    @Override
+    public void onView(GameState state) {
+        long roundTrip = session.getLastRoundTripNanos();
+        if (roundTrip != lastRoundTrip) {
+            lastRoundTrip = roundTrip;
+            System.out.printf("Turn round trip: %.3f ms%n", roundTrip / 1e6);
+        }
+        SwingUtilities.invokeLater(() -> {
+            this.state = state;
+            actionSent = false;
+            state.applyTo(board, players, deck, pawns);
+            view.updateBoard(board);
+            view.displayPlayerCards(players, players.get(0).getCardsOnHand(), players.get(1).getCardsOnHand());
+            view.updateCurrentPlayer(players.get(state.getActivePlayer()).getName());
+        });
+    }
+
+    @Override
+    public void onRejected(int reason) {
+        SwingUtilities.invokeLater(() -> {
+            actionSent = false;
+            String message = switch (reason) {
+                case Protocol.NOT_YOUR_TURN -> "It is not your turn!";
+                case Protocol.INVALID_ACTION -> "Invalid card selection!";
+                default -> "The host refused the move!";
+            };
+            JOptionPane.showMessageDialog(view, message, "Error", JOptionPane.ERROR_MESSAGE);
+            view.displayPlayerCards(players, players.get(0).getCardsOnHand(), players.get(1).getCardsOnHand());
+        });
+    }
+
+    @Override
+    public void onGameOver(int result) {
+        gameOver = true; // the host closes the connection next
+        SwingUtilities.invokeLater(() -> {
+            String message = result > 0 ? "You won!" : result < 0 ? "You lost!" : "It's a tie!";
+            JOptionPane.showMessageDialog(view, message, "Result", JOptionPane.INFORMATION_MESSAGE);
+            session.close();
+            view.displayGameOverMessage();
+        });
+    }
+
+    @Override
+    public void onLeave() {
+        if (gameOver) {
+            return;
+        }
+        SwingUtilities.invokeLater(() -> {
+            JOptionPane.showMessageDialog(view, "The connection to the host was lost.", "Error", JOptionPane.ERROR_MESSAGE);
+            view.displayGameOverMessage();
+        });
+    }
+
+    /**
+     * Asks the player for the path of their Theseus; the archaeologists go on the other paths.
+     *
+     * @param player the player at this screen.
+     * @return the path, in the order of GameState.PATH_NAMES.
+     */
+    private int chooseTheseusPath(Player player) {
+        String selectedPathName = (String) JOptionPane.showInputDialog(
+                view,
+                "Select a path for Theseus (" + player.getName() + ")",
+                "Path Selection",
+                JOptionPane.QUESTION_MESSAGE,
+                null,
+                GameState.PATH_NAMES,
+                GameState.PATH_NAMES[0]
+        );
+        int path = selectedPathName == null ? -1 : GameState.pathIndexOf(selectedPathName);
+        if (path < 0) {
+            System.out.println(player.getName() + " cancelled path selection, Theseus goes to " + GameState.PATH_NAMES[0]);
+            path = 0;
+        }
+        return path;
+    }
+}
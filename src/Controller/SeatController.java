@@ -0,0 +1,49 @@
+package Controller;
+
+import Model.GameState;
+
+import javax.swing.*;
+
+/**
+ * A controller that plays one seat of a network game at this screen, while the other seat plays on another machine.
+ */
+public interface SeatController {
+
+    /**
+     * Returns whether the player at this screen may play a card now.
+     * @return true if it is their turn and they have not played yet.
+     */
+    boolean isMyTurn();
+
+    /**
+     * Handles a click on a card of the player at this screen.
+     * @param cardIndex the index of the card clicked.
+     */
+    void handleCardClick(int cardIndex);
+
+    /**
+     * Asks the player what to do with a card. The box question is asked up front, because the
+     * answer travels with the card.
+     *
+     * @return GameState.PLAY, PLAY_AND_OPEN or DISCARD, or -1 if the player closed the dialog.
+     */
+    static int chooseActionKind() {
+        String[] options = {"Play Card", "Play and Open Box", "Discard Card"};
+        int choice = JOptionPane.showOptionDialog(
+                null,
+                "Do you want to play or discard this card?\nIf the pawn lands on a box, it is opened (or destroyed by Theseus) only if you choose to.",
+                "Card Action",
+                JOptionPane.DEFAULT_OPTION,
+                JOptionPane.QUESTION_MESSAGE,
+                null,
+                options,
+                options[0]
+        );
+        return switch (choice) {
+            case 0 -> GameState.PLAY;
+            case 1 -> GameState.PLAY_AND_OPEN;
+            case 2 -> GameState.DISCARD;
+            default -> -1;
+        };
+    }
+}
@@ -1,12 +1,58 @@
+import Bot.ExternalEngine;
 import Controller.GameController;
+import Controller.LockstepGameController;
+import Controller.RemoteGameController;
 import Model.*;
+import Network.HostSession;
+import Network.MatchServer;
+import Network.Protocol;
 import View.GameView;
 
+import javax.swing.*;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
 
 public class Main {
+    private static final long ENGINE_MOVE_MILLIS = 500;
+
     public static void main(String[] args) {
+        if (args.length == 2 && args[0].equals("--replay")) {
+            replay(new File(args[1]));
+            return;
+        }
+        if (args.length >= 1 && args[0].equals("--host")) {
+            host(args.length > 1 ? Integer.parseInt(args[1]) : Protocol.DEFAULT_PORT);
+            return;
+        }
+        if (args.length == 2 && args[0].equals("--join")) {
+            join(args[1]);
+            return;
+        }
+        if (args.length >= 1 && args[0].equals("--lockstep-host")) {
+            lockstep(null, args.length > 1 ? Integer.parseInt(args[1]) : Protocol.DEFAULT_PORT);
+            return;
+        }
+        if (args.length == 2 && args[0].equals("--lockstep-join")) {
+            lockstep(args[1], 0);
+            return;
+        }
+        if (args.length >= 1 && args[0].equals("--engine")) {
+            playEngine(args.length > 1 ? Arrays.asList(args).subList(1, args.length) : ExternalEngine.referenceCommand());
+            return;
+        }
+        if (args.length >= 1 && args[0].equals("--server")) {
+            try {
+                MatchServer.serve(args.length > 1 ? Integer.parseInt(args[1]) : Protocol.DEFAULT_PORT);
+            } catch (IOException e) {
+                System.err.println("Cannot start the match server: " + e.getMessage());
+            }
+            return;
+        }
 
         // create paths
         List<Path> paths = initializePaths();
@@ -27,11 +73,210 @@ public class Main {
         // create view
         GameView view = new GameView();
 
-        // create and start the controller
-        GameController controller = new GameController(view, players, deck, board, paths);
+        // resume the last game if it was left unfinished
+        GameSnapshot saved = findAutosave();
+        if (saved != null && JOptionPane.showConfirmDialog(view,
+                "Resume the game saved at turn " + saved.getTurn() + "?",
+                "Saved Game", JOptionPane.YES_NO_OPTION) == JOptionPane.YES_OPTION) {
+            GameController controller = new GameController(view, players, deck, board, paths, saved.getSeed());
+            controller.resumeGame(saved);
+            return;
+        }
+
+        // create and start the controller, with a fair deal if there is a seed bank
+        SeedBank.Entry fair = drawFairSeed();
+        GameController controller = fair == null ? new GameController(view, players, deck, board, paths)
+                : new GameController(view, players, deck, board, paths, fair.seed);
+        if (fair != null) {
+            controller.useRatedDeal();
+        }
+        controller.startGame();
+    }
+
+    /**
+     * Draws a seed rated as fair from the seed bank, which Simulation.SeedBankBuilder writes.
+     *
+     * @return the seed, or null if there is no seed bank or it holds no fair seed.
+     */
+    private static SeedBank.Entry drawFairSeed() {
+        if (!SeedBank.DEFAULT_FILE.exists()) {
+            return null;
+        }
+        try (SeedBank bank = SeedBank.open(SeedBank.DEFAULT_FILE)) {
+            if (bank.getFairCount() == 0) {
+                return null;
+            }
+            SeedBank.Entry entry = bank.drawFair(new Random());
+            System.out.printf("Playing the fair seed %s (bias %+.2f of %d fair seeds)%n",
+                    Long.toHexString(entry.seed), entry.bias, bank.getFairCount());
+            return entry;
+        } catch (IOException e) {
+            System.err.println("Ignoring unreadable seed bank " + SeedBank.DEFAULT_FILE.getPath() + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Recovers an unfinished game from its last snapshot and the turn log written since.
+     *
+     * @return the recovered game, or null if there is none or it cannot be read.
+     */
+    private static GameSnapshot findAutosave() {
+        try {
+            return TurnLog.recover(GameSnapshot.AUTOSAVE, TurnLog.DEFAULT_FILE);
+        } catch (IOException e) {
+            System.err.println("Ignoring unreadable save " + GameSnapshot.AUTOSAVE.getPath() + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Opens a recorded game in the view, to be scrubbed through turn by turn.
+     *
+     * @param file the journal of the game.
+     */
+    private static void replay(File file) {
+        GameReplay replay;
+        try {
+            replay = GameReplay.load(file);
+        } catch (IOException | IllegalStateException e) {
+            System.err.println("Cannot replay " + file + ": " + e.getMessage());
+            return;
+        }
+
+        List<Path> paths = initializePaths();
+        List<Player> players = new ArrayList<>();
+        players.add(new Player("Player 1" ,1));
+        players.add(new Player("Player 2" ,2));
+
+        // the same pawns GameController creates, placed by the replay
+        List<Pawn> pawns = new ArrayList<>();
+        for (Player player : players) {
+            pawns.add(new Archaeologist(player, null, null));
+            pawns.add(new Archaeologist(player, null, null));
+            pawns.add(new Archaeologist(player, null, null));
+            pawns.add(new Theseus(player, null, null));
+        }
+
+        GameView view = new GameView();
+        view.showReplay(replay, new Board(paths), players, new Deck(), pawns);
+    }
+
+    /**
+     * Hosts a game against a player on another machine, who joins with --join.
+     * Player 1 plays at this screen and Player 2 remotely.
+     *
+     * @param port the port to wait for the other player on.
+     */
+    private static void host(int port) {
+        HostSession session;
+        try {
+            session = HostSession.open(port, 1);
+        } catch (IOException e) {
+            System.err.println("Cannot host a game on port " + port + ": " + e.getMessage());
+            return;
+        }
+        System.out.println("Waiting for a player on port " + session.getPort());
+
+        List<Path> paths = initializePaths();
+        List<Player> players = new ArrayList<>();
+        players.add(new Player("Player 1" ,1));
+        players.add(new Player("Player 2" ,2));
+
+        GameView view = new GameView();
+        SeedBank.Entry fair = drawFairSeed();
+        GameController controller = fair == null ? new GameController(view, players, new Deck(), new Board(paths), paths)
+                : new GameController(view, players, new Deck(), new Board(paths), paths, fair.seed);
+        if (fair != null) {
+            controller.useRatedDeal();
+        }
+        controller.setRemotePlayer(players.get(1), session);
+        controller.startGame();
+    }
+
+    /**
+     * Plays against a bot that runs as a separate program and speaks the engine protocol of
+     * Bot.Engine. Player 1 plays at this screen and the bot plays Player 2.
+     *
+     * @param command the program of the bot and its arguments.
+     */
+    private static void playEngine(List<String> command) {
+        ExternalEngine engine;
+        try {
+            engine = ExternalEngine.start(command);
+        } catch (IOException e) {
+            System.err.println("Cannot start the bot " + String.join(" ", command) + ": " + e.getMessage());
+            return;
+        }
+
+        List<Path> paths = initializePaths();
+        List<Player> players = new ArrayList<>();
+        players.add(new Player("Player 1" ,1));
+        players.add(new Player("Player 2" ,2));
+
+        GameView view = new GameView();
+        GameController controller = new GameController(view, players, new Deck(), new Board(paths), paths);
+        controller.setEnginePlayer(players.get(1), engine, ENGINE_MOVE_MILLIS);
         controller.startGame();
     }
 
+    /**
+     * Joins a game hosted with --host.
+     *
+     * @param address the host, as host or host:port.
+     */
+    private static void join(String address) {
+        List<Path> paths = initializePaths();
+        List<Player> players = new ArrayList<>();
+        players.add(new Player("Player 1" ,1));
+        players.add(new Player("Player 2" ,2));
+
+        GameView view = new GameView();
+        RemoteGameController controller = new RemoteGameController(view, players, paths);
+        try {
+            controller.join(parseAddress(address));
+        } catch (IOException e) {
+            System.err.println("Cannot join the game at " + address + ": " + e.getMessage());
+            view.dispose();
+        }
+    }
+
+    /**
+     * Hosts or joins a lockstep game, where both machines run the game and only exchange the moves.
+     *
+     * @param address the host to join, as host or host:port, or null to host.
+     * @param port the port to wait for the other player on when hosting.
+     */
+    private static void lockstep(String address, int port) {
+        List<Path> paths = initializePaths();
+        List<Player> players = new ArrayList<>();
+        players.add(new Player("Player 1" ,1));
+        players.add(new Player("Player 2" ,2));
+
+        GameView view = new GameView();
+        LockstepGameController controller = new LockstepGameController(view, players, paths);
+        try {
+            if (address == null) {
+                controller.host(port);
+            } else {
+                controller.join(parseAddress(address));
+            }
+        } catch (IOException e) {
+            System.err.println("Cannot start the lockstep game: " + e.getMessage());
+            view.dispose();
+        }
+    }
+
+    /**
+     * Parses an address given as host or host:port.
+     */
+    private static InetSocketAddress parseAddress(String address) {
+        int colon = address.lastIndexOf(':');
+        String host = colon < 0 ? address : address.substring(0, colon);
+        int port = colon < 0 ? Protocol.DEFAULT_PORT : Integer.parseInt(address.substring(colon + 1));
+        return new InetSocketAddress(host, port);
+    }
+
     private static List<Path> initializePaths() {
         List<Path> paths = new ArrayList<>();
         paths.add(new Path("Knossos", 9));
@@ -19,6 +19,7 @@ public class Archaeologist extends Pawn {
 
     /**
      * Opens a box at the current position to collect a finding.
+     * The bookkeeping of the collected finding is left to {@link Player#collectFinding}, which calls this method.
      *
      * @param finding The finding to be collected or photographed.
      * @param position The position containing the finding.
@@ -35,17 +36,14 @@ public class Archaeologist extends Pawn {
 
         if (finding.isRare()) {
             System.out.println("Collected a rare finding: " + finding.getName());
-            player.collectFinding(this, position);
             collected = true;
         } else if (finding.getType().equalsIgnoreCase("statue")) {
             System.out.println("Collected a statue: " + finding.getName());
-            player.collectFinding(this, position);
             collected = true;
         } else if (finding instanceof FrescoFinding fresco) {
             if (!fresco.isPhotographedBy(player)) {
                 fresco.photograph(player);
                 System.out.println("Photographed a fresco: " + fresco.getName());
-                player.collectFinding(this, position);
                 collected = true;
             } else {
                 System.out.println("This fresco has already been photographed by " + player.getName() + ".");
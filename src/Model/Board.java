@@ -39,6 +39,18 @@ public class Board {
      *
      */
     public void initializeFindings(List<Finding> findings, List<RareFinding> rareFindings, List<Path> paths) {
+        initializeFindings(findings, rareFindings, paths, new Random());
+    }
+
+    /**
+     * Initializes the findings on the paths with the given random generator, so that a seeded game can be repeated.
+     *
+     * @param findings the list of findings to initialize.
+     * @param rareFindings the list of rare findings to initialize.
+     * @param paths the list of paths to initialize.
+     * @param random the random generator.
+     */
+    public void initializeFindings(List<Finding> findings, List<RareFinding> rareFindings, List<Path> paths, Random random) {
         // Place rare findings on their specific paths
         for (RareFinding rareFinding : rareFindings) {
             Path path = paths.stream()
@@ -60,7 +72,6 @@ public class Board {
         }
 
         // Place non-rare findings randomly on remaining positions
-        Random random = new Random();
         for (Finding finding : findings) {
             boolean placed = false;
             while (!placed) {
@@ -87,7 +98,7 @@ public class Board {
                 }
             }
 
-            Collections.shuffle(findingsOnPath); // Shuffle the findings
+            Collections.shuffle(findingsOnPath, random); // Shuffle the findings
 
             // Deal the findings to the finding positions
             int index = 0;
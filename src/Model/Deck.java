@@ -61,8 +61,15 @@ public class Deck {
      * Shuffles the deck.
      */
     public void shuffle() {
+        shuffle(new Random()); // Χρησιμοποιούμε έναν Random Generator
+    }
+
+    /**
+     * Shuffles the deck with the given random generator, so that a seeded game can be repeated.
+     * @param random the random generator.
+     */
+    public void shuffle(Random random) {
         List<Card> cardList = new ArrayList<>(cards);
-        Random random = new Random(); // Χρησιμοποιούμε έναν Random Generator
         for (int i = cardList.size() - 1; i > 0; i--) {
             int j = random.nextInt(i + 1); // Επιλογή τυχαίου δείκτη
             // Swap
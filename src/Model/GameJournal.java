@@ -0,0 +1,371 @@
+package Model;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * An append-only binary record of one game.
+ * <p>
+ * The file starts with a header that holds the seed and the board definition: the finding in every
+ * box, both hands and the deck. Events follow as varints, first the pawn placements and then one
+ * event per turn with the action, the card and the targeted pawn, and finally the result. Events are
+ * collected in a buffer and written through a FileChannel only when the buffer fills up or the
+ * journal is closed, so recording a turn is a few byte writes in memory.
+ */
+public class GameJournal implements Closeable {
+    public static final int MAGIC = 0x4B4E4A31; // "KNJ1"
+    public static final int VERSION = 1;
+
+    // event types, in the two low bits of an event's first varint
+    static final int EVENT_PLACE = 0;
+    static final int EVENT_ACTION = 1;
+    static final int EVENT_END = 2;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_EVENT_BYTES = 16;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private boolean ended;
+
+    private GameJournal(FileChannel channel) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    }
+
+    /**
+     * Creates a journal for a game that is about to start and writes its header and pawn placements.
+     *
+     * @param file the file to write, replaced if it exists.
+     * @param seed the seed of the game.
+     * @param initial the state before the first turn.
+     * @return the journal, ready to record turns.
+     * @throws IOException if the file cannot be written.
+     */
+    public static GameJournal create(File file, long seed, GameState initial) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Cannot create directory: " + parent);
+        }
+        FileChannel channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        GameJournal journal = new GameJournal(channel);
+        journal.writeHeader(seed, initial);
+        return journal;
+    }
+
+    private void writeHeader(long seed, GameState initial) throws IOException {
+        buffer.putInt(MAGIC);
+        buffer.put((byte) VERSION);
+        buffer.putLong(seed);
+        buffer.put((byte) initial.getActivePlayer());
+
+        for (int path = 0; path < GameState.PATHS; path++) {
+            for (int box = 0; box < GameState.BOXES; box++) {
+                buffer.put((byte) initial.getFinding(path, box));
+            }
+        }
+        for (int player = 0; player < GameState.PLAYERS; player++) {
+            buffer.put((byte) initial.getHandSize(player));
+            for (int slot = 0; slot < initial.getHandSize(player); slot++) {
+                buffer.put((byte) initial.getHandCard(player, slot));
+            }
+        }
+        buffer.put((byte) initial.getDeckSize());
+        for (int depth = initial.getDeckSize() - 1; depth >= 0; depth--) { // bottom to top
+            buffer.put((byte) initial.getDeckCard(depth));
+        }
+
+        for (int player = 0; player < GameState.PLAYERS; player++) {
+            for (int path = 0; path < GameState.PATHS; path++) {
+                if (initial.getPawnIndex(player, path) != 0) {
+                    int pawn = (player * GameState.PATHS + path) << 1 | (initial.isTheseus(player, path) ? 1 : 0);
+                    writeVarint(pawn << 2 | EVENT_PLACE);
+                }
+            }
+        }
+    }
+
+    /**
+     * Records a turn.
+     *
+     * @param action the action taken, as in {@link GameState#apply}.
+     * @param cardCode the code of the card played or discarded.
+     * @param target the pawn the card was used on, as player * PATHS + path + 1, or 0 for none.
+     * @throws IOException if the buffer had to be written out and that failed.
+     */
+    public void recordAction(int action, int cardCode, int target) throws IOException {
+        ensureRoom();
+        writeVarint(action << 2 | EVENT_ACTION);
+        writeVarint(cardCode);
+        writeVarint(target);
+    }
+
+    /**
+     * Records a turn of a headless game, taking the card and the target from the state before the turn.
+     *
+     * @param before the state before the action is applied.
+     * @param action the action about to be applied.
+     * @throws IOException if the buffer had to be written out and that failed.
+     */
+    public void recordTurn(GameState before, int action) throws IOException {
+        int player = before.getActivePlayer();
+        int card = before.getHandCard(player, GameState.actionSlot(action));
+        recordAction(action, card, targetOf(before, player, card));
+    }
+
+    /**
+     * Returns the pawn a card acts on: the opponent's pawn for a Minotaur card, the player's own otherwise.
+     *
+     * @param state the state before the card is played.
+     * @param player the player holding the card.
+     * @param cardCode the card.
+     * @return the pawn as player * PATHS + path + 1, or 0 if there is no such pawn.
+     */
+    public static int targetOf(GameState state, int player, int cardCode) {
+        int path = GameState.cardPath(cardCode);
+        int owner = GameState.cardKind(cardCode) == GameState.MINOTAUR ? 1 - player : player;
+        return state.getPawnIndex(owner, path) != 0 ? owner * GameState.PATHS + path + 1 : 0;
+    }
+
+    /**
+     * Records the end of the game.
+     *
+     * @param result the result for the first player: 1 win, 0 tie, -1 loss.
+     * @throws IOException if the buffer had to be written out and that failed.
+     */
+    public void recordEnd(int result) throws IOException {
+        ensureRoom();
+        writeVarint((result + 1) << 2 | EVENT_END);
+        ended = true;
+    }
+
+    /**
+     * Returns whether the end of the game has been recorded.
+     * @return true if the game is over.
+     */
+    public boolean isEnded() {
+        return ended;
+    }
+
+    /**
+     * Writes out what is buffered.
+     * @throws IOException if the file cannot be written.
+     */
+    public void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Writes out what is buffered and closes the file.
+     * @throws IOException if the file cannot be written.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void ensureRoom() throws IOException {
+        if (buffer.remaining() < MAX_EVENT_BYTES) {
+            flush();
+        }
+    }
+
+    private void writeVarint(int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    // ---------------------------------------------
+    // Reading
+    // ---------------------------------------------
+
+    /**
+     * Reads a journal back.
+     *
+     * @param file the journal file.
+     * @return the recorded game.
+     * @throws IOException if the file cannot be read or is not a journal.
+     */
+    public static Record read(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer in = ByteBuffer.allocate((int) channel.size());
+            while (in.hasRemaining() && channel.read(in) >= 0) {
+                // keep reading until the buffer is full
+            }
+            in.flip();
+            return read(in);
+        }
+    }
+
+    /**
+     * Reads a journal back from memory.
+     *
+     * @param in the bytes of the journal, read from the current position.
+     * @return the recorded game.
+     * @throws IOException if the bytes are not a journal.
+     */
+    public static Record read(ByteBuffer in) throws IOException {
+        try {
+            if (in.getInt() != MAGIC) {
+                throw new IOException("Not a game journal");
+            }
+            int version = in.get();
+            if (version != VERSION) {
+                throw new IOException("Unsupported journal version: " + version);
+            }
+            long seed = in.getLong();
+            int startPlayer = in.get();
+
+            int[] layout = new int[GameState.PATHS * GameState.BOXES];
+            for (int i = 0; i < layout.length; i++) {
+                layout[i] = in.get();
+            }
+            int[][] hands = new int[GameState.PLAYERS][];
+            for (int player = 0; player < GameState.PLAYERS; player++) {
+                hands[player] = new int[in.get()];
+                for (int slot = 0; slot < hands[player].length; slot++) {
+                    hands[player][slot] = in.get();
+                }
+            }
+            int deckSize = in.get() & 0xFF;
+            int[] deck = new int[deckSize + 2 * GameState.HAND_SIZE];
+            for (int i = 0; i < deckSize; i++) {
+                deck[i] = in.get();
+            }
+
+            // put the hands back on top of the deck in dealing order and deal them again
+            int cards = deckSize;
+            for (int slot = GameState.HAND_SIZE - 1; slot >= 0; slot--) {
+                for (int player = GameState.PLAYERS - 1; player >= 0; player--) {
+                    if (slot < hands[player].length) {
+                        deck[cards++] = hands[player][slot];
+                    }
+                }
+            }
+            GameState initial = GameState.fromSetup(layout, deck, cards, startPlayer);
+
+            Record record = new Record(seed, initial);
+            while (in.hasRemaining()) {
+                int head = readVarint(in);
+                int payload = head >>> 2;
+                switch (head & 3) {
+                    case EVENT_PLACE -> {
+                        if (record.turns > 0) {
+                            throw new IOException("Pawn placed after the first turn");
+                        }
+                        int pawn = payload >>> 1;
+                        initial.placePawn(pawn / GameState.PATHS, pawn % GameState.PATHS, (payload & 1) != 0);
+                    }
+                    case EVENT_ACTION -> record.add(payload, readVarint(in), readVarint(in));
+                    case EVENT_END -> record.result = payload - 1;
+                    default -> throw new IOException("Unknown event type: " + (head & 3));
+                }
+            }
+            return record;
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Journal is truncated", e);
+        }
+    }
+
+    private static int readVarint(ByteBuffer in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    /**
+     * A game read back from a journal.
+     */
+    public static class Record {
+        public static final int UNFINISHED = -2;
+
+        private final long seed;
+        private final GameState initial;
+        private int[] actions;
+        private int[] cards;
+        private int[] targets;
+        private int turns;
+        private int result;
+
+        Record(long seed, GameState initial) {
+            this.seed = seed;
+            this.initial = initial;
+            this.actions = new int[128];
+            this.cards = new int[128];
+            this.targets = new int[128];
+            this.result = UNFINISHED;
+        }
+
+        private void add(int action, int card, int target) {
+            if (turns == actions.length) {
+                actions = Arrays.copyOf(actions, turns * 2);
+                cards = Arrays.copyOf(cards, turns * 2);
+                targets = Arrays.copyOf(targets, turns * 2);
+            }
+            actions[turns] = action;
+            cards[turns] = card;
+            targets[turns] = target;
+            turns++;
+        }
+
+        public long getSeed() {
+            return seed;
+        }
+
+        /**
+         * Returns a copy of the state before the first turn.
+         * @return the initial state.
+         */
+        public GameState getInitialState() {
+            return initial.copy();
+        }
+
+        public int getTurnCount() {
+            return turns;
+        }
+
+        public int getAction(int turn) {
+            return actions[turn];
+        }
+
+        public int getCard(int turn) {
+            return cards[turn];
+        }
+
+        public int getTarget(int turn) {
+            return targets[turn];
+        }
+
+        /**
+         * Returns the recorded result.
+         * @return 1, 0 or -1 for the first player, or {@link #UNFINISHED} if the game never ended.
+         */
+        public int getResult() {
+            return result;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package Model;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Replays a recorded game headlessly and rebuilds the state at any turn.
+ * <p>
+ * The actions of the journal are run through {@link GameState#apply} once when the replay is
+ * created, and a copy of the state is kept every few turns as a keyframe. Seeking copies the
+ * nearest keyframe at or before the turn and applies the few actions after it, so any turn is
+ * reached in at most {@code keyframeInterval - 1} applies however long the game is. Seeking
+ * forward from the current turn within the same stretch skips the copy.
+ */
+public class GameReplay {
+    public static final int DEFAULT_KEYFRAME_INTERVAL = 8;
+
+    private final GameJournal.Record record;
+    private final int keyframeInterval;
+    private final GameState[] keyframes; // keyframes[k] is the state after k * keyframeInterval turns
+    private final GameState current;
+    private int currentTurn;
+
+    /**
+     * Constructs a replay with the default keyframe interval.
+     *
+     * @param record the recorded game.
+     * @throws IllegalStateException if the recorded actions do not fit the rules.
+     */
+    public GameReplay(GameJournal.Record record) {
+        this(record, DEFAULT_KEYFRAME_INTERVAL);
+    }
+
+    /**
+     * Constructs a replay and plays the recorded game through once to take the keyframes.
+     *
+     * @param record the recorded game.
+     * @param keyframeInterval the number of turns between keyframes.
+     * @throws IllegalArgumentException if the interval is not positive.
+     * @throws IllegalStateException if the recorded actions do not fit the rules.
+     */
+    public GameReplay(GameJournal.Record record, int keyframeInterval) {
+        if (keyframeInterval <= 0) {
+            throw new IllegalArgumentException("Keyframe interval must be positive: " + keyframeInterval);
+        }
+        this.record = record;
+        this.keyframeInterval = keyframeInterval;
+        this.keyframes = new GameState[record.getTurnCount() / keyframeInterval + 1];
+
+        GameState state = record.getInitialState();
+        for (int turn = 0; turn < record.getTurnCount(); turn++) {
+            if (turn % keyframeInterval == 0) {
+                keyframes[turn / keyframeInterval] = state.copy();
+            }
+            step(state, turn);
+        }
+        if (record.getTurnCount() % keyframeInterval == 0) {
+            keyframes[record.getTurnCount() / keyframeInterval] = state.copy();
+        }
+
+        this.current = state;
+        this.currentTurn = record.getTurnCount();
+    }
+
+    /**
+     * Reads a journal and prepares its replay.
+     *
+     * @param file the journal file.
+     * @return the replay.
+     * @throws IOException if the file cannot be read or is not a journal.
+     */
+    public static GameReplay load(File file) throws IOException {
+        return new GameReplay(GameJournal.read(file));
+    }
+
+    /**
+     * Plays a recorded game forward without taking keyframes, for tools that only need one state of
+     * many games.
+     *
+     * @param record the recorded game.
+     * @param turns the number of turns to play.
+     * @return the state after the given number of turns.
+     * @throws IllegalArgumentException if the game has fewer turns.
+     */
+    public static GameState fastForward(GameJournal.Record record, int turns) {
+        checkTurn(record, turns);
+        GameState state = record.getInitialState();
+        for (int turn = 0; turn < turns; turn++) {
+            state.apply(record.getAction(turn));
+        }
+        return state;
+    }
+
+    /**
+     * Moves the replay to a turn.
+     *
+     * @param turn the number of turns played, from 0 (the initial state) to {@link #getTurnCount()}.
+     * @return the state after that many turns; it belongs to the replay and changes on the next seek.
+     * @throws IllegalArgumentException if the turn is out of range.
+     */
+    public GameState seek(int turn) {
+        checkTurn(record, turn);
+        int keyframe = turn / keyframeInterval;
+        if (turn < currentTurn || currentTurn < keyframe * keyframeInterval) {
+            current.copyFrom(keyframes[keyframe]);
+            currentTurn = keyframe * keyframeInterval;
+        }
+        while (currentTurn < turn) {
+            current.apply(record.getAction(currentTurn++));
+        }
+        return current;
+    }
+
+    public int getCurrentTurn() {
+        return currentTurn;
+    }
+
+    public int getTurnCount() {
+        return record.getTurnCount();
+    }
+
+    public GameJournal.Record getRecord() {
+        return record;
+    }
+
+    /**
+     * Applies a recorded turn, checking that the recorded card is the one in the chosen slot.
+     */
+    private void step(GameState state, int turn) {
+        int action = record.getAction(turn);
+        int player = state.getActivePlayer();
+        int slot = GameState.actionSlot(action);
+        if (slot >= state.getHandSize(player) || state.getHandCard(player, slot) != record.getCard(turn)) {
+            throw new IllegalStateException("Journal does not match the game at turn " + turn);
+        }
+        state.apply(action);
+    }
+
+    private static void checkTurn(GameJournal.Record record, int turn) {
+        if (turn < 0 || turn > record.getTurnCount()) {
+            throw new IllegalArgumentException("Turn must be between 0 and " + record.getTurnCount() + ": " + turn);
+        }
+    }
+}
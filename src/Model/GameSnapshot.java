@@ -0,0 +1,144 @@
+package Model;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A saved game that can be resumed.
+ * <p>
+ * A snapshot is a short header (magic, format version and the seed of the game) followed by the
+ * compact encoding of a {@link GameState}: the findings and photographs in every box, the pawns with
+ * their positions and revealed flags, both hands, the deck in order, the scores and the active
+ * player. A game in progress takes about two hundred bytes, so it can be saved after every turn.
+ */
+public class GameSnapshot {
+    public static final int MAGIC = 0x4B4E5331; // "KNS1"
+    public static final int VERSION = 1;
+    public static final File AUTOSAVE = new File("saves", "autosave.snapshot");
+
+    private static final int MAX_BYTES = 512;
+
+    private final long seed;
+    private final GameState state;
+
+    /**
+     * Constructs a snapshot of a state.
+     *
+     * @param seed the seed of the game.
+     * @param turn the number of turns played so far.
+     * @param state the state, which is copied.
+     */
+    public GameSnapshot(long seed, int turn, GameState state) {
+        this.seed = seed;
+        this.state = state.copy();
+        this.state.setTurn(turn);
+    }
+
+    private GameSnapshot(long seed, GameState state) {
+        this.seed = seed;
+        this.state = state;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getTurn() {
+        return state.getTurn();
+    }
+
+    /**
+     * Returns a copy of the saved state.
+     * @return the state.
+     */
+    public GameState getState() {
+        return state.copy();
+    }
+
+    /**
+     * Writes the snapshot.
+     * @param out the buffer to write to, with room for at least 512 bytes.
+     */
+    public void write(ByteBuffer out) {
+        out.putInt(MAGIC);
+        out.put((byte) VERSION);
+        out.putLong(seed);
+        state.writeTo(out);
+    }
+
+    /**
+     * Returns the snapshot as bytes.
+     * @return the encoded snapshot.
+     */
+    public byte[] toBytes() {
+        ByteBuffer out = ByteBuffer.allocate(MAX_BYTES);
+        write(out);
+        byte[] bytes = new byte[out.position()];
+        out.flip().get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Reads a snapshot.
+     *
+     * @param in the buffer to read from, at the start of the snapshot.
+     * @return the snapshot.
+     * @throws IOException if the bytes are not a snapshot or are damaged.
+     */
+    public static GameSnapshot read(ByteBuffer in) throws IOException {
+        try {
+            if (in.getInt() != MAGIC) {
+                throw new IOException("Not a game snapshot");
+            }
+            int version = in.get();
+            if (version != VERSION) {
+                throw new IOException("Unsupported snapshot version: " + version);
+            }
+            long seed = in.getLong();
+            return new GameSnapshot(seed, GameState.readFrom(in));
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Snapshot is truncated", e);
+        }
+    }
+
+    /**
+     * Saves the snapshot to a file. The bytes go to a temporary file that is forced to disk and
+     * then replaces the old one, so a crash while saving leaves the previous save intact.
+     *
+     * @param file the file to write.
+     * @throws IOException if the file cannot be written.
+     */
+    public void save(File file) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Cannot create directory: " + parent);
+        }
+        File temp = new File(file.getPath() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer out = ByteBuffer.wrap(toBytes());
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+            channel.force(true);
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Loads a snapshot from a file.
+     *
+     * @param file the file to read.
+     * @return the snapshot.
+     * @throws IOException if the file cannot be read or is not a snapshot.
+     */
+    public static GameSnapshot load(File file) throws IOException {
+        return read(ByteBuffer.wrap(Files.readAllBytes(file.toPath())));
+    }
+}
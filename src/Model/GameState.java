@@ -0,0 +1,1553 @@
+package Model;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.SplittableRandom;
+
+/**
+ * A compact, copyable snapshot of a game that can be played forward without the view.
+ * <p>
+ * The rules are the ones GameController applies: every turn the active player plays or discards
+ * one card of their hand and draws a new one, and the game ends when the deck runs out or a pawn
+ * reaches the checkpoint. Every player owns one pawn per path, so a pawn is addressed by
+ * (player, path) and only the path of Theseus is secret.
+ * <p>
+ * Paths are numbered in the order of {@link #PATH_NAMES}, which is the order Main creates them in.
+ */
+public class GameState {
+    public static final int PLAYERS = 2;
+    public static final int PATHS = 4;
+    public static final int POSITIONS = 9;
+    public static final int CHECKPOINT = 7;
+    public static final int HAND_SIZE = 8;
+    public static final int BOXES = 5; // finding positions 2, 4, 6, 8 and 9 of every path
+    public static final int THESEUS_DESTROYS = 3;
+    public static final String[] PATH_NAMES = {"Knossos", "Phaistos", "Malia", "Zakros"};
+    public static final int[] RARE_POINTS = {25, 35, 25, 25};
+    public static final String[] RARE_NAMES = {"Knossos Ring", "Phaistos Disk", "Malia Jewel", "Zakros Rhyton"};
+
+    // card codes: path * CARD_KINDS + kind, where kinds 0-9 are the number cards 1-10
+    public static final int CARD_KINDS = 12;
+    public static final int ARIADNE = 10;
+    public static final int MINOTAUR = 11;
+    public static final int CARD_CODES = PATHS * CARD_KINDS;
+
+    // finding codes
+    public static final int NO_FINDING = 0;
+    public static final int RARE = 1;
+    public static final int FRESCO_15 = 2;
+    public static final int FRESCO_20 = 3;
+    public static final int STATUE = 4;
+
+    // actions: slot * ACTION_KINDS + kind
+    public static final int DISCARD = 0;
+    public static final int PLAY = 1;
+    public static final int PLAY_AND_OPEN = 2; // play, then open (or destroy) the box the pawn lands on
+    public static final int ACTION_KINDS = 3;
+    public static final int MAX_ACTIONS = HAND_SIZE * ACTION_KINDS;
+
+    // evaluation features, kept up to date by the moves
+    public static final int FEATURE_PROGRESS = 0;  // sum of the positions of the player's pawns
+    public static final int FEATURE_REACHABLE = 1; // points still lying in boxes ahead of the player's archaeologists
+    public static final int FEATURE_RARE = 2;      // points of rare findings collected
+    public static final int FEATURE_FRESCO = 3;    // points of frescos photographed
+    public static final int FEATURE_STATUES = 4;   // statues collected
+    public static final int FEATURE_DESTROYS = 5;  // destroys Theseus has left
+    public static final int FEATURE_HAND = 6;      // cards in hand that would move a pawn right now
+    public static final int FEATURES = 7;
+    public static final String[] FEATURE_NAMES = {"progress", "reachable", "rare", "fresco", "statues", "destroys", "hand"};
+
+    private final int[] pawnIndex;      // [player * PATHS + path], 0 if the pawn is not on the board
+    private final boolean[] revealed;   // [player * PATHS + path]
+    private final int[] theseusPath;    // [player], -1 if Theseus is not on the board
+    private final boolean[] frozen;     // [player], whether Theseus is frozen
+    private final int[] destroysLeft;   // [player]
+    private final int[] lastCardPlayedValue; // [path]
+    private final int[] findings;       // [path * BOXES + box], finding codes
+    private final int[] photographed;   // [path * BOXES + box], bit per player
+    private final int[] hands;          // [player * HAND_SIZE + slot], card codes
+    private final int[] handSize;       // [player]
+    private final int[] deck;           // card codes, the top card is deck[deckSize - 1]
+    private int deckSize;
+    private final int[] spent;          // [code], copies played or discarded
+    private final int[] scores;         // [player]
+    private final int[] statues;        // [player]
+    private final int[] rareCollected;  // [player], bit per path whose rare finding the player collected
+    private final int[] features;       // [player * FEATURES + feature]
+    private final int[] reachable;      // [player * PATHS + path], the path's share of FEATURE_REACHABLE
+    private int activePlayer;
+    private int turn;
+    private int observer = -1;          // the player of an observedBy copy, -1 if every card is known
+    private long hash;                  // see hash(), kept up to date by the moves
+    private Observation[] observations; // [observer + 1], made on first use, never copied
+
+    private static final String CARD_IMAGE_FOLDER = "project_assets/images/cards";
+    private static Map<String, String> cardImages; // lower-case file name to file name, loaded on first use
+
+    /**
+     * Constructs an empty state: no pawns, no findings, no cards.
+     */
+    public GameState() {
+        this.pawnIndex = new int[PLAYERS * PATHS];
+        this.revealed = new boolean[PLAYERS * PATHS];
+        this.theseusPath = new int[]{-1, -1};
+        this.frozen = new boolean[PLAYERS];
+        this.destroysLeft = new int[]{THESEUS_DESTROYS, THESEUS_DESTROYS};
+        this.lastCardPlayedValue = new int[]{-1, -1, -1, -1};
+        this.findings = new int[PATHS * BOXES];
+        this.photographed = new int[PATHS * BOXES];
+        this.hands = new int[PLAYERS * HAND_SIZE];
+        this.handSize = new int[PLAYERS];
+        this.deck = new int[CARD_CODES * 3];
+        this.spent = new int[CARD_CODES];
+        this.scores = new int[PLAYERS];
+        this.statues = new int[PLAYERS];
+        this.rareCollected = new int[PLAYERS];
+        this.features = new int[PLAYERS * FEATURES];
+        this.reachable = new int[PLAYERS * PATHS];
+        recomputeFeatures();
+    }
+
+    /**
+     * Returns an independent copy of this state.
+     * @return the copy.
+     */
+    public GameState copy() {
+        GameState copy = new GameState();
+        copy.copyFrom(this);
+        return copy;
+    }
+
+    /**
+     * Overwrites this state with another one, without allocating.
+     * @param other the state to copy.
+     */
+    public void copyFrom(GameState other) {
+        System.arraycopy(other.pawnIndex, 0, pawnIndex, 0, pawnIndex.length);
+        System.arraycopy(other.revealed, 0, revealed, 0, revealed.length);
+        System.arraycopy(other.theseusPath, 0, theseusPath, 0, theseusPath.length);
+        System.arraycopy(other.frozen, 0, frozen, 0, frozen.length);
+        System.arraycopy(other.destroysLeft, 0, destroysLeft, 0, destroysLeft.length);
+        System.arraycopy(other.lastCardPlayedValue, 0, lastCardPlayedValue, 0, lastCardPlayedValue.length);
+        System.arraycopy(other.findings, 0, findings, 0, findings.length);
+        System.arraycopy(other.photographed, 0, photographed, 0, photographed.length);
+        System.arraycopy(other.hands, 0, hands, 0, hands.length);
+        System.arraycopy(other.handSize, 0, handSize, 0, handSize.length);
+        System.arraycopy(other.deck, 0, deck, 0, other.deckSize);
+        System.arraycopy(other.spent, 0, spent, 0, spent.length);
+        System.arraycopy(other.scores, 0, scores, 0, scores.length);
+        System.arraycopy(other.statues, 0, statues, 0, statues.length);
+        System.arraycopy(other.rareCollected, 0, rareCollected, 0, rareCollected.length);
+        System.arraycopy(other.features, 0, features, 0, features.length);
+        System.arraycopy(other.reachable, 0, reachable, 0, reachable.length);
+        deckSize = other.deckSize;
+        activePlayer = other.activePlayer;
+        turn = other.turn;
+        observer = other.observer;
+        hash = other.hash;
+    }
+
+    /**
+     * Takes a snapshot of a game in progress.
+     *
+     * @param board the board, with its paths in the order of {@link #PATH_NAMES}.
+     * @param players the two players.
+     * @param deck the deck.
+     * @param activePlayer the player whose turn it is.
+     * @return the state of the game.
+     */
+    public static GameState fromModel(Board board, List<Player> players, Deck deck, Player activePlayer) {
+        GameState state = new GameState();
+        List<Path> paths = board.getPaths();
+
+        for (int path = 0; path < paths.size(); path++) {
+            Path modelPath = paths.get(path);
+            state.lastCardPlayedValue[path] = modelPath.getLastCardPlayedValue();
+
+            for (Position position : modelPath.getPositions()) {
+                int box = boxOf(position.getIndex());
+                if (box >= 0) {
+                    Finding finding = position.getFinding();
+                    state.findings[path * BOXES + box] = findingCode(finding);
+                    if (finding instanceof FrescoFinding fresco) {
+                        for (int p = 0; p < players.size(); p++) {
+                            if (fresco.isPhotographedBy(players.get(p))) {
+                                state.photographed[path * BOXES + box] |= 1 << p;
+                            }
+                        }
+                    }
+                }
+
+                for (Pawn pawn : position.getPawns()) {
+                    int player = players.indexOf(pawn.getPlayer());
+                    state.pawnIndex[player * PATHS + path] = position.getIndex();
+                    state.revealed[player * PATHS + path] = pawn.isRevealed();
+                    if (pawn instanceof Theseus theseus) {
+                        state.theseusPath[player] = path;
+                        state.frozen[player] = theseus.isFrozen();
+                        state.destroysLeft[player] = theseus.remainingDestroys;
+                    }
+                }
+            }
+        }
+
+        for (int p = 0; p < players.size(); p++) {
+            Player player = players.get(p);
+            for (Card card : player.getCardsOnHand()) {
+                state.hands[p * HAND_SIZE + state.handSize[p]++] = cardCode(card);
+            }
+            state.scores[p] = player.getScore();
+            for (Finding finding : player.getFindings()) {
+                if (finding.getType().equalsIgnoreCase("statue")) {
+                    state.statues[p]++;
+                } else if (finding.isRare()) {
+                    if (finding instanceof RareFinding rare) {
+                        state.rareCollected[p] |= 1 << pathIndexOf(rare.getPathName());
+                    }
+                    state.features[p * FEATURES + FEATURE_RARE] += finding.getPoints();
+                } else {
+                    state.features[p * FEATURES + FEATURE_FRESCO] += finding.getPoints();
+                }
+            }
+        }
+
+        for (Card card : deck.getCards()) { // bottom to top
+            state.deck[state.deckSize++] = cardCode(card);
+        }
+        state.countSpent();
+        state.activePlayer = players.indexOf(activePlayer);
+        state.recomputeFeatures();
+        return state;
+    }
+
+    /**
+     * Writes this state into the objects of a live game, the reverse of {@link #fromModel}.
+     * Cards and findings are created anew, the pawns are reused and moved to their positions.
+     * Archaeologists take the paths without Theseus in path order, as they cannot be told apart.
+     *
+     * @param board the board, with its paths in the order of {@link #PATH_NAMES}.
+     * @param players the two players.
+     * @param deck the deck, which is refilled.
+     * @param pawns the pawns of both players, one Theseus and three archaeologists each.
+     */
+    public void applyTo(Board board, List<Player> players, Deck deck, List<Pawn> pawns) {
+        List<Path> paths = board.getPaths();
+
+        // lift every pawn first, so that no position ever holds two pawns of the same player
+        for (Pawn pawn : pawns) {
+            pawn.setCurrentPosition(null);
+        }
+        for (Player player : players) {
+            player.getFindings().clear();
+        }
+
+        for (int path = 0; path < PATHS; path++) {
+            Path modelPath = paths.get(path);
+            modelPath.setLastCardPlayedValue(lastCardPlayedValue[path]);
+            for (int box = 0; box < BOXES; box++) {
+                Finding finding = createFinding(findings[path * BOXES + box], path);
+                if (finding instanceof FrescoFinding fresco) {
+                    for (int p = 0; p < players.size(); p++) {
+                        if (isPhotographedBy(path, box, p)) {
+                            fresco.photograph(players.get(p));
+                            players.get(p).getFindings().add(fresco);
+                        }
+                    }
+                }
+                modelPath.getPositionByIndex(boxIndex(box)).setFinding(finding);
+            }
+        }
+
+        for (int p = 0; p < players.size(); p++) {
+            Player player = players.get(p);
+            player.getCardsOnHand().clear();
+            for (int slot = 0; slot < handSize[p]; slot++) {
+                player.getCardsOnHand().add(createCard(hands[p * HAND_SIZE + slot], paths));
+            }
+            player.setScore(scores[p]);
+            for (int path = 0; path < PATHS; path++) {
+                if (hasCollectedRare(p, path)) {
+                    player.getFindings().add(createFinding(RARE, path));
+                }
+            }
+            for (int i = 0; i < statues[p]; i++) {
+                player.getFindings().add(createFinding(STATUE, 0));
+            }
+            addDestroyedFrescos(player, features[p * FEATURES + FEATURE_FRESCO]);
+
+            int nextPath = 0;
+            for (Pawn pawn : pawns) {
+                if (pawn.getPlayer() != player) {
+                    continue;
+                }
+                int path;
+                if (pawn instanceof Theseus theseus) {
+                    path = theseusPath[p];
+                    theseus.setFrozen(frozen[p]);
+                    theseus.remainingDestroys = destroysLeft[p];
+                } else {
+                    if (nextPath == theseusPath[p]) {
+                        nextPath++;
+                    }
+                    path = nextPath++;
+                }
+                int index = path >= 0 && path < PATHS ? pawnIndex[p * PATHS + path] : 0;
+                if (index != 0) {
+                    pawn.setCurrentPosition(paths.get(path).getPositionByIndex(index));
+                    pawn.setRevealed(revealed[p * PATHS + path]);
+                }
+                pawn.setCheckpointReached(index == CHECKPOINT);
+            }
+        }
+
+        deck.clear();
+        for (int i = 0; i < deckSize; i++) { // bottom to top
+            deck.addCard(createCard(this.deck[i], paths));
+        }
+    }
+
+    /**
+     * Deals this game into the objects of a live game whose pawns are already placed: the findings
+     * in their boxes, both hands and the deck. Meant for a state of {@link #newGame}, so that a
+     * rated seed is played with the deal it was rated with.
+     *
+     * @param board the board, with its paths in the order of {@link #PATH_NAMES}.
+     * @param players the two players.
+     * @param deck the deck, which is refilled.
+     */
+    public void dealTo(Board board, List<Player> players, Deck deck) {
+        List<Path> paths = board.getPaths();
+        for (int path = 0; path < PATHS; path++) {
+            for (int box = 0; box < BOXES; box++) {
+                Finding finding = createFinding(findings[path * BOXES + box], path);
+                paths.get(path).getPositionByIndex(boxIndex(box)).setFinding(finding);
+            }
+        }
+        for (int p = 0; p < players.size(); p++) {
+            players.get(p).getCardsOnHand().clear();
+            for (int slot = 0; slot < handSize[p]; slot++) {
+                players.get(p).getCardsOnHand().add(createCard(hands[p * HAND_SIZE + slot], paths));
+            }
+        }
+        deck.clear();
+        for (int i = 0; i < deckSize; i++) { // bottom to top
+            deck.addCard(createCard(this.deck[i], paths));
+        }
+    }
+
+    /**
+     * Gives a player the frescos they photographed before Theseus destroyed the box, which are
+     * no longer on the board. Only their points are known, so they are split into 15s and 20s.
+     */
+    private static void addDestroyedFrescos(Player player, int frescoPoints) {
+        int missing = frescoPoints;
+        for (Finding finding : player.getFindings()) {
+            if (finding instanceof FrescoFinding) {
+                missing -= finding.getPoints();
+            }
+        }
+        int fifteens = 0;
+        while (15 * fifteens < missing && (missing - 15 * fifteens) % 20 != 0) {
+            fifteens++;
+        }
+        for (int i = 0; i < fifteens; i++) {
+            player.getFindings().add(createFinding(FRESCO_15, 0));
+        }
+        for (int i = 0; i < (missing - 15 * fifteens) / 20; i++) {
+            player.getFindings().add(createFinding(FRESCO_20, 0));
+        }
+    }
+
+    /**
+     * Sets up a new game the way GameController does, with every random choice drawn from the seed:
+     * the deck order, the findings, the path of each player's Theseus and the starting player.
+     *
+     * @param seed the seed of the game.
+     * @return the state before the first turn.
+     */
+    public static GameState newGame(long seed) {
+        Random random = new Random(seed);
+
+        int[] deck = new int[CARD_CODES * 3];
+        int deckSize = 0;
+        for (int code = 0; code < CARD_CODES; code++) {
+            for (int i = 0; i < cardCopies(code); i++) {
+                deck[deckSize++] = code;
+            }
+        }
+        for (int i = deckSize - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int temp = deck[i];
+            deck[i] = deck[j];
+            deck[j] = temp;
+        }
+
+        // rare findings start in the first box of their palace, the others in the first free box
+        // of a random path, then every path shuffles its own findings (see Board.initializeFindings)
+        int[] layout = new int[PATHS * BOXES];
+        for (int path = 0; path < PATHS; path++) {
+            layout[path * BOXES] = RARE;
+        }
+        int[] common = {FRESCO_20, FRESCO_20, FRESCO_15, FRESCO_20, FRESCO_15, FRESCO_15, STATUE};
+        for (int code : common) {
+            boolean placed = false;
+            while (!placed) {
+                int path = random.nextInt(PATHS);
+                for (int box = 0; box < BOXES && !placed; box++) {
+                    if (layout[path * BOXES + box] == NO_FINDING) {
+                        layout[path * BOXES + box] = code;
+                        placed = true;
+                    }
+                }
+            }
+        }
+        for (int path = 0; path < PATHS; path++) {
+            for (int box = BOXES - 1; box > 0; box--) {
+                int other = random.nextInt(box + 1);
+                int temp = layout[path * BOXES + box];
+                layout[path * BOXES + box] = layout[path * BOXES + other];
+                layout[path * BOXES + other] = temp;
+            }
+        }
+
+        GameState state = fromSetup(layout, deck, deckSize, random.nextInt(PLAYERS));
+        for (int player = 0; player < PLAYERS; player++) {
+            int theseus = random.nextInt(PATHS);
+            for (int path = 0; path < PATHS; path++) {
+                state.placePawn(player, path, path == theseus);
+            }
+        }
+        return state;
+    }
+
+    /**
+     * Builds the state of a game before any pawn is placed: findings in their boxes and eight
+     * cards dealt to each player in turn from the top of the deck, as Board.dealCards does.
+     *
+     * @param layout the finding code of every box, [path * BOXES + box].
+     * @param deck the deck before dealing, bottom to top.
+     * @param deckSize the number of cards in the deck.
+     * @param startPlayer the player who takes the first turn.
+     * @return the state.
+     */
+    static GameState fromSetup(int[] layout, int[] deck, int deckSize, int startPlayer) {
+        GameState state = new GameState();
+        System.arraycopy(layout, 0, state.findings, 0, state.findings.length);
+        System.arraycopy(deck, 0, state.deck, 0, deckSize);
+        state.deckSize = deckSize;
+        for (int i = 0; i < HAND_SIZE; i++) {
+            state.drawCard(0);
+            state.drawCard(1);
+        }
+        state.activePlayer = startPlayer;
+        state.recomputeFeatures();
+        return state;
+    }
+
+    /**
+     * Puts a pawn on the first position of a path.
+     *
+     * @param player the owner of the pawn.
+     * @param path the path.
+     * @param theseus true if the pawn is Theseus.
+     */
+    void placePawn(int player, int path, boolean theseus) {
+        pawnIndex[player * PATHS + path] = 1;
+        if (theseus) {
+            theseusPath[player] = path;
+        }
+        recomputeFeatures();
+    }
+
+    // ---------------------------------------------
+    // Codes
+    // ---------------------------------------------
+
+    /**
+     * Returns the index of a path in {@link #PATH_NAMES}.
+     *
+     * @param pathName the name of the path, in any case.
+     * @return the index of the path.
+     * @throws IllegalArgumentException if there is no such path.
+     */
+    public static int pathIndexOf(String pathName) {
+        for (int i = 0; i < PATHS; i++) {
+            if (PATH_NAMES[i].equalsIgnoreCase(pathName)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Unknown path: " + pathName);
+    }
+
+    /**
+     * Returns the code of a card.
+     *
+     * @param card the card.
+     * @return the card code.
+     */
+    public static int cardCode(Card card) {
+        int path = pathIndexOf(card.getPalaceName());
+        if (card instanceof NumberCard numberCard) {
+            return path * CARD_KINDS + numberCard.getValue() - 1;
+        }
+        return path * CARD_KINDS + (card instanceof AriadneCard ? ARIADNE : MINOTAUR);
+    }
+
+    /**
+     * Returns how many copies of a card a game is played with: 2 of every number card, 3 Ariadne
+     * and 2 Minotaur cards per palace.
+     * @param code the card code.
+     * @return the number of copies.
+     */
+    public static int cardCopies(int code) {
+        return cardKind(code) == ARIADNE ? 3 : 2;
+    }
+
+    public static int cardPath(int code) {
+        return code / CARD_KINDS;
+    }
+
+    public static int cardKind(int code) {
+        return code % CARD_KINDS;
+    }
+
+    /**
+     * Returns the value of a number card.
+     * @param code the card code.
+     * @return the value, or -1 if the card is not a number card.
+     */
+    public static int cardValue(int code) {
+        int kind = cardKind(code);
+        return kind < ARIADNE ? kind + 1 : -1;
+    }
+
+    /**
+     * Creates the card of a code, with the image GameController gives it.
+     *
+     * @param code the card code.
+     * @param paths the paths of the board, in the order of {@link #PATH_NAMES}.
+     * @return the card.
+     */
+    public static Card createCard(int code, List<Path> paths) {
+        int path = cardPath(code);
+        int kind = cardKind(code);
+        String palace = PATH_NAMES[path];
+        if (kind == ARIADNE) {
+            return new AriadneCard(palace, cardImageName(palace + "Ari.jpg"));
+        } else if (kind == MINOTAUR) {
+            return new MinotaurCard(palace, cardImageName(palace + "Min.jpg"));
+        }
+        return new NumberCard(kind + 1, palace, cardImageName(palace + (kind + 1) + ".jpg"), paths.get(path));
+    }
+
+    /**
+     * Finds the image of a card regardless of case, as the file names are not consistent.
+     */
+    private static synchronized String cardImageName(String name) {
+        if (cardImages == null) {
+            cardImages = new HashMap<>();
+            File[] files = new File(CARD_IMAGE_FOLDER).listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    cardImages.put(file.getName().toLowerCase(), file.getName());
+                }
+            }
+        }
+        return cardImages.getOrDefault(name.toLowerCase(), name);
+    }
+
+    /**
+     * Creates the finding of a code, named as GameController names it.
+     *
+     * @param code the finding code.
+     * @param path the path the finding lies on.
+     * @return the finding, or null for {@link #NO_FINDING}.
+     */
+    public static Finding createFinding(int code, int path) {
+        return switch (code) {
+            case RARE -> new RareFinding(RARE_NAMES[path], RARE_POINTS[path], PATH_NAMES[path]);
+            case FRESCO_15, FRESCO_20 -> new FrescoFinding("Fresco", findingPoints(code, path));
+            case STATUE -> new Finding("Snake Goddess", false, 0, "statue");
+            default -> null;
+        };
+    }
+
+    /**
+     * Returns the code of a finding.
+     *
+     * @param finding the finding, or null.
+     * @return the finding code.
+     */
+    public static int findingCode(Finding finding) {
+        if (finding == null) {
+            return NO_FINDING;
+        } else if (finding.isRare()) {
+            return RARE;
+        } else if (finding instanceof FrescoFinding) {
+            return finding.getPoints() == 15 ? FRESCO_15 : FRESCO_20;
+        }
+        return STATUE;
+    }
+
+    /**
+     * Returns the points a finding awards.
+     *
+     * @param code the finding code.
+     * @param path the path the finding lies on (rare findings are worth more on Phaistos).
+     * @return the points.
+     */
+    public static int findingPoints(int code, int path) {
+        return switch (code) {
+            case RARE -> RARE_POINTS[path];
+            case FRESCO_15 -> 15;
+            case FRESCO_20 -> 20;
+            default -> 0;
+        };
+    }
+
+    /**
+     * Returns the box of a position index.
+     * @param index the position index (1 to 9).
+     * @return the box (0 to 4), or -1 if the position cannot hold a finding.
+     */
+    public static int boxOf(int index) {
+        if (index == POSITIONS) {
+            return BOXES - 1;
+        }
+        return index % 2 == 0 ? index / 2 - 1 : -1;
+    }
+
+    /**
+     * Returns the position index of a box.
+     * @param box the box (0 to 4).
+     * @return the position index.
+     */
+    public static int boxIndex(int box) {
+        return box == BOXES - 1 ? POSITIONS : (box + 1) * 2;
+    }
+
+    /**
+     * Returns where a pawn lands when a card of its path is played on it, unless it is Theseus
+     * frozen by the Minotaur, as the rules of {@link #apply} and BatchSimulator both move it.
+     *
+     * @param index the position index of the pawn, 0 if it is not on the path.
+     * @param code the card code.
+     * @param lastCardValue the value of the last number card played on the path.
+     * @return the position index, or 0 if the card does not move the pawn.
+     */
+    public static int landingIndex(int index, int code, int lastCardValue) {
+        int value = cardValue(code);
+        if (index == 0 || cardKind(code) == MINOTAUR || value >= 0 && value < lastCardValue) {
+            return 0;
+        }
+        int landing = index + (value < 0 ? 2 : 1);
+        return landing <= POSITIONS ? landing : 0;
+    }
+
+    /**
+     * Returns where a pawn ends up when it is moved some steps: backwards moves stop at the first
+     * position and forward moves past the palace fail, as with Pawn.move.
+     *
+     * @param index the position index of the pawn.
+     * @param steps the steps, negative to move back.
+     * @return the position index, or 0 if the pawn cannot move.
+     */
+    public static int movedIndex(int index, int steps) {
+        int newIndex = index + steps;
+        if (newIndex < 1) {
+            return 1;
+        }
+        return newIndex <= POSITIONS ? newIndex : 0;
+    }
+
+    /**
+     * Returns whether a pawn may open (or, as Theseus, destroy) the finding of a box.
+     *
+     * @param finding the finding code, {@link #NO_FINDING} for an empty box.
+     * @param theseus whether the pawn is Theseus.
+     * @param destroysLeft the destroys the pawn's owner has left.
+     * @param photographed whether the pawn's owner photographed the box.
+     * @return true if the box can be opened.
+     */
+    public static boolean canOpen(int finding, boolean theseus, int destroysLeft, boolean photographed) {
+        if (finding == NO_FINDING) {
+            return false;
+        } else if (theseus) {
+            return destroysLeft > 0;
+        }
+        return !(isFresco(finding) && photographed);
+    }
+
+    public static boolean isFresco(int finding) {
+        return finding == FRESCO_15 || finding == FRESCO_20;
+    }
+
+    public static int action(int slot, int kind) {
+        return slot * ACTION_KINDS + kind;
+    }
+
+    public static int actionSlot(int action) {
+        return action / ACTION_KINDS;
+    }
+
+    public static int actionKind(int action) {
+        return action % ACTION_KINDS;
+    }
+
+    // ---------------------------------------------
+    // Queries
+    // ---------------------------------------------
+
+    public int getActivePlayer() {
+        return activePlayer;
+    }
+
+    public int getTurn() {
+        return turn;
+    }
+
+    /**
+     * Returns whose view of the game this is.
+     * @return the player of an {@link #observedBy} copy, whose opponent's hand and deck are
+     *         placeholders, or -1 if every card is known.
+     */
+    public int getObserver() {
+        return observer;
+    }
+
+    /**
+     * Marks the state as one player's view of the game, or, with -1, as a game whose every card is
+     * known, such as a copy of a view whose hidden cards have been dealt.
+     * @param observer the player, or -1.
+     */
+    public void setObserver(int observer) {
+        if (observer < -1 || observer >= PLAYERS) {
+            throw new IllegalArgumentException("No such player: " + observer);
+        }
+        this.observer = observer;
+    }
+
+    public int getDeckSize() {
+        return deckSize;
+    }
+
+    /**
+     * Returns a card of the deck.
+     * @param depth 0 for the top card, 1 for the one below it, and so on.
+     * @return the card code.
+     */
+    public int getDeckCard(int depth) {
+        return deck[deckSize - 1 - depth];
+    }
+
+    /**
+     * Returns how many copies of a card have been played or discarded, which a view knows too.
+     * @param code the card code.
+     * @return the number of copies out of the game.
+     */
+    public int getSpent(int code) {
+        return spent[code];
+    }
+
+    public int getScore(int player) {
+        return scores[player];
+    }
+
+    public int getStatues(int player) {
+        return statues[player];
+    }
+
+    public boolean hasCollectedRare(int player, int path) {
+        return (rareCollected[player] & (1 << path)) != 0;
+    }
+
+    /**
+     * Returns the position of a pawn.
+     * @param player the owner of the pawn.
+     * @param path the path of the pawn.
+     * @return the position index (1 to 9), or 0 if the pawn is not on the board.
+     */
+    public int getPawnIndex(int player, int path) {
+        return pawnIndex[player * PATHS + path];
+    }
+
+    public boolean isRevealed(int player, int path) {
+        return revealed[player * PATHS + path];
+    }
+
+    public boolean isTheseus(int player, int path) {
+        return theseusPath[player] == path;
+    }
+
+    public int getTheseusPath(int player) {
+        return theseusPath[player];
+    }
+
+    public boolean isFrozen(int player) {
+        return frozen[player];
+    }
+
+    public int getDestroysLeft(int player) {
+        return destroysLeft[player];
+    }
+
+    public int getLastCardPlayedValue(int path) {
+        return lastCardPlayedValue[path];
+    }
+
+    public int getFinding(int path, int box) {
+        return findings[path * BOXES + box];
+    }
+
+    public boolean isPhotographedBy(int path, int box, int player) {
+        return (photographed[path * BOXES + box] & (1 << player)) != 0;
+    }
+
+    public int getHandSize(int player) {
+        return handSize[player];
+    }
+
+    public int getHandCard(int player, int slot) {
+        return hands[player * HAND_SIZE + slot];
+    }
+
+    /**
+     * Returns an evaluation feature of a player.
+     * @param player the player.
+     * @param feature one of the FEATURE_ constants.
+     * @return the value of the feature.
+     */
+    public int getFeature(int player, int feature) {
+        return features[player * FEATURES + feature];
+    }
+
+    /**
+     * Checks the same end conditions as GameController: the deck is empty or a pawn stands on the checkpoint.
+     * @return true if the game is over.
+     */
+    public boolean isTerminal() {
+        if (deckSize == 0) {
+            return true;
+        }
+        for (int index : pawnIndex) {
+            if (index == CHECKPOINT) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the result of the game for the first player.
+     * @return 1 if the first player leads, -1 if the second leads, 0 on a tie.
+     */
+    public int getResult() {
+        return Integer.signum(scores[0] - scores[1]);
+    }
+
+    /**
+     * Returns what a player or a spectator may know of this game. The observation reads this state
+     * as it changes, and the same one is returned every time.
+     *
+     * @param observer the player, or {@link Observation#SPECTATOR}.
+     * @return the observation.
+     */
+    public Observation observation(int observer) {
+        if (observer < Observation.SPECTATOR || observer >= PLAYERS) {
+            throw new IllegalArgumentException("No such observer: " + observer);
+        }
+        if (observations == null) {
+            observations = new Observation[PLAYERS + 1];
+        }
+        Observation observation = observations[observer + 1];
+        if (observation == null) {
+            observation = new Observation(this, observer);
+            observations[observer + 1] = observation;
+        }
+        return observation;
+    }
+
+    /**
+     * Returns the game as a player sees it: the board and their own hand as they are, the
+     * opponent's hand and the deck as placeholder cards of the same count. An opponent Theseus that
+     * has not been revealed is moved to the opponent's first hidden pawn, so the copy does not tell
+     * where it really is.
+     *
+     * @param player the player looking at the game.
+     * @return a copy holding only what the player may know.
+     */
+    public GameState observedBy(int player) {
+        GameState view = copy();
+        view.observer = player;
+        int opponent = 1 - player;
+        Arrays.fill(view.hands, opponent * HAND_SIZE, (opponent + 1) * HAND_SIZE, 0);
+        Arrays.fill(view.deck, 0, deckSize, 0);
+        int theseus = theseusPath[opponent];
+        if (theseus >= 0 && !revealed[opponent * PATHS + theseus]) {
+            for (int path = 0; path < PATHS; path++) {
+                if (pawnIndex[opponent * PATHS + path] != 0 && !revealed[opponent * PATHS + path]) {
+                    view.theseusPath[opponent] = path;
+                    break;
+                }
+            }
+        }
+        view.recomputeFeatures();
+        return view;
+    }
+
+    // ---------------------------------------------
+    // Moves
+    // ---------------------------------------------
+
+    /**
+     * Lists the actions of the active player that lead to different outcomes.
+     * Duplicate cards are listed once, and playing a card that would do nothing is left out
+     * because it is the same as discarding it.
+     *
+     * @param actions an array of at least {@link #MAX_ACTIONS} elements that receives the actions.
+     * @return the number of actions written.
+     */
+    public int legalActions(int[] actions) {
+        int player = activePlayer;
+        int count = 0;
+        for (int slot = 0; slot < handSize[player]; slot++) {
+            int code = hands[player * HAND_SIZE + slot];
+            if (isDuplicate(player, slot, code)) {
+                continue;
+            }
+            actions[count++] = action(slot, DISCARD);
+            if (hasEffect(player, code)) {
+                actions[count++] = action(slot, PLAY);
+                int landing = landingIndex(player, code);
+                if (landing > 0 && canOpenBox(player, cardPath(code), landing)) {
+                    actions[count++] = action(slot, PLAY_AND_OPEN);
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Plays one turn for the active player and passes the turn to the opponent.
+     *
+     * @param action the action to take.
+     * @throws IllegalArgumentException if the action refers to an empty hand slot.
+     */
+    public void apply(int action) {
+        int player = activePlayer;
+        int slot = actionSlot(action);
+        if (slot < 0 || slot >= handSize[player]) {
+            throw new IllegalArgumentException("No card in slot " + slot + " of player " + player);
+        }
+
+        int code = removeFromHand(player, slot);
+        spent[code]++;
+        int kind = actionKind(action);
+        if (kind != DISCARD) {
+            playCard(player, code, kind == PLAY_AND_OPEN);
+        }
+        drawCard(player);
+        updateHandFeature(0);
+        updateHandFeature(1);
+
+        turn++;
+        hash += activePlayer == 0 ? ACTIVE_KEY : -ACTIVE_KEY;
+        activePlayer = 1 - activePlayer;
+    }
+
+    /**
+     * Moves the topmost copy of a card to the top of the deck, so that it is the next one drawn.
+     * Searches use this to enumerate the possible draws.
+     *
+     * @param code the card code.
+     * @return true if the card is in the deck.
+     */
+    public boolean moveDeckCardToTop(int code) {
+        for (int i = deckSize - 1; i >= 0; i--) {
+            if (deck[i] == code) {
+                deck[i] = deck[deckSize - 1];
+                deck[deckSize - 1] = code;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Replaces a card of a hand, such as a placeholder of {@link #observedBy} with a card the
+     * opponent may hold. Searches use this to enumerate the hidden cards.
+     *
+     * @param player the player.
+     * @param slot the slot of the card, below the hand size.
+     * @param code the card code.
+     */
+    public void setHandCard(int player, int slot, int code) {
+        if (slot < 0 || slot >= handSize[player] || code < 0 || code >= CARD_CODES) {
+            throw new IllegalArgumentException("No slot " + slot + " or card " + code + " in the hand of player " + player);
+        }
+        int index = player * HAND_SIZE + slot;
+        hash += HAND_KEYS[player * CARD_CODES + code] - HAND_KEYS[player * CARD_CODES + hands[index]];
+        hands[index] = code;
+        updateHandFeature(player);
+    }
+
+    /**
+     * Replaces a card of the deck, such as a placeholder of {@link #observedBy} with a card that
+     * may be in it.
+     *
+     * @param depth the place of the card, 0 for the top, below the deck size.
+     * @param code the card code.
+     */
+    public void setDeckCard(int depth, int code) {
+        if (depth < 0 || depth >= deckSize || code < 0 || code >= CARD_CODES) {
+            throw new IllegalArgumentException("No place " + depth + " or card " + code + " in the deck");
+        }
+        int index = deckSize - 1 - depth;
+        hash += DECK_KEYS[code] - DECK_KEYS[deck[index]];
+        deck[index] = code;
+    }
+
+    /**
+     * Makes another pawn of a player their Theseus, such as to guess where an opponent's Theseus
+     * hides in a copy of {@link #observedBy}, which puts it on their first hidden pawn.
+     *
+     * @param player the player.
+     * @param path the path of the pawn, which must be on it and not revealed.
+     */
+    public void setTheseusPath(int player, int path) {
+        int theseus = theseusPath[player];
+        if (theseus < 0 || revealed[player * PATHS + theseus] || pawnIndex[player * PATHS + path] == 0 || revealed[player * PATHS + path]) {
+            throw new IllegalArgumentException("Theseus of player " + player + " cannot hide on path " + path);
+        }
+        theseusPath[player] = path;
+        recomputeFeatures();
+    }
+
+    private boolean isDuplicate(int player, int slot, int code) {
+        for (int i = 0; i < slot; i++) {
+            if (hands[player * HAND_SIZE + i] == code) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean hasEffect(int player, int code) {
+        int path = cardPath(code);
+        if (cardKind(code) == MINOTAUR) {
+            int opponent = 1 - player;
+            int target = pawnIndex[opponent * PATHS + path];
+            return target != 0 && target != CHECKPOINT && !(theseusPath[opponent] == path && frozen[opponent]);
+        }
+        int value = cardValue(code);
+        return pawnIndex[player * PATHS + path] != 0 && (value < 0 || value >= lastCardPlayedValue[path]);
+    }
+
+    /**
+     * Returns where the pawn of the player would land if the card were played.
+     * @return the position index, or 0 if the card does not move the player's pawn.
+     */
+    private int landingIndex(int player, int code) {
+        int path = cardPath(code);
+        if (theseusPath[player] == path && frozen[player]) {
+            return 0;
+        }
+        return landingIndex(pawnIndex[player * PATHS + path], code, lastCardPlayedValue[path]);
+    }
+
+    private boolean canOpenBox(int player, int path, int index) {
+        int box = boxOf(index);
+        return box >= 0 && canOpen(findings[path * BOXES + box], theseusPath[player] == path, destroysLeft[player],
+                isPhotographedBy(path, box, player));
+    }
+
+    private void playCard(int player, int code, boolean openBox) {
+        int path = cardPath(code);
+        int kind = cardKind(code);
+
+        if (kind == MINOTAUR) {
+            attack(1 - player, path);
+            return;
+        }
+        if (pawnIndex[player * PATHS + path] == 0) {
+            return; // no pawn of the player on this path, the card is wasted
+        }
+
+        boolean moved;
+        if (kind == ARIADNE) {
+            moved = move(player, path, 2);
+        } else if (kind + 1 >= lastCardPlayedValue[path]) {
+            hash += LAST_CARD_KEYS[path * (CARD_KINDS + 1) + kind + 2] - LAST_CARD_KEYS[path * (CARD_KINDS + 1) + lastCardPlayedValue[path] + 1];
+            lastCardPlayedValue[path] = kind + 1;
+            moved = move(player, path, 1);
+        } else {
+            moved = false;
+        }
+
+        if (moved && openBox && canOpenBox(player, path, pawnIndex[player * PATHS + path])) {
+            openBox(player, path);
+        }
+    }
+
+    /**
+     * Applies a Minotaur attack the way MinotaurCard.attack does.
+     */
+    private void attack(int target, int path) {
+        int index = pawnIndex[target * PATHS + path];
+        if (index == 0 || index == CHECKPOINT) {
+            return;
+        }
+        if (theseusPath[target] == path) {
+            if (!frozen[target]) {
+                frozen[target] = true; // like GameController, nothing thaws Theseus again
+                hash += FROZEN_KEYS[target];
+                reveal(target, path);
+            }
+        } else if (move(target, path, -2)) {
+            reveal(target, path);
+        }
+    }
+
+    /**
+     * Moves a pawn the way Pawn.move does: backwards moves stop at the first position and
+     * forward moves past the palace fail.
+     */
+    private boolean move(int player, int path, int steps) {
+        if (theseusPath[player] == path && frozen[player]) {
+            return false;
+        }
+        int newIndex = movedIndex(pawnIndex[player * PATHS + path], steps);
+        if (newIndex == 0) {
+            return false;
+        }
+        int pawn = player * PATHS + path;
+        features[player * FEATURES + FEATURE_PROGRESS] += newIndex - pawnIndex[pawn];
+        hash += PAWN_KEYS[pawn * (POSITIONS + 1) + newIndex] - PAWN_KEYS[pawn * (POSITIONS + 1) + pawnIndex[pawn]];
+        pawnIndex[pawn] = newIndex;
+        updateReachable(player, path);
+        return true;
+    }
+
+    /**
+     * Opens (Archaeologist) or destroys (Theseus) the box under the pawn of the player.
+     */
+    private void openBox(int player, int path) {
+        int box = path * BOXES + boxOf(pawnIndex[player * PATHS + path]);
+        int code = findings[box];
+
+        int base = player * FEATURES;
+        if (theseusPath[player] == path) {
+            clearBox(box);
+            hash += DESTROY_KEYS[player * (THESEUS_DESTROYS + 1) + destroysLeft[player] - 1]
+                    - DESTROY_KEYS[player * (THESEUS_DESTROYS + 1) + destroysLeft[player]];
+            destroysLeft[player]--;
+            features[base + FEATURE_DESTROYS]--;
+        } else if (isFresco(code)) {
+            if ((photographed[box] & (1 << player)) == 0) {
+                photographed[box] |= 1 << player;
+                hash += PHOTO_KEYS[box * PLAYERS + player];
+            }
+            scores[player] += findingPoints(code, path);
+            hash += findingPoints(code, path) * SCORE_KEYS[player * 2];
+            features[base + FEATURE_FRESCO] += findingPoints(code, path);
+        } else {
+            if (code == STATUE) {
+                statues[player]++;
+                hash += SCORE_KEYS[player * 2 + 1];
+                features[base + FEATURE_STATUES]++;
+            } else {
+                scores[player] += findingPoints(code, path);
+                hash += findingPoints(code, path) * SCORE_KEYS[player * 2];
+                rareCollected[player] |= 1 << path;
+                features[base + FEATURE_RARE] += findingPoints(code, path);
+            }
+            clearBox(box);
+        }
+        reveal(player, path);
+
+        // the box is gone (or photographed) for both pawns on the path
+        updateReachable(0, path);
+        updateReachable(1, path);
+    }
+
+    /**
+     * Empties a box and forgets who photographed it.
+     */
+    private void clearBox(int box) {
+        hash += FINDING_KEYS[box * (STATUE + 1) + NO_FINDING] - FINDING_KEYS[box * (STATUE + 1) + findings[box]];
+        findings[box] = NO_FINDING;
+        for (int p = 0; p < PLAYERS; p++) {
+            if ((photographed[box] & (1 << p)) != 0) {
+                hash -= PHOTO_KEYS[box * PLAYERS + p];
+            }
+        }
+        photographed[box] = 0;
+    }
+
+    private void reveal(int player, int path) {
+        if (!revealed[player * PATHS + path]) {
+            revealed[player * PATHS + path] = true;
+            hash += REVEALED_KEYS[player * PATHS + path];
+        }
+    }
+
+    // ---------------------------------------------
+    // Features
+    // ---------------------------------------------
+
+    /**
+     * Rebuilds every feature, and the hash, from scratch. The moves keep them up to date afterwards.
+     */
+    void recomputeFeatures() {
+        hash = computeHash();
+        for (int p = 0; p < PLAYERS; p++) {
+            int base = p * FEATURES;
+            features[base + FEATURE_PROGRESS] = 0;
+            features[base + FEATURE_REACHABLE] = 0;
+            for (int path = 0; path < PATHS; path++) {
+                features[base + FEATURE_PROGRESS] += pawnIndex[p * PATHS + path];
+                reachable[p * PATHS + path] = 0;
+                updateReachable(p, path);
+            }
+            features[base + FEATURE_STATUES] = statues[p];
+            features[base + FEATURE_DESTROYS] = theseusPath[p] >= 0 ? destroysLeft[p] : 0;
+            updateHandFeature(p);
+        }
+    }
+
+    /**
+     * Recounts the points ahead of one pawn and folds the change into FEATURE_REACHABLE.
+     */
+    private void updateReachable(int player, int path) {
+        int index = pawnIndex[player * PATHS + path];
+        int points = 0;
+        if (index != 0 && theseusPath[player] != path) {
+            for (int box = 0; box < BOXES; box++) {
+                int code = findings[path * BOXES + box];
+                if (boxIndex(box) > index && !((code == FRESCO_15 || code == FRESCO_20) && isPhotographedBy(path, box, player))) {
+                    points += findingPoints(code, path);
+                }
+            }
+        }
+        features[player * FEATURES + FEATURE_REACHABLE] += points - reachable[player * PATHS + path];
+        reachable[player * PATHS + path] = points;
+    }
+
+    /**
+     * Recounts the cards of a hand that would move a pawn if played now.
+     */
+    private void updateHandFeature(int player) {
+        int playable = 0;
+        for (int slot = 0; slot < handSize[player]; slot++) {
+            if (landingIndex(player, hands[player * HAND_SIZE + slot]) > 0) {
+                playable++;
+            }
+        }
+        features[player * FEATURES + FEATURE_HAND] = playable;
+    }
+
+    private int removeFromHand(int player, int slot) {
+        int base = player * HAND_SIZE;
+        int code = hands[base + slot];
+        hash -= HAND_KEYS[player * CARD_CODES + code];
+        System.arraycopy(hands, base + slot + 1, hands, base + slot, handSize[player] - slot - 1);
+        handSize[player]--;
+        return code;
+    }
+
+    private void drawCard(int player) {
+        if (handSize[player] < HAND_SIZE && deckSize > 0) {
+            int code = deck[--deckSize];
+            hands[player * HAND_SIZE + handSize[player]++] = code;
+            hash += HAND_KEYS[player * CARD_CODES + code] - DECK_KEYS[code];
+        }
+    }
+
+    // ---------------------------------------------
+    // Encoding
+    // ---------------------------------------------
+
+    /**
+     * Writes the state in the compact form used by {@link GameSnapshot} and by network games: one
+     * byte for most fields and one per card, about 170 bytes for a game that has just started.
+     * The first byte holds the active player and, above it, the observer of a view. A view ends
+     * with the cards played or discarded, which a state whose every card is known leaves out
+     * because they are the ones in neither hand nor the deck.
+     *
+     * @param out the buffer to write to.
+     */
+    public void writeTo(ByteBuffer out) {
+        out.put((byte) (activePlayer | (observer + 1) << 4));
+        out.putShort((short) turn);
+        for (int p = 0; p < PLAYERS; p++) {
+            out.putShort((short) scores[p]);
+            out.put((byte) statues[p]);
+            out.put((byte) rareCollected[p]);
+            out.putShort((short) features[p * FEATURES + FEATURE_FRESCO]);
+            out.put((byte) ((theseusPath[p] + 1) | (frozen[p] ? 0x08 : 0) | destroysLeft[p] << 4));
+            for (int path = 0; path < PATHS; path++) {
+                out.put((byte) (pawnIndex[p * PATHS + path] | (revealed[p * PATHS + path] ? 0x10 : 0)));
+            }
+        }
+        for (int path = 0; path < PATHS; path++) {
+            out.put((byte) lastCardPlayedValue[path]);
+        }
+        for (int box = 0; box < PATHS * BOXES; box++) {
+            out.put((byte) (findings[box] | photographed[box] << 3));
+        }
+        for (int p = 0; p < PLAYERS; p++) {
+            out.put((byte) handSize[p]);
+            for (int slot = 0; slot < handSize[p]; slot++) {
+                out.put((byte) hands[p * HAND_SIZE + slot]);
+            }
+        }
+        out.put((byte) deckSize);
+        for (int i = 0; i < deckSize; i++) { // bottom to top
+            out.put((byte) deck[i]);
+        }
+        if (observer >= 0) {
+            for (int code = 0; code < CARD_CODES; code++) {
+                out.put((byte) spent[code]);
+            }
+        }
+    }
+
+    /**
+     * Reads a state written by {@link #writeTo}.
+     *
+     * @param in the buffer to read from.
+     * @return the state.
+     * @throws IOException if the bytes do not describe a valid state.
+     */
+    public static GameState readFrom(ByteBuffer in) throws IOException {
+        GameState state = new GameState();
+        int first = in.get();
+        state.activePlayer = first & 0x0F;
+        state.observer = ((first >> 4) & 0x0F) - 1;
+        state.turn = in.getShort() & 0xFFFF;
+        for (int p = 0; p < PLAYERS; p++) {
+            state.scores[p] = in.getShort();
+            state.statues[p] = in.get();
+            state.rareCollected[p] = in.get();
+            state.features[p * FEATURES + FEATURE_FRESCO] = in.getShort();
+            for (int path = 0; path < PATHS; path++) {
+                if (state.hasCollectedRare(p, path)) {
+                    state.features[p * FEATURES + FEATURE_RARE] += RARE_POINTS[path];
+                }
+            }
+            int theseus = in.get();
+            state.theseusPath[p] = (theseus & 0x07) - 1;
+            state.frozen[p] = (theseus & 0x08) != 0;
+            state.destroysLeft[p] = (theseus >> 4) & 0x0F;
+            for (int path = 0; path < PATHS; path++) {
+                int pawn = in.get();
+                state.pawnIndex[p * PATHS + path] = pawn & 0x0F;
+                state.revealed[p * PATHS + path] = (pawn & 0x10) != 0;
+            }
+        }
+        for (int path = 0; path < PATHS; path++) {
+            state.lastCardPlayedValue[path] = in.get();
+        }
+        for (int box = 0; box < PATHS * BOXES; box++) {
+            int code = in.get();
+            state.findings[box] = code & 0x07;
+            state.photographed[box] = (code >> 3) & 0x03;
+        }
+        for (int p = 0; p < PLAYERS; p++) {
+            state.handSize[p] = readCount(in, HAND_SIZE);
+            for (int slot = 0; slot < state.handSize[p]; slot++) {
+                state.hands[p * HAND_SIZE + slot] = readCardCode(in);
+            }
+        }
+        state.deckSize = readCount(in, state.deck.length);
+        for (int i = 0; i < state.deckSize; i++) {
+            state.deck[i] = readCardCode(in);
+        }
+
+        if (state.activePlayer >= PLAYERS || state.observer >= PLAYERS) {
+            throw new IOException("Invalid active player or observer: " + first);
+        }
+        if (state.observer >= 0) {
+            for (int code = 0; code < CARD_CODES; code++) {
+                state.spent[code] = readCount(in, cardCopies(code));
+            }
+        } else {
+            state.countSpent();
+        }
+        for (int code = 0; code < CARD_CODES; code++) {
+            if (state.spent[code] < 0) {
+                throw new IOException("More than " + cardCopies(code) + " copies of card " + code);
+            }
+        }
+        for (int p = 0; p < PLAYERS; p++) {
+            if (state.theseusPath[p] >= PATHS || state.destroysLeft[p] > THESEUS_DESTROYS) {
+                throw new IOException("Invalid Theseus of player " + p);
+            }
+            for (int path = 0; path < PATHS; path++) {
+                if (state.pawnIndex[p * PATHS + path] > POSITIONS) {
+                    throw new IOException("Invalid pawn position: " + state.pawnIndex[p * PATHS + path]);
+                }
+            }
+        }
+        for (int box = 0; box < PATHS * BOXES; box++) {
+            if (state.findings[box] > STATUE) {
+                throw new IOException("Invalid finding code: " + state.findings[box]);
+            }
+        }
+        state.recomputeFeatures();
+        return state;
+    }
+
+    /**
+     * Sets the cards played or discarded of a state whose every card is known: the copies in
+     * neither hand nor the deck. Too many copies of a card leave its count negative.
+     */
+    private void countSpent() {
+        for (int code = 0; code < CARD_CODES; code++) {
+            spent[code] = cardCopies(code);
+        }
+        for (int p = 0; p < PLAYERS; p++) {
+            for (int slot = 0; slot < handSize[p]; slot++) {
+                spent[hands[p * HAND_SIZE + slot]]--;
+            }
+        }
+        for (int i = 0; i < deckSize; i++) {
+            spent[deck[i]]--;
+        }
+    }
+
+    private static int readCount(ByteBuffer in, int max) throws IOException {
+        int count = in.get() & 0xFF;
+        if (count > max) {
+            throw new IOException("Count " + count + " exceeds " + max);
+        }
+        return count;
+    }
+
+    private static int readCardCode(ByteBuffer in) throws IOException {
+        int code = in.get();
+        if (code < 0 || code >= CARD_CODES) {
+            throw new IOException("Invalid card code: " + code);
+        }
+        return code;
+    }
+
+    void setTurn(int turn) {
+        this.turn = turn;
+    }
+
+    // ---------------------------------------------
+    // Hashing
+    // ---------------------------------------------
+
+    private static final long[] PAWN_KEYS = new long[PLAYERS * PATHS * (POSITIONS + 1)];
+    private static final long[] REVEALED_KEYS = new long[PLAYERS * PATHS];
+    private static final long[] THESEUS_KEYS = new long[PLAYERS * (PATHS + 1)];
+    private static final long[] FROZEN_KEYS = new long[PLAYERS];
+    private static final long[] DESTROY_KEYS = new long[PLAYERS * (THESEUS_DESTROYS + 1)];
+    private static final long[] LAST_CARD_KEYS = new long[PATHS * (CARD_KINDS + 1)];
+    private static final long[] FINDING_KEYS = new long[PATHS * BOXES * (STATUE + 1)];
+    private static final long[] PHOTO_KEYS = new long[PATHS * BOXES * PLAYERS];
+    private static final long[] HAND_KEYS = new long[PLAYERS * CARD_CODES];
+    private static final long[] DECK_KEYS = new long[CARD_CODES];
+    private static final long[] SCORE_KEYS = new long[PLAYERS * 2];
+    private static final long[] HAND_SLOT_KEYS = new long[PLAYERS * HAND_SIZE * CARD_CODES];
+    private static final long[] DECK_DEPTH_KEYS = new long[CARD_CODES * 3 * CARD_CODES];
+    private static final long ACTIVE_KEY;
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x4B6E6F73736F73L);
+        for (long[] keys : new long[][]{PAWN_KEYS, REVEALED_KEYS, THESEUS_KEYS, FROZEN_KEYS, DESTROY_KEYS,
+                LAST_CARD_KEYS, FINDING_KEYS, PHOTO_KEYS, HAND_KEYS, DECK_KEYS, SCORE_KEYS}) {
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = random.nextLong();
+            }
+        }
+        ACTIVE_KEY = random.nextLong();
+        // drawn after the others, so that hash() stays what it was before they were added
+        for (long[] keys : new long[][]{HAND_SLOT_KEYS, DECK_DEPTH_KEYS}) {
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = random.nextLong();
+            }
+        }
+    }
+
+    /**
+     * Returns a 64-bit hash of the position: the sum of one random key per pawn position, flag,
+     * finding, score point and card. Hands and the deck are hashed as sets of cards, so states that
+     * differ only in card order hash the same; {@link #lockstepHash()} tells them apart. The moves keep the sum up to date, so this costs nothing.
+     *
+     * @return the hash of the state.
+     */
+    public long hash() {
+        return hash;
+    }
+
+    /**
+     * Returns a hash of the position that also tells the order of the cards: like {@link #hash()},
+     * but with a key per hand slot and card and per deck depth and card. Two machines playing the
+     * same game compare it, as they must agree on which card is in which slot and which comes next.
+     * It is worked out on every call.
+     *
+     * @return the hash of the state with its cards in order.
+     */
+    public long lockstepHash() {
+        long h = hash;
+        for (int p = 0; p < PLAYERS; p++) {
+            for (int slot = 0; slot < handSize[p]; slot++) {
+                int code = hands[p * HAND_SIZE + slot];
+                h += HAND_SLOT_KEYS[(p * HAND_SIZE + slot) * CARD_CODES + code] - HAND_KEYS[p * CARD_CODES + code];
+            }
+        }
+        for (int depth = 0; depth < deckSize; depth++) {
+            int code = deck[deckSize - 1 - depth];
+            h += DECK_DEPTH_KEYS[depth * CARD_CODES + code] - DECK_KEYS[code];
+        }
+        return h;
+    }
+
+    /**
+     * Computes the hash of {@link #hash()} from scratch.
+     */
+    long computeHash() {
+        long h = activePlayer == 0 ? 0L : ACTIVE_KEY;
+        for (int i = 0; i < PLAYERS * PATHS; i++) {
+            h += PAWN_KEYS[i * (POSITIONS + 1) + pawnIndex[i]];
+            if (revealed[i]) {
+                h += REVEALED_KEYS[i];
+            }
+        }
+        for (int p = 0; p < PLAYERS; p++) {
+            h += THESEUS_KEYS[p * (PATHS + 1) + theseusPath[p] + 1];
+            h += DESTROY_KEYS[p * (THESEUS_DESTROYS + 1) + destroysLeft[p]];
+            if (frozen[p]) {
+                h += FROZEN_KEYS[p];
+            }
+            h += scores[p] * SCORE_KEYS[p * 2] + statues[p] * SCORE_KEYS[p * 2 + 1];
+            for (int slot = 0; slot < handSize[p]; slot++) {
+                h += HAND_KEYS[p * CARD_CODES + hands[p * HAND_SIZE + slot]];
+            }
+        }
+        for (int path = 0; path < PATHS; path++) {
+            h += LAST_CARD_KEYS[path * (CARD_KINDS + 1) + lastCardPlayedValue[path] + 1];
+        }
+        for (int box = 0; box < PATHS * BOXES; box++) {
+            h += FINDING_KEYS[box * (STATUE + 1) + findings[box]];
+            for (int p = 0; p < PLAYERS; p++) {
+                if ((photographed[box] & (1 << p)) != 0) {
+                    h += PHOTO_KEYS[box * PLAYERS + p];
+                }
+            }
+        }
+        for (int i = 0; i < deckSize; i++) {
+            h += DECK_KEYS[deck[i]];
+        }
+        return h;
+    }
+}
@@ -0,0 +1,152 @@
+package Model;
+
+/**
+ * What one player, or a spectator, may know of a game.
+ * <p>
+ * An observation is a read-only window onto a {@link GameState}, not a copy of it: it answers
+ * from the live state, so it is up to date after every move without being rebuilt, and asking it
+ * anything allocates nothing. It shows the board, the scores, the observer's own hand and the
+ * size of the other hand. Whether a pawn is Theseus is only shown for the observer's own pawns
+ * and for pawns that have been revealed. Get one with {@link GameState#observation(int)}.
+ */
+public final class Observation {
+    public static final int SPECTATOR = -1;
+
+    private final GameState state;
+    private final int observer;
+
+    Observation(GameState state, int observer) {
+        this.state = state;
+        this.observer = observer;
+    }
+
+    /**
+     * Returns who observes the game.
+     * @return the player, or {@link #SPECTATOR}.
+     */
+    public int getObserver() {
+        return observer;
+    }
+
+    public int getTurn() {
+        return state.getTurn();
+    }
+
+    public int getActivePlayer() {
+        return state.getActivePlayer();
+    }
+
+    public boolean isMyTurn() {
+        return observer != SPECTATOR && !state.isTerminal() && state.getActivePlayer() == observer;
+    }
+
+    public boolean isTerminal() {
+        return state.isTerminal();
+    }
+
+    public int getResult() {
+        return state.getResult();
+    }
+
+    public int getDeckSize() {
+        return state.getDeckSize();
+    }
+
+    public int getScore(int player) {
+        return state.getScore(player);
+    }
+
+    public int getStatues(int player) {
+        return state.getStatues(player);
+    }
+
+    public int getDestroysLeft(int player) {
+        return state.getDestroysLeft(player);
+    }
+
+    public int getLastCardPlayedValue(int path) {
+        return state.getLastCardPlayedValue(path);
+    }
+
+    public int getFinding(int path, int box) {
+        return state.getFinding(path, box);
+    }
+
+    public boolean isPhotographedBy(int path, int box, int player) {
+        return state.isPhotographedBy(path, box, player);
+    }
+
+    public int getPawnIndex(int player, int path) {
+        return state.getPawnIndex(player, path);
+    }
+
+    public boolean isRevealed(int player, int path) {
+        return state.isRevealed(player, path);
+    }
+
+    /**
+     * Returns whether the observer knows if a pawn is Theseus: always for their own pawns, and for
+     * the other player's once they are revealed.
+     *
+     * @param player the owner of the pawn.
+     * @param path the path of the pawn.
+     * @return true if the identity of the pawn is known.
+     */
+    public boolean isIdentityKnown(int player, int path) {
+        return player == observer || state.isRevealed(player, path);
+    }
+
+    /**
+     * Returns whether a pawn is known to be Theseus.
+     *
+     * @param player the owner of the pawn.
+     * @param path the path of the pawn.
+     * @return true if the pawn is Theseus, false if it is not or its identity is unknown.
+     */
+    public boolean isTheseus(int player, int path) {
+        return isIdentityKnown(player, path) && state.isTheseus(player, path);
+    }
+
+    /**
+     * Returns whether a player's Theseus is known to be frozen. Only a revealed Theseus can be attacked.
+     * @param player the owner of Theseus.
+     * @return true if Theseus is frozen and known to the observer.
+     */
+    public boolean isFrozen(int player) {
+        int path = state.getTheseusPath(player);
+        return path >= 0 && isIdentityKnown(player, path) && state.isFrozen(player);
+    }
+
+    /**
+     * Returns the number of cards in a player's hand, which everyone can count.
+     * @param player the player.
+     * @return the number of cards.
+     */
+    public int getHandSize(int player) {
+        return state.getHandSize(player);
+    }
+
+    /**
+     * Returns a card of the observer's own hand.
+     *
+     * @param slot the slot, below getHandSize(getObserver()).
+     * @return the card code.
+     * @throws IllegalStateException if a spectator asks, who has no hand.
+     */
+    public int getHandCard(int slot) {
+        if (observer == SPECTATOR) {
+            throw new IllegalStateException("A spectator has no hand");
+        }
+        return state.getHandCard(observer, slot);
+    }
+
+    /**
+     * Lists the actions the observer can take, as {@link GameState#legalActions} does.
+     *
+     * @param actions an array of at least {@link GameState#MAX_ACTIONS} elements that receives the actions.
+     * @return the number of actions written, 0 when it is not the observer's turn.
+     */
+    public int legalActions(int[] actions) {
+        return isMyTurn() ? state.legalActions(actions) : 0;
+    }
+}
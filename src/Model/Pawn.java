@@ -142,6 +142,25 @@ public abstract class Pawn {
         }
     }
 
+    /**
+     * Restores the revealed flag of a pawn whose game is loaded or replayed, which may hide it again.
+     * @param revealed whether the pawn is revealed.
+     */
+    void setRevealed(boolean revealed) {
+        if (isRevealed != revealed) {
+            isRevealed = revealed;
+            this.imageIcon = loadImageIcon();
+        }
+    }
+
+    /**
+     * Restores whether the pawn stands on the checkpoint, for a game that is loaded or replayed.
+     * @param checkpointReached whether the pawn has reached the checkpoint.
+     */
+    void setCheckpointReached(boolean checkpointReached) {
+        this.checkpointReached = checkpointReached;
+    }
+
     /**
      * Updates the imageIcon based on the pawn type.
      */
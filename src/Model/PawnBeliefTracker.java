@@ -0,0 +1,236 @@
+package Model;
+
+import java.util.List;
+
+/**
+ * Tracks, from one player's point of view, how likely each hidden opponent pawn is to be Theseus.
+ * <p>
+ * Every opponent owns exactly one Theseus, so the beliefs form a single distribution over the
+ * opponent's pawns. Each pawn keeps an unnormalized weight and the tracker keeps their sum,
+ * summed again after every observation so that it never drifts from the weights, and a query is
+ * one division.
+ */
+public class PawnBeliefTracker {
+    // likelihoods of the observed behaviour for each pawn type (tuned guesses, not measured)
+    private static final double MOVE_GIVEN_THESEUS = 0.8;         // Theseus scores nothing, so he is moved less
+    private static final double MOVE_GIVEN_ARCHAEOLOGIST = 1.0;
+    private static final double SKIP_BOX_GIVEN_THESEUS = 0.8;     // Theseus cannot open boxes and destroying reveals him
+    private static final double SKIP_BOX_GIVEN_ARCHAEOLOGIST = 0.25;
+
+    private static final double MIN_TOTAL = 1e-100;               // rescale before the weights underflow
+    private static final double MAX_TOTAL = 1e100;                // or overflow
+
+    private final List<Pawn> pawns; // the opponent pawns being tracked, may be null
+    private final double[] weights; // unnormalized P(Theseus) per pawn
+    private double total;           // sum of the weights
+
+    /**
+     * Constructs a tracker for the given opponent pawns, all equally likely to be Theseus.
+     *
+     * @param opponentPawns the pawns of the opponent.
+     */
+    public PawnBeliefTracker(List<Pawn> opponentPawns) {
+        this(opponentPawns, opponentPawns.size());
+    }
+
+    /**
+     * Constructs a tracker for a number of opponent pawns that are addressed by slot.
+     *
+     * @param pawnCount the number of opponent pawns.
+     */
+    public PawnBeliefTracker(int pawnCount) {
+        this(null, pawnCount);
+    }
+
+    private PawnBeliefTracker(List<Pawn> pawns, int pawnCount) {
+        this.pawns = pawns;
+        this.weights = new double[pawnCount];
+        reset();
+    }
+
+    /**
+     * Forgets every observation and makes all pawns equally likely again.
+     */
+    public void reset() {
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = 1.0;
+        }
+        total = weights.length;
+    }
+
+    /**
+     * Records that the pawn in the given slot was moved by its owner.
+     *
+     * @param slot the slot of the pawn.
+     */
+    public void observeMove(int slot) {
+        update(slot, MOVE_GIVEN_THESEUS / MOVE_GIVEN_ARCHAEOLOGIST);
+    }
+
+    /**
+     * Records that the pawn in the given slot stopped on a box without opening or destroying it.
+     *
+     * @param slot the slot of the pawn.
+     */
+    public void observeSkippedBox(int slot) {
+        update(slot, SKIP_BOX_GIVEN_THESEUS / SKIP_BOX_GIVEN_ARCHAEOLOGIST);
+    }
+
+    /**
+     * Records that the pawn in the given slot stopped on a box without opening or destroying it,
+     * when perhaps only one kind of pawn could have: a kind that could not act skips for sure.
+     * A skip that neither kind could have avoided tells nothing.
+     *
+     * @param slot the slot of the pawn.
+     * @param archaeologistCouldAct whether an archaeologist could have opened the box.
+     * @param theseusCouldAct whether Theseus could have destroyed it.
+     */
+    public void observeSkippedBox(int slot, boolean archaeologistCouldAct, boolean theseusCouldAct) {
+        if (!archaeologistCouldAct && !theseusCouldAct) {
+            return;
+        }
+        double givenTheseus = theseusCouldAct ? SKIP_BOX_GIVEN_THESEUS : 1.0;
+        double givenArchaeologist = archaeologistCouldAct ? SKIP_BOX_GIVEN_ARCHAEOLOGIST : 1.0;
+        update(slot, givenTheseus / givenArchaeologist);
+    }
+
+    /**
+     * Snaps the beliefs to certainty once the pawn in the given slot has been revealed.
+     *
+     * @param slot the slot of the pawn.
+     * @param isTheseus true if the pawn turned out to be Theseus.
+     */
+    public void observeReveal(int slot, boolean isTheseus) {
+        if (isTheseus) {
+            for (int i = 0; i < weights.length; i++) {
+                weights[i] = 0.0;
+            }
+            weights[slot] = 1.0;
+            total = 1.0;
+        } else if (weights[slot] > 0.0) {
+            weights[slot] = 0.0;
+            total = sum();
+        }
+    }
+
+    /**
+     * Returns the probability that the pawn in the given slot is Theseus.
+     *
+     * @param slot the slot of the pawn.
+     * @return a probability between 0 and 1.
+     */
+    public double getTheseusProbability(int slot) {
+        return total > 0.0 ? weights[slot] / total : 0.0;
+    }
+
+    /**
+     * Returns the number of pawns tracked.
+     * @return the number of pawns.
+     */
+    public int getPawnCount() {
+        return weights.length;
+    }
+
+    /**
+     * Returns the slot of a tracked pawn.
+     *
+     * @param pawn the pawn to look up.
+     * @return the slot of the pawn, or -1 if it is not tracked.
+     */
+    public int slotOf(Pawn pawn) {
+        if (pawns != null) {
+            for (int i = 0; i < pawns.size(); i++) {
+                if (pawns.get(i) == pawn) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Records that the given opponent pawn was moved by its owner.
+     * @param pawn the pawn that moved.
+     */
+    public void observeMove(Pawn pawn) {
+        int slot = slotOf(pawn);
+        if (slot >= 0) {
+            observeMove(slot);
+        }
+    }
+
+    /**
+     * Records that the given opponent pawn stopped on a box without opening or destroying it.
+     * @param pawn the pawn that skipped the box.
+     */
+    public void observeSkippedBox(Pawn pawn) {
+        int slot = slotOf(pawn);
+        if (slot >= 0) {
+            observeSkippedBox(slot);
+        }
+    }
+
+    /**
+     * Records that the given opponent pawn stopped on a box without opening or destroying it,
+     * when perhaps only one kind of pawn could have, see {@link #observeSkippedBox(int, boolean, boolean)}.
+     *
+     * @param pawn the pawn that skipped the box.
+     * @param archaeologistCouldAct whether an archaeologist could have opened the box.
+     * @param theseusCouldAct whether Theseus could have destroyed it.
+     */
+    public void observeSkippedBox(Pawn pawn, boolean archaeologistCouldAct, boolean theseusCouldAct) {
+        int slot = slotOf(pawn);
+        if (slot >= 0) {
+            observeSkippedBox(slot, archaeologistCouldAct, theseusCouldAct);
+        }
+    }
+
+    /**
+     * Snaps the beliefs to certainty if the given opponent pawn has been revealed.
+     * @param pawn the pawn to check.
+     */
+    public void observeReveal(Pawn pawn) {
+        int slot = slotOf(pawn);
+        if (slot >= 0 && pawn.isRevealed()) {
+            observeReveal(slot, pawn instanceof Theseus);
+        }
+    }
+
+    /**
+     * Returns the probability that the given opponent pawn is Theseus.
+     *
+     * @param pawn the pawn to look up.
+     * @return a probability between 0 and 1, or 0 if the pawn is not tracked.
+     */
+    public double getTheseusProbability(Pawn pawn) {
+        int slot = slotOf(pawn);
+        return slot >= 0 ? getTheseusProbability(slot) : 0.0;
+    }
+
+    /**
+     * Multiplies the weight of one pawn by a likelihood ratio, keeping the sum in step.
+     */
+    private void update(int slot, double likelihoodRatio) {
+        double old = weights[slot];
+        if (old == 0.0 || old == total) {
+            return; // already certain, nothing to learn; the sum is exact, so the others add nothing
+        }
+        weights[slot] = old * likelihoodRatio;
+        total = sum();
+
+        if (total < MIN_TOTAL || total > MAX_TOTAL) {
+            for (int i = 0; i < weights.length; i++) {
+                weights[i] /= total;
+            }
+            total = sum();
+        }
+    }
+
+    private double sum() {
+        double sum = 0.0;
+        for (double weight : weights) {
+            sum += weight;
+        }
+        return sum;
+    }
+}
@@ -72,7 +72,23 @@ public class Player {
         return score;
     }
 
+    /**
+     * Restores the score of a player, for a game that is loaded or replayed.
+     * @param score the score.
+     */
+    void setScore(int score) {
+        this.score = score;
+    }
+
+
 
+    /**
+     * Retrieves the findings the player has collected or photographed.
+     * @return a list of the player's findings.
+     */
+    public List<Finding> getFindings() {
+        return playerFindings;
+    }
 
     /**
      * Retrieves the cards in the player's hand.
@@ -109,21 +125,22 @@ public class Player {
      *
      * @param archaeologist The archaeologist performing the action.
      * @param position      The position containing the finding.
+     * @return true if the box was opened and its finding collected or photographed, false otherwise.
      */
-    public void collectFinding(Archaeologist archaeologist, Position position) {
+    public boolean collectFinding(Archaeologist archaeologist, Position position) {
         Finding finding = position.getFinding();
 
         if (finding == null) {
             System.out.println("No finding to collect at this position.");
-            return;
+            return false;
         }
 
         // Attempt to open the box using the archaeologist
         if (archaeologist.openBox(finding, position, this)) {
             // if the finding is a fresco, it is not removed from the position
             if (finding instanceof FrescoFinding) {
-                ((FrescoFinding) finding).isPhotographedBy(this);
                 playerFindings.add(finding);
+                addScore(finding.getPoints());
                 System.out.println("Player " + getName() + " successfully photographed the fresco: " + finding.getName());
             }
 
@@ -141,8 +158,9 @@ public class Player {
                 position.removeFinding();
                 System.out.println("Player " + getName() + " successfully collected the statue: " + finding.getName());
             }
-        } else {
-            System.out.println("Player " + getName() + " failed to collect the finding.");
+            return true;
         }
+        System.out.println("Player " + getName() + " failed to collect the finding.");
+        return false;
     }
 }
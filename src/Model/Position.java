@@ -56,6 +56,23 @@ public class Position {
         return List.copyOf(pawns);
     }
 
+    /**
+     * Returns the number of pawns in this position, without copying them as getPawns does.
+     * @return the number of pawns.
+     */
+    public int getPawnCount() {
+        return pawns.size();
+    }
+
+    /**
+     * Returns a pawn in this position, in the order they came.
+     * @param i the index of the pawn, below getPawnCount().
+     * @return the pawn.
+     */
+    public Pawn getPawn(int i) {
+        return pawns.get(i);
+    }
+
     /**
      * Attempts to add a pawn to this position.
      * <p>
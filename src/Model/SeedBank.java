@@ -0,0 +1,215 @@
+package Model;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Seeds whose deal has been rated for fairness by simulation, kept in a file.
+ * <p>
+ * The file is a header (magic, version, the number of seeds, the number of fair ones and the bias
+ * below which a seed counts as fair) followed by fixed-size records sorted fairest first: the seed,
+ * the key of its finding layout, its bias and the half width of the 95% interval of the bias. The
+ * bias is the mean result for the first player when the game is played from the seed as
+ * {@link GameState#newGame} sets it up, 0 being perfectly even. As the fair seeds come first and
+ * every record has the same size, drawing a fair seed reads one record wherever it lies.
+ */
+public class SeedBank implements Closeable {
+    public static final int MAGIC = 0x4B4E5342; // "KNSB"
+    public static final int VERSION = 1;
+    public static final File DEFAULT_FILE = new File("seeds", "fair.bank");
+
+    static final int HEADER_BYTES = 32;
+    static final int RECORD_BYTES = 24;
+
+    /**
+     * A rated seed.
+     */
+    public static final class Entry {
+        public final long seed;
+        public final long layout;
+        public final float bias;
+        public final float interval;
+
+        public Entry(long seed, long layout, float bias, float interval) {
+            this.seed = seed;
+            this.layout = layout;
+            this.bias = bias;
+            this.interval = interval;
+        }
+    }
+
+    private final FileChannel channel;
+    private final long size;
+    private final long fairCount;
+    private final float fairBias;
+
+    private SeedBank(FileChannel channel, long size, long fairCount, float fairBias) {
+        this.channel = channel;
+        this.size = size;
+        this.fairCount = fairCount;
+        this.fairBias = fairBias;
+    }
+
+    /**
+     * Opens a seed bank. Only the header is read.
+     *
+     * @param file the file.
+     * @return the bank.
+     * @throws IOException if the file cannot be read or is not a seed bank.
+     */
+    public static SeedBank open(File file) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // keep reading
+            }
+            header.flip();
+            if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC) {
+                throw new IOException("Not a seed bank");
+            }
+            int version = header.getShort();
+            if (version != VERSION) {
+                throw new IOException("Unsupported seed bank version: " + version);
+            }
+            header.getShort();
+            long size = header.getLong();
+            long fairCount = header.getLong();
+            float fairBias = header.getFloat();
+            if (size < 0 || fairCount < 0 || fairCount > size || channel.size() < HEADER_BYTES + size * RECORD_BYTES) {
+                throw new IOException("Seed bank is truncated");
+            }
+            return new SeedBank(channel, size, fairCount, fairBias);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Writes a seed bank, replacing the old file only once the new one is complete.
+     *
+     * @param file the file to write.
+     * @param entries the seeds, fairest first.
+     * @param fairCount the number of seeds, from the first, that count as fair.
+     * @param fairBias the bias below which a seed counts as fair.
+     * @throws IOException if the file cannot be written.
+     */
+    public static void write(File file, List<Entry> entries, long fairCount, float fairBias) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Cannot create directory: " + parent);
+        }
+        File temp = new File(file.getPath() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer out = ByteBuffer.allocate(1 << 16);
+            out.putInt(MAGIC).putShort((short) VERSION).putShort((short) 0)
+                    .putLong(entries.size()).putLong(fairCount).putFloat(fairBias).putInt(0);
+            for (Entry entry : entries) {
+                if (out.remaining() < RECORD_BYTES) {
+                    writeFully(channel, out.flip());
+                    out.clear();
+                }
+                out.putLong(entry.seed).putLong(entry.layout).putFloat(entry.bias).putFloat(entry.interval);
+            }
+            writeFully(channel, out.flip());
+            channel.force(true);
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer out) throws IOException {
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+    }
+
+    /**
+     * Returns a key of the finding layout of a game, the same for layouts that only differ by
+     * swapping the palaces whose rare findings are worth the same.
+     *
+     * @param state the game before the first turn.
+     * @return the key.
+     */
+    public static long layoutKey(GameState state) {
+        // every path as a number in base STATUE + 1 with its rare points, then the paths in order
+        long[] rows = new long[GameState.PATHS];
+        for (int path = 0; path < GameState.PATHS; path++) {
+            for (int box = 0; box < GameState.BOXES; box++) {
+                rows[path] = rows[path] * (GameState.STATUE + 1) + state.getFinding(path, box);
+            }
+            rows[path] = rows[path] * 64 + GameState.RARE_POINTS[path];
+        }
+        Arrays.sort(rows);
+        long key = 0;
+        for (long row : rows) {
+            key = (key ^ row) * 0x9E3779B97F4A7C15L;
+            key ^= key >>> 29;
+        }
+        return key;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public long getFairCount() {
+        return fairCount;
+    }
+
+    public float getFairBias() {
+        return fairBias;
+    }
+
+    /**
+     * Reads a seed.
+     *
+     * @param index the rank of the seed, 0 for the fairest.
+     * @return the seed and its rating.
+     * @throws IOException if the file cannot be read.
+     */
+    public Entry get(long index) throws IOException {
+        if (index < 0 || index >= size) {
+            throw new IllegalArgumentException("No seed " + index + " in a bank of " + size);
+        }
+        ByteBuffer record = ByteBuffer.allocate(RECORD_BYTES);
+        long position = HEADER_BYTES + index * RECORD_BYTES;
+        while (record.hasRemaining()) {
+            if (channel.read(record, position + record.position()) < 0) {
+                throw new IOException("Seed bank is truncated");
+            }
+        }
+        record.flip();
+        return new Entry(record.getLong(), record.getLong(), record.getFloat(), record.getFloat());
+    }
+
+    /**
+     * Draws one of the fair seeds at random.
+     *
+     * @param random the source of the choice.
+     * @return the seed and its rating.
+     * @throws IOException if the file cannot be read.
+     * @throws IllegalStateException if the bank holds no fair seed.
+     */
+    public Entry drawFair(Random random) throws IOException {
+        if (fairCount == 0) {
+            throw new IllegalStateException("The seed bank holds no fair seed");
+        }
+        return get((long) (random.nextDouble() * fairCount));
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
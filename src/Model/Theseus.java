@@ -54,6 +54,14 @@ public class Theseus extends Pawn {
         }
     }
 
+    /**
+     * Restores the frozen flag of Theseus, for a game that is loaded or replayed.
+     * @param frozen whether Theseus is frozen.
+     */
+    void setFrozen(boolean frozen) {
+        this.isFrozen = frozen;
+    }
+
     /**
      * Uses a special ability to destroy a box or bypass obstacles.
      *
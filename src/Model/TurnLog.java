@@ -0,0 +1,260 @@
+package Model;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * A write-ahead log of the turns played since the last {@link GameSnapshot}.
+ * <p>
+ * Every turn is one 8-byte record: the turn number, the action, the card and a checksum that
+ * exposes a record torn by a crash. Appending only copies the record into a buffer; a committer
+ * thread writes whatever has accumulated and forces it to disk in one go, so turns that come in
+ * quickly share an fsync. A caller that must not go on before its turn is on disk waits for it
+ * with {@link #awaitDurable}, one that only needs the log to catch up eventually does not.
+ * <p>
+ * Compaction saves a snapshot and empties the log. Records carry their turn number, so recovery
+ * skips the ones a newer snapshot already covers, which keeps a crash in between harmless.
+ */
+public class TurnLog implements Closeable {
+    public static final File DEFAULT_FILE = new File("saves", "autosave.wal");
+    public static final int RECORD_BYTES = 8;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final FileChannel channel;
+    private final Object lock = new Object();
+    private ByteBuffer pending;   // records waiting for the committer, guarded by lock
+    private ByteBuffer writing;   // records the committer is writing out
+    private long appended;        // records appended so far, guarded by lock
+    private long durable;         // records forced to disk so far, guarded by lock
+    private IOException failure;  // the first write error, guarded by lock
+    private boolean closed;
+    private final Thread committer;
+    private final CRC32C crc = new CRC32C();
+
+    /**
+     * Opens a log and starts its committer. Records already in the file are kept.
+     *
+     * @param file the log file, created if it does not exist.
+     * @throws IOException if the file cannot be opened.
+     */
+    public TurnLog(File file) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Cannot create directory: " + parent);
+        }
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        channel.position(channel.size() - channel.size() % RECORD_BYTES); // drop a torn last record
+        this.pending = ByteBuffer.allocate(BUFFER_SIZE);
+        this.writing = ByteBuffer.allocate(BUFFER_SIZE);
+        this.committer = new Thread(this::commitLoop, "turn-log");
+        committer.setDaemon(true);
+        committer.start();
+    }
+
+    /**
+     * Appends a turn without waiting for it to reach the disk.
+     *
+     * @param turn the number of the turn, counted from the start of the game.
+     * @param action the action, as in {@link GameState#apply}.
+     * @param cardCode the card played or discarded, which recovery checks against the hand.
+     * @return the sequence number of the record, to pass to {@link #awaitDurable}.
+     * @throws IOException if an earlier write failed or the log is closed.
+     */
+    public long append(int turn, int action, int cardCode) throws IOException {
+        synchronized (lock) {
+            while (pending.remaining() < RECORD_BYTES && failure == null && !closed) {
+                waitOnLock(); // the committer is behind by a full buffer
+            }
+            checkUsable();
+            int start = pending.position();
+            pending.putInt(turn);
+            pending.put((byte) action);
+            pending.put((byte) cardCode);
+            crc.reset();
+            crc.update(pending.array(), start, 6);
+            pending.putShort((short) crc.getValue());
+            appended++;
+            lock.notifyAll();
+            return appended;
+        }
+    }
+
+    /**
+     * Waits until a record and every record before it are on disk.
+     *
+     * @param sequence the sequence number returned by {@link #append}.
+     * @throws IOException if writing the log failed.
+     */
+    public void awaitDurable(long sequence) throws IOException {
+        synchronized (lock) {
+            while (durable < sequence && failure == null) {
+                waitOnLock();
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    /**
+     * Empties the log once its records are on disk. Call it right after saving the snapshot that covers them.
+     * @throws IOException if the log cannot be truncated.
+     */
+    public void truncate() throws IOException {
+        synchronized (lock) {
+            while (durable < appended && failure == null) {
+                waitOnLock();
+            }
+            checkUsable();
+            channel.truncate(0);
+            channel.position(0);
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Writes out the remaining records, stops the committer and closes the file.
+     * @throws IOException if the last records cannot be written.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            lock.notifyAll();
+        }
+        try {
+            committer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+        synchronized (lock) {
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    private void commitLoop() {
+        while (true) {
+            long batchEnd;
+            synchronized (lock) {
+                while (pending.position() == 0 && !closed) {
+                    waitOnLock();
+                }
+                if (pending.position() == 0) {
+                    return; // closed and nothing left to write
+                }
+                ByteBuffer full = pending;
+                pending = writing;
+                writing = full;
+                batchEnd = appended;
+                lock.notifyAll(); // appenders waiting for room
+            }
+
+            IOException error = null;
+            try {
+                writing.flip();
+                while (writing.hasRemaining()) {
+                    channel.write(writing);
+                }
+                channel.force(false);
+            } catch (IOException e) {
+                error = e;
+            }
+            writing.clear();
+
+            synchronized (lock) {
+                if (error != null) {
+                    failure = error;
+                    lock.notifyAll();
+                    return;
+                }
+                durable = batchEnd;
+                lock.notifyAll();
+            }
+        }
+    }
+
+    private void checkUsable() throws IOException {
+        if (failure != null) {
+            throw failure;
+        }
+        if (closed) {
+            throw new IOException("Turn log is closed");
+        }
+    }
+
+    private void waitOnLock() {
+        try {
+            lock.wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ---------------------------------------------
+    // Recovery
+    // ---------------------------------------------
+
+    /**
+     * Rebuilds the last state of an unfinished game from its snapshot and the turns logged after it.
+     * Reading stops at the first damaged record or at a turn that does not fit the state.
+     *
+     * @param snapshotFile the last snapshot of the game.
+     * @param logFile the log written since, which may be missing.
+     * @return the recovered game, or null if there is no snapshot.
+     * @throws IOException if the snapshot or the log cannot be read.
+     */
+    public static GameSnapshot recover(File snapshotFile, File logFile) throws IOException {
+        if (!snapshotFile.exists()) {
+            return null;
+        }
+        GameSnapshot snapshot = GameSnapshot.load(snapshotFile);
+        if (!logFile.exists()) {
+            return snapshot;
+        }
+
+        GameState state = snapshot.getState();
+        ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(logFile.toPath()));
+        CRC32C crc = new CRC32C();
+        int replayed = 0;
+        while (in.remaining() >= RECORD_BYTES) {
+            int start = in.position();
+            int turn = in.getInt();
+            int action = in.get() & 0xFF;
+            int card = in.get() & 0xFF;
+            int check = in.getShort() & 0xFFFF;
+            crc.reset();
+            crc.update(in.array(), start, 6);
+            if (check != ((int) crc.getValue() & 0xFFFF)) {
+                System.err.println("Turn log damaged at record " + start / RECORD_BYTES + ", recovering up to there");
+                break;
+            }
+            if (turn < state.getTurn()) {
+                continue; // already in the snapshot
+            }
+            int player = state.getActivePlayer();
+            int slot = GameState.actionSlot(action);
+            if (turn != state.getTurn() || state.isTerminal()
+                    || slot >= state.getHandSize(player) || state.getHandCard(player, slot) != card) {
+                System.err.println("Turn log does not fit the game at turn " + turn + ", recovering up to there");
+                break;
+            }
+            state.apply(action);
+            replayed++;
+        }
+        System.out.println("Recovered game at turn " + state.getTurn() + " (" + replayed + " turns replayed from the log)");
+        return new GameSnapshot(snapshot.getSeed(), state.getTurn(), state);
+    }
+}
@@ -0,0 +1,157 @@
+package Network;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One socket served by an {@link EventLoop}.
+ * <p>
+ * Reading and writing happen on the loop's thread. Any thread may {@link #send} a frame: it is
+ * queued and the loop writes it out, so game logic never blocks on the network.
+ */
+public final class Connection {
+    private final SocketChannel channel;
+    private final EventLoop loop;
+    private final ByteBuffer in = ByteBuffer.allocate(2 + Protocol.MAX_FRAME);
+    private final Queue<ByteBuffer> out = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean flushQueued = new AtomicBoolean();
+    private final AtomicInteger queued = new AtomicInteger(); // frames in out, for senders that must not outrun a slow peer
+    private SelectionKey key;
+    private volatile Object attachment;
+    private volatile boolean closed;
+
+    Connection(SocketChannel channel, EventLoop loop) {
+        this.channel = channel;
+        this.loop = loop;
+    }
+
+    /**
+     * Queues a frame for sending. Frames are sent in the order they were queued.
+     * @param frame a frame built with {@link Protocol#begin} and {@link Protocol#finish}.
+     */
+    public void send(ByteBuffer frame) {
+        if (closed) {
+            return;
+        }
+        out.add(frame);
+        queued.incrementAndGet();
+        if (flushQueued.compareAndSet(false, true)) {
+            loop.execute(this::flush);
+        }
+    }
+
+    /**
+     * Closes the connection once the frames already queued have been handed to the socket.
+     */
+    public void close() {
+        loop.execute(() -> {
+            flush();
+            loop.closeConnection(this);
+        });
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Returns the number of frames queued and not yet written to the socket in full.
+     * @return the frames waiting.
+     */
+    public int getQueuedFrames() {
+        return queued.get();
+    }
+
+    /**
+     * Returns the object the owner of the connection tied to it, such as the match of a player.
+     * @return the attachment, or null.
+     */
+    public Object getAttachment() {
+        return attachment;
+    }
+
+    public void setAttachment(Object attachment) {
+        this.attachment = attachment;
+    }
+
+    public SocketAddress getRemoteAddress() {
+        try {
+            return channel.getRemoteAddress();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    SocketChannel getChannel() {
+        return channel;
+    }
+
+    void setKey(SelectionKey key) {
+        this.key = key;
+    }
+
+    void markClosed() {
+        closed = true;
+        out.clear();
+        queued.set(0);
+    }
+
+    /**
+     * Reads what the socket has and hands every complete frame to the handler.
+     * The payload passed on is only valid during the call.
+     *
+     * @return false if the peer closed the connection.
+     * @throws IOException if the socket fails or a frame is malformed.
+     */
+    boolean read(EventLoop.Handler handler) throws IOException {
+        int read = channel.read(in);
+        in.flip();
+        while (in.remaining() >= 2) {
+            int length = in.getShort(in.position()) & 0xFFFF;
+            if (length == 0 || length > Protocol.MAX_FRAME) {
+                throw new IOException("Bad frame length: " + length);
+            }
+            if (in.remaining() < 2 + length) {
+                break;
+            }
+            int start = in.position();
+            int type = in.get(start + 2) & 0xFF;
+            handler.onFrame(this, type, in.slice(start + 3, length - 1));
+            in.position(start + 2 + length);
+        }
+        in.compact();
+        return read >= 0;
+    }
+
+    /**
+     * Writes queued frames until the socket would block, and asks for a write event if it did.
+     */
+    void flush() {
+        flushQueued.set(false);
+        if (closed) {
+            return;
+        }
+        try {
+            ByteBuffer frame;
+            while ((frame = out.peek()) != null) {
+                channel.write(frame);
+                if (frame.hasRemaining()) {
+                    key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+                    return;
+                }
+                out.poll();
+                queued.decrementAndGet();
+            }
+            key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+        } catch (IOException e) {
+            loop.closeConnection(this);
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package Network;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A single thread that serves any number of sockets through one {@link Selector}.
+ * <p>
+ * The loop accepts connections, reads frames and hands them to its {@link Handler}, and writes
+ * the frames queued on each {@link Connection}. Handlers run on the loop's thread and must return
+ * quickly; slow work belongs on another thread, which then answers through {@link Connection#send}.
+ */
+public final class EventLoop implements Closeable {
+
+    /**
+     * Receives the events of the connections of a loop, on the loop's thread.
+     */
+    public interface Handler {
+        /**
+         * Called when a connection is accepted or established.
+         * @param connection the new connection.
+         */
+        void onOpen(Connection connection);
+
+        /**
+         * Called for every complete frame.
+         *
+         * @param connection the connection the frame came from.
+         * @param type the message type.
+         * @param payload the payload, only valid during the call.
+         */
+        void onFrame(Connection connection, int type, ByteBuffer payload);
+
+        /**
+         * Called once when a connection is closed, by either side.
+         * @param connection the closed connection.
+         */
+        void onClose(Connection connection);
+    }
+
+    private final Selector selector;
+    private final Handler handler;
+    private final Thread thread;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean wakeupPending = new AtomicBoolean();
+    private volatile boolean running;
+
+    /**
+     * Constructs a loop. Call {@link #start()} to run it.
+     *
+     * @param name the name of the loop's thread.
+     * @param handler the handler of the loop's connections.
+     * @throws IOException if the selector cannot be opened.
+     */
+    public EventLoop(String name, Handler handler) throws IOException {
+        this.selector = Selector.open();
+        this.handler = handler;
+        this.thread = new Thread(this::run, name);
+        thread.setDaemon(true);
+    }
+
+    public void start() {
+        running = true;
+        thread.start();
+    }
+
+    /**
+     * Accepts connections on a port.
+     *
+     * @param port the port, or 0 for any free port.
+     * @return the port bound.
+     * @throws IOException if the port cannot be bound.
+     */
+    public int listen(int port) throws IOException {
+        ServerSocketChannel server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(port), 1024);
+        server.configureBlocking(false);
+        execute(() -> {
+            try {
+                server.register(selector, SelectionKey.OP_ACCEPT);
+            } catch (IOException e) {
+                System.err.println("Cannot listen on port " + port + ": " + e.getMessage());
+            }
+        });
+        return server.socket().getLocalPort();
+    }
+
+    /**
+     * Connects to a server and serves the connection on this loop. Must not be called on the loop's thread.
+     *
+     * @param address the address of the server.
+     * @return the connection, already open.
+     * @throws IOException if the connection cannot be made.
+     */
+    public Connection connect(InetSocketAddress address) throws IOException {
+        SocketChannel channel = SocketChannel.open(address);
+        Connection connection = new Connection(channel, this);
+        CountDownLatch registered = new CountDownLatch(1);
+        execute(() -> {
+            register(connection);
+            registered.countDown();
+        });
+        try {
+            registered.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return connection;
+    }
+
+    /**
+     * Runs a task on the loop's thread.
+     * @param task the task.
+     */
+    public void execute(Runnable task) {
+        tasks.add(task);
+        if (Thread.currentThread() != thread && wakeupPending.compareAndSet(false, true)) {
+            selector.wakeup();
+        }
+    }
+
+    /**
+     * Stops the loop and closes every connection. Must not be called on the loop's thread.
+     */
+    @Override
+    public void close() {
+        running = false;
+        selector.wakeup();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        try {
+            while (running) {
+                // tasks queued by the loop's own thread do not wake the selector, so do not block on them
+                if (tasks.isEmpty()) {
+                    selector.select();
+                } else {
+                    selector.selectNow();
+                }
+                wakeupPending.set(false);
+                Runnable task;
+                while ((task = tasks.poll()) != null) {
+                    task.run();
+                }
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept((ServerSocketChannel) key.channel());
+                    } else {
+                        Connection connection = (Connection) key.attachment();
+                        if (key.isReadable()) {
+                            readFrom(connection);
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            connection.flush();
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Event loop " + thread.getName() + " failed: " + e.getMessage());
+        } finally {
+            // run what was queued before the loop stopped, such as the last frames of a closing connection
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                task.run();
+            }
+            for (SelectionKey key : new ArrayList<>(selector.keys())) {
+                if (key.attachment() instanceof Connection connection) {
+                    closeConnection(connection);
+                } else {
+                    try {
+                        key.channel().close();
+                    } catch (IOException e) {
+                        // closing anyway
+                    }
+                }
+            }
+            try {
+                selector.close();
+            } catch (IOException e) {
+                System.err.println("Cannot close selector: " + e.getMessage());
+            }
+        }
+    }
+
+    private void accept(ServerSocketChannel server) {
+        try {
+            SocketChannel channel;
+            while ((channel = server.accept()) != null) {
+                register(new Connection(channel, this));
+            }
+        } catch (IOException e) {
+            System.err.println("Cannot accept connection: " + e.getMessage()); // e.g. out of file descriptors
+        }
+    }
+
+    private void register(Connection connection) {
+        try {
+            SocketChannel channel = connection.getChannel();
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            connection.setKey(channel.register(selector, SelectionKey.OP_READ, connection));
+            handler.onOpen(connection);
+        } catch (IOException e) {
+            System.err.println("Cannot register connection: " + e.getMessage());
+            closeConnection(connection);
+        }
+    }
+
+    private void readFrom(Connection connection) {
+        try {
+            if (!connection.read(handler)) {
+                closeConnection(connection);
+            }
+        } catch (IOException e) {
+            closeConnection(connection);
+        }
+    }
+
+    /**
+     * Closes a connection and tells the handler, once. Runs on the loop's thread.
+     */
+    void closeConnection(Connection connection) {
+        if (connection.isClosed()) {
+            return;
+        }
+        connection.markClosed();
+        try {
+            connection.getChannel().close();
+        } catch (IOException e) {
+            // the connection is gone either way
+        }
+        handler.onClose(connection);
+    }
+}
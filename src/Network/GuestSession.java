@@ -0,0 +1,173 @@
+package Network;
+
+import Model.GameState;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * The guest's end of a game hosted by a {@link HostSession}.
+ * <p>
+ * The guest sends the path of their Theseus and then one action per turn, and draws the board
+ * from the views the host sends back. The time from an action to the view that answers it is
+ * kept as the round trip of the turn.
+ */
+public class GuestSession implements EventLoop.Handler, Closeable {
+
+    /**
+     * Receives what the host sends, on the session's network thread.
+     */
+    public interface Listener {
+        /**
+         * Called once the host has seated the guest.
+         * @param seat the guest's seat, 0 or 1.
+         */
+        void onJoined(int seat);
+
+        /**
+         * Called with the game as the guest may see it, at the start and after every turn.
+         * @param state the game, hidden information replaced as by {@link GameState#observedBy}.
+         */
+        void onView(GameState state);
+
+        /**
+         * Called when the host refused an action.
+         * @param reason one of the reasons of {@link Protocol#REJECTED}.
+         */
+        void onRejected(int reason);
+
+        /**
+         * Called when the game is over.
+         * @param result the result for the guest: 1 win, 0 tie, -1 loss.
+         */
+        void onGameOver(int result);
+
+        /**
+         * Called when the connection to the host is lost.
+         */
+        void onLeave();
+    }
+
+    private final EventLoop loop;
+    private final Listener listener;
+    private final Connection connection;
+    private volatile long actionSentAt; // System.nanoTime() of the action waiting for its view, 0 if none
+    private volatile long lastRoundTrip;
+    private volatile boolean closing;
+
+    private GuestSession(InetSocketAddress address, Listener listener) throws IOException {
+        this.listener = listener;
+        this.loop = new EventLoop("guest-session", this);
+        loop.start();
+        try {
+            this.connection = loop.connect(address);
+        } catch (IOException e) {
+            loop.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Connects to a host. Call {@link #join()} to take the seat.
+     *
+     * @param address the address of the host.
+     * @param listener the receiver of what the host sends.
+     * @return the session.
+     * @throws IOException if the host cannot be reached.
+     */
+    public static GuestSession connect(InetSocketAddress address, Listener listener) throws IOException {
+        return new GuestSession(address, listener);
+    }
+
+    /**
+     * Asks the host for the seat; the answer arrives as {@link Listener#onJoined}.
+     */
+    public void join() {
+        connection.send(Protocol.frame(Protocol.JOIN, 0));
+    }
+
+    /**
+     * Chooses the path of the guest's Theseus. The other pawns go on the remaining paths.
+     * @param theseusPath the path, 0 to 3.
+     */
+    public void place(int theseusPath) {
+        connection.send(Protocol.frame(Protocol.PLACE, theseusPath));
+    }
+
+    /**
+     * Sends the action of the guest's turn.
+     * @param action the action, as in {@link GameState#apply}.
+     */
+    public void sendAction(int action) {
+        actionSentAt = System.nanoTime();
+        connection.send(Protocol.frame(Protocol.ACTION, action));
+    }
+
+    /**
+     * Returns the time from the last answered action to the view that answered it.
+     * @return the round trip in nanoseconds, 0 before the first one.
+     */
+    public long getLastRoundTripNanos() {
+        return lastRoundTrip;
+    }
+
+    /**
+     * Leaves the game. Must not be called from a {@link Listener}.
+     */
+    @Override
+    public void close() {
+        closing = true;
+        connection.close();
+        loop.close();
+    }
+
+    // ---------------------------------------------
+    // Events of the loop
+    // ---------------------------------------------
+
+    @Override
+    public void onOpen(Connection connection) {
+        // the connection is made by the constructor
+    }
+
+    @Override
+    public void onFrame(Connection connection, int type, ByteBuffer payload) {
+        switch (type) {
+            case Protocol.JOINED -> {
+                payload.getInt(); // the host runs a single game
+                listener.onJoined(payload.get());
+            }
+            case Protocol.VIEW -> {
+                long sentAt = actionSentAt;
+                if (sentAt != 0) {
+                    lastRoundTrip = System.nanoTime() - sentAt;
+                    actionSentAt = 0;
+                }
+                GameState state;
+                try {
+                    state = GameState.readFrom(payload);
+                } catch (IOException | BufferUnderflowException e) {
+                    System.err.println("Invalid view from the host: " + e.getMessage());
+                    return;
+                }
+                listener.onView(state);
+            }
+            case Protocol.REJECTED -> {
+                actionSentAt = 0;
+                listener.onRejected(payload.get());
+            }
+            case Protocol.GAME_OVER -> listener.onGameOver(payload.get());
+            default -> System.err.println("Unknown message from the host: " + type);
+        }
+    }
+
+    @Override
+    public void onClose(Connection connection) {
+        if (!closing) {
+            listener.onLeave();
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package Network;
+
+import Model.GameState;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * The host's end of a game between two people on different machines.
+ * <p>
+ * The host runs the game and is the only side that knows all of it. It waits for one guest, who
+ * chooses the path of their Theseus and from then on only sends the cards they play. The host
+ * checks every action, plays it, and answers with the game as the guest may see it.
+ */
+public class HostSession implements EventLoop.Handler, Closeable {
+
+    /**
+     * Receives what the guest does, on the session's network thread.
+     */
+    public interface Listener {
+        /**
+         * Called when the guest sends an action. The host must check it, as the guest may send anything.
+         * @param action the action, as in {@link GameState#apply}.
+         */
+        void onAction(int action);
+
+        /**
+         * Called when the guest leaves or the connection is lost.
+         */
+        void onLeave();
+    }
+
+    private final EventLoop loop;
+    private final int guestSeat;
+    private final int port;
+    private final CountDownLatch placed = new CountDownLatch(1);
+    private volatile Connection guest;
+    private volatile int theseusPath = -1;
+    private volatile Listener listener;
+
+    private HostSession(int port, int guestSeat) throws IOException {
+        this.guestSeat = guestSeat;
+        this.loop = new EventLoop("host-session", this);
+        loop.start();
+        this.port = loop.listen(port);
+    }
+
+    /**
+     * Starts waiting for a guest.
+     *
+     * @param port the port, or 0 for any free port.
+     * @param guestSeat the seat of the guest, 0 or 1.
+     * @return the session.
+     * @throws IOException if the port cannot be bound.
+     */
+    public static HostSession open(int port, int guestSeat) throws IOException {
+        return new HostSession(port, guestSeat);
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public int getGuestSeat() {
+        return guestSeat;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Waits until a guest has joined and chosen the path of their Theseus.
+     *
+     * @return the path of the guest's Theseus, or -1 if the guest left first.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    public int awaitPlacement() throws InterruptedException {
+        placed.await();
+        return theseusPath;
+    }
+
+    /**
+     * Sends the guest the game as they may see it.
+     * @param state the game, with the player to move next as its active player.
+     */
+    public void sendView(GameState state) {
+        Connection connection = guest;
+        if (connection == null) {
+            return;
+        }
+        ByteBuffer frame = Protocol.begin(Protocol.VIEW);
+        state.observedBy(guestSeat).writeTo(frame);
+        connection.send(Protocol.finish(frame));
+    }
+
+    /**
+     * Tells the guest the game is over.
+     * @param result the result for the guest: 1 win, 0 tie, -1 loss.
+     */
+    public void sendGameOver(int result) {
+        Connection connection = guest;
+        if (connection != null) {
+            connection.send(Protocol.frame(Protocol.GAME_OVER, result));
+        }
+    }
+
+    /**
+     * Tells the guest their last action was refused.
+     * @param reason one of the reasons of {@link Protocol#REJECTED}.
+     */
+    public void reject(int reason) {
+        Connection connection = guest;
+        if (connection != null) {
+            connection.send(Protocol.frame(Protocol.REJECTED, reason));
+        }
+    }
+
+    /**
+     * Closes the connection once what was sent has gone out, and stops listening.
+     * Must not be called from a {@link Listener}.
+     */
+    @Override
+    public void close() {
+        Connection connection = guest;
+        if (connection != null) {
+            connection.close();
+        }
+        loop.close();
+    }
+
+    // ---------------------------------------------
+    // Events of the loop
+    // ---------------------------------------------
+
+    @Override
+    public void onOpen(Connection connection) {
+        // a connection becomes the guest when it asks to join
+    }
+
+    @Override
+    public void onFrame(Connection connection, int type, ByteBuffer payload) {
+        if (type == Protocol.JOIN) {
+            if (guest != null) {
+                connection.send(Protocol.frame(Protocol.REJECTED, Protocol.NOT_IN_GAME)); // the game is full
+                connection.close();
+                return;
+            }
+            guest = connection;
+            ByteBuffer frame = Protocol.begin(Protocol.JOINED);
+            frame.putInt(0);
+            frame.put((byte) guestSeat);
+            connection.send(Protocol.finish(frame));
+            System.out.println("Player joined from " + connection.getRemoteAddress());
+            return;
+        }
+        if (connection != guest) {
+            connection.send(Protocol.frame(Protocol.REJECTED, Protocol.NOT_IN_GAME));
+            return;
+        }
+
+        switch (type) {
+            case Protocol.PLACE -> {
+                int path = payload.hasRemaining() ? payload.get() : -1;
+                if (theseusPath >= 0 || path < 0 || path >= GameState.PATHS) {
+                    connection.send(Protocol.frame(Protocol.REJECTED, Protocol.INVALID_ACTION));
+                    return;
+                }
+                theseusPath = path;
+                placed.countDown();
+            }
+            case Protocol.ACTION -> {
+                Listener current = listener;
+                if (current == null || !payload.hasRemaining()) {
+                    connection.send(Protocol.frame(Protocol.REJECTED, Protocol.NOT_YOUR_TURN));
+                } else {
+                    current.onAction(payload.get() & 0xFF);
+                }
+            }
+            default -> connection.send(Protocol.frame(Protocol.REJECTED, Protocol.UNKNOWN_MESSAGE));
+        }
+    }
+
+    @Override
+    public void onClose(Connection connection) {
+        if (connection != guest) {
+            return;
+        }
+        System.out.println("Player left");
+        placed.countDown(); // in case the host is still waiting for the placement
+        Listener current = listener;
+        if (current != null) {
+            current.onLeave();
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package Network;
+
+import Model.GameState;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loads a {@link MatchServer} with idle and active matches and reports memory, throughput and latency.
+ * <p>
+ * Idle matches are seated first and then left alone. Active matches are played by random clients
+ * as fast as the server answers; every finished match is replaced by a new one. The latency of a
+ * turn is the time from sending an action to receiving the state that follows it. Spectators
+ * follow one player of every active match and move on with them to their next match; their
+ * latency is the time from that player's action to the spectator's update.
+ * <p>
+ * Usage: {@code LoadGenerator [idleMatches] [activeMatches] [seconds] [spectatorsPerMatch] [host:port]}.
+ * Without an address an in-process server is started, and the heap figure then covers both sides of every match.
+ */
+public class LoadGenerator implements EventLoop.Handler {
+    private static final int LATENCY_BUCKETS = 100_000; // microseconds
+
+    private final SplittableRandom random = new SplittableRandom(42); // loop thread only
+    private final long[] latencyCounts = new long[LATENCY_BUCKETS + 1]; // loop thread only
+    private final long[] spectatorLatencyCounts = new long[LATENCY_BUCKETS + 1]; // loop thread only
+    private final AtomicInteger seated = new AtomicInteger();
+    private volatile boolean measuring;
+    private volatile boolean stopping;
+    private long turns;
+    private long games;
+    private long rejected;
+    private long spectatorUpdates;
+    private long spectatorBoards;
+    private long spectatorBytes;
+
+    /**
+     * The state a client keeps for its connection.
+     */
+    private static final class Client {
+        final boolean active;
+        final Client watched; // for a spectator, the player whose matches it follows
+        final SpectatorBoard board;
+        final List<Connection> spectators = new ArrayList<>();
+        int matchId = -1;
+        long sentAt;
+        int sentTurn; // the turn the action sent at sentAt plays
+
+        Client(boolean active) {
+            this.active = active;
+            this.watched = null;
+            this.board = null;
+        }
+
+        Client(Client watched) {
+            this.active = false;
+            this.watched = watched;
+            this.board = new SpectatorBoard();
+        }
+    }
+
+    @Override
+    public void onOpen(Connection connection) {
+        // the client is attached by the code that opened the connection
+    }
+
+    @Override
+    public void onFrame(Connection connection, int type, ByteBuffer payload) {
+        Client client = (Client) connection.getAttachment();
+        if (client.watched != null) {
+            onSpectatorFrame(client, type, payload);
+            return;
+        }
+        switch (type) {
+            case Protocol.STATE -> {
+                SeatView view = SeatView.read(payload);
+                if (view.getTurn() == 0 && view.getSeat() == 0) {
+                    seated.incrementAndGet();
+                }
+                if (client.sentAt != 0) {
+                    record(System.nanoTime() - client.sentAt);
+                    client.sentAt = 0;
+                }
+                if (client.active && view.isMyTurn() && view.getHandSize() > 0) {
+                    int slot = random.nextInt(view.getHandSize());
+                    int kind = random.nextInt(4) == 0 ? GameState.DISCARD : GameState.PLAY_AND_OPEN;
+                    client.sentAt = System.nanoTime();
+                    client.sentTurn = view.getTurn() + 1;
+                    connection.send(Protocol.frame(Protocol.ACTION, GameState.action(slot, kind)));
+                }
+            }
+            case Protocol.GAME_OVER -> {
+                if (measuring) {
+                    games++;
+                }
+                client.sentAt = 0;
+                connection.send(Protocol.frame(Protocol.JOIN, 0));
+            }
+            case Protocol.REJECTED -> {
+                rejected++;
+                client.sentAt = 0;
+            }
+            case Protocol.JOINED -> {
+                client.matchId = payload.getInt();
+                for (Connection spectator : client.spectators) {
+                    watch(spectator, client.matchId);
+                }
+            }
+            default -> {
+                // nothing else is sent to players
+            }
+        }
+    }
+
+    private void onSpectatorFrame(Client client, int type, ByteBuffer payload) {
+        if (measuring) {
+            spectatorBytes += 3 + payload.remaining();
+        }
+        switch (type) {
+            case Protocol.BOARD -> {
+                client.board.readBoard(payload);
+                if (measuring) {
+                    spectatorBoards++;
+                }
+            }
+            case Protocol.DELTA -> {
+                if (!client.board.readDelta(payload)) {
+                    System.err.println("Spectator missed a turn");
+                    return;
+                }
+                Client watched = client.watched;
+                if (measuring) {
+                    spectatorUpdates++;
+                    if (watched.sentAt != 0 && client.board.getTurn() == watched.sentTurn) {
+                        long nanos = System.nanoTime() - watched.sentAt;
+                        spectatorLatencyCounts[(int) Math.min(nanos / 1000, LATENCY_BUCKETS)]++;
+                    }
+                }
+            }
+            default -> {
+                // GAME_OVER, or REJECTED for a match that ended first: the player's next JOINED moves the spectator on
+            }
+        }
+    }
+
+    private static void watch(Connection spectator, int matchId) {
+        ByteBuffer frame = Protocol.begin(Protocol.WATCH);
+        frame.putInt(matchId);
+        spectator.send(Protocol.finish(frame));
+    }
+
+    @Override
+    public void onClose(Connection connection) {
+        if (!stopping) {
+            System.err.println("Connection closed by the server");
+        }
+    }
+
+    private void record(long nanos) {
+        if (!measuring) {
+            return;
+        }
+        turns++;
+        latencyCounts[(int) Math.min(nanos / 1000, LATENCY_BUCKETS)]++;
+    }
+
+    private static long percentile(long[] counts, double fraction) {
+        long total = Arrays.stream(counts).sum();
+        long seen = 0;
+        for (int micros = 0; micros <= LATENCY_BUCKETS; micros++) {
+            seen += counts[micros];
+            if (seen >= total * fraction) {
+                return micros;
+            }
+        }
+        return LATENCY_BUCKETS;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int idleMatches = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int activeMatches = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        int spectatorsPerMatch = args.length > 3 ? Integer.parseInt(args[3]) : 0;
+
+        MatchServer server = null;
+        InetSocketAddress address;
+        if (args.length > 4) {
+            String[] hostPort = args[4].split(":");
+            address = new InetSocketAddress(hostPort[0], Integer.parseInt(hostPort[1]));
+        } else {
+            server = new MatchServer(Math.max(2, Runtime.getRuntime().availableProcessors()));
+            address = new InetSocketAddress("127.0.0.1", server.start(0));
+        }
+
+        LoadGenerator generator = new LoadGenerator();
+        EventLoop loop = new EventLoop("load-generator", generator);
+        loop.start();
+        List<Connection> connections = new ArrayList<>();
+
+        long heapBefore = usedHeap();
+        seat(loop, address, idleMatches, false, connections, generator);
+        long heapAfter = usedHeap();
+        System.out.printf("Idle matches: %d, heap per match: %d bytes%n",
+                idleMatches, idleMatches > 0 ? (heapAfter - heapBefore) / idleMatches : 0);
+
+        seat(loop, address, activeMatches, true, connections, generator);
+        if (spectatorsPerMatch > 0) {
+            addSpectators(loop, address, spectatorsPerMatch, connections);
+            Thread.sleep(500); // let every spectator get its first board
+        }
+        loop.execute(() -> generator.measuring = true);
+        Thread.sleep(seconds * 1000L);
+        loop.execute(() -> {
+            generator.measuring = false;
+            System.out.printf("Active matches: %d, turns: %d (%.0f/s), games finished: %d, rejected actions: %d%n",
+                    activeMatches, generator.turns, generator.turns / (double) seconds, generator.games, generator.rejected);
+            System.out.printf("Turn latency: p50 %d us, p99 %d us, p99.9 %d us%n",
+                    percentile(generator.latencyCounts, 0.5), percentile(generator.latencyCounts, 0.99),
+                    percentile(generator.latencyCounts, 0.999));
+            if (spectatorsPerMatch > 0) {
+                System.out.printf("Spectators: %d, updates: %d (%.0f/s), whole boards: %d, bytes per update: %.1f%n",
+                        spectatorsPerMatch * activeMatches, generator.spectatorUpdates, generator.spectatorUpdates / (double) seconds,
+                        generator.spectatorBoards, generator.spectatorBytes / (double) Math.max(1, generator.spectatorUpdates + generator.spectatorBoards));
+                System.out.printf("Spectator latency: p50 %d us, p99 %d us, p99.9 %d us%n",
+                        percentile(generator.spectatorLatencyCounts, 0.5), percentile(generator.spectatorLatencyCounts, 0.99),
+                        percentile(generator.spectatorLatencyCounts, 0.999));
+            }
+        });
+        Thread.sleep(200);
+
+        generator.stopping = true;
+        for (Connection connection : connections) {
+            connection.close();
+        }
+        loop.close();
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    /**
+     * Opens two clients per match, seats them and waits until every match has started.
+     */
+    private static void seat(EventLoop loop, InetSocketAddress address, int matches, boolean active,
+                             List<Connection> connections, LoadGenerator generator) throws IOException, InterruptedException {
+        int target = generator.seated.get() + matches;
+        for (int i = 0; i < 2 * matches; i++) {
+            Connection connection = loop.connect(address);
+            connection.setAttachment(new Client(active));
+            connection.send(Protocol.frame(Protocol.JOIN, 0));
+            connections.add(connection);
+        }
+        while (generator.seated.get() < target) {
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Opens spectators for one player of every active match and starts them watching.
+     */
+    private static void addSpectators(EventLoop loop, InetSocketAddress address, int perMatch,
+                                      List<Connection> connections) throws IOException {
+        List<Connection> players = new ArrayList<>();
+        for (Connection connection : connections) {
+            if (((Client) connection.getAttachment()).active) {
+                players.add(connection);
+            }
+        }
+        for (int p = 0; p < players.size(); p += 2) {
+            Client watched = (Client) players.get(p).getAttachment();
+            for (int i = 0; i < perMatch; i++) {
+                Connection spectator = loop.connect(address);
+                spectator.setAttachment(new Client(watched));
+                connections.add(spectator);
+                loop.execute(() -> {
+                    watched.spectators.add(spectator);
+                    watch(spectator, watched.matchId);
+                });
+            }
+        }
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
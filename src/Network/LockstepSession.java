@@ -0,0 +1,241 @@
+package Network;
+
+import Model.GameSnapshot;
+import Model.GameState;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One end of a lockstep game between two machines.
+ * <p>
+ * Both peers start from the same snapshot and run the same rules, so only the actions have to
+ * travel: every turn is one TURN frame of 8 bytes, the action and the low half of the hash of
+ * the game after it. A peer whose own hash differs asks for the whole game again with RESYNC.
+ * The host is the peer that listens and sends the first snapshot; otherwise both ends are alike.
+ */
+public class LockstepSession implements EventLoop.Handler, Closeable {
+
+    /**
+     * Receives what the other peer sends, on the session's network thread.
+     */
+    public interface Listener {
+        /**
+         * Called on the host when the other peer has joined. The host answers with a snapshot.
+         */
+        void onPeerJoined();
+
+        /**
+         * Called when the other peer has played a turn.
+         *
+         * @param action the action, as in {@link GameState#apply}.
+         * @param hash the low half of {@link GameState#lockstepHash()} after the action on the other peer.
+         */
+        void onTurn(int action, int hash);
+
+        /**
+         * Called on the host when the other peer has lost track of the game.
+         */
+        void onResyncRequest();
+
+        /**
+         * Called with the whole game, at the start and after a resync.
+         * @param snapshot the game.
+         */
+        void onSnapshot(GameSnapshot snapshot);
+
+        /**
+         * Called when the connection to the other peer is lost.
+         */
+        void onLeave();
+    }
+
+    private final EventLoop loop;
+    private final Listener listener;
+    private final boolean host;
+    private final AtomicLong bytesSent = new AtomicLong();
+    private volatile Connection peer;
+    private volatile int port;
+    private volatile boolean closing;
+
+    private LockstepSession(Listener listener, boolean host) throws IOException {
+        this.listener = listener;
+        this.host = host;
+        this.loop = new EventLoop(host ? "lockstep-host" : "lockstep-guest", this);
+        loop.start();
+    }
+
+    /**
+     * Starts waiting for the other peer.
+     *
+     * @param port the port, or 0 for any free port.
+     * @param listener the receiver of what the other peer sends.
+     * @return the session.
+     * @throws IOException if the port cannot be bound.
+     */
+    public static LockstepSession host(int port, Listener listener) throws IOException {
+        LockstepSession session = new LockstepSession(listener, true);
+        try {
+            session.port = session.loop.listen(port);
+        } catch (IOException e) {
+            session.loop.close();
+            throw e;
+        }
+        return session;
+    }
+
+    /**
+     * Joins a peer that hosts with {@link #host}. The game arrives as {@link Listener#onSnapshot}.
+     *
+     * @param address the address of the host.
+     * @param listener the receiver of what the host sends.
+     * @return the session.
+     * @throws IOException if the host cannot be reached.
+     */
+    public static LockstepSession join(InetSocketAddress address, Listener listener) throws IOException {
+        LockstepSession session = new LockstepSession(listener, false);
+        try {
+            session.peer = session.loop.connect(address);
+        } catch (IOException e) {
+            session.loop.close();
+            throw e;
+        }
+        session.send(Protocol.begin(Protocol.JOIN));
+        return session;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public boolean isHost() {
+        return host;
+    }
+
+    /**
+     * Returns the number of bytes sent to the other peer so far, frames included.
+     * @return the bytes sent.
+     */
+    public long getBytesSent() {
+        return bytesSent.get();
+    }
+
+    /**
+     * Sends a turn played at this end.
+     *
+     * @param action the action, as in {@link GameState#apply}.
+     * @param hash {@link GameState#lockstepHash()} after the action; only its low half is sent.
+     */
+    public void sendTurn(int action, long hash) {
+        ByteBuffer frame = Protocol.begin(Protocol.TURN);
+        frame.put((byte) action);
+        frame.putInt((int) hash);
+        send(frame);
+    }
+
+    /**
+     * Asks the host for the whole game, after the hashes disagreed.
+     */
+    public void requestResync() {
+        send(Protocol.begin(Protocol.RESYNC));
+    }
+
+    /**
+     * Sends the whole game, which replaces the game of the other peer.
+     * @param snapshot the game.
+     */
+    public void sendSnapshot(GameSnapshot snapshot) {
+        ByteBuffer frame = Protocol.begin(Protocol.SNAPSHOT);
+        snapshot.write(frame);
+        send(frame);
+    }
+
+    /**
+     * Leaves the game. Must not be called from a {@link Listener}.
+     */
+    @Override
+    public void close() {
+        closing = true;
+        Connection connection = peer;
+        if (connection != null) {
+            connection.close();
+        }
+        loop.close();
+    }
+
+    private void send(ByteBuffer frame) {
+        Connection connection = peer;
+        if (connection == null) {
+            return;
+        }
+        frame = Protocol.finish(frame);
+        bytesSent.addAndGet(frame.remaining());
+        connection.send(frame);
+    }
+
+    // ---------------------------------------------
+    // Events of the loop
+    // ---------------------------------------------
+
+    @Override
+    public void onOpen(Connection connection) {
+        // on the host a connection becomes the peer when it asks to join
+    }
+
+    @Override
+    public void onFrame(Connection connection, int type, ByteBuffer payload) {
+        if (type == Protocol.JOIN && host) {
+            if (peer != null) {
+                connection.send(Protocol.frame(Protocol.REJECTED, Protocol.NOT_IN_GAME)); // the game is full
+                connection.close();
+                return;
+            }
+            peer = connection;
+            System.out.println("Player joined from " + connection.getRemoteAddress());
+            listener.onPeerJoined();
+            return;
+        }
+        if (connection != peer) {
+            connection.send(Protocol.frame(Protocol.REJECTED, Protocol.NOT_IN_GAME));
+            return;
+        }
+
+        switch (type) {
+            case Protocol.TURN -> {
+                if (payload.remaining() < 5) {
+                    System.err.println("Invalid turn from the other player");
+                    return;
+                }
+                int action = payload.get() & 0xFF;
+                listener.onTurn(action, payload.getInt());
+            }
+            case Protocol.RESYNC -> {
+                if (host) {
+                    listener.onResyncRequest();
+                }
+            }
+            case Protocol.SNAPSHOT -> {
+                GameSnapshot snapshot;
+                try {
+                    snapshot = GameSnapshot.read(payload);
+                } catch (IOException e) {
+                    System.err.println("Invalid snapshot from the other player: " + e.getMessage());
+                    return;
+                }
+                listener.onSnapshot(snapshot);
+            }
+            case Protocol.REJECTED -> System.err.println("The host refused the connection: " + payload.get());
+            default -> System.err.println("Unknown message from the other player: " + type);
+        }
+    }
+
+    @Override
+    public void onClose(Connection connection) {
+        if (connection == peer && !closing) {
+            listener.onLeave();
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package Network;
+
+import Model.GameState;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * One game hosted by a {@link MatchServer}.
+ * <p>
+ * A match is a state machine (waiting for players, playing, over) driven by events: the second
+ * player joining, an action, a player leaving. Events are queued on the match and processed in
+ * order by whichever executor thread picks the match up, never by two threads at once, so a
+ * match needs no thread of its own and costs nothing while nobody moves.
+ */
+final class Match implements Runnable {
+    private static final int START = 0;
+    private static final int ACTION = 1;
+    private static final int LEAVE = 2;
+    private static final int WATCH = 3;
+
+    private enum Phase { WAITING, PLAYING, OVER }
+
+    private final int id;
+    private final long seed;
+    private final MatchServer server;
+    private final Executor executor;
+    private final Connection[] seats = new Connection[GameState.PLAYERS];
+    private final Queue<int[]> events = new ConcurrentLinkedQueue<>(); // {kind, seat, value}
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final SpectatorFeed spectators = new SpectatorFeed();
+    private Phase phase = Phase.WAITING;
+    private GameState state;
+
+    Match(int id, long seed, MatchServer server, Executor executor) {
+        this.id = id;
+        this.seed = seed;
+        this.server = server;
+        this.executor = executor;
+    }
+
+    int getId() {
+        return id;
+    }
+
+    /**
+     * Seats a player. Called by the server's loop thread, which also decides when the match is full.
+     *
+     * @param seat the seat.
+     * @param connection the player's connection.
+     */
+    void seat(int seat, Connection connection) {
+        seats[seat] = connection;
+        connection.setAttachment(this);
+        ByteBuffer frame = Protocol.begin(Protocol.JOINED);
+        frame.putInt(id);
+        frame.put((byte) seat);
+        connection.send(Protocol.finish(frame));
+        if (seat == GameState.PLAYERS - 1) {
+            post(START, seat, 0);
+        }
+    }
+
+    void postAction(Connection connection, int action) {
+        post(ACTION, seatOf(connection), action);
+    }
+
+    void postLeave(Connection connection) {
+        post(LEAVE, seatOf(connection), 0);
+    }
+
+    /**
+     * Adds a spectator, who is sent the board once the match has started and every change after.
+     * @param connection the spectator's connection.
+     */
+    void postWatch(Connection connection) {
+        spectators.add(connection);
+        post(WATCH, -1, 0);
+    }
+
+    private int seatOf(Connection connection) {
+        return seats[0] == connection ? 0 : 1;
+    }
+
+    private void post(int kind, int seat, int value) {
+        events.add(new int[]{kind, seat, value});
+        if (scheduled.compareAndSet(false, true)) {
+            executor.execute(this);
+        }
+    }
+
+    /**
+     * Processes the queued events, then gives the thread back.
+     */
+    @Override
+    public void run() {
+        int[] event;
+        while ((event = events.poll()) != null) {
+            switch (event[0]) {
+                case START -> start();
+                case ACTION -> act(event[1], event[2]);
+                case LEAVE -> leave(event[1]);
+                case WATCH -> {
+                    if (phase == Phase.OVER) {
+                        spectators.reject();
+                    } else {
+                        spectators.admit();
+                    }
+                }
+                default -> throw new IllegalStateException("Unknown event: " + event[0]);
+            }
+        }
+        scheduled.set(false);
+        // an event may have been posted after the last poll but before the flag was cleared
+        if (!events.isEmpty() && scheduled.compareAndSet(false, true)) {
+            executor.execute(this);
+        }
+    }
+
+    private void start() {
+        if (phase != Phase.WAITING) {
+            return;
+        }
+        state = GameState.newGame(seed);
+        phase = Phase.PLAYING;
+        server.matchStarted();
+        sendState();
+        spectators.publish(state);
+    }
+
+    private void act(int seat, int action) {
+        if (phase != Phase.PLAYING) {
+            if (seats[seat] != null) {
+                seats[seat].send(Protocol.frame(Protocol.REJECTED, Protocol.NOT_IN_GAME));
+            } // otherwise the match ended while the action was on its way, and GAME_OVER already told the player
+            return;
+        }
+        if (seat != state.getActivePlayer()) {
+            seats[seat].send(Protocol.frame(Protocol.REJECTED, Protocol.NOT_YOUR_TURN));
+            return;
+        }
+        if (action < 0 || action >= GameState.MAX_ACTIONS || GameState.actionSlot(action) >= state.getHandSize(seat)) {
+            seats[seat].send(Protocol.frame(Protocol.REJECTED, Protocol.INVALID_ACTION));
+            return;
+        }
+
+        state.apply(action);
+        server.turnPlayed();
+        sendState();
+        spectators.publish(state);
+        if (state.isTerminal()) {
+            int result = state.getResult();
+            finish(result, -result);
+        }
+    }
+
+    private void leave(int seat) {
+        if (phase == Phase.PLAYING) {
+            // the player who stays wins by forfeit
+            int other = 1 - seat;
+            seats[seat] = null;
+            finish(other == 0 ? 1 : -1, other == 1 ? 1 : -1);
+        } else if (phase == Phase.WAITING) {
+            phase = Phase.OVER;
+            spectators.reject();
+        }
+    }
+
+    private void sendState() {
+        for (int seat = 0; seat < seats.length; seat++) {
+            if (seats[seat] != null) {
+                ByteBuffer frame = Protocol.begin(Protocol.STATE);
+                Protocol.writeView(state, seat, frame);
+                seats[seat].send(Protocol.finish(frame));
+            }
+        }
+    }
+
+    /**
+     * Ends the match and frees the players to join another one.
+     */
+    private void finish(int resultSeat0, int resultSeat1) {
+        phase = Phase.OVER;
+        int[] results = {resultSeat0, resultSeat1};
+        for (int seat = 0; seat < seats.length; seat++) {
+            if (seats[seat] != null) {
+                seats[seat].setAttachment(null);
+                seats[seat].send(Protocol.frame(Protocol.GAME_OVER, results[seat]));
+                seats[seat] = null;
+            }
+        }
+        spectators.finish(resultSeat0);
+        state = null;
+        server.matchFinished(this);
+    }
+}
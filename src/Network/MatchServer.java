@@ -0,0 +1,192 @@
+package Network;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hosts any number of independent matches in one process.
+ * <p>
+ * One {@link EventLoop} thread owns every socket and pairs players in the order they ask to join.
+ * The matches themselves run on a small fixed pool of worker threads: a match only occupies a
+ * worker while it processes an event, so thousands of idle matches cost their memory and nothing
+ * else. Every match plays by {@link Model.GameState}, which also validates the actions.
+ * <p>
+ * Any connection may watch a match by its id; see {@link SpectatorFeed} for how one match serves
+ * thousands of spectators.
+ */
+public class MatchServer implements EventLoop.Handler, Closeable {
+    private final EventLoop loop;
+    private final ExecutorService workers;
+    private final SplittableRandom seeds = new SplittableRandom(); // used by the loop thread only
+    private final Map<Integer, Match> matches = new HashMap<>(); // the matches that have not finished, loop thread only
+    private Match waiting; // the match with one seat taken, loop thread only
+    private int nextMatchId;
+
+    private final AtomicInteger connections = new AtomicInteger();
+    private final AtomicInteger activeMatches = new AtomicInteger();
+    private final AtomicLong matchesPlayed = new AtomicLong();
+    private final AtomicLong turnsPlayed = new AtomicLong();
+
+    /**
+     * Constructs a server with the given number of worker threads.
+     *
+     * @param workerThreads the number of threads that run the matches.
+     * @throws IOException if the event loop cannot be opened.
+     */
+    public MatchServer(int workerThreads) throws IOException {
+        this.loop = new EventLoop("match-server", this);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(workerThreads, task -> {
+            Thread thread = new Thread(task, "match-worker-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts accepting players.
+     *
+     * @param port the port, or 0 for any free port.
+     * @return the port bound.
+     * @throws IOException if the port cannot be bound.
+     */
+    public int start(int port) throws IOException {
+        loop.start();
+        return loop.listen(port);
+    }
+
+    @Override
+    public void close() {
+        loop.close();
+        workers.shutdown();
+        try {
+            workers.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public int getConnectionCount() {
+        return connections.get();
+    }
+
+    public int getActiveMatchCount() {
+        return activeMatches.get();
+    }
+
+    public long getMatchesPlayed() {
+        return matchesPlayed.get();
+    }
+
+    public long getTurnsPlayed() {
+        return turnsPlayed.get();
+    }
+
+    // ---------------------------------------------
+    // Events of the loop
+    // ---------------------------------------------
+
+    @Override
+    public void onOpen(Connection connection) {
+        connections.incrementAndGet();
+    }
+
+    @Override
+    public void onFrame(Connection connection, int type, ByteBuffer payload) {
+        switch (type) {
+            case Protocol.JOIN -> join(connection);
+            case Protocol.ACTION -> {
+                if (connection.getAttachment() instanceof Match match && payload.hasRemaining()) {
+                    match.postAction(connection, payload.get() & 0xFF);
+                } else {
+                    connection.send(Protocol.frame(Protocol.REJECTED, Protocol.NOT_IN_GAME));
+                }
+            }
+            case Protocol.WATCH -> {
+                Match match = payload.remaining() >= 4 ? matches.get(payload.getInt()) : null;
+                if (match != null) {
+                    match.postWatch(connection);
+                } else {
+                    connection.send(Protocol.frame(Protocol.REJECTED, Protocol.NOT_IN_GAME));
+                }
+            }
+            default -> connection.send(Protocol.frame(Protocol.REJECTED, Protocol.UNKNOWN_MESSAGE));
+        }
+    }
+
+    @Override
+    public void onClose(Connection connection) {
+        connections.decrementAndGet();
+        if (connection.getAttachment() instanceof Match match) {
+            if (match == waiting) {
+                waiting = null;
+                matches.remove(match.getId());
+            }
+            match.postLeave(connection);
+        }
+    }
+
+    /**
+     * Seats a player in the waiting match, or opens a new one.
+     */
+    private void join(Connection connection) {
+        if (connection.getAttachment() != null) {
+            connection.send(Protocol.frame(Protocol.REJECTED, Protocol.INVALID_ACTION)); // already playing
+            return;
+        }
+        if (waiting == null) {
+            waiting = new Match(nextMatchId++, seeds.nextLong(), this, workers);
+            matches.put(waiting.getId(), waiting);
+            waiting.seat(0, connection);
+        } else {
+            Match match = waiting;
+            waiting = null;
+            match.seat(1, connection);
+        }
+    }
+
+    void matchStarted() {
+        activeMatches.incrementAndGet();
+    }
+
+    void turnPlayed() {
+        turnsPlayed.incrementAndGet();
+    }
+
+    void matchFinished(Match match) {
+        activeMatches.decrementAndGet();
+        matchesPlayed.incrementAndGet();
+        loop.execute(() -> matches.remove(match.getId()));
+    }
+
+    /**
+     * Runs a server until the process is stopped.
+     *
+     * @param port the port to listen on.
+     * @throws IOException if the server cannot start.
+     */
+    public static void serve(int port) throws IOException {
+        MatchServer server = new MatchServer(Math.max(2, Runtime.getRuntime().availableProcessors()));
+        int bound = server.start(port);
+        System.out.println("Match server listening on port " + bound);
+        while (true) {
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                break;
+            }
+            System.out.println("Connections: " + server.getConnectionCount() + ", matches in play: " + server.getActiveMatchCount()
+                    + ", finished: " + server.getMatchesPlayed() + ", turns: " + server.getTurnsPlayed());
+        }
+        server.close();
+    }
+}
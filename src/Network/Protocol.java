@@ -0,0 +1,153 @@
+package Network;
+
+import Model.GameState;
+import Model.Observation;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The binary protocol between game clients and a server.
+ * <p>
+ * Every message is a frame: a 2-byte length, a 1-byte type and the payload, where the length
+ * counts the type and the payload. Clients only ever send their own decisions; the server owns
+ * the game and answers with the state as the receiving seat may see it.
+ */
+public final class Protocol {
+    public static final int DEFAULT_PORT = 7461;
+    public static final int MAX_FRAME = 254; // type and payload, so that a whole frame fits in 256 bytes
+
+    // client to server
+    public static final int JOIN = 1;       // no payload: seat me in the next match
+    public static final int ACTION = 2;     // u8 action, as in GameState.apply
+    public static final int PLACE = 3;      // u8 path of Theseus, once before a hosted game starts
+    public static final int WATCH = 6;      // i32 match id: follow the match as a spectator
+
+    // peer to peer, in a lockstep game
+    public static final int TURN = 4;       // u8 action, i32 low half of GameState.lockstepHash() after the action
+    public static final int RESYNC = 5;     // no payload: the hashes disagree, send the whole game
+
+    // server to client
+    public static final int JOINED = 16;    // i32 match id, u8 seat
+    public static final int STATE = 17;     // the game as one seat sees it, see writeView
+    public static final int REJECTED = 18;  // u8 reason
+    public static final int GAME_OVER = 19; // i8 result for the receiving seat: 1 win, 0 tie, -1 loss
+    public static final int VIEW = 20;      // GameState.observedBy(seat) in GameState.writeTo form, for clients that draw the board
+    public static final int SNAPSHOT = 21;  // a GameSnapshot, the whole game: starts a lockstep game and answers RESYNC
+    public static final int BOARD = 22;     // u16 turn, then the whole SpectatorBoard
+    public static final int DELTA = 23;     // u16 turn, u8 count, then count pairs of u8 SpectatorBoard index and u8 value
+
+    // reasons for REJECTED
+    public static final int NOT_IN_GAME = 1;
+    public static final int NOT_YOUR_TURN = 2;
+    public static final int INVALID_ACTION = 3;
+    public static final int UNKNOWN_MESSAGE = 4;
+
+    // bits of a pawn in a view
+    static final int PAWN_INDEX = 0x0F;
+    static final int PAWN_REVEALED = 0x10;
+    static final int PAWN_KNOWN = 0x20;   // the receiving seat knows whether the pawn is Theseus
+    static final int PAWN_THESEUS = 0x40;
+    static final int PAWN_FROZEN = 0x80;
+
+    private Protocol() {
+    }
+
+    /**
+     * Starts a frame.
+     *
+     * @param type the message type.
+     * @return a buffer positioned after the type, ready for the payload.
+     */
+    public static ByteBuffer begin(int type) {
+        ByteBuffer frame = ByteBuffer.allocate(2 + MAX_FRAME);
+        frame.position(2);
+        frame.put((byte) type);
+        return frame;
+    }
+
+    /**
+     * Completes a frame started with {@link #begin}.
+     *
+     * @param frame the frame with its payload written.
+     * @return the frame, flipped and ready to send.
+     */
+    public static ByteBuffer finish(ByteBuffer frame) {
+        frame.putShort(0, (short) (frame.position() - 2));
+        return frame.flip();
+    }
+
+    /**
+     * Builds a frame with a one-byte payload.
+     *
+     * @param type the message type.
+     * @param value the payload.
+     * @return the frame, ready to send.
+     */
+    public static ByteBuffer frame(int type, int value) {
+        ByteBuffer frame = begin(type);
+        frame.put((byte) value);
+        return finish(frame);
+    }
+
+    /**
+     * Writes the state of a game as one seat sees it: the board, the scores, every pawn, and the
+     * cards of the seat's own hand. Whether an opponent pawn is Theseus is only sent once it has
+     * been revealed. The player to move is -1 in a finished game.
+     *
+     * @param state the game.
+     * @param seat the receiving seat.
+     * @param out the frame to write to.
+     */
+    public static void writeView(GameState state, int seat, ByteBuffer out) {
+        Observation view = state.observation(seat);
+        out.put((byte) seat);
+        out.putShort((short) view.getTurn());
+        out.put((byte) (view.isTerminal() ? -1 : view.getActivePlayer())); // nobody moves in a finished game
+        out.put((byte) view.getDeckSize());
+        for (int player = 0; player < GameState.PLAYERS; player++) {
+            out.putShort((short) view.getScore(player));
+            out.put((byte) view.getStatues(player));
+            out.put((byte) view.getDestroysLeft(player));
+        }
+        for (int path = 0; path < GameState.PATHS; path++) {
+            out.put((byte) view.getLastCardPlayedValue(path));
+        }
+        for (int path = 0; path < GameState.PATHS; path++) {
+            for (int box = 0; box < GameState.BOXES; box++) {
+                out.put((byte) boxBits(view, path, box));
+            }
+        }
+        for (int player = 0; player < GameState.PLAYERS; player++) {
+            for (int path = 0; path < GameState.PATHS; path++) {
+                out.put((byte) pawnBits(view, player, path));
+            }
+        }
+        out.put((byte) view.getHandSize(1 - seat));
+        out.put((byte) view.getHandSize(seat));
+        for (int slot = 0; slot < view.getHandSize(seat); slot++) {
+            out.put((byte) view.getHandCard(slot));
+        }
+    }
+
+    /**
+     * Packs a box as it is sent: the finding code, and a bit per player who photographed it above.
+     */
+    static int boxBits(Observation view, int path, int box) {
+        int photographed = (view.isPhotographedBy(path, box, 0) ? 1 : 0) | (view.isPhotographedBy(path, box, 1) ? 2 : 0);
+        return view.getFinding(path, box) | photographed << 3;
+    }
+
+    /**
+     * Packs a pawn as it is sent, with the PAWN_ bits the observer may know.
+     */
+    static int pawnBits(Observation view, int player, int path) {
+        int pawn = view.getPawnIndex(player, path) | (view.isRevealed(player, path) ? PAWN_REVEALED : 0);
+        if (view.isIdentityKnown(player, path)) {
+            pawn |= PAWN_KNOWN;
+            if (view.isTheseus(player, path)) {
+                pawn |= PAWN_THESEUS | (view.isFrozen(player) ? PAWN_FROZEN : 0);
+            }
+        }
+        return pawn;
+    }
+}
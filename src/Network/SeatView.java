@@ -0,0 +1,158 @@
+package Network;
+
+import Model.GameState;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The state of a game as one seat received it from the server, decoded from a
+ * {@link Protocol#STATE} message. It holds what the seat may know and nothing more: the board,
+ * the scores, every pawn, the identity of pawns that are the seat's own or revealed, and the
+ * seat's own hand.
+ */
+public class SeatView {
+    private final int seat;
+    private final int turn;
+    private final int activePlayer;
+    private final int deckSize;
+    private final int[] scores = new int[GameState.PLAYERS];
+    private final int[] statues = new int[GameState.PLAYERS];
+    private final int[] destroysLeft = new int[GameState.PLAYERS];
+    private final int[] lastCardPlayedValue = new int[GameState.PATHS];
+    private final int[] boxes = new int[GameState.PATHS * GameState.BOXES]; // finding code | photographed << 3
+    private final int[] pawns = new int[GameState.PLAYERS * GameState.PATHS]; // Protocol.PAWN_ bits
+    private final int opponentHandSize;
+    private final int[] hand;
+
+    private SeatView(ByteBuffer in) {
+        seat = in.get();
+        turn = in.getShort() & 0xFFFF;
+        activePlayer = in.get();
+        deckSize = in.get() & 0xFF;
+        for (int player = 0; player < GameState.PLAYERS; player++) {
+            scores[player] = in.getShort();
+            statues[player] = in.get();
+            destroysLeft[player] = in.get();
+        }
+        for (int path = 0; path < GameState.PATHS; path++) {
+            lastCardPlayedValue[path] = in.get();
+        }
+        for (int box = 0; box < boxes.length; box++) {
+            boxes[box] = in.get() & 0xFF;
+        }
+        for (int i = 0; i < pawns.length; i++) {
+            pawns[i] = in.get() & 0xFF;
+        }
+        opponentHandSize = in.get();
+        hand = new int[in.get()];
+        for (int slot = 0; slot < hand.length; slot++) {
+            hand[slot] = in.get();
+        }
+    }
+
+    /**
+     * Decodes a view.
+     *
+     * @param payload the payload of a {@link Protocol#STATE} message.
+     * @return the view.
+     * @throws java.nio.BufferUnderflowException if the payload is too short.
+     */
+    public static SeatView read(ByteBuffer payload) {
+        return new SeatView(payload);
+    }
+
+    public int getSeat() {
+        return seat;
+    }
+
+    public int getTurn() {
+        return turn;
+    }
+
+    /**
+     * Returns the player to move.
+     * @return the player to move, or -1 once the game is over.
+     */
+    public int getActivePlayer() {
+        return activePlayer;
+    }
+
+    public boolean isMyTurn() {
+        return activePlayer == seat;
+    }
+
+    public int getDeckSize() {
+        return deckSize;
+    }
+
+    public int getScore(int player) {
+        return scores[player];
+    }
+
+    public int getStatues(int player) {
+        return statues[player];
+    }
+
+    public int getDestroysLeft(int player) {
+        return destroysLeft[player];
+    }
+
+    public int getLastCardPlayedValue(int path) {
+        return lastCardPlayedValue[path];
+    }
+
+    public int getFinding(int path, int box) {
+        return boxes[path * GameState.BOXES + box] & 0x07;
+    }
+
+    public boolean isPhotographedBy(int path, int box, int player) {
+        return (boxes[path * GameState.BOXES + box] >> 3 & (1 << player)) != 0;
+    }
+
+    public int getPawnIndex(int player, int path) {
+        return pawns[player * GameState.PATHS + path] & Protocol.PAWN_INDEX;
+    }
+
+    public boolean isRevealed(int player, int path) {
+        return (pawns[player * GameState.PATHS + path] & Protocol.PAWN_REVEALED) != 0;
+    }
+
+    /**
+     * Returns whether this seat knows if a pawn is Theseus: always for its own pawns, and for the
+     * opponent's once they are revealed.
+     *
+     * @param player the owner of the pawn.
+     * @param path the path of the pawn.
+     * @return true if the identity of the pawn is known.
+     */
+    public boolean isIdentityKnown(int player, int path) {
+        return (pawns[player * GameState.PATHS + path] & Protocol.PAWN_KNOWN) != 0;
+    }
+
+    /**
+     * Returns whether a pawn is known to be Theseus.
+     *
+     * @param player the owner of the pawn.
+     * @param path the path of the pawn.
+     * @return true if the pawn is Theseus, false if it is not or its identity is unknown.
+     */
+    public boolean isTheseus(int player, int path) {
+        return (pawns[player * GameState.PATHS + path] & Protocol.PAWN_THESEUS) != 0;
+    }
+
+    public boolean isFrozen(int player, int path) {
+        return (pawns[player * GameState.PATHS + path] & Protocol.PAWN_FROZEN) != 0;
+    }
+
+    public int getOpponentHandSize() {
+        return opponentHandSize;
+    }
+
+    public int getHandSize() {
+        return hand.length;
+    }
+
+    public int getHandCard(int slot) {
+        return hand[slot];
+    }
+}
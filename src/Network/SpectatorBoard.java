@@ -0,0 +1,165 @@
+package Network;
+
+import Model.GameState;
+import Model.Observation;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A game as a spectator sees it, kept as a fixed row of bytes so that the server can send only
+ * the bytes a turn changed.
+ * <p>
+ * The board holds what is on the table: the pawns, the boxes, the scores, the last card played
+ * on every path, the size of the deck and of both hands. It never holds a card in a hand, and a
+ * pawn is only marked as Theseus once it has been revealed. The server sends the whole board as
+ * {@link Protocol#BOARD} when a spectator starts watching and after it fell behind, and
+ * {@link Protocol#DELTA} after every other turn.
+ */
+public class SpectatorBoard {
+    static final int ACTIVE = 0;        // the player to move, -1 once the game is over
+    static final int DECK = 1;
+    static final int PLAYER_AT = 2;     // per player: score (2 bytes), statues, destroys left, hand size
+    static final int PLAYER_BYTES = 5;
+    static final int LAST_CARD_AT = PLAYER_AT + GameState.PLAYERS * PLAYER_BYTES;
+    static final int BOX_AT = LAST_CARD_AT + GameState.PATHS; // finding code | photographed << 3
+    static final int PAWN_AT = BOX_AT + GameState.PATHS * GameState.BOXES; // Protocol.PAWN_ bits
+    static final int SIZE = PAWN_AT + GameState.PLAYERS * GameState.PATHS;
+
+    private final byte[] cells = new byte[SIZE];
+    private int turn = -1;
+
+    /**
+     * Writes the board of a game.
+     *
+     * @param state the game.
+     * @param cells the board to fill, {@link #SIZE} bytes.
+     */
+    static void encode(GameState state, byte[] cells) {
+        Observation view = state.observation(Observation.SPECTATOR);
+        cells[ACTIVE] = (byte) (view.isTerminal() ? -1 : view.getActivePlayer());
+        cells[DECK] = (byte) view.getDeckSize();
+        for (int player = 0; player < GameState.PLAYERS; player++) {
+            int at = PLAYER_AT + player * PLAYER_BYTES;
+            cells[at] = (byte) (view.getScore(player) >> 8);
+            cells[at + 1] = (byte) view.getScore(player);
+            cells[at + 2] = (byte) view.getStatues(player);
+            cells[at + 3] = (byte) view.getDestroysLeft(player);
+            cells[at + 4] = (byte) view.getHandSize(player);
+        }
+        for (int path = 0; path < GameState.PATHS; path++) {
+            cells[LAST_CARD_AT + path] = (byte) view.getLastCardPlayedValue(path);
+            for (int box = 0; box < GameState.BOXES; box++) {
+                cells[BOX_AT + path * GameState.BOXES + box] = (byte) Protocol.boxBits(view, path, box);
+            }
+        }
+        for (int player = 0; player < GameState.PLAYERS; player++) {
+            for (int path = 0; path < GameState.PATHS; path++) {
+                cells[PAWN_AT + player * GameState.PATHS + path] = (byte) Protocol.pawnBits(view, player, path);
+            }
+        }
+    }
+
+    /**
+     * Replaces the board with the one of a {@link Protocol#BOARD} message.
+     * @param payload the payload: u16 turn, then {@link #SIZE} bytes.
+     */
+    public void readBoard(ByteBuffer payload) {
+        turn = payload.getShort() & 0xFFFF;
+        payload.get(cells);
+    }
+
+    /**
+     * Applies the changes of a {@link Protocol#DELTA} message.
+     *
+     * @param payload the payload: u16 turn, u8 count, then count pairs of u8 index and u8 value.
+     * @return false if the delta does not follow the board, which then has to be sent again.
+     */
+    public boolean readDelta(ByteBuffer payload) {
+        int deltaTurn = payload.getShort() & 0xFFFF;
+        int count = payload.get() & 0xFF;
+        if (turn < 0 || deltaTurn != turn + 1) {
+            return false;
+        }
+        for (int i = 0; i < count; i++) {
+            int index = payload.get() & 0xFF;
+            byte value = payload.get();
+            if (index < SIZE) {
+                cells[index] = value;
+            }
+        }
+        turn = deltaTurn;
+        return true;
+    }
+
+    /**
+     * Returns the turn the board shows.
+     * @return the number of turns played, or -1 before the first board arrived.
+     */
+    public int getTurn() {
+        return turn;
+    }
+
+    /**
+     * Returns the player to move.
+     * @return the player to move, or -1 once the game is over.
+     */
+    public int getActivePlayer() {
+        return cells[ACTIVE];
+    }
+
+    public int getDeckSize() {
+        return cells[DECK] & 0xFF;
+    }
+
+    public int getScore(int player) {
+        int at = PLAYER_AT + player * PLAYER_BYTES;
+        return (short) (cells[at] << 8 | cells[at + 1] & 0xFF);
+    }
+
+    public int getStatues(int player) {
+        return cells[PLAYER_AT + player * PLAYER_BYTES + 2];
+    }
+
+    public int getDestroysLeft(int player) {
+        return cells[PLAYER_AT + player * PLAYER_BYTES + 3];
+    }
+
+    public int getHandSize(int player) {
+        return cells[PLAYER_AT + player * PLAYER_BYTES + 4];
+    }
+
+    public int getLastCardPlayedValue(int path) {
+        return cells[LAST_CARD_AT + path];
+    }
+
+    public int getFinding(int path, int box) {
+        return cells[BOX_AT + path * GameState.BOXES + box] & 0x07;
+    }
+
+    public boolean isPhotographedBy(int path, int box, int player) {
+        return (cells[BOX_AT + path * GameState.BOXES + box] >> 3 & (1 << player)) != 0;
+    }
+
+    public int getPawnIndex(int player, int path) {
+        return cells[PAWN_AT + player * GameState.PATHS + path] & Protocol.PAWN_INDEX;
+    }
+
+    public boolean isRevealed(int player, int path) {
+        return (cells[PAWN_AT + player * GameState.PATHS + path] & Protocol.PAWN_REVEALED) != 0;
+    }
+
+    /**
+     * Returns whether a pawn is known to be Theseus, which a spectator only learns once it is revealed.
+     *
+     * @param player the owner of the pawn.
+     * @param path the path of the pawn.
+     * @return true if the pawn is revealed and is Theseus.
+     */
+    public boolean isTheseus(int player, int path) {
+        return (cells[PAWN_AT + player * GameState.PATHS + path] & Protocol.PAWN_THESEUS) != 0;
+    }
+
+    public boolean isFrozen(int player, int path) {
+        return (cells[PAWN_AT + player * GameState.PATHS + path] & Protocol.PAWN_FROZEN) != 0;
+    }
+}
@@ -0,0 +1,175 @@
+package Network;
+
+import Model.GameState;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * The spectators of one match and the board they are shown.
+ * <p>
+ * After every turn the feed compares the new {@link SpectatorBoard} with the last one and encodes
+ * the changed bytes once, as a single frame that every spectator is sent: each one gets its own
+ * duplicate of the buffer, which shares the bytes instead of copying them. A spectator whose
+ * socket does not keep up is skipped while more than {@link #MAX_BACKLOG} frames wait for it,
+ * and gets the whole board once it has caught up, so a slow viewer costs a bounded amount of
+ * memory and never holds up the match.
+ * <p>
+ * Spectators may be added from any thread; everything else runs on the thread of the match.
+ */
+final class SpectatorFeed {
+    static final int MAX_BACKLOG = 16;
+
+    /**
+     * A spectator's connection and whether it has to be sent the whole board next.
+     */
+    private static final class Spectator {
+        final Connection connection;
+        boolean behind = true;
+
+        Spectator(Connection connection) {
+            this.connection = connection;
+        }
+    }
+
+    private final Queue<Connection> joining = new ConcurrentLinkedQueue<>();
+    private final List<Spectator> spectators = new ArrayList<>();
+    private byte[] board = new byte[SpectatorBoard.SIZE];
+    private byte[] next = new byte[SpectatorBoard.SIZE];
+    private int turn = -1;       // the turn of board, -1 before the first
+    private ByteBuffer keyframe; // the whole board as a BOARD frame, built when a spectator needs it
+
+    /**
+     * Adds a spectator. It is sent the board at the next {@link #admit} or {@link #publish}.
+     * @param connection the spectator's connection.
+     */
+    void add(Connection connection) {
+        joining.add(connection);
+    }
+
+    /**
+     * Sends the board to the spectators added since the last turn, if the game has started.
+     */
+    void admit() {
+        if (turn >= 0) {
+            fanOut(null);
+        }
+    }
+
+    /**
+     * Sends every spectator what the last turn changed.
+     * @param state the game after the turn.
+     */
+    void publish(GameState state) {
+        SpectatorBoard.encode(state, next);
+        ByteBuffer delta = turn >= 0 && state.getTurn() == turn + 1 ? encodeDelta(state.getTurn()) : null;
+        byte[] previous = board;
+        board = next;
+        next = previous;
+        turn = state.getTurn();
+        keyframe = null;
+        if (delta == null) {
+            for (Spectator spectator : spectators) {
+                spectator.behind = true; // the turns do not follow on, so everyone starts over
+            }
+        }
+        fanOut(delta);
+    }
+
+    /**
+     * Tells every spectator the game is over, and lets them go.
+     * @param result the result for the first player: 1 win, 0 tie, -1 loss.
+     */
+    void finish(int result) {
+        ByteBuffer frame = Protocol.frame(Protocol.GAME_OVER, result);
+        admitJoining();
+        for (Spectator spectator : spectators) {
+            spectator.connection.send(frame.duplicate());
+        }
+        spectators.clear();
+    }
+
+    /**
+     * Turns away the spectators who asked to watch after the game ended.
+     */
+    void reject() {
+        Connection connection;
+        while ((connection = joining.poll()) != null) {
+            connection.send(Protocol.frame(Protocol.REJECTED, Protocol.NOT_IN_GAME));
+        }
+    }
+
+    /**
+     * Sends the delta to the spectators that are up to date, and the whole board to the others.
+     * Closed connections are dropped on the way.
+     *
+     * @param delta the DELTA frame of the last turn, or null to only serve the spectators that are behind.
+     */
+    private void fanOut(ByteBuffer delta) {
+        admitJoining();
+        for (int i = spectators.size() - 1; i >= 0; i--) {
+            Spectator spectator = spectators.get(i);
+            Connection connection = spectator.connection;
+            if (connection.isClosed()) {
+                spectators.set(i, spectators.get(spectators.size() - 1));
+                spectators.remove(spectators.size() - 1);
+            } else if (connection.getQueuedFrames() > MAX_BACKLOG) {
+                spectator.behind = true; // its next frame will be the whole board
+            } else if (spectator.behind) {
+                connection.send(keyframe().duplicate());
+                spectator.behind = false;
+            } else if (delta != null) {
+                connection.send(delta.duplicate());
+            }
+        }
+    }
+
+    private void admitJoining() {
+        Connection connection;
+        while ((connection = joining.poll()) != null) {
+            spectators.add(new Spectator(connection));
+        }
+    }
+
+    /**
+     * Encodes the bytes that differ between board and next, with the turn of next.
+     */
+    private ByteBuffer encodeDelta(int deltaTurn) {
+        ByteBuffer frame = Protocol.begin(Protocol.DELTA);
+        frame.putShort((short) deltaTurn);
+        int countAt = frame.position();
+        frame.put((byte) 0);
+        int count = 0;
+        for (int index = 0; index < SpectatorBoard.SIZE; index++) {
+            if (board[index] != next[index]) {
+                frame.put((byte) index);
+                frame.put(next[index]);
+                count++;
+            }
+        }
+        frame.put(countAt, (byte) count);
+        return shared(Protocol.finish(frame));
+    }
+
+    private ByteBuffer keyframe() {
+        if (keyframe == null) {
+            ByteBuffer frame = Protocol.begin(Protocol.BOARD);
+            frame.putShort((short) turn);
+            frame.put(board);
+            keyframe = shared(Protocol.finish(frame));
+        }
+        return keyframe;
+    }
+
+    /**
+     * Moves a frame into a direct buffer, which the socket writes from without copying it first.
+     */
+    private static ByteBuffer shared(ByteBuffer frame) {
+        ByteBuffer direct = ByteBuffer.allocateDirect(frame.remaining());
+        direct.put(frame).flip();
+        return direct.asReadOnlyBuffer();
+    }
+}
@@ -0,0 +1,430 @@
+package Simulation;
+
+import Model.GameState;
+
+import java.util.SplittableRandom;
+
+/**
+ * Plays many games at once with uniformly random moves, for rollouts that only need the results.
+ * <p>
+ * The games are kept in a few flat arrays of primitives rather than one object graph per game:
+ * every game has a fixed stretch of one byte array holding its pawns, findings, hands and deck,
+ * at fixed offsets, and its scores, turn and random generator lie in arrays of their own. A game's
+ * turn reads and writes only its own stretch, which is a few cache lines long, so stepping the
+ * games one after another walks memory in order. Every {@link #step()} plays one turn of every
+ * game that is not over, and finished games drop out of the loop.
+ * <p>
+ * The rules and the choice of moves are those of {@link GameState} and {@link Bot.RandomPolicy}:
+ * the moves use the rule functions of GameState, such as {@link GameState#landingIndex} and
+ * {@link GameState#canOpen}, and every game picks uniformly among {@link GameState#legalActions},
+ * in the same order, from a random generator of its own. Unlike a GameState, a game keeps no hash
+ * or evaluation features up to date.
+ * <p>
+ * Usage: {@code BatchSimulator [games] [rounds]}, comparing the batch with one GameState per game.
+ */
+public class BatchSimulator {
+    private static final int PLAYERS = GameState.PLAYERS;
+    private static final int PATHS = GameState.PATHS;
+    private static final int BOXES = GameState.BOXES;
+    private static final int HAND_SIZE = GameState.HAND_SIZE;
+    private static final int DECK_SIZE = GameState.CARD_CODES * 3;
+    private static final int CHECKPOINT = GameState.CHECKPOINT;
+
+    // offsets in the stretch of a game
+    private static final int PAWN_INDEX = 0;                            // player * PATHS + path
+    private static final int REVEALED = PAWN_INDEX + PLAYERS * PATHS;   // player * PATHS + path
+    private static final int THESEUS_PATH = REVEALED + PLAYERS * PATHS; // player
+    private static final int FROZEN = THESEUS_PATH + PLAYERS;           // player
+    private static final int DESTROYS_LEFT = FROZEN + PLAYERS;          // player
+    private static final int STATUES = DESTROYS_LEFT + PLAYERS;         // player
+    private static final int RARE_COLLECTED = STATUES + PLAYERS;        // player, bit per path
+    private static final int HAND_SIZES = RARE_COLLECTED + PLAYERS;     // player
+    private static final int ACTIVE_PLAYER = HAND_SIZES + PLAYERS;
+    private static final int DECK_COUNT = ACTIVE_PLAYER + 1;
+    private static final int LAST_CARD = DECK_COUNT + 1;                // path
+    private static final int FINDINGS = LAST_CARD + PATHS;              // path * BOXES + box
+    private static final int PHOTOGRAPHED = FINDINGS + PATHS * BOXES;   // path * BOXES + box, bit per player
+    private static final int HANDS = PHOTOGRAPHED + PATHS * BOXES;      // player * HAND_SIZE + slot
+    private static final int DECK = HANDS + PLAYERS * HAND_SIZE;        // the top card last
+    private static final int STRIDE = DECK + DECK_SIZE;
+
+    private final int capacity;
+    private final byte[] games;         // [game * STRIDE + offset]
+    private final short[] scores;       // [game * PLAYERS + player]
+    private final short[] turn;
+    private final long[] random;        // the state of every game's random generator
+
+    private final int[] live;           // the games that are not over
+    private int liveCount;
+    private final int[] actions = new int[GameState.MAX_ACTIONS];
+
+    /**
+     * Constructs a simulator for up to the given number of games.
+     * @param capacity the number of games.
+     */
+    public BatchSimulator(int capacity) {
+        this.capacity = capacity;
+        games = new byte[STRIDE * capacity];
+        scores = new short[PLAYERS * capacity];
+        turn = new short[capacity];
+        random = new long[capacity];
+        live = new int[capacity];
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Sets up a game from a state, which may be anywhere in its course.
+     *
+     * @param game the game, below the capacity.
+     * @param state the state to copy.
+     * @param seed the seed of the game's random moves.
+     */
+    public void load(int game, GameState state, long seed) {
+        int g = game * STRIDE;
+        for (int player = 0; player < PLAYERS; player++) {
+            for (int path = 0; path < PATHS; path++) {
+                int part = player * PATHS + path;
+                games[g + PAWN_INDEX + part] = (byte) state.getPawnIndex(player, path);
+                games[g + REVEALED + part] = (byte) (state.isRevealed(player, path) ? 1 : 0);
+            }
+            games[g + THESEUS_PATH + player] = (byte) state.getTheseusPath(player);
+            games[g + FROZEN + player] = (byte) (state.isFrozen(player) ? 1 : 0);
+            games[g + DESTROYS_LEFT + player] = (byte) state.getDestroysLeft(player);
+            games[g + HAND_SIZES + player] = (byte) state.getHandSize(player);
+            games[g + STATUES + player] = (byte) state.getStatues(player);
+            scores[game * PLAYERS + player] = (short) state.getScore(player);
+            int rare = 0;
+            for (int path = 0; path < PATHS; path++) {
+                rare |= state.hasCollectedRare(player, path) ? 1 << path : 0;
+            }
+            games[g + RARE_COLLECTED + player] = (byte) rare;
+            for (int slot = 0; slot < state.getHandSize(player); slot++) {
+                games[g + HANDS + player * HAND_SIZE + slot] = (byte) state.getHandCard(player, slot);
+            }
+        }
+        for (int path = 0; path < PATHS; path++) {
+            games[g + LAST_CARD + path] = (byte) state.getLastCardPlayedValue(path);
+            for (int box = 0; box < BOXES; box++) {
+                int part = path * BOXES + box;
+                games[g + FINDINGS + part] = (byte) state.getFinding(path, box);
+                games[g + PHOTOGRAPHED + part] = (byte) ((state.isPhotographedBy(path, box, 0) ? 1 : 0)
+                        | (state.isPhotographedBy(path, box, 1) ? 2 : 0));
+            }
+        }
+        games[g + ACTIVE_PLAYER] = (byte) state.getActivePlayer();
+        games[g + DECK_COUNT] = (byte) state.getDeckSize();
+        for (int i = 0; i < state.getDeckSize(); i++) {
+            games[g + DECK + i] = (byte) state.getDeckCard(state.getDeckSize() - 1 - i);
+        }
+        turn[game] = (short) state.getTurn();
+        random[game] = seed;
+    }
+
+    /**
+     * Starts the given number of games, which must have been loaded, from the first.
+     * @param count the number of games.
+     */
+    public void start(int count) {
+        liveCount = 0;
+        for (int game = 0; game < count; game++) {
+            if (!isTerminal(game * STRIDE)) {
+                live[liveCount++] = game;
+            }
+        }
+    }
+
+    /**
+     * Plays one turn of every game that is not over.
+     * @return the number of games still not over.
+     */
+    public int step() {
+        int kept = 0;
+        for (int i = 0; i < liveCount; i++) {
+            int game = live[i];
+            int g = game * STRIDE;
+            int count = legalActions(g);
+            apply(game, g, actions[pick(game, count)]);
+            if (!isTerminal(g)) {
+                live[kept++] = game;
+            }
+        }
+        liveCount = kept;
+        return kept;
+    }
+
+    /**
+     * Plays every started game to its end.
+     */
+    public void run() {
+        while (step() > 0) {
+            // every step plays a turn of every game
+        }
+    }
+
+    public int getScore(int game, int player) {
+        return scores[game * PLAYERS + player];
+    }
+
+    /**
+     * Returns the result of a game for the first player.
+     * @param game the game.
+     * @return 1 if the first player leads, -1 if the second leads, 0 on a tie.
+     */
+    public int getResult(int game) {
+        return Integer.signum(scores[game * PLAYERS] - scores[game * PLAYERS + 1]);
+    }
+
+    public int getTurn(int game) {
+        return turn[game];
+    }
+
+    // ---------------------------------------------
+    // Rules, as in GameState; g is the start of the game's stretch
+    // ---------------------------------------------
+
+    private boolean isTerminal(int g) {
+        if (games[g + DECK_COUNT] == 0) {
+            return true;
+        }
+        for (int part = 0; part < PLAYERS * PATHS; part++) {
+            if (games[g + PAWN_INDEX + part] == CHECKPOINT) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Draws a number below count from the game's generator (SplitMix64).
+     */
+    private int pick(int game, int count) {
+        long z = random[game] += 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z ^= z >>> 31;
+        return (int) (((z >>> 32) * count) >>> 32);
+    }
+
+    private int legalActions(int g) {
+        int player = games[g + ACTIVE_PLAYER];
+        int base = g + HANDS + player * HAND_SIZE;
+        int size = games[g + HAND_SIZES + player];
+        int count = 0;
+        for (int slot = 0; slot < size; slot++) {
+            int code = games[base + slot];
+            boolean duplicate = false;
+            for (int i = 0; i < slot && !duplicate; i++) {
+                duplicate = games[base + i] == code;
+            }
+            if (duplicate) {
+                continue;
+            }
+            actions[count++] = GameState.action(slot, GameState.DISCARD);
+            if (hasEffect(g, player, code)) {
+                actions[count++] = GameState.action(slot, GameState.PLAY);
+                int landing = landingIndex(g, player, code);
+                if (landing > 0 && canOpenBox(g, player, GameState.cardPath(code), landing)) {
+                    actions[count++] = GameState.action(slot, GameState.PLAY_AND_OPEN);
+                }
+            }
+        }
+        return count;
+    }
+
+    private boolean hasEffect(int g, int player, int code) {
+        int path = GameState.cardPath(code);
+        if (GameState.cardKind(code) == GameState.MINOTAUR) {
+            int opponent = 1 - player;
+            int target = games[g + PAWN_INDEX + opponent * PATHS + path];
+            return target != 0 && target != CHECKPOINT && !isFrozenOn(g, opponent, path);
+        }
+        int value = GameState.cardValue(code);
+        return games[g + PAWN_INDEX + player * PATHS + path] != 0 && (value < 0 || value >= games[g + LAST_CARD + path]);
+    }
+
+    private int landingIndex(int g, int player, int code) {
+        int path = GameState.cardPath(code);
+        if (isFrozenOn(g, player, path)) {
+            return 0;
+        }
+        return GameState.landingIndex(games[g + PAWN_INDEX + player * PATHS + path], code, games[g + LAST_CARD + path]);
+    }
+
+    private boolean isFrozenOn(int g, int player, int path) {
+        return games[g + THESEUS_PATH + player] == path && games[g + FROZEN + player] != 0;
+    }
+
+    private boolean canOpenBox(int g, int player, int path, int index) {
+        int box = GameState.boxOf(index);
+        if (box < 0) {
+            return false;
+        }
+        int part = path * BOXES + box;
+        return GameState.canOpen(games[g + FINDINGS + part], games[g + THESEUS_PATH + player] == path,
+                games[g + DESTROYS_LEFT + player], (games[g + PHOTOGRAPHED + part] & (1 << player)) != 0);
+    }
+
+    private void apply(int game, int g, int action) {
+        int player = games[g + ACTIVE_PLAYER];
+        int base = g + HANDS + player * HAND_SIZE;
+        int slot = GameState.actionSlot(action);
+        int size = games[g + HAND_SIZES + player];
+        int code = games[base + slot];
+        System.arraycopy(games, base + slot + 1, games, base + slot, size - slot - 1);
+        size--;
+
+        int kind = GameState.actionKind(action);
+        if (kind != GameState.DISCARD) {
+            playCard(game, g, player, code, kind == GameState.PLAY_AND_OPEN);
+        }
+        int left = games[g + DECK_COUNT];
+        if (size < HAND_SIZE && left > 0) {
+            games[base + size++] = games[g + DECK + --left];
+            games[g + DECK_COUNT] = (byte) left;
+        }
+        games[g + HAND_SIZES + player] = (byte) size;
+        turn[game]++;
+        games[g + ACTIVE_PLAYER] = (byte) (1 - player);
+    }
+
+    private void playCard(int game, int g, int player, int code, boolean openBox) {
+        int path = GameState.cardPath(code);
+        int kind = GameState.cardKind(code);
+        if (kind == GameState.MINOTAUR) {
+            attack(g, 1 - player, path);
+            return;
+        }
+        int pawn = g + PAWN_INDEX + player * PATHS + path;
+        if (games[pawn] == 0) {
+            return;
+        }
+        boolean moved;
+        if (kind == GameState.ARIADNE) {
+            moved = move(g, player, path, 2);
+        } else if (kind + 1 >= games[g + LAST_CARD + path]) {
+            games[g + LAST_CARD + path] = (byte) (kind + 1);
+            moved = move(g, player, path, 1);
+        } else {
+            moved = false;
+        }
+        if (moved && openBox && canOpenBox(g, player, path, games[pawn])) {
+            openBox(game, g, player, path);
+        }
+    }
+
+    private void attack(int g, int target, int path) {
+        int part = target * PATHS + path;
+        int index = games[g + PAWN_INDEX + part];
+        if (index == 0 || index == CHECKPOINT) {
+            return;
+        }
+        if (games[g + THESEUS_PATH + target] == path) {
+            if (games[g + FROZEN + target] == 0) {
+                games[g + FROZEN + target] = 1;
+                games[g + REVEALED + part] = 1;
+            }
+        } else if (move(g, target, path, -2)) {
+            games[g + REVEALED + part] = 1;
+        }
+    }
+
+    private boolean move(int g, int player, int path, int steps) {
+        if (isFrozenOn(g, player, path)) {
+            return false;
+        }
+        int pawn = g + PAWN_INDEX + player * PATHS + path;
+        int newIndex = GameState.movedIndex(games[pawn], steps);
+        if (newIndex == 0) {
+            return false;
+        }
+        games[pawn] = (byte) newIndex;
+        return true;
+    }
+
+    private void openBox(int game, int g, int player, int path) {
+        int part = player * PATHS + path;
+        int box = path * BOXES + GameState.boxOf(games[g + PAWN_INDEX + part]);
+        int code = games[g + FINDINGS + box];
+        if (games[g + THESEUS_PATH + player] == path) {
+            games[g + FINDINGS + box] = GameState.NO_FINDING;
+            games[g + PHOTOGRAPHED + box] = 0;
+            games[g + DESTROYS_LEFT + player]--;
+        } else if (GameState.isFresco(code)) {
+            games[g + PHOTOGRAPHED + box] |= (byte) (1 << player);
+            scores[game * PLAYERS + player] += (short) GameState.findingPoints(code, path);
+        } else {
+            if (code == GameState.STATUE) {
+                games[g + STATUES + player]++;
+            } else {
+                scores[game * PLAYERS + player] += (short) GameState.findingPoints(code, path);
+                games[g + RARE_COLLECTED + player] |= (byte) (1 << path);
+            }
+            games[g + FINDINGS + box] = GameState.NO_FINDING;
+            games[g + PHOTOGRAPHED + box] = 0;
+        }
+        games[g + REVEALED + part] = 1;
+    }
+
+    // ---------------------------------------------
+    // Benchmark
+    // ---------------------------------------------
+
+    public static void main(String[] args) {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 4096;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+
+        GameState[] starts = new GameState[games];
+        SplittableRandom seeds = new SplittableRandom(42);
+        for (int game = 0; game < games; game++) {
+            starts[game] = GameState.newGame(seeds.nextLong());
+        }
+
+        BatchSimulator batch = new BatchSimulator(games);
+        long batchNanos = Long.MAX_VALUE;
+        long checksum = 0;
+        for (int round = 0; round < rounds; round++) {
+            long start = System.nanoTime();
+            for (int game = 0; game < games; game++) {
+                batch.load(game, starts[game], round * (long) games + game);
+            }
+            batch.start(games);
+            batch.run();
+            batchNanos = Math.min(batchNanos, System.nanoTime() - start);
+            for (int game = 0; game < games; game++) {
+                checksum += batch.getResult(game);
+            }
+        }
+
+        // the same rollouts on one GameState per game, as the bots play them
+        GameState state = new GameState();
+        int[] actions = new int[GameState.MAX_ACTIONS];
+        long[] generator = new long[1];
+        long stateNanos = Long.MAX_VALUE;
+        long stateChecksum = 0;
+        for (int round = 0; round < rounds; round++) {
+            long start = System.nanoTime();
+            for (int game = 0; game < games; game++) {
+                state.copyFrom(starts[game]);
+                generator[0] = round * (long) games + game;
+                while (!state.isTerminal()) {
+                    int count = state.legalActions(actions);
+                    long z = generator[0] += 0x9E3779B97F4A7C15L;
+                    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+                    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+                    z ^= z >>> 31;
+                    state.apply(actions[(int) (((z >>> 32) * count) >>> 32)]);
+                }
+                stateChecksum += state.getResult();
+            }
+            stateNanos = Math.min(stateNanos, System.nanoTime() - start);
+        }
+
+        System.out.printf("batch of %d games: %.0f rollouts/s%n", games, games / (batchNanos / 1e9));
+        System.out.printf("one GameState per game: %.0f rollouts/s (%.1fx slower)%n", games / (stateNanos / 1e9),
+                (double) stateNanos / batchNanos);
+        System.out.println(checksum == stateChecksum ? "Both played the same games" : "The results differ: " + checksum + " and " + stateChecksum);
+    }
+}
@@ -0,0 +1,131 @@
+package Simulation;
+
+import Model.GameState;
+
+/**
+ * What a simulated game came to, as {@link ResultsWriter} stores it: the result and scores, how
+ * the game ended, the turn on which each rare finding was collected and by whom, and the number
+ * of cards played on every path.
+ * <p>
+ * A summary follows one game at a time: {@link #start} it, then make every move through
+ * {@link #apply}. It is reused from game to game, so a simulation allocates nothing for it.
+ */
+public class GameSummary {
+    public static final int END_DECK = 0;       // the deck ran out
+    public static final int END_CHECKPOINT = 1; // a pawn reached the checkpoint
+
+    private long seed;
+    private int turns;
+    private int end;
+    private final int[] scores = new int[GameState.PLAYERS];
+    private final int[] rareTurn = new int[GameState.PATHS];
+    private final int[] rareCollector = new int[GameState.PATHS];
+    private final int[] cardsPlayed = new int[GameState.PATHS];
+
+    /**
+     * Starts following a game.
+     *
+     * @param seed the seed the game was set up from.
+     * @param state the game before its first move.
+     */
+    public void start(long seed, GameState state) {
+        this.seed = seed;
+        for (int path = 0; path < GameState.PATHS; path++) {
+            rareTurn[path] = -1;
+            rareCollector[path] = -1;
+            cardsPlayed[path] = 0;
+        }
+        update(state);
+    }
+
+    /**
+     * Makes a move and records what it did.
+     *
+     * @param state the game.
+     * @param action the action of the player to move, as in {@link GameState#apply}.
+     */
+    public void apply(GameState state, int action) {
+        if (GameState.actionKind(action) != GameState.DISCARD) {
+            int code = state.getHandCard(state.getActivePlayer(), GameState.actionSlot(action));
+            cardsPlayed[GameState.cardPath(code)]++;
+        }
+        state.apply(action);
+        for (int path = 0; path < GameState.PATHS; path++) {
+            for (int player = 0; player < GameState.PLAYERS && rareCollector[path] < 0; player++) {
+                if (state.hasCollectedRare(player, path)) {
+                    rareCollector[path] = player;
+                    rareTurn[path] = state.getTurn();
+                }
+            }
+        }
+        update(state);
+    }
+
+    private void update(GameState state) {
+        turns = state.getTurn();
+        end = END_DECK;
+        for (int player = 0; player < GameState.PLAYERS; player++) {
+            scores[player] = state.getScore(player);
+            for (int path = 0; path < GameState.PATHS; path++) {
+                if (state.getPawnIndex(player, path) == GameState.CHECKPOINT) {
+                    end = END_CHECKPOINT;
+                }
+            }
+        }
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getTurns() {
+        return turns;
+    }
+
+    /**
+     * Returns how the game ended.
+     * @return {@link #END_CHECKPOINT} if a pawn reached the checkpoint, {@link #END_DECK} otherwise.
+     */
+    public int getEnd() {
+        return end;
+    }
+
+    /**
+     * Returns the result for the first player.
+     * @return 1 if the first player leads, -1 if the second leads, 0 on a tie.
+     */
+    public int getResult() {
+        return Integer.signum(scores[0] - scores[1]);
+    }
+
+    public int getScore(int player) {
+        return scores[player];
+    }
+
+    /**
+     * Returns the turn after which the rare finding of a path was collected.
+     * @param path the path.
+     * @return the number of turns played by then, or -1 if it was not collected.
+     */
+    public int getRareTurn(int path) {
+        return rareTurn[path];
+    }
+
+    /**
+     * Returns who collected the rare finding of a path.
+     * @param path the path.
+     * @return the player, or -1 if it was not collected.
+     */
+    public int getRareCollector(int path) {
+        return rareCollector[path];
+    }
+
+    /**
+     * Returns the number of cards played on a path, by both players; discarded cards do not count.
+     * @param path the path.
+     * @return the number of cards.
+     */
+    public int getCardsPlayed(int path) {
+        return cardsPlayed[path];
+    }
+}
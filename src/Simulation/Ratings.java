@@ -0,0 +1,122 @@
+package Simulation;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Glicko ratings of the entrants of a tournament, updated as every game ends.
+ * <p>
+ * Each entrant's rating is an immutable {@link Rating} that a game replaces with a
+ * compare-and-set, so the worker threads never lock: when two games of the same entrant end at
+ * once, one of them retries with the other's result already in. Every game is rated as a rating
+ * period of its own, which is how Glicko treats a stream of results. The wins, draws and losses
+ * of every pairing are counted alongside.
+ */
+public class Ratings {
+    public static final double INITIAL_RATING = 1500;
+    public static final double INITIAL_DEVIATION = 350;
+    public static final double MIN_DEVIATION = 30; // so that late games still move a rating
+    private static final double Q = Math.log(10) / 400;
+
+    /**
+     * A rating and its deviation, which shrinks with every game rated.
+     */
+    public static final class Rating {
+        public final double rating;
+        public final double deviation;
+        public final long games;
+
+        Rating(double rating, double deviation, long games) {
+            this.rating = rating;
+            this.deviation = deviation;
+            this.games = games;
+        }
+
+        /**
+         * Returns the half width of the 95% confidence interval of the rating.
+         * @return 1.96 deviations.
+         */
+        public double getInterval() {
+            return 1.96 * deviation;
+        }
+    }
+
+    private final int entrants;
+    private final AtomicReferenceArray<Rating> ratings;
+    private final AtomicLongArray outcomes; // [a][b][win, draw, loss] of a against b
+
+    /**
+     * Constructs the starting ratings.
+     * @param entrants the number of entrants.
+     */
+    public Ratings(int entrants) {
+        this.entrants = entrants;
+        this.ratings = new AtomicReferenceArray<>(entrants);
+        this.outcomes = new AtomicLongArray(entrants * entrants * 3);
+        Rating initial = new Rating(INITIAL_RATING, INITIAL_DEVIATION, 0);
+        for (int i = 0; i < entrants; i++) {
+            ratings.set(i, initial);
+        }
+    }
+
+    /**
+     * Rates a game. May be called from any thread.
+     *
+     * @param a the first entrant.
+     * @param b the second entrant.
+     * @param result the result for the first entrant: 1 win, 0 draw, -1 loss.
+     */
+    public void record(int a, int b, int result) {
+        outcomes.incrementAndGet((a * entrants + b) * 3 + 1 - result);
+        outcomes.incrementAndGet((b * entrants + a) * 3 + 1 + result);
+        double score = (result + 1) / 2.0;
+        // both sides are rated against the opponent as it was before the game
+        Rating ratingA = ratings.get(a);
+        Rating ratingB = ratings.get(b);
+        update(a, ratingB, score);
+        update(b, ratingA, 1 - score);
+    }
+
+    private void update(int entrant, Rating opponent, double score) {
+        Rating current;
+        Rating next;
+        do {
+            current = ratings.get(entrant);
+            double g = 1 / Math.sqrt(1 + 3 * Q * Q * opponent.deviation * opponent.deviation / (Math.PI * Math.PI));
+            double expected = 1 / (1 + Math.pow(10, -g * (current.rating - opponent.rating) / 400));
+            double dSquared = 1 / (Q * Q * g * g * expected * (1 - expected));
+            double variance = 1 / (1 / (current.deviation * current.deviation) + 1 / dSquared);
+            next = new Rating(current.rating + Q * variance * g * (score - expected),
+                    Math.max(MIN_DEVIATION, Math.sqrt(variance)), current.games + 1);
+        } while (!ratings.compareAndSet(entrant, current, next));
+    }
+
+    public Rating getRating(int entrant) {
+        return ratings.get(entrant);
+    }
+
+    public long getWins(int a, int b) {
+        return outcomes.get((a * entrants + b) * 3);
+    }
+
+    public long getDraws(int a, int b) {
+        return outcomes.get((a * entrants + b) * 3 + 1);
+    }
+
+    public long getLosses(int a, int b) {
+        return outcomes.get((a * entrants + b) * 3 + 2);
+    }
+
+    /**
+     * Returns the points an entrant scored, a win counting 1 and a draw 1/2.
+     * @param entrant the entrant.
+     * @return the points against every opponent.
+     */
+    public double getPoints(int entrant) {
+        double points = 0;
+        for (int other = 0; other < entrants; other++) {
+            points += getWins(entrant, other) + getDraws(entrant, other) / 2.0;
+        }
+        return points;
+    }
+}
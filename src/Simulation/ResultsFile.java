@@ -0,0 +1,149 @@
+package Simulation;
+
+import Model.GameState;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The layout of a results file, in which {@link ResultsWriter} stores one row per simulated game
+ * and {@link ResultsReader} reads them back.
+ * <p>
+ * The file stores column by column rather than game by game, so that a question about a few
+ * columns only reads those. It starts with a header: the magic number, the version, the width of
+ * every column and the labels of the policies that played. Then come chunks of up to
+ * {@link #CHUNK_ROWS} games each: the number of games, then every column's values in turn. The
+ * chunks are written whole, so a file that is still being written, or whose writer died, can be
+ * read up to its last complete chunk. All numbers are big-endian and signed.
+ */
+public final class ResultsFile {
+    public static final int MAGIC = 0x4B4E5253; // "KNRS"
+    public static final int VERSION = 1;
+    public static final int CHUNK_ROWS = 1 << 16;
+
+    public static final int SEED = 0;
+    public static final int FIRST = 1;       // the label of the policy in the first seat
+    public static final int SECOND = 2;      // the label of the policy in the second seat
+    public static final int RESULT = 3;      // for the first seat: 1 win, 0 tie, -1 loss
+    public static final int SCORE = 4;       // + player
+    public static final int TURNS = SCORE + GameState.PLAYERS;
+    public static final int END = TURNS + 1; // one of the GameSummary.END_ constants
+    public static final int RARE_TURN = END + 1;                  // + path, -1 if not collected
+    public static final int RARE_BY = RARE_TURN + GameState.PATHS; // + path, -1 if not collected
+    public static final int CARDS = RARE_BY + GameState.PATHS;     // + path
+    public static final int COLUMNS = CARDS + GameState.PATHS;
+
+    static final int[] WIDTHS = new int[COLUMNS];
+    static final int[] OFFSETS = new int[COLUMNS + 1]; // per game in a chunk: the bytes of the columns before
+    private static final String[] NAMES = new String[COLUMNS];
+
+    static {
+        define(SEED, "seed", 8);
+        define(FIRST, "first", 1);
+        define(SECOND, "second", 1);
+        define(RESULT, "result", 1);
+        for (int player = 0; player < GameState.PLAYERS; player++) {
+            define(SCORE + player, "score" + player, 2);
+        }
+        define(TURNS, "turns", 2);
+        define(END, "end", 1);
+        for (int path = 0; path < GameState.PATHS; path++) {
+            String palace = GameState.PATH_NAMES[path].toLowerCase();
+            define(RARE_TURN + path, "rare_turn_" + palace, 2);
+            define(RARE_BY + path, "rare_by_" + palace, 1);
+            define(CARDS + path, "cards_" + palace, 1);
+        }
+        for (int column = 0; column < COLUMNS; column++) {
+            OFFSETS[column + 1] = OFFSETS[column] + WIDTHS[column];
+        }
+    }
+
+    private ResultsFile() {
+    }
+
+    private static void define(int column, String name, int width) {
+        NAMES[column] = name;
+        WIDTHS[column] = width;
+    }
+
+    public static String getName(int column) {
+        return NAMES[column];
+    }
+
+    /**
+     * Finds a column by its name.
+     *
+     * @param name the name, such as "result" or "rare_by_phaistos".
+     * @return the column.
+     * @throws IllegalArgumentException if there is no such column.
+     */
+    public static int column(String name) {
+        for (int column = 0; column < COLUMNS; column++) {
+            if (NAMES[column].equals(name)) {
+                return column;
+            }
+        }
+        throw new IllegalArgumentException("Unknown column: " + name);
+    }
+
+    /**
+     * Returns the number of bytes of a chunk.
+     * @param rows the number of games in the chunk.
+     * @return the bytes, with the count.
+     */
+    static long chunkBytes(int rows) {
+        return Integer.BYTES + (long) OFFSETS[COLUMNS] * rows;
+    }
+
+    static ByteBuffer header(List<String> labels) {
+        int size = Integer.BYTES + 2 * Short.BYTES + COLUMNS + Short.BYTES;
+        for (String label : labels) {
+            size += Short.BYTES + label.getBytes(StandardCharsets.UTF_8).length;
+        }
+        ByteBuffer header = ByteBuffer.allocate(size);
+        header.putInt(MAGIC).putShort((short) VERSION).putShort((short) COLUMNS);
+        for (int width : WIDTHS) {
+            header.put((byte) width);
+        }
+        header.putShort((short) labels.size());
+        for (String label : labels) {
+            byte[] bytes = label.getBytes(StandardCharsets.UTF_8);
+            header.putShort((short) bytes.length).put(bytes);
+        }
+        return header.flip();
+    }
+
+    /**
+     * Reads the header, leaving the buffer at the first chunk.
+     *
+     * @param in the start of the file.
+     * @return the labels of the policies.
+     * @throws IOException if the file is not a results file of this version.
+     */
+    static List<String> readHeader(ByteBuffer in) throws IOException {
+        if (in.remaining() < Integer.BYTES + 2 * Short.BYTES || in.getInt() != MAGIC) {
+            throw new IOException("Not a results file");
+        }
+        int version = in.getShort();
+        int columns = in.getShort();
+        if (version != VERSION || columns != COLUMNS) {
+            throw new IOException("Unsupported results file version " + version + " with " + columns + " columns");
+        }
+        for (int width : WIDTHS) {
+            if (in.get() != width) {
+                throw new IOException("Results file columns do not match");
+            }
+        }
+        List<String> labels = new ArrayList<>();
+        int count = in.getShort();
+        for (int i = 0; i < count; i++) {
+            byte[] bytes = new byte[in.getShort()];
+            in.get(bytes);
+            labels.add(new String(bytes, StandardCharsets.UTF_8));
+        }
+        return labels;
+    }
+}
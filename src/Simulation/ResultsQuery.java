@@ -0,0 +1,224 @@
+package Simulation;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.IntStream;
+
+/**
+ * Filters the games of a results file, groups them by a column and averages other columns.
+ * <p>
+ * A query reads only the columns it names, a chunk at a time, and the chunks are scanned in
+ * parallel, so it runs in the time it takes to page those columns in. For example, whether the
+ * Phaistos Disk decides too many games:
+ * <pre>
+ * ResultsQuery results.knrs by rare_by_phaistos mean result
+ * </pre>
+ * <p>
+ * Usage: {@code ResultsQuery file [where column=min[..max]]... [by column] [mean column]...}.
+ */
+public class ResultsQuery {
+    private final List<long[]> filters = new ArrayList<>(); // column, min, max
+    private int groupBy = -1;
+    private final List<Integer> means = new ArrayList<>();
+
+    /**
+     * The games that share a value of the grouping column.
+     */
+    public static final class Group {
+        private long count;
+        private final double[] sums;
+
+        Group(int means) {
+            this.sums = new double[means];
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Returns the mean of a column over the games of the group.
+         * @param mean the index of the column among the ones asked for with {@link #mean}.
+         * @return the mean.
+         */
+        public double getMean(int mean) {
+            return count == 0 ? Double.NaN : sums[mean] / count;
+        }
+
+        void add(Group other) {
+            count += other.count;
+            for (int i = 0; i < sums.length; i++) {
+                sums[i] += other.sums[i];
+            }
+        }
+    }
+
+    /**
+     * Keeps only the games whose value of a column lies in a range.
+     *
+     * @param column the column, one of the ResultsFile constants.
+     * @param min the smallest value kept.
+     * @param max the largest value kept.
+     * @return this query.
+     */
+    public ResultsQuery where(int column, long min, long max) {
+        filters.add(new long[]{column, min, max});
+        return this;
+    }
+
+    /**
+     * Groups the games by their value of a column; without it every game is in one group, under key 0.
+     * @param column the column, one of the ResultsFile constants.
+     * @return this query.
+     */
+    public ResultsQuery groupBy(int column) {
+        groupBy = column;
+        return this;
+    }
+
+    /**
+     * Averages a column in every group.
+     * @param column the column, one of the ResultsFile constants.
+     * @return this query.
+     */
+    public ResultsQuery mean(int column) {
+        means.add(column);
+        return this;
+    }
+
+    /**
+     * Runs the query.
+     *
+     * @param reader the results.
+     * @return the groups, by their value of the grouping column.
+     */
+    public TreeMap<Long, Group> run(ResultsReader reader) {
+        return IntStream.range(0, reader.getChunkCount()).parallel()
+                .mapToObj(chunk -> scan(reader, chunk))
+                .collect(TreeMap::new, ResultsQuery::merge, ResultsQuery::merge);
+    }
+
+    private static void merge(TreeMap<Long, Group> into, Map<Long, Group> groups) {
+        groups.forEach((key, group) -> into.merge(key, group, (a, b) -> {
+            a.add(b);
+            return a;
+        }));
+    }
+
+    private Map<Long, Group> scan(ResultsReader reader, int chunk) {
+        int rows = reader.getChunkRows(chunk);
+        boolean[] kept = new boolean[rows];
+        Arrays.fill(kept, true);
+        long[] values = new long[rows];
+        for (long[] filter : filters) {
+            reader.read(chunk, (int) filter[0], values);
+            for (int row = 0; row < rows; row++) {
+                kept[row] &= values[row] >= filter[1] && values[row] <= filter[2];
+            }
+        }
+
+        long[] keys = new long[rows];
+        if (groupBy >= 0) {
+            reader.read(chunk, groupBy, keys);
+        }
+        Map<Long, Group> groups = new HashMap<>();
+        Group[] small = new Group[256]; // the groups of keys that fit a byte, found without boxing the key
+        Group[] groupOf = new Group[rows];
+        for (int row = 0; row < rows; row++) {
+            if (kept[row]) {
+                long key = keys[row];
+                Group group;
+                if (key == (byte) key) {
+                    group = small[(int) key + 128];
+                    if (group == null) {
+                        group = small[(int) key + 128] = groups.computeIfAbsent(key, k -> new Group(means.size()));
+                    }
+                } else {
+                    group = groups.computeIfAbsent(key, k -> new Group(means.size()));
+                }
+                group.count++;
+                groupOf[row] = group;
+            }
+        }
+        for (int mean = 0; mean < means.size(); mean++) {
+            reader.read(chunk, means.get(mean), values);
+            for (int row = 0; row < rows; row++) {
+                if (kept[row]) {
+                    groupOf[row].sums[mean] += values[row];
+                }
+            }
+        }
+        return groups;
+    }
+
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.err.println("Usage: ResultsQuery file [where column=min[..max]]... [by column] [mean column]...");
+            return;
+        }
+        ResultsQuery query = new ResultsQuery();
+        try {
+            for (int i = 1; i < args.length; i++) {
+                String word = args[i];
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Missing argument after " + word);
+                }
+                String argument = args[++i];
+                switch (word) {
+                    case "where" -> {
+                        int equals = argument.indexOf('=');
+                        if (equals < 0) {
+                            throw new IllegalArgumentException("Expected column=min[..max], got " + argument);
+                        }
+                        String range = argument.substring(equals + 1);
+                        int dots = range.indexOf("..");
+                        long min = Long.parseLong(dots < 0 ? range : range.substring(0, dots));
+                        long max = dots < 0 ? min : Long.parseLong(range.substring(dots + 2));
+                        query.where(ResultsFile.column(argument.substring(0, equals)), min, max);
+                    }
+                    case "by" -> query.groupBy(ResultsFile.column(argument));
+                    case "mean" -> query.mean(ResultsFile.column(argument));
+                    default -> throw new IllegalArgumentException("Unknown word: " + word);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            return;
+        }
+
+        try (ResultsReader reader = new ResultsReader(Path.of(args[0]))) {
+            long start = System.nanoTime();
+            TreeMap<Long, Group> groups = query.run(reader);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            query.print(groups, reader.getLabels());
+            System.out.printf("%d games scanned in %.2f s%n", reader.getRows(), seconds);
+        } catch (IOException e) {
+            System.err.println("Cannot read " + args[0] + ": " + e.getMessage());
+        }
+    }
+
+    private void print(TreeMap<Long, Group> groups, List<String> labels) {
+        StringBuilder line = new StringBuilder(String.format("%-16s %12s", groupBy < 0 ? "" : ResultsFile.getName(groupBy), "games"));
+        for (int column : means) {
+            line.append(String.format(" %18s", "mean " + ResultsFile.getName(column)));
+        }
+        System.out.println(line);
+        for (Map.Entry<Long, Group> entry : groups.entrySet()) {
+            long key = entry.getKey();
+            boolean labelled = (groupBy == ResultsFile.FIRST || groupBy == ResultsFile.SECOND) && key >= 0 && key < labels.size();
+            line.setLength(0);
+            line.append(String.format("%-16s %12d", groupBy < 0 ? "all" : labelled ? labels.get((int) key) : Long.toString(key),
+                    entry.getValue().getCount()));
+            for (int mean = 0; mean < means.size(); mean++) {
+                line.append(String.format(" %18.4f", entry.getValue().getMean(mean)));
+            }
+            System.out.println(line);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package Simulation;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads a results file by mapping it into memory, see {@link ResultsFile}.
+ * <p>
+ * Every chunk is mapped on its own, so files far larger than the heap, or than 2 GB, can be read;
+ * the operating system pages in the columns that are actually read and drops them under pressure.
+ * The values are read in place, and a reader may be read from several threads at once.
+ */
+public class ResultsReader implements Closeable {
+    private final FileChannel channel;
+    private final List<String> labels;
+    private final List<MappedByteBuffer> chunks = new ArrayList<>();
+    private final List<Integer> chunkRows = new ArrayList<>();
+    private long rows;
+
+    /**
+     * Opens a results file and maps its complete chunks.
+     *
+     * @param file the file.
+     * @throws IOException if the file cannot be read or is not a results file.
+     */
+    public ResultsReader(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, 1 << 16));
+            this.labels = ResultsFile.readHeader(header);
+            long position = header.position();
+            ByteBuffer count = ByteBuffer.allocate(Integer.BYTES);
+            while (position + Integer.BYTES <= size) {
+                count.clear();
+                channel.read(count, position);
+                int chunk = count.flip().getInt();
+                long bytes = ResultsFile.chunkBytes(chunk);
+                if (chunk <= 0 || chunk > ResultsFile.CHUNK_ROWS || position + bytes > size) {
+                    break; // the chunk is still being written
+                }
+                chunks.add(channel.map(FileChannel.MapMode.READ_ONLY, position, bytes));
+                chunkRows.add(chunk);
+                rows += chunk;
+                position += bytes;
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the names of the policies, which the FIRST and SECOND columns index.
+     * @return the labels.
+     */
+    public List<String> getLabels() {
+        return labels;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public int getChunkCount() {
+        return chunks.size();
+    }
+
+    public int getChunkRows(int chunk) {
+        return chunkRows.get(chunk);
+    }
+
+    /**
+     * Reads a value.
+     *
+     * @param chunk the chunk.
+     * @param column the column, one of the ResultsFile constants.
+     * @param row the game within the chunk.
+     * @return the value.
+     */
+    public long get(int chunk, int column, int row) {
+        ByteBuffer buffer = chunks.get(chunk);
+        int width = ResultsFile.WIDTHS[column];
+        int at = Integer.BYTES + ResultsFile.OFFSETS[column] * chunkRows.get(chunk) + row * width;
+        return switch (width) {
+            case 1 -> buffer.get(at);
+            case 2 -> buffer.getShort(at);
+            default -> buffer.getLong(at);
+        };
+    }
+
+    /**
+     * Copies the values of a column in a chunk.
+     *
+     * @param chunk the chunk.
+     * @param column the column, one of the ResultsFile constants.
+     * @param values an array of at least getChunkRows(chunk) elements that receives the values.
+     */
+    public void read(int chunk, int column, long[] values) {
+        int rowsOfChunk = chunkRows.get(chunk);
+        ByteBuffer buffer = chunks.get(chunk);
+        int at = Integer.BYTES + ResultsFile.OFFSETS[column] * rowsOfChunk;
+        switch (ResultsFile.WIDTHS[column]) {
+            case 1 -> {
+                for (int row = 0; row < rowsOfChunk; row++) {
+                    values[row] = buffer.get(at + row);
+                }
+            }
+            case 2 -> {
+                for (int row = 0; row < rowsOfChunk; row++) {
+                    values[row] = buffer.getShort(at + 2 * row);
+                }
+            }
+            default -> {
+                for (int row = 0; row < rowsOfChunk; row++) {
+                    values[row] = buffer.getLong(at + 8 * row);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,115 @@
+package Simulation;
+
+import Model.GameState;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Streams game summaries into a results file, see {@link ResultsFile}.
+ * <p>
+ * The games of a chunk are gathered column by column in memory and written in one go once the
+ * chunk is full, so the writer holds a single chunk however many games it is given. Games may be
+ * appended from any thread.
+ */
+public class ResultsWriter implements Closeable {
+    private final FileChannel channel;
+    private final ByteBuffer count = ByteBuffer.allocate(Integer.BYTES);
+    private final ByteBuffer[] columns = new ByteBuffer[ResultsFile.COLUMNS];
+    private final ByteBuffer[] chunk = new ByteBuffer[ResultsFile.COLUMNS + 1];
+    private int rows;
+    private long games;
+
+    /**
+     * Creates a results file, replacing any file of the same name.
+     *
+     * @param file the file.
+     * @param labels the names of the policies, which the FIRST and SECOND columns index.
+     * @throws IOException if the file cannot be written.
+     */
+    public ResultsWriter(Path file, List<String> labels) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        for (int column = 0; column < ResultsFile.COLUMNS; column++) {
+            columns[column] = ByteBuffer.allocate(ResultsFile.CHUNK_ROWS * ResultsFile.WIDTHS[column]);
+        }
+        ByteBuffer header = ResultsFile.header(labels);
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+    }
+
+    /**
+     * Appends a game.
+     *
+     * @param summary the game, once it is over.
+     * @param first the label of the policy in the first seat.
+     * @param second the label of the policy in the second seat.
+     * @throws IOException if the file cannot be written.
+     */
+    public synchronized void append(GameSummary summary, int first, int second) throws IOException {
+        columns[ResultsFile.SEED].putLong(summary.getSeed());
+        columns[ResultsFile.FIRST].put((byte) first);
+        columns[ResultsFile.SECOND].put((byte) second);
+        columns[ResultsFile.RESULT].put((byte) summary.getResult());
+        for (int player = 0; player < GameState.PLAYERS; player++) {
+            columns[ResultsFile.SCORE + player].putShort((short) summary.getScore(player));
+        }
+        columns[ResultsFile.TURNS].putShort((short) summary.getTurns());
+        columns[ResultsFile.END].put((byte) summary.getEnd());
+        for (int path = 0; path < GameState.PATHS; path++) {
+            columns[ResultsFile.RARE_TURN + path].putShort((short) summary.getRareTurn(path));
+            columns[ResultsFile.RARE_BY + path].put((byte) summary.getRareCollector(path));
+            columns[ResultsFile.CARDS + path].put((byte) summary.getCardsPlayed(path));
+        }
+        games++;
+        if (++rows == ResultsFile.CHUNK_ROWS) {
+            writeChunk();
+        }
+    }
+
+    /**
+     * Writes the games appended so far as a chunk of their own, so that readers can see them.
+     * @throws IOException if the file cannot be written.
+     */
+    public synchronized void flush() throws IOException {
+        if (rows > 0) {
+            writeChunk();
+        }
+    }
+
+    public synchronized long getGames() {
+        return games;
+    }
+
+    private void writeChunk() throws IOException {
+        count.clear();
+        count.putInt(rows).flip();
+        chunk[0] = count;
+        for (int column = 0; column < ResultsFile.COLUMNS; column++) {
+            chunk[column + 1] = columns[column].flip();
+        }
+        long left = ResultsFile.chunkBytes(rows);
+        while (left > 0) {
+            left -= channel.write(chunk);
+        }
+        for (ByteBuffer column : columns) {
+            column.clear();
+        }
+        rows = 0;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+}
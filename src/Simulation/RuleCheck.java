@@ -0,0 +1,298 @@
+package Simulation;
+
+import Bot.Determinizer;
+import Bot.EndgameSolver;
+import Bot.TranspositionTable;
+import Model.GameJournal;
+import Model.GameReplay;
+import Model.GameSnapshot;
+import Model.GameState;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Checks the headless rules against slower ways of getting the same answers, on games played at
+ * random:
+ * <ul>
+ * <li>the {@link EndgameSolver} against a plain expectiminimax that tries every order of the deck
+ *     and remembers nothing, on games whose every card is known and whose deck is nearly empty</li>
+ * <li>the {@link GameState#writeTo} encoding and the {@link GameSnapshot} around it, of every turn
+ *     and of both players' views, against the state they were written from</li>
+ * <li>{@link GameState#lockstepHash}, which must change when two different cards of a hand or of
+ *     the deck swap places, and {@link GameState#hash}, which must not</li>
+ * <li>the {@link Determinizer}'s deals of both players' views, which must hold as many copies of
+ *     each card as are neither played nor discarded</li>
+ * <li>every turn of a {@link GameReplay}, sought in random order, against the game played straight
+ *     through</li>
+ * </ul>
+ * It prints every mismatch and exits with status 1 if there was one.
+ * <p>
+ * Usage: {@code RuleCheck [games] [seed]}.
+ */
+public class RuleCheck {
+    private static final double TOLERANCE = 1e-5; // the solver's table keeps floats
+    private static final int SOLVED_DECK_SIZE = 3;
+
+    private final SplittableRandom random;
+    private final EndgameSolver solver = new EndgameSolver(SOLVED_DECK_SIZE, new TranspositionTable(1 << 22));
+    private final Determinizer determinizer;
+    private final GameState dealt = new GameState();
+    private final int[] actions = new int[GameState.MAX_ACTIONS];
+    private int checks;
+    private int failures;
+
+    private RuleCheck(long seed) {
+        this.random = new SplittableRandom(seed);
+        this.determinizer = new Determinizer(seed);
+    }
+
+    public static void main(String[] args) throws IOException {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 1;
+
+        RuleCheck check = new RuleCheck(seed);
+        long start = System.nanoTime();
+        for (int game = 0; game < games; game++) {
+            check.checkGame(check.random.nextLong());
+        }
+        System.out.printf("%d checks on %d games in %.1f s, %d failed%n",
+                check.checks, games, (System.nanoTime() - start) / 1e9, check.failures);
+        if (check.failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Plays one game at random, checking the encodings on every turn, then the replay of the game
+     * and the solver on its last turns.
+     */
+    private void checkGame(long seed) throws IOException {
+        GameState state = GameState.newGame(seed);
+        File file = File.createTempFile("rulecheck", ".journal");
+        GameState[] turns = new GameState[16];
+        int turnCount = 0;
+        try {
+            try (GameJournal journal = GameJournal.create(file, seed, state)) {
+                while (true) {
+                    if (turnCount == turns.length) {
+                        turns = Arrays.copyOf(turns, turnCount * 2);
+                    }
+                    turns[turnCount++] = state.copy();
+                    checkEncoding(seed, state);
+                    checkDeals(seed, state);
+                    if (state.getDeckSize() <= SOLVED_DECK_SIZE && !state.isTerminal()) {
+                        checkSolver(seed, state);
+                    }
+                    if (state.isTerminal()) {
+                        break;
+                    }
+                    int action = actions[random.nextInt(state.legalActions(actions))];
+                    journal.recordTurn(state, action);
+                    state.apply(action);
+                }
+                journal.recordEnd(state.getResult());
+            }
+            checkReplay(seed, GameReplay.load(file), turns, turnCount);
+        } finally {
+            if (!file.delete()) {
+                System.err.println("Cannot delete " + file);
+            }
+        }
+    }
+
+    // ---------------------------------------------
+    // Encodings
+    // ---------------------------------------------
+
+    private void checkEncoding(long seed, GameState state) throws IOException {
+        roundTrip(seed, "state", state);
+        for (int player = 0; player < GameState.PLAYERS; player++) {
+            roundTrip(seed, "view of player " + player, state.observedBy(player));
+        }
+
+        checkCardOrder(seed, state);
+
+        GameSnapshot snapshot = new GameSnapshot(seed, state.getTurn(), state);
+        GameSnapshot read = GameSnapshot.read(ByteBuffer.wrap(snapshot.toBytes()));
+        expect(read.getSeed() == seed && read.getTurn() == state.getTurn()
+                        && Arrays.equals(encode(read.getState()), encode(state)),
+                seed, state, "snapshot does not read back as it was written");
+    }
+
+    private void roundTrip(long seed, String what, GameState state) throws IOException {
+        byte[] bytes = encode(state);
+        GameState read = GameState.readFrom(ByteBuffer.wrap(bytes));
+        expect(read.hash() == state.hash() && read.lockstepHash() == state.lockstepHash()
+                        && read.getObserver() == state.getObserver()
+                        && Arrays.equals(encode(read), bytes) && Arrays.equals(spent(read), spent(state)),
+                seed, state, what + " does not read back as it was written");
+    }
+
+    /**
+     * Swaps the first two different cards of each hand and of the deck, which only the hash of
+     * the lockstep check must notice.
+     */
+    private void checkCardOrder(long seed, GameState state) {
+        for (int player = 0; player < GameState.PLAYERS; player++) {
+            int first = state.getHandCard(player, 0);
+            for (int slot = 1; slot < state.getHandSize(player); slot++) {
+                int other = state.getHandCard(player, slot);
+                if (other != first) {
+                    GameState swapped = state.copy();
+                    swapped.setHandCard(player, 0, other);
+                    swapped.setHandCard(player, slot, first);
+                    expect(swapped.hash() == state.hash() && swapped.lockstepHash() != state.lockstepHash(),
+                            seed, state, "swapping slots 0 and " + slot + " of player " + player + " is not told apart");
+                    break;
+                }
+            }
+        }
+        if (state.getDeckSize() == 0) {
+            return;
+        }
+        int top = state.getDeckCard(0);
+        for (int depth = 1; depth < state.getDeckSize(); depth++) {
+            int other = state.getDeckCard(depth);
+            if (other != top) {
+                GameState swapped = state.copy();
+                swapped.setDeckCard(0, other);
+                swapped.setDeckCard(depth, top);
+                expect(swapped.hash() == state.hash() && swapped.lockstepHash() != state.lockstepHash(),
+                        seed, state, "swapping the deck's top and depth " + depth + " is not told apart");
+                return;
+            }
+        }
+    }
+
+    private static int[] spent(GameState state) {
+        int[] spent = new int[GameState.CARD_CODES];
+        for (int code = 0; code < GameState.CARD_CODES; code++) {
+            spent[code] = state.getSpent(code);
+        }
+        return spent;
+    }
+
+    private static byte[] encode(GameState state) {
+        ByteBuffer out = ByteBuffer.allocate(512);
+        state.writeTo(out);
+        return Arrays.copyOf(out.array(), out.position());
+    }
+
+    // ---------------------------------------------
+    // Deals
+    // ---------------------------------------------
+
+    private void checkDeals(long seed, GameState state) {
+        for (int player = 0; player < GameState.PLAYERS; player++) {
+            GameState view = state.observedBy(player);
+            determinizer.deal(view, dealt);
+            int[] copies = new int[GameState.CARD_CODES];
+            for (int p = 0; p < GameState.PLAYERS; p++) {
+                for (int slot = 0; slot < dealt.getHandSize(p); slot++) {
+                    copies[dealt.getHandCard(p, slot)]++;
+                }
+            }
+            for (int depth = 0; depth < dealt.getDeckSize(); depth++) {
+                copies[dealt.getDeckCard(depth)]++;
+            }
+            for (int code = 0; code < GameState.CARD_CODES; code++) {
+                int left = GameState.cardCopies(code) - view.getSpent(code);
+                expect(copies[code] == left, seed, state,
+                        "deal for player " + player + " holds " + copies[code] + " copies of card " + code + ", " + left + " are left");
+            }
+        }
+    }
+
+    // ---------------------------------------------
+    // Replay
+    // ---------------------------------------------
+
+    private void checkReplay(long seed, GameReplay replay, GameState[] turns, int turnCount) {
+        expect(replay.getTurnCount() == turnCount - 1, seed, turns[0], "replay has " + replay.getTurnCount() + " turns");
+        int[] order = new int[turnCount];
+        for (int turn = 0; turn < turnCount; turn++) {
+            order[turn] = turn;
+        }
+        for (int i = turnCount - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+        }
+        for (int turn : order) {
+            GameState sought = replay.seek(turn);
+            expect(Arrays.equals(encode(sought), encode(turns[turn])), seed, turns[turn], "replay differs at turn " + turn);
+        }
+    }
+
+    // ---------------------------------------------
+    // Solver
+    // ---------------------------------------------
+
+    private void checkSolver(long seed, GameState state) {
+        double solved = solver.solve(state);
+        double exact = bruteForce(state);
+        expect(Math.abs(solved - exact) <= TOLERANCE, seed, state, "solver says " + solved + ", enumeration " + exact);
+
+        // the solver's action must be one of the best, whichever it picks among equals
+        int best = solver.bestAction(state);
+        int sign = state.getActivePlayer() == 0 ? 1 : -1;
+        double bestValue = sign * afterAction(state, best);
+        expect(Math.abs(bestValue - sign * exact) <= TOLERANCE, seed, state,
+                "solver plays " + best + " worth " + sign * bestValue + ", the best is worth " + exact);
+    }
+
+    /**
+     * The value of a position for the first player: the best action of the player to move, or the
+     * result of a finished game.
+     */
+    private double bruteForce(GameState state) {
+        if (state.isTerminal()) {
+            return state.getResult();
+        }
+        int[] choices = new int[GameState.MAX_ACTIONS];
+        int count = state.legalActions(choices);
+        boolean maximizing = state.getActivePlayer() == 0;
+        double best = maximizing ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+        for (int i = 0; i < count; i++) {
+            double value = afterAction(state, choices[i]);
+            best = maximizing ? Math.max(best, value) : Math.min(best, value);
+        }
+        return best;
+    }
+
+    /**
+     * The value of an action averaged over every card of the deck coming up next, each place in
+     * the deck counting once.
+     */
+    private double afterAction(GameState state, int action) {
+        int deckSize = state.getDeckSize();
+        if (deckSize == 0) {
+            GameState child = state.copy();
+            child.apply(action);
+            return bruteForce(child);
+        }
+        double total = 0.0;
+        for (int depth = 0; depth < deckSize; depth++) {
+            GameState child = state.copy();
+            int top = child.getDeckCard(0);
+            child.setDeckCard(0, child.getDeckCard(depth));
+            child.setDeckCard(depth, top);
+            child.apply(action);
+            total += bruteForce(child);
+        }
+        return total / deckSize;
+    }
+
+    private void expect(boolean holds, long seed, GameState state, String message) {
+        checks++;
+        if (!holds) {
+            failures++;
+            System.out.printf("seed %d, turn %d: %s%n", seed, state.getTurn(), message);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package Simulation;
+
+import Model.GameState;
+
+/**
+ * The layout of a self-play dataset, which {@link SampleWriter} writes and {@link SampleReader} reads.
+ * <p>
+ * A dataset is two files. The samples file is a header of {@link #HEADER_BYTES} bytes followed by
+ * one record of {@link #STRIDE} bytes per decision, so that sample n lies at a known offset; its
+ * header holds the magic number, the version, the stride, the number of features and actions per
+ * record and the number of samples. The index file lists the games, one entry of
+ * {@link #INDEX_BYTES} bytes per game number after a header of the same size: the seed, the
+ * first sample and the number of samples. The samples of a game are consecutive, but the games
+ * are not in the order of their numbers. All numbers are big-endian.
+ * <p>
+ * A record holds the decision as the player to move saw it: the features of that player and then
+ * of the opponent, the size of the deck, the legal actions, the share of the search that went to
+ * every action, the action played and the result of the game for that player.
+ */
+public final class SampleFile {
+    public static final int MAGIC = 0x4B4E5350; // "KNSP"
+    public static final int INDEX_MAGIC = 0x4B4E5349; // "KNSI"
+    public static final int VERSION = 1;
+    public static final int HEADER_BYTES = 64;
+    public static final int STRIDE = 128;
+    public static final int INDEX_BYTES = 24;
+    public static final String SAMPLES_SUFFIX = ".samples";
+    public static final String INDEX_SUFFIX = ".index";
+
+    // header
+    static final int HEADER_STRIDE = 6;
+    static final int HEADER_FEATURES = 8;
+    static final int HEADER_ACTIONS = 10;
+    static final int HEADER_COUNT = 16;
+
+    // record
+    public static final int GAME = 0;         // int, the game number
+    public static final int TURN = 4;         // short, the turns played before the decision
+    public static final int MOVER = 6;        // byte, the player to move
+    public static final int OUTCOME = 7;      // byte, the result for the player to move: 1 win, 0 tie, -1 loss
+    public static final int DECK = 8;         // byte, the cards left in the deck
+    public static final int ACTION_COUNT = 9; // byte, the number of legal actions
+    public static final int CHOSEN = 10;      // byte, the index among the legal actions of the one played
+    public static final int FEATURES = 12;    // short per feature, the mover's GameState.FEATURES, then the opponent's
+    public static final int ACTIONS = FEATURES + Short.BYTES * GameState.PLAYERS * GameState.FEATURES; // byte per action
+    public static final int VISITS = ACTIONS + GameState.MAX_ACTIONS; // unsigned short per action, of VISIT_SCALE
+
+    public static final int VISIT_SCALE = 0xFFFF;
+
+    private SampleFile() {
+    }
+}
@@ -0,0 +1,165 @@
+package Simulation;
+
+import Model.GameState;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a self-play dataset by mapping it into memory, see {@link SampleFile}.
+ * <p>
+ * The samples are read in place, a region of the file at a time, so datasets far larger than the
+ * heap can be read; a reader may be read from several threads at once.
+ */
+public class SampleReader implements Closeable {
+    private final FileChannel samples;
+    private final FileChannel index;
+    private final MappedByteBuffer[] regions;
+    private final MappedByteBuffer games;
+    private final long count;
+    private final int gameCount;
+
+    /**
+     * Opens a dataset.
+     *
+     * @param base the path of the files without their suffixes.
+     * @throws IOException if the files cannot be read or are not a dataset of this version.
+     */
+    public SampleReader(Path base) throws IOException {
+        this.samples = FileChannel.open(Path.of(base + SampleFile.SAMPLES_SUFFIX), StandardOpenOption.READ);
+        this.index = FileChannel.open(Path.of(base + SampleFile.INDEX_SUFFIX), StandardOpenOption.READ);
+        try {
+            ByteBuffer header = samples.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(samples.size(), SampleFile.HEADER_BYTES));
+            if (header.remaining() < SampleFile.HEADER_BYTES || header.getInt(0) != SampleFile.MAGIC) {
+                throw new IOException("Not a self-play dataset");
+            }
+            if (header.getShort(4) != SampleFile.VERSION || header.getShort(SampleFile.HEADER_STRIDE) != SampleFile.STRIDE
+                    || header.getShort(SampleFile.HEADER_FEATURES) != GameState.FEATURES
+                    || header.getShort(SampleFile.HEADER_ACTIONS) != GameState.MAX_ACTIONS) {
+                throw new IOException("Unsupported self-play dataset version " + header.getShort(4));
+            }
+            this.count = header.getLong(SampleFile.HEADER_COUNT);
+            long bytes = count * SampleFile.STRIDE;
+            if (samples.size() < SampleFile.HEADER_BYTES + bytes) {
+                throw new IOException("Self-play dataset is truncated");
+            }
+            this.regions = new MappedByteBuffer[(int) ((bytes + SampleWriter.REGION_BYTES - 1) / SampleWriter.REGION_BYTES)];
+            for (int region = 0; region < regions.length; region++) {
+                long start = region * SampleWriter.REGION_BYTES;
+                regions[region] = samples.map(FileChannel.MapMode.READ_ONLY, SampleFile.HEADER_BYTES + start,
+                        Math.min(SampleWriter.REGION_BYTES, bytes - start));
+            }
+
+            this.games = index.map(FileChannel.MapMode.READ_ONLY, 0, index.size());
+            if (games.remaining() < SampleFile.INDEX_BYTES || games.getInt(0) != SampleFile.INDEX_MAGIC) {
+                throw new IOException("Not a self-play index");
+            }
+            this.gameCount = games.remaining() / SampleFile.INDEX_BYTES - 1;
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    public long size() {
+        return count;
+    }
+
+    public int getGameCount() {
+        return gameCount;
+    }
+
+    public long getGameSeed(int game) {
+        return games.getLong((game + 1) * SampleFile.INDEX_BYTES);
+    }
+
+    public long getGameFirstSample(int game) {
+        return games.getLong((game + 1) * SampleFile.INDEX_BYTES + 8);
+    }
+
+    public int getGameSamples(int game) {
+        return games.getInt((game + 1) * SampleFile.INDEX_BYTES + 16);
+    }
+
+    public int getGame(long sample) {
+        return region(sample).getInt(offset(sample) + SampleFile.GAME);
+    }
+
+    public int getTurn(long sample) {
+        return region(sample).getShort(offset(sample) + SampleFile.TURN);
+    }
+
+    public int getMover(long sample) {
+        return region(sample).get(offset(sample) + SampleFile.MOVER);
+    }
+
+    /**
+     * Returns the result of the game for the player who made the decision.
+     * @param sample the sample.
+     * @return 1 win, 0 tie, -1 loss.
+     */
+    public int getOutcome(long sample) {
+        return region(sample).get(offset(sample) + SampleFile.OUTCOME);
+    }
+
+    public int getDeckSize(long sample) {
+        return region(sample).get(offset(sample) + SampleFile.DECK);
+    }
+
+    public int getActionCount(long sample) {
+        return region(sample).get(offset(sample) + SampleFile.ACTION_COUNT);
+    }
+
+    public int getChosen(long sample) {
+        return region(sample).get(offset(sample) + SampleFile.CHOSEN);
+    }
+
+    /**
+     * Returns a feature as the player who made the decision saw it.
+     *
+     * @param sample the sample.
+     * @param side 0 for the player who made the decision, 1 for the opponent.
+     * @param feature one of the GameState.FEATURE_ constants.
+     * @return the value of the feature.
+     */
+    public int getFeature(long sample, int side, int feature) {
+        return region(sample).getShort(offset(sample) + SampleFile.FEATURES + 2 * (side * GameState.FEATURES + feature));
+    }
+
+    public int getAction(long sample, int i) {
+        return region(sample).get(offset(sample) + SampleFile.ACTIONS + i);
+    }
+
+    /**
+     * Returns the share of the search that went to an action.
+     *
+     * @param sample the sample.
+     * @param i the index among the legal actions.
+     * @return the share, 0 to 1.
+     */
+    public double getVisits(long sample, int i) {
+        return (region(sample).getShort(offset(sample) + SampleFile.VISITS + 2 * i) & 0xFFFF) / (double) SampleFile.VISIT_SCALE;
+    }
+
+    private MappedByteBuffer region(long sample) {
+        return regions[(int) (sample * SampleFile.STRIDE / SampleWriter.REGION_BYTES)];
+    }
+
+    private static int offset(long sample) {
+        return (int) (sample * SampleFile.STRIDE % SampleWriter.REGION_BYTES);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            samples.close();
+        } finally {
+            index.close();
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package Simulation;
+
+import Model.GameState;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes a self-play dataset, see {@link SampleFile}, from many threads at once.
+ * <p>
+ * Every thread fills a {@link Batch} of its own, a game at a time. A full batch claims the next
+ * free samples of the file with a single atomic add and copies itself into the memory-mapped
+ * file there, so threads never wait for each other and the samples reach the file without a
+ * write call. The file is mapped a region of {@link #REGION_BYTES} at a time as it grows. The
+ * number of samples is written to the header when the writer is closed.
+ */
+public class SampleWriter implements Closeable {
+    public static final int BATCH_SAMPLES = 4096;
+    public static final int MAX_GAME_SAMPLES = 256; // more than a game has turns
+    static final long REGION_BYTES = 1L << 30;      // a multiple of the stride
+
+    private final FileChannel samples;
+    private final FileChannel index;
+    private final List<MappedByteBuffer> regions = new ArrayList<>();
+    private final AtomicLong nextSample = new AtomicLong();
+    private final AtomicInteger nextGame = new AtomicInteger();
+    private final Queue<Batch> batches = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The samples of one thread that have not reached the file yet.
+     */
+    public final class Batch {
+        private final ByteBuffer buffer = ByteBuffer.allocate(BATCH_SAMPLES * SampleFile.STRIDE);
+        private final ByteBuffer entry = ByteBuffer.allocate(SampleFile.INDEX_BYTES);
+        private final int[] gameNumbers = new int[BATCH_SAMPLES];
+        private final long[] gameSeeds = new long[BATCH_SAMPLES];
+        private final int[] gameFirst = new int[BATCH_SAMPLES];
+        private int games;
+        private int count;
+
+        private Batch() {
+        }
+
+        /**
+         * Starts the samples of a new game, writing the batch out first if the game might not fit.
+         *
+         * @param seed the seed of the game.
+         * @return the game number.
+         * @throws IOException if the file cannot be written.
+         */
+        public int beginGame(long seed) throws IOException {
+            if (count + MAX_GAME_SAMPLES > BATCH_SAMPLES) {
+                flush();
+            }
+            int game = nextGame.getAndIncrement();
+            gameNumbers[games] = game;
+            gameSeeds[games] = seed;
+            gameFirst[games] = count;
+            games++;
+            return game;
+        }
+
+        /**
+         * Adds a decision of the game begun last.
+         *
+         * @param state the game before the decision.
+         * @param actions the legal actions.
+         * @param actionCount the number of legal actions.
+         * @param visits the share of the search that went to every action, summing to 1.
+         * @param chosen the index of the action played.
+         * @throws IllegalStateException if the game has more decisions than {@link #MAX_GAME_SAMPLES}.
+         */
+        public void add(GameState state, int[] actions, int actionCount, double[] visits, int chosen) {
+            if (count - gameFirst[games - 1] >= MAX_GAME_SAMPLES) {
+                throw new IllegalStateException("A game has more than " + MAX_GAME_SAMPLES + " decisions");
+            }
+            int at = count * SampleFile.STRIDE;
+            int mover = state.getActivePlayer();
+            buffer.putInt(at + SampleFile.GAME, gameNumbers[games - 1]);
+            buffer.putShort(at + SampleFile.TURN, (short) state.getTurn());
+            buffer.put(at + SampleFile.MOVER, (byte) mover);
+            buffer.put(at + SampleFile.DECK, (byte) state.getDeckSize());
+            buffer.put(at + SampleFile.ACTION_COUNT, (byte) actionCount);
+            buffer.put(at + SampleFile.CHOSEN, (byte) chosen);
+            for (int side = 0; side < GameState.PLAYERS; side++) {
+                int player = side == 0 ? mover : 1 - mover;
+                for (int f = 0; f < GameState.FEATURES; f++) {
+                    buffer.putShort(at + SampleFile.FEATURES + 2 * (side * GameState.FEATURES + f), (short) state.getFeature(player, f));
+                }
+            }
+            for (int i = 0; i < GameState.MAX_ACTIONS; i++) {
+                boolean legal = i < actionCount;
+                buffer.put(at + SampleFile.ACTIONS + i, (byte) (legal ? actions[i] : -1));
+                buffer.putShort(at + SampleFile.VISITS + 2 * i, (short) (legal ? Math.round(visits[i] * SampleFile.VISIT_SCALE) : 0));
+            }
+            count++;
+        }
+
+        /**
+         * Ends the game begun last, giving its samples their outcome.
+         * @param result the result for the first player: 1 win, 0 tie, -1 loss.
+         */
+        public void endGame(int result) {
+            for (int sample = gameFirst[games - 1]; sample < count; sample++) {
+                int at = sample * SampleFile.STRIDE;
+                int mover = buffer.get(at + SampleFile.MOVER);
+                buffer.put(at + SampleFile.OUTCOME, (byte) (mover == 0 ? result : -result));
+            }
+        }
+
+        /**
+         * Drops the samples of the game begun last, such as one that could not be finished.
+         */
+        public void abandonGame() {
+            games--;
+            count = gameFirst[games];
+        }
+
+        /**
+         * Writes the batch out and empties it.
+         * @throws IOException if the file cannot be written.
+         */
+        void flush() throws IOException {
+            if (count == 0) {
+                games = 0;
+                return;
+            }
+            long first = nextSample.getAndAdd(count);
+            long position = (long) SampleFile.HEADER_BYTES + first * SampleFile.STRIDE;
+            int done = 0;
+            int bytes = count * SampleFile.STRIDE;
+            while (done < bytes) {
+                int offset = (int) ((position + done - SampleFile.HEADER_BYTES) % REGION_BYTES);
+                MappedByteBuffer region = region((int) ((position + done - SampleFile.HEADER_BYTES) / REGION_BYTES));
+                int length = (int) Math.min(bytes - done, REGION_BYTES - offset);
+                region.put(offset, buffer.array(), done, length);
+                done += length;
+            }
+            for (int game = 0; game < games; game++) {
+                int end = game + 1 < games ? gameFirst[game + 1] : count;
+                entry.clear();
+                entry.putLong(gameSeeds[game]).putLong(first + gameFirst[game]).putInt(end - gameFirst[game]).putInt(0).flip();
+                long at = (long) SampleFile.INDEX_BYTES * (gameNumbers[game] + 1);
+                while (entry.hasRemaining()) {
+                    index.write(entry, at + entry.position());
+                }
+            }
+            games = 0;
+            count = 0;
+        }
+    }
+
+    /**
+     * Creates a dataset, replacing any of the same name.
+     *
+     * @param base the path of the files without their suffixes.
+     * @throws IOException if the files cannot be written.
+     */
+    public SampleWriter(Path base) throws IOException {
+        this.samples = FileChannel.open(Path.of(base + SampleFile.SAMPLES_SUFFIX), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        this.index = FileChannel.open(Path.of(base + SampleFile.INDEX_SUFFIX), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        writeHeader(0);
+        ByteBuffer header = ByteBuffer.allocate(SampleFile.INDEX_BYTES);
+        header.putInt(SampleFile.INDEX_MAGIC).putShort((short) SampleFile.VERSION).flip();
+        while (header.hasRemaining()) {
+            index.write(header, header.position());
+        }
+    }
+
+    /**
+     * Returns a new batch for a thread to fill; the writer writes it out when it is closed.
+     * @return the batch.
+     */
+    public Batch newBatch() {
+        Batch batch = new Batch();
+        batches.add(batch);
+        return batch;
+    }
+
+    /**
+     * Returns the number of samples written out so far.
+     * @return the samples.
+     */
+    public long getSamples() {
+        return nextSample.get();
+    }
+
+    private synchronized MappedByteBuffer region(int region) throws IOException {
+        while (regions.size() <= region) {
+            regions.add(samples.map(FileChannel.MapMode.READ_WRITE,
+                    SampleFile.HEADER_BYTES + regions.size() * REGION_BYTES, REGION_BYTES));
+        }
+        return regions.get(region);
+    }
+
+    private void writeHeader(long count) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(SampleFile.HEADER_BYTES);
+        header.putInt(SampleFile.MAGIC).putShort((short) SampleFile.VERSION)
+                .putShort(SampleFile.HEADER_STRIDE, (short) SampleFile.STRIDE)
+                .putShort(SampleFile.HEADER_FEATURES, (short) GameState.FEATURES)
+                .putShort(SampleFile.HEADER_ACTIONS, (short) GameState.MAX_ACTIONS)
+                .putLong(SampleFile.HEADER_COUNT, count);
+        header.clear();
+        while (header.hasRemaining()) {
+            samples.write(header, header.position());
+        }
+    }
+
+    /**
+     * Writes out every batch, which no thread may be filling any more, and completes the files.
+     * @throws IOException if the files cannot be written.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            Batch batch;
+            while ((batch = batches.poll()) != null) {
+                batch.flush();
+            }
+            long count = nextSample.get();
+            for (MappedByteBuffer region : regions) {
+                region.force();
+            }
+            writeHeader(count);
+            // the last region was mapped whole; the file ends with the last sample
+            samples.truncate(SampleFile.HEADER_BYTES + count * SampleFile.STRIDE);
+            samples.force(true);
+            index.force(true);
+        } finally {
+            samples.close();
+            index.close();
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package Simulation;
+
+import Bot.Policies;
+import Bot.Policy;
+import Model.GameState;
+import Model.SeedBank;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Rates random seeds for fairness and keeps the fairest in a {@link SeedBank}.
+ * <p>
+ * Every seed is played from the deal {@link GameState#newGame} gives it by {@link Policies noisy}
+ * greedy bots on both sides, whose random moves make every game from the deal a different one.
+ * A short screen first throws out the seeds that clearly favour one side; the rest are played
+ * long enough to tell. Seeds whose finding layouts are equivalent, see {@link SeedBank#layoutKey},
+ * count as one: only the fairest of them is kept, and once a layout has a fair seed the other
+ * seeds with it are not played at all. A seed is fair when its bias is within {@link #FAIR_BIAS}
+ * and its 95% interval holds 0.
+ * <p>
+ * Usage: {@code SeedBankBuilder [seeds] [threads] [file]}.
+ */
+public class SeedBankBuilder {
+    public static final int SCREEN_GAMES = 16;
+    public static final double SCREEN_BIAS = 0.3;
+    public static final int RATING_GAMES = 96;
+    public static final float FAIR_BIAS = 0.1f;
+    private static final long PROGRESS_SECONDS = 10;
+
+    private static final Comparator<SeedBank.Entry> FAIREST = Comparator
+            .comparing((SeedBank.Entry entry) -> !isFair(entry))
+            .thenComparingDouble(entry -> Math.abs(entry.bias))
+            .thenComparingDouble(entry -> entry.interval);
+
+    private final Supplier<Policy> factory = Policies.factory("noisy");
+    private final ThreadLocal<Policy[]> policies = ThreadLocal.withInitial(() -> new Policy[]{factory.get(), factory.get()});
+    private final ConcurrentHashMap<Long, SeedBank.Entry> best = new ConcurrentHashMap<>();
+    private final AtomicLong rated = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong screenedOut = new AtomicLong();
+    private final AtomicLong games = new AtomicLong();
+
+    public static void main(String[] args) {
+        long seeds = args.length > 0 ? Long.parseLong(args[0]) : 10_000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        File file = args.length > 2 ? new File(args[2]) : SeedBank.DEFAULT_FILE;
+
+        SeedBankBuilder builder = new SeedBankBuilder();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        long start = System.nanoTime();
+        builder.rate(pool, seeds, new SplittableRandom(System.nanoTime()));
+        pool.shutdown();
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        List<SeedBank.Entry> entries = builder.entries();
+        long fair = entries.stream().filter(SeedBankBuilder::isFair).count();
+        try {
+            SeedBank.write(file, entries, fair, FAIR_BIAS);
+        } catch (IOException e) {
+            System.err.println("Cannot write " + file + ": " + e.getMessage());
+            return;
+        }
+        System.out.printf("%d seeds in %.1f s (%.0f seeds/s, %.0f games/s): %d screened out, %d repeated a layout%n",
+                seeds, seconds, seeds / seconds, builder.games.get() / seconds, builder.screenedOut.get(), builder.skipped.get());
+        System.out.printf("%d layouts, %d with a fair seed, written to %s%n", entries.size(), fair, file);
+    }
+
+    /**
+     * Rates seeds on a pool and waits for them.
+     *
+     * @param pool where the games run.
+     * @param count the number of seeds.
+     * @param random the source of the seeds.
+     */
+    public void rate(ForkJoinPool pool, long count, SplittableRandom random) {
+        for (long i = 0; i < count; i++) {
+            long seed = random.nextLong();
+            pool.execute(() -> rate(seed));
+        }
+        long start = System.nanoTime();
+        while (!pool.awaitQuiescence(PROGRESS_SECONDS, TimeUnit.SECONDS)) {
+            long done = rated.get() + skipped.get();
+            double rate = done / ((System.nanoTime() - start) / 1e9);
+            System.out.printf("%d/%d seeds, %.0f seeds/s, %d layouts, %.0f s left%n", done, count, rate, best.size(),
+                    rate > 0 ? (count - done) / rate : Double.NaN);
+        }
+    }
+
+    /**
+     * Rates one seed and keeps it if it is the fairest of its layout. Runs on a worker of the pool.
+     */
+    private void rate(long seed) {
+        GameState setup = GameState.newGame(seed);
+        long layout = SeedBank.layoutKey(setup);
+        SeedBank.Entry known = best.get(layout);
+        if (known != null && isFair(known)) {
+            skipped.incrementAndGet();
+            return;
+        }
+
+        Policy[] own = policies.get();
+        GameState state = new GameState();
+        long sum = 0;
+        long squares = 0;
+        int played = 0;
+        while (played < RATING_GAMES) {
+            state.copyFrom(setup);
+            while (!state.isTerminal()) {
+                int player = state.getActivePlayer();
+                state.apply(own[player].chooseAction(state.observedBy(player)));
+            }
+            int result = state.getResult();
+            sum += result;
+            squares += (long) result * result;
+            played++;
+            if (played == SCREEN_GAMES && Math.abs((double) sum / played) > SCREEN_BIAS) {
+                screenedOut.incrementAndGet();
+                break;
+            }
+        }
+        games.addAndGet(played);
+        rated.incrementAndGet();
+
+        double bias = (double) sum / played;
+        double variance = Math.max(0, (double) squares / played - bias * bias);
+        double interval = 1.96 * Math.sqrt(variance / played);
+        best.merge(layout, new SeedBank.Entry(seed, layout, (float) bias, (float) interval),
+                (a, b) -> FAIREST.compare(a, b) <= 0 ? a : b);
+    }
+
+    static boolean isFair(SeedBank.Entry entry) {
+        return Math.abs(entry.bias) <= FAIR_BIAS && Math.abs(entry.bias) <= entry.interval;
+    }
+
+    /**
+     * Returns the fairest seed of every layout, fair seeds first and then by their bias.
+     * @return the seeds.
+     */
+    public List<SeedBank.Entry> entries() {
+        List<SeedBank.Entry> entries = new ArrayList<>(best.values());
+        entries.sort(FAIREST);
+        return entries;
+    }
+}
@@ -0,0 +1,175 @@
+package Simulation;
+
+import Bot.Evaluator;
+import Model.GameState;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Plays the bot against itself and records every decision for training, see {@link SampleFile}.
+ * <p>
+ * At every decision the player to move looks one move ahead from what they can see, evaluating
+ * every legal action with the {@link Evaluator}; the values, turned into shares by a softmax,
+ * are the search distribution of the sample. The first {@link #EXPLORATION_TURNS} turns of a
+ * game are drawn from that distribution, so that games from similar deals part ways, and the rest
+ * play the best action. Once the game is over its result is written into every sample of it.
+ * <p>
+ * Usage: {@code SelfPlay [games] [threads] [base]}, writing base.samples and base.index.
+ */
+public class SelfPlay {
+    public static final int EXPLORATION_TURNS = 12;
+    public static final double SHARPNESS = 8; // the softmax of values between -1 and 1
+    private static final long PROGRESS_SECONDS = 10;
+
+    private final SampleWriter writer;
+    private final Evaluator evaluator;
+    private final ThreadLocal<Worker> workers;
+    private final AtomicLong gamesPlayed = new AtomicLong();
+    private final AtomicLong gamesFailed = new AtomicLong();
+
+    /**
+     * The scratch state of one thread.
+     */
+    private final class Worker {
+        final SampleWriter.Batch batch = writer.newBatch();
+        final SplittableRandom random = new SplittableRandom(Thread.currentThread().getId() * 0x9E3779B97F4A7C15L);
+        final GameState child = new GameState();
+        final int[] actions = new int[GameState.MAX_ACTIONS];
+        final double[] visits = new double[GameState.MAX_ACTIONS];
+    }
+
+    /**
+     * Constructs a self-play generator.
+     *
+     * @param writer where the samples go.
+     * @param evaluator the evaluation of positions, which may be shared by the threads.
+     */
+    public SelfPlay(SampleWriter writer, Evaluator evaluator) {
+        this.writer = writer;
+        this.evaluator = evaluator;
+        this.workers = ThreadLocal.withInitial(Worker::new);
+    }
+
+    public static void main(String[] args) {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        String base = args.length > 2 ? args[2] : "selfplay";
+
+        SampleWriter writer;
+        try {
+            writer = new SampleWriter(Path.of(base));
+        } catch (IOException e) {
+            System.err.println("Cannot write " + base + ": " + e.getMessage());
+            return;
+        }
+        long start = System.nanoTime();
+        SelfPlay selfPlay = new SelfPlay(writer, Evaluator.loadDefault());
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        SplittableRandom seeds = new SplittableRandom(System.nanoTime());
+        for (int i = 0; i < games; i++) {
+            long seed = seeds.nextLong();
+            pool.execute(() -> selfPlay.play(seed));
+        }
+        while (!pool.awaitQuiescence(PROGRESS_SECONDS, TimeUnit.SECONDS)) {
+            System.out.printf("%d/%d games, %d samples%n", selfPlay.gamesPlayed.get(), games, writer.getSamples());
+        }
+        pool.shutdown();
+        try {
+            writer.close();
+        } catch (IOException e) {
+            System.err.println("Cannot write " + base + ": " + e.getMessage());
+            return;
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d games, %d samples in %.1f s on %d threads: %.0f samples/s, %.1fM samples/hour%n",
+                selfPlay.gamesPlayed.get(), writer.getSamples(), seconds, threads,
+                writer.getSamples() / seconds, writer.getSamples() / seconds * 3600 / 1e6);
+        if (selfPlay.gamesFailed.get() > 0) {
+            System.out.println(selfPlay.gamesFailed.get() + " games failed and were dropped");
+        }
+    }
+
+    /**
+     * Plays a game and records its decisions. Runs on a worker of the pool.
+     * @param seed the seed of the game.
+     */
+    public void play(long seed) {
+        Worker worker = workers.get();
+        try {
+            worker.batch.beginGame(seed);
+        } catch (IOException e) {
+            gamesFailed.incrementAndGet();
+            System.err.println("Cannot write samples: " + e.getMessage());
+            return;
+        }
+        try {
+            GameState state = GameState.newGame(seed);
+            while (!state.isTerminal()) {
+                GameState view = state.observedBy(state.getActivePlayer());
+                int count = search(worker, view);
+                int chosen = state.getTurn() < EXPLORATION_TURNS ? sample(worker, count) : best(worker, count);
+                worker.batch.add(view, worker.actions, count, worker.visits, chosen);
+                state.apply(worker.actions[chosen]);
+            }
+            worker.batch.endGame(state.getResult());
+            gamesPlayed.incrementAndGet();
+        } catch (RuntimeException e) {
+            worker.batch.abandonGame();
+            if (gamesFailed.getAndIncrement() == 0) {
+                System.err.println("Game " + Long.toHexString(seed) + " failed: " + e);
+            }
+        }
+    }
+
+    /**
+     * Values every legal action for the player to move and turns the values into shares.
+     * @return the number of legal actions, which are in worker.actions.
+     */
+    private int search(Worker worker, GameState view) {
+        int count = view.legalActions(worker.actions);
+        int sign = view.getActivePlayer() == 0 ? 1 : -1;
+        double max = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < count; i++) {
+            worker.child.copyFrom(view);
+            worker.child.apply(worker.actions[i]);
+            worker.visits[i] = SHARPNESS * sign * evaluator.evaluate(worker.child);
+            max = Math.max(max, worker.visits[i]);
+        }
+        double sum = 0;
+        for (int i = 0; i < count; i++) {
+            worker.visits[i] = Math.exp(worker.visits[i] - max);
+            sum += worker.visits[i];
+        }
+        for (int i = 0; i < count; i++) {
+            worker.visits[i] /= sum;
+        }
+        return count;
+    }
+
+    private static int sample(Worker worker, int count) {
+        double pick = worker.random.nextDouble();
+        for (int i = 0; i < count - 1; i++) {
+            pick -= worker.visits[i];
+            if (pick < 0) {
+                return i;
+            }
+        }
+        return count - 1;
+    }
+
+    private static int best(Worker worker, int count) {
+        int best = 0;
+        for (int i = 1; i < count; i++) {
+            if (worker.visits[i] > worker.visits[best]) {
+                best = i;
+            }
+        }
+        return best;
+    }
+}
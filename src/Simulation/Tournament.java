@@ -0,0 +1,397 @@
+package Simulation;
+
+import Bot.Policies;
+import Bot.Policy;
+import Model.GameState;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Plays bot policies against each other and rates them.
+ * <p>
+ * Every game is played twice from the same seed, once with each entrant in each seat, so that
+ * the deal and the starting player, which the seed decides, favour neither side. In a round robin
+ * every pairing plays the same seeds. A Swiss event plays rounds instead, pairing entrants of
+ * similar score who have not met yet; with an odd number of entrants the last one sits out a
+ * round and scores a point for it.
+ * <p>
+ * The games run in parallel on a ForkJoinPool, each worker with its own instance of every policy,
+ * and are rated by {@link Ratings} as they end. The games are played on {@link GameState}, as
+ * GameController waits for clicks, and every policy only sees what its seat may see.
+ * <p>
+ * Usage: {@code Tournament [round-robin|swiss] [gamePairs] [threads] [--results file] policy...},
+ * the policies named as in {@link Policies}. Swiss events play gamePairs pairs per pairing and
+ * round. With a results file every game is also stored there, see {@link ResultsQuery}.
+ */
+public class Tournament {
+    private static final long SEED = 42;
+    private static final long PROGRESS_SECONDS = 10;
+
+    private final String[] names;
+    private final List<Supplier<Policy>> factories = new ArrayList<>();
+    private final Ratings ratings;
+    private final double[] byes;
+    private final Queue<Policy> created = new ConcurrentLinkedQueue<>();
+    private final ThreadLocal<Policy[]> policies;
+    private final ThreadLocal<GameSummary> summaries = ThreadLocal.withInitial(GameSummary::new);
+    private ResultsWriter results;
+    private final AtomicLong gamesPlayed = new AtomicLong();
+    private final AtomicLong gamesFailed = new AtomicLong();
+    private final AtomicLong movesPlayed = new AtomicLong();
+    private final SplittableRandom seeds = new SplittableRandom(SEED); // main thread only
+    private long gamesScheduled;
+
+    /**
+     * Constructs a tournament between the given policies.
+     *
+     * @param specs the policies, named as in {@link Policies}.
+     * @throws IllegalArgumentException if a policy is unknown or there are fewer than two.
+     */
+    public Tournament(List<String> specs) {
+        if (specs.size() < 2) {
+            throw new IllegalArgumentException("A tournament needs at least two policies");
+        }
+        this.names = new String[specs.size()];
+        for (int i = 0; i < specs.size(); i++) {
+            String spec = specs.get(i);
+            factories.add(Policies.factory(spec));
+            // the same policy may enter twice, as a check of the harness
+            names[i] = specs.indexOf(spec) == i ? spec : spec + "#" + (i + 1);
+        }
+        this.ratings = new Ratings(names.length);
+        this.byes = new double[names.length];
+        this.policies = ThreadLocal.withInitial(() -> new Policy[names.length]);
+    }
+
+    public static void main(String[] args) {
+        List<String> words = new ArrayList<>(Arrays.asList(args));
+        String resultsFile = null;
+        int option = words.indexOf("--results");
+        if (option >= 0 && option + 1 < words.size()) {
+            resultsFile = words.remove(option + 1);
+            words.remove(option);
+        }
+        args = words.toArray(new String[0]);
+        int at = 0;
+        boolean swiss = false;
+        if (at < args.length && (args[at].equals("swiss") || args[at].equals("round-robin"))) {
+            swiss = args[at++].equals("swiss");
+        }
+        int gamePairs = at < args.length && isNumber(args[at]) ? Integer.parseInt(args[at++]) : 1000;
+        int threads = at < args.length && isNumber(args[at]) ? Integer.parseInt(args[at++])
+                : Runtime.getRuntime().availableProcessors();
+        List<String> specs = new ArrayList<>(Arrays.asList(args).subList(at, args.length));
+        if (specs.isEmpty()) {
+            specs.addAll(List.of("random", "greedy", "solver"));
+        }
+
+        Tournament tournament;
+        try {
+            tournament = new Tournament(specs);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: Tournament [round-robin|swiss] [gamePairs] [threads] [--results file] policy...");
+            return;
+        }
+        if (resultsFile != null) {
+            try {
+                tournament.setResults(new ResultsWriter(Path.of(resultsFile), Arrays.asList(tournament.names)));
+            } catch (IOException e) {
+                System.err.println("Cannot write " + resultsFile + ": " + e.getMessage());
+                return;
+            }
+        }
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        long start = System.nanoTime();
+        if (swiss) {
+            tournament.playSwiss(pool, gamePairs);
+        } else {
+            tournament.playRoundRobin(pool, gamePairs);
+        }
+        pool.shutdown();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        tournament.close();
+
+        System.out.printf("%d games in %.1f s on %d threads: %.0f games/s, %.0f moves/s%n",
+                tournament.gamesPlayed.get(), seconds, threads,
+                tournament.gamesPlayed.get() / seconds, tournament.movesPlayed.get() / seconds);
+        if (tournament.gamesFailed.get() > 0) {
+            System.out.println(tournament.gamesFailed.get() + " games failed and were not rated");
+        }
+        tournament.printStandings(swiss);
+    }
+
+    /**
+     * Stores every game from now on in a results file, which the tournament closes when it is closed.
+     * @param results the results file, whose labels are the names of the entrants in order.
+     */
+    public void setResults(ResultsWriter results) {
+        this.results = results;
+    }
+
+    private static boolean isNumber(String arg) {
+        return arg.chars().allMatch(Character::isDigit) && !arg.isEmpty();
+    }
+
+    // ---------------------------------------------
+    // Events
+    // ---------------------------------------------
+
+    /**
+     * Plays every pairing, each over the same seeds.
+     *
+     * @param pool where the games run.
+     * @param gamePairs the number of seeds per pairing, each played with the seats both ways.
+     */
+    public void playRoundRobin(ForkJoinPool pool, int gamePairs) {
+        long[] round = nextSeeds(gamePairs);
+        for (int a = 0; a < names.length; a++) {
+            for (int b = a + 1; b < names.length; b++) {
+                schedule(pool, a, b, round);
+            }
+        }
+        awaitGames(pool);
+    }
+
+    /**
+     * Plays Swiss rounds, enough for a single leader among the entrants.
+     *
+     * @param pool where the games run.
+     * @param gamePairs the number of seeds per pairing and round, each played with the seats both ways.
+     */
+    public void playSwiss(ForkJoinPool pool, int gamePairs) {
+        int rounds = Math.min(names.length - 1, 32 - Integer.numberOfLeadingZeros(names.length - 1) + 1);
+        boolean[][] met = new boolean[names.length][names.length];
+        for (int round = 1; round <= rounds; round++) {
+            Integer[] order = standings();
+            List<Integer> waiting = new ArrayList<>(Arrays.asList(order));
+            if (waiting.size() % 2 != 0) {
+                // the lowest entrant that has not sat out yet sits out this round
+                int bye = waiting.size() - 1;
+                while (bye > 0 && byes[waiting.get(bye)] > 0) {
+                    bye--;
+                }
+                byes[waiting.remove(bye)] += gamePairs * 2;
+            }
+            long[] seedsOfRound = nextSeeds(gamePairs);
+            while (!waiting.isEmpty()) {
+                int a = waiting.remove(0);
+                int pick = 0;
+                while (pick < waiting.size() - 1 && met[a][waiting.get(pick)]) {
+                    pick++;
+                }
+                int b = waiting.remove(pick);
+                met[a][b] = met[b][a] = true;
+                System.out.println("Round " + round + ": " + names[a] + " - " + names[b]);
+                schedule(pool, a, b, seedsOfRound);
+            }
+            awaitGames(pool);
+        }
+    }
+
+    private long[] nextSeeds(int count) {
+        long[] round = new long[count];
+        for (int i = 0; i < count; i++) {
+            round[i] = seeds.nextLong();
+        }
+        return round;
+    }
+
+    private void schedule(ForkJoinPool pool, int a, int b, long[] round) {
+        for (long seed : round) {
+            pool.execute(() -> playRated(seed, a, b));
+            pool.execute(() -> playRated(seed, b, a));
+        }
+        gamesScheduled += 2L * round.length;
+    }
+
+    /**
+     * Waits for the scheduled games, reporting the progress now and then.
+     */
+    private void awaitGames(ForkJoinPool pool) {
+        long start = System.nanoTime();
+        long startGames = gamesPlayed.get() + gamesFailed.get();
+        while (!pool.awaitQuiescence(PROGRESS_SECONDS, TimeUnit.SECONDS)) {
+            long done = gamesPlayed.get() + gamesFailed.get();
+            double rate = (done - startGames) / ((System.nanoTime() - start) / 1e9);
+            System.out.printf("%d/%d games, %.0f games/s, %.0f s left%n", done, gamesScheduled, rate,
+                    rate > 0 ? (gamesScheduled - done) / rate : Double.NaN);
+        }
+    }
+
+    // ---------------------------------------------
+    // Games
+    // ---------------------------------------------
+
+    /**
+     * Plays one game and rates it. Runs on a worker of the pool.
+     */
+    private void playRated(long seed, int first, int second) {
+        Policy[] own = policies.get();
+        try {
+            GameSummary summary = summaries.get();
+            int result = play(seed, policy(own, first), policy(own, second), summary);
+            ratings.record(first, second, result);
+            gamesPlayed.incrementAndGet();
+            if (results != null) {
+                results.append(summary, first, second);
+            }
+        } catch (IOException e) {
+            if (gamesFailed.getAndIncrement() == 0) {
+                System.err.println("Cannot store a game: " + e.getMessage());
+            }
+        } catch (RuntimeException e) {
+            if (gamesFailed.getAndIncrement() == 0) {
+                System.err.println("Game " + Long.toHexString(seed) + " of " + names[first] + " - "
+                        + names[second] + " failed: " + e);
+            }
+        }
+    }
+
+    private Policy policy(Policy[] own, int entrant) {
+        if (own[entrant] == null) {
+            own[entrant] = factories.get(entrant).get();
+            created.add(own[entrant]);
+        }
+        return own[entrant];
+    }
+
+    /**
+     * Plays a game to its end.
+     *
+     * @param seed the seed of GameState.newGame.
+     * @param first the policy in the first seat.
+     * @param second the policy in the second seat.
+     * @return the result for the first seat: 1 win, 0 tie, -1 loss.
+     * @throws IllegalStateException if a policy chooses an action it cannot take.
+     */
+    public int play(long seed, Policy first, Policy second) {
+        return play(seed, first, second, new GameSummary());
+    }
+
+    /**
+     * Plays a game to its end, following it with a summary.
+     *
+     * @param seed the seed of GameState.newGame.
+     * @param first the policy in the first seat.
+     * @param second the policy in the second seat.
+     * @param summary receives what the game came to.
+     * @return the result for the first seat: 1 win, 0 tie, -1 loss.
+     * @throws IllegalStateException if a policy chooses an action it cannot take.
+     */
+    public int play(long seed, Policy first, Policy second, GameSummary summary) {
+        GameState state = GameState.newGame(seed);
+        summary.start(seed, state);
+        long moves = 0;
+        while (!state.isTerminal()) {
+            int player = state.getActivePlayer();
+            Policy policy = player == 0 ? first : second;
+            int action = policy.chooseAction(state.observedBy(player));
+            if (action < 0 || GameState.actionSlot(action) >= state.getHandSize(player)) {
+                throw new IllegalStateException(policy.getName() + " chose the illegal action " + action);
+            }
+            summary.apply(state, action);
+            moves++;
+        }
+        movesPlayed.addAndGet(moves);
+        return state.getResult();
+    }
+
+    // ---------------------------------------------
+    // Results
+    // ---------------------------------------------
+
+    /**
+     * Returns the entrants by their Swiss score, then by rating.
+     */
+    private Integer[] standings() {
+        Integer[] order = new Integer[names.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.<Integer>comparingDouble(i -> -(ratings.getPoints(i) + byes[i]))
+                .thenComparingDouble(i -> -ratings.getRating(i).rating));
+        return order;
+    }
+
+    private void printStandings(boolean swiss) {
+        Integer[] order = standings();
+        if (!swiss) {
+            Arrays.sort(order, Comparator.comparingDouble(i -> -ratings.getRating(i).rating));
+        }
+        int width = 6;
+        for (String name : names) {
+            width = Math.max(width, name.length());
+        }
+        System.out.printf("%n%-4s %-" + width + "s %15s %7s %20s %15s%n", "#", "policy", "rating (95%)", "games", "won/drawn/lost", "score (95%)");
+        for (int rank = 0; rank < order.length; rank++) {
+            int entrant = order[rank];
+            Ratings.Rating rating = ratings.getRating(entrant);
+            long wins = 0;
+            long draws = 0;
+            long losses = 0;
+            for (int other = 0; other < names.length; other++) {
+                wins += ratings.getWins(entrant, other);
+                draws += ratings.getDraws(entrant, other);
+                losses += ratings.getLosses(entrant, other);
+            }
+            long games = wins + draws + losses;
+            double score = games == 0 ? 0 : (wins + draws / 2.0) / games;
+            double interval = games == 0 ? 0 : 1.96 * Math.sqrt(score * (1 - score) / games);
+            System.out.printf("%-4d %-" + width + "s %7.0f +- %4.0f %7d %20s %6.1f%% +- %4.1f%n", rank + 1, names[entrant],
+                    rating.rating, rating.getInterval(), games, wins + "/" + draws + "/" + losses,
+                    100 * score, 100 * interval);
+        }
+
+        System.out.printf("%nScore of the row against the column:%n%-" + width + "s", "");
+        for (int entrant : order) {
+            System.out.printf(" %8.8s", names[entrant]);
+        }
+        System.out.println();
+        for (int a : order) {
+            System.out.printf("%-" + width + "s", names[a]);
+            for (int b : order) {
+                long games = ratings.getWins(a, b) + ratings.getDraws(a, b) + ratings.getLosses(a, b);
+                System.out.print(games == 0 ? String.format(" %8s", "-")
+                        : String.format(" %7.1f%%", 100 * (ratings.getWins(a, b) + ratings.getDraws(a, b) / 2.0) / games));
+            }
+            System.out.println();
+        }
+    }
+
+    /**
+     * Closes the policies that hold resources, such as the processes of external engines.
+     */
+    public void close() {
+        if (results != null) {
+            try {
+                results.close();
+            } catch (IOException e) {
+                System.err.println("Cannot write the results: " + e.getMessage());
+            }
+        }
+        Policy policy;
+        while ((policy = created.poll()) != null) {
+            if (policy instanceof Closeable) {
+                try {
+                    ((Closeable) policy).close();
+                } catch (IOException e) {
+                    System.err.println("Cannot close " + policy.getName() + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,348 @@
+package Simulation;
+
+import Bot.Evaluator;
+import Model.GameState;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Fits the weights of the {@link Evaluator} to the outcomes of a self-play dataset.
+ * <p>
+ * The evaluator scores a position by the differences between the players' features, and its
+ * value tanh(score / 2) is the chance of winning, 2 p - 1, when p is the logistic of the score.
+ * The trainer therefore fits the score by logistic regression on the outcome of every sample,
+ * a tie counting half a win, either as a weighted sum or as a network with one hidden layer of
+ * tanh units, and the weights it finds drop into the evaluator as they are.
+ * <p>
+ * Training runs mini-batch Adam over the memory-mapped samples, in blocks taken in a new random
+ * order every epoch. Every mini-batch is read into a feature-major float array and split between
+ * the threads, each of which adds up its share of the gradient in plain loops over those arrays,
+ * which the JIT compiles to SIMD instructions. The features are scaled to unit size while training
+ * and the weights scaled back when saved. The last blocks are kept out to check the fit.
+ * <p>
+ * Usage: {@code Trainer [linear|mlp] [epochs] [threads] [dataset] [weights]}, reading
+ * dataset.samples and writing {@link Evaluator#DEFAULT_FILE} unless told otherwise.
+ */
+public class Trainer {
+    public static final int BATCH = 4096;
+    public static final int HIDDEN_UNITS = 16;
+    public static final double HOLDOUT = 0.05;
+    private static final int F = GameState.FEATURES;
+    private static final double LEARNING_RATE = 0.01;
+    private static final double BETA1 = 0.9;
+    private static final double BETA2 = 0.999;
+    private static final double EPSILON = 1e-8;
+
+    private final SampleReader samples;
+    private final ForkJoinPool pool;
+    private final int threads;
+    private final int units; // 0 for a weighted sum
+    private final double[] scale = new double[F]; // the features are divided by it while training
+
+    // the parameters, for a weighted sum F weights, for a network units * F hidden weights and units output weights
+    private final double[] parameters;
+    private final double[] moment;
+    private final double[] variance;
+    private long steps;
+
+    // the mini-batch, feature-major
+    private final float[] inputs = new float[F * BATCH];
+    private final float[] targets = new float[BATCH];
+    private final double[][] gradients;
+    private final double[] losses;
+
+    /**
+     * Constructs a trainer.
+     *
+     * @param samples the dataset.
+     * @param units the hidden units of the network, or 0 for a weighted sum.
+     * @param threads the threads to train on.
+     */
+    public Trainer(SampleReader samples, int units, int threads) {
+        this.samples = samples;
+        this.units = units;
+        this.threads = threads;
+        this.pool = new ForkJoinPool(threads);
+        this.parameters = new double[units == 0 ? F : units * F + units];
+        this.moment = new double[parameters.length];
+        this.variance = new double[parameters.length];
+        this.gradients = new double[threads][parameters.length];
+        this.losses = new double[threads];
+        measureScale();
+
+        // a network starts from small random weights, so that its units differ
+        SplittableRandom random = new SplittableRandom(7);
+        if (units > 0) {
+            for (int i = 0; i < parameters.length; i++) {
+                parameters[i] = (random.nextDouble() - 0.5) * 2 / Math.sqrt(i < units * F ? F : units);
+            }
+        }
+    }
+
+    public static void main(String[] args) {
+        int units = args.length > 0 && args[0].equals("mlp") ? HIDDEN_UNITS : 0;
+        int epochs = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        String base = args.length > 3 ? args[3] : "selfplay";
+        File file = args.length > 4 ? new File(args[4]) : Evaluator.DEFAULT_FILE;
+
+        try (SampleReader samples = new SampleReader(Path.of(base))) {
+            long blocks = (samples.size() + BATCH - 1) / BATCH;
+            long trainBlocks = blocks - Math.max(1, (long) (blocks * HOLDOUT));
+            if (trainBlocks <= 0) {
+                System.err.println("Too few samples to train on: " + samples.size());
+                return;
+            }
+            Trainer trainer = new Trainer(samples, units, threads);
+            System.out.printf("%d samples, %d for training; hand-tuned weights: loss %.4f%n", samples.size(),
+                    Math.min(samples.size(), trainBlocks * BATCH), trainer.holdoutLoss(new Evaluator(), trainBlocks, blocks));
+
+            SplittableRandom random = new SplittableRandom(11);
+            for (int epoch = 1; epoch <= epochs; epoch++) {
+                long start = System.nanoTime();
+                double loss = trainer.epoch(trainBlocks, random);
+                double seconds = (System.nanoTime() - start) / 1e9;
+                System.out.printf("epoch %d: training loss %.4f, held-out loss %.4f, %.1f s (%.1fM samples/s)%n", epoch, loss,
+                        trainer.holdoutLoss(trainer.toEvaluator(), trainBlocks, blocks), seconds, trainBlocks * BATCH / seconds / 1e6);
+            }
+            trainer.toEvaluator().save(file, (units == 0 ? "linear" : "mlp") + " weights fitted to " + samples.size()
+                    + " samples of " + base + SampleFile.SAMPLES_SUFFIX);
+            System.out.println("Weights written to " + file);
+        } catch (IOException e) {
+            System.err.println("Cannot train on " + base + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Sets the scale of every feature to its root mean square over the first samples.
+     */
+    private void measureScale() {
+        long count = Math.min(samples.size(), 1_000_000);
+        for (long sample = 0; sample < count; sample++) {
+            for (int f = 0; f < F; f++) {
+                double x = samples.getFeature(sample, 0, f) - samples.getFeature(sample, 1, f);
+                scale[f] += x * x;
+            }
+        }
+        for (int f = 0; f < F; f++) {
+            scale[f] = count == 0 || scale[f] == 0 ? 1 : Math.sqrt(scale[f] / count);
+        }
+    }
+
+    /**
+     * Trains on every training block once, in a random order.
+     *
+     * @param trainBlocks the number of blocks to train on, from the first.
+     * @param random the source of the order.
+     * @return the mean loss over the epoch.
+     */
+    public double epoch(long trainBlocks, SplittableRandom random) {
+        long[] order = new long[(int) trainBlocks];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        for (int i = order.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            long temp = order[i];
+            order[i] = order[j];
+            order[j] = temp;
+        }
+        double loss = 0;
+        long count = 0;
+        for (long block : order) {
+            int size = load(block);
+            loss += step(size);
+            count += size;
+        }
+        return loss / count;
+    }
+
+    /**
+     * Reads a block of samples into the mini-batch.
+     * @return the number of samples read.
+     */
+    private int load(long block) {
+        long first = block * BATCH;
+        int size = (int) Math.min(BATCH, samples.size() - first);
+        for (int i = 0; i < size; i++) {
+            long sample = first + i;
+            for (int f = 0; f < F; f++) {
+                inputs[f * BATCH + i] = (float) ((samples.getFeature(sample, 0, f) - samples.getFeature(sample, 1, f)) / scale[f]);
+            }
+            targets[i] = (samples.getOutcome(sample) + 1) * 0.5f;
+        }
+        return size;
+    }
+
+    /**
+     * Takes an Adam step on the mini-batch.
+     * @return the summed loss of the batch before the step.
+     */
+    private double step(int size) {
+        pool.invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                RecursiveAction[] shares = new RecursiveAction[threads];
+                int per = (size + threads - 1) / threads;
+                for (int t = 0; t < threads; t++) {
+                    int thread = t;
+                    shares[t] = new RecursiveAction() {
+                        @Override
+                        protected void compute() {
+                            losses[thread] = gradient(thread, thread * per, Math.min(size, (thread + 1) * per));
+                        }
+                    };
+                }
+                invokeAll(shares);
+            }
+        });
+
+        double loss = 0;
+        steps++;
+        double correction1 = 1 - Math.pow(BETA1, steps);
+        double correction2 = 1 - Math.pow(BETA2, steps);
+        for (int t = 0; t < threads; t++) {
+            loss += losses[t];
+        }
+        for (int p = 0; p < parameters.length; p++) {
+            double g = 0;
+            for (int t = 0; t < threads; t++) {
+                g += gradients[t][p];
+            }
+            g /= size;
+            moment[p] = BETA1 * moment[p] + (1 - BETA1) * g;
+            variance[p] = BETA2 * variance[p] + (1 - BETA2) * g * g;
+            parameters[p] -= LEARNING_RATE * (moment[p] / correction1) / (Math.sqrt(variance[p] / correction2) + EPSILON);
+        }
+        return loss;
+    }
+
+    /**
+     * Adds up the gradient of the log loss over samples from to to of the mini-batch.
+     * @return the summed loss.
+     */
+    private double gradient(int thread, int from, int to) {
+        double[] gradient = gradients[thread];
+        Arrays.fill(gradient, 0);
+        int n = to - from;
+        if (n <= 0) {
+            return 0;
+        }
+        float[] score = new float[n];
+        float[][] activations = units == 0 ? null : new float[units][n];
+        if (units == 0) {
+            for (int f = 0; f < F; f++) {
+                float w = (float) parameters[f];
+                int at = f * BATCH + from;
+                for (int i = 0; i < n; i++) {
+                    score[i] += w * inputs[at + i];
+                }
+            }
+        } else {
+            for (int u = 0; u < units; u++) {
+                float[] a = activations[u];
+                for (int f = 0; f < F; f++) {
+                    float w = (float) parameters[u * F + f];
+                    int at = f * BATCH + from;
+                    for (int i = 0; i < n; i++) {
+                        a[i] += w * inputs[at + i];
+                    }
+                }
+                float out = (float) parameters[units * F + u];
+                for (int i = 0; i < n; i++) {
+                    a[i] = (float) Math.tanh(a[i]);
+                    score[i] += out * a[i];
+                }
+            }
+        }
+
+        // the error of the logistic, which is the gradient of the log loss by the score
+        double loss = 0;
+        float[] error = new float[n];
+        for (int i = 0; i < n; i++) {
+            double p = 1 / (1 + Math.exp(-score[i]));
+            double y = targets[from + i];
+            loss -= y * Math.log(Math.max(p, 1e-12)) + (1 - y) * Math.log(Math.max(1 - p, 1e-12));
+            error[i] = (float) (p - y);
+        }
+
+        if (units == 0) {
+            for (int f = 0; f < F; f++) {
+                int at = f * BATCH + from;
+                float sum = 0;
+                for (int i = 0; i < n; i++) {
+                    sum += error[i] * inputs[at + i];
+                }
+                gradient[f] = sum;
+            }
+        } else {
+            float[] back = new float[n];
+            for (int u = 0; u < units; u++) {
+                float[] a = activations[u];
+                float out = (float) parameters[units * F + u];
+                float outSum = 0;
+                for (int i = 0; i < n; i++) {
+                    outSum += error[i] * a[i];
+                    back[i] = error[i] * out * (1 - a[i] * a[i]);
+                }
+                gradient[units * F + u] = outSum;
+                for (int f = 0; f < F; f++) {
+                    int at = f * BATCH + from;
+                    float sum = 0;
+                    for (int i = 0; i < n; i++) {
+                        sum += back[i] * inputs[at + i];
+                    }
+                    gradient[u * F + f] = sum;
+                }
+            }
+        }
+        return loss;
+    }
+
+    /**
+     * Returns an evaluator with the weights trained so far, scaled back to unscaled features.
+     * @return the evaluator.
+     */
+    public Evaluator toEvaluator() {
+        if (units == 0) {
+            double[] weights = new double[F];
+            for (int f = 0; f < F; f++) {
+                weights[f] = parameters[f] / scale[f];
+            }
+            return new Evaluator(weights);
+        }
+        double[][] hidden = new double[units][F];
+        for (int u = 0; u < units; u++) {
+            for (int f = 0; f < F; f++) {
+                hidden[u][f] = parameters[u * F + f] / scale[f];
+            }
+        }
+        return new Evaluator(hidden, Arrays.copyOfRange(parameters, units * F, parameters.length));
+    }
+
+    /**
+     * Returns the mean log loss of an evaluator on the held-out blocks.
+     */
+    private double holdoutLoss(Evaluator evaluator, long fromBlock, long toBlock) {
+        double[] differences = new double[F];
+        double loss = 0;
+        long count = 0;
+        for (long sample = fromBlock * BATCH; sample < Math.min(samples.size(), toBlock * BATCH); sample++) {
+            for (int f = 0; f < F; f++) {
+                differences[f] = samples.getFeature(sample, 0, f) - samples.getFeature(sample, 1, f);
+            }
+            double score = evaluator.score(differences);
+            double p = 1 / (1 + Math.exp(-score));
+            double y = (samples.getOutcome(sample) + 1) * 0.5;
+            loss -= y * Math.log(Math.max(p, 1e-12)) + (1 - y) * Math.log(Math.max(1 - p, 1e-12));
+            count++;
+        }
+        return count == 0 ? Double.NaN : loss / count;
+    }
+}
@@ -0,0 +1,261 @@
+package View;
+
+import Model.*;
+
+import javax.imageio.ImageIO;
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.VolatileImage;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Draws the paths of the board, with their findings and pawns, as one component.
+ * <p>
+ * Every picture is loaded and scaled once, into an opaque image the screen can draw fast. The tiles
+ * of the paths never change, so they are drawn once into a background image, a VolatileImage where
+ * the screen can keep it in video memory; each paint copies the background and draws the findings
+ * and pawns over it. {@link #update} only copies which sprite goes where into arrays made up
+ * front, and repaints only if something moved, so a redraw allocates nothing.
+ */
+public class BoardCanvas extends JComponent {
+    private static final long serialVersionUID = 1L;
+    public static final int TILE_WIDTH = 140;
+    public static final int TILE_HEIGHT = 150;
+    public static final int PAWN_SIZE = 40;
+    public static final int LEFT = 50; // the margin before the first tile of every path
+
+    private static final String IMAGE_PATH = "project_assets/images/";
+    private static final int POSITIONS = 9;
+    private static final int MAX_PAWNS = 8; // per position, as many as the players have pawns
+    private static final int ARCHAEOLOGIST = 0;
+    private static final int THESEUS = 1;
+    private static final int HIDDEN = 2;
+
+    private final String[] pathNames;
+    private final BufferedImage[] tiles;         // per path and position
+    private final BufferedImage[] pawnSprites = new BufferedImage[3];
+    // loaded while holding findingIds and added while also holding this, so painting never waits on the disk
+    private final List<BufferedImage> findingSprites = new ArrayList<>();
+    private final Map<String, Integer> findingIds = new HashMap<>(); // by name of the finding
+
+    // what stands where, by path * POSITIONS + index - 1; guarded by this
+    private final int[] findings;
+    private final int[] pawnCounts;
+    private final int[] pawns;                   // MAX_PAWNS per position
+
+    private VolatileImage volatileBackground;
+    private BufferedImage background;            // used where there is no screen to hold a VolatileImage
+    private final int tilesWidth;                // right of the margin
+    private final int tilesHeight;
+
+    /**
+     * Constructs the board for the given paths, top to bottom.
+     *
+     * @param pathNames the names of the paths, as the pictures of their tiles are named.
+     */
+    public BoardCanvas(String[] pathNames) {
+        this.pathNames = pathNames.clone();
+        this.tiles = new BufferedImage[pathNames.length * POSITIONS];
+        this.findings = new int[pathNames.length * POSITIONS];
+        this.pawnCounts = new int[pathNames.length * POSITIONS];
+        this.pawns = new int[pathNames.length * POSITIONS * MAX_PAWNS];
+        Arrays.fill(findings, -1);
+        this.tilesWidth = POSITIONS * TILE_WIDTH;
+        this.tilesHeight = pathNames.length * TILE_HEIGHT;
+
+        for (int path = 0; path < pathNames.length; path++) {
+            String name = pathNames[path].toLowerCase();
+            BufferedImage odd = loadSprite("paths/" + name + ".jpg", TILE_WIDTH, TILE_HEIGHT);
+            BufferedImage even = loadSprite("paths/" + name + "2.jpg", TILE_WIDTH, TILE_HEIGHT);
+            BufferedImage palace = loadSprite("paths/" + name + "Palace.jpg", TILE_WIDTH, TILE_HEIGHT);
+            for (int index = 1; index <= POSITIONS; index++) {
+                tiles[path * POSITIONS + index - 1] = index == POSITIONS ? palace : index % 2 == 0 ? even : odd;
+            }
+        }
+        pawnSprites[ARCHAEOLOGIST] = loadSprite("pionia/archaeologist.jpg", PAWN_SIZE, PAWN_SIZE);
+        pawnSprites[THESEUS] = loadSprite("pionia/theseus.jpg", PAWN_SIZE, PAWN_SIZE);
+        pawnSprites[HIDDEN] = loadSprite("pionia/question.jpg", PAWN_SIZE, PAWN_SIZE);
+
+        setOpaque(false);
+        setPreferredSize(new Dimension(LEFT + tilesWidth, tilesHeight));
+    }
+
+    /**
+     * Takes the findings and pawns of the board and redraws it. May be called from any thread.
+     *
+     * @param board the board, with its paths in the order of the constructor.
+     */
+    public void update(Board board) {
+        List<Path> paths = board.getPaths();
+        loadFindingSprites(paths);
+        boolean changed = false;
+        synchronized (this) {
+            for (int p = 0; p < paths.size(); p++) {
+                Path path = paths.get(p);
+                int row = rowOf(path.getPathName());
+                if (row < 0) {
+                    continue;
+                }
+                List<Position> positions = path.getPositions();
+                for (int i = 0; i < positions.size(); i++) {
+                    Position position = positions.get(i);
+                    int index = position.getIndex();
+                    if (index < 1 || index > POSITIONS) {
+                        continue;
+                    }
+                    int cell = row * POSITIONS + index - 1;
+
+                    int count = Math.min(position.getPawnCount(), MAX_PAWNS);
+                    for (int k = 0; k < count; k++) {
+                        Pawn pawn = position.getPawn(k);
+                        int sprite = !pawn.isRevealed() ? HIDDEN : pawn instanceof Theseus ? THESEUS : ARCHAEOLOGIST;
+                        changed |= pawns[cell * MAX_PAWNS + k] != sprite;
+                        pawns[cell * MAX_PAWNS + k] = sprite;
+                    }
+                    changed |= pawnCounts[cell] != count;
+                    pawnCounts[cell] = count;
+
+                    Finding finding = position.isFindingPosition() ? position.getFinding() : null;
+                    Integer loaded = finding == null ? null : findingIds.get(finding.getName());
+                    int id = loaded == null ? -1 : loaded; // a finding that came after the loading shows next time
+                    changed |= findings[cell] != id;
+                    findings[cell] = id;
+                }
+            }
+        }
+        if (changed) {
+            repaint();
+        }
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        drawBackground(g);
+        synchronized (this) {
+            for (int cell = 0; cell < findings.length; cell++) {
+                int x = LEFT + (cell % POSITIONS) * TILE_WIDTH;
+                int y = (cell / POSITIONS) * TILE_HEIGHT;
+                int count = pawnCounts[cell];
+                if (count > 0) {
+                    // pawns side by side, and they hide the finding they stand on
+                    for (int k = 0; k < count; k++) {
+                        g.drawImage(pawnSprites[pawns[cell * MAX_PAWNS + k]], x + k * PAWN_SIZE, y, null);
+                    }
+                } else if (findings[cell] >= 0) {
+                    g.drawImage(findingSprites.get(findings[cell]), x, y, null);
+                }
+            }
+        }
+    }
+
+    /**
+     * Draws the tiles, from the background image, which is drawn first if it is lost or missing.
+     */
+    private void drawBackground(Graphics g) {
+        GraphicsConfiguration configuration = getGraphicsConfiguration();
+        if (configuration == null) {
+            if (background == null) {
+                background = new BufferedImage(tilesWidth, tilesHeight, BufferedImage.TYPE_INT_RGB);
+                Graphics2D g2d = background.createGraphics();
+                drawTiles(g2d);
+                g2d.dispose();
+            }
+            g.drawImage(background, LEFT, 0, null);
+            return;
+        }
+
+        do {
+            int status = volatileBackground == null ? VolatileImage.IMAGE_INCOMPATIBLE : volatileBackground.validate(configuration);
+            if (status == VolatileImage.IMAGE_INCOMPATIBLE) {
+                if (volatileBackground != null) {
+                    volatileBackground.flush();
+                }
+                volatileBackground = configuration.createCompatibleVolatileImage(tilesWidth, tilesHeight, Transparency.OPAQUE);
+                redrawVolatileBackground();
+            } else if (status == VolatileImage.IMAGE_RESTORED) {
+                redrawVolatileBackground();
+            }
+            g.drawImage(volatileBackground, LEFT, 0, null);
+        } while (volatileBackground.contentsLost());
+    }
+
+    private void redrawVolatileBackground() {
+        Graphics2D g2d = volatileBackground.createGraphics();
+        drawTiles(g2d);
+        g2d.dispose();
+    }
+
+    private void drawTiles(Graphics2D g2d) {
+        for (int cell = 0; cell < tiles.length; cell++) {
+            g2d.drawImage(tiles[cell], (cell % POSITIONS) * TILE_WIDTH, (cell / POSITIONS) * TILE_HEIGHT, null);
+        }
+    }
+
+    private int rowOf(String pathName) {
+        for (int row = 0; row < pathNames.length; row++) {
+            if (pathNames[row].equalsIgnoreCase(pathName)) {
+                return row;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Loads the sprites of the findings on the paths that have not been seen before, without
+     * holding the lock the painting takes, then adds them under it.
+     */
+    private void loadFindingSprites(List<Path> paths) {
+        synchronized (findingIds) {
+            for (Path path : paths) {
+                for (Position position : path.getPositions()) {
+                    Finding finding = position.isFindingPosition() ? position.getFinding() : null;
+                    if (finding == null || findingIds.containsKey(finding.getName())) {
+                        continue;
+                    }
+                    BufferedImage sprite = loadSprite("findings/" + finding.getName() + ".jpg", TILE_WIDTH, TILE_HEIGHT);
+                    synchronized (this) {
+                        findingIds.put(finding.getName(), findingSprites.size());
+                        findingSprites.add(sprite);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Loads a picture scaled to the given size, in the format the screen draws fastest. A picture
+     * that cannot be loaded is replaced by a gray placeholder.
+     */
+    private static BufferedImage loadSprite(String filename, int width, int height) {
+        GraphicsConfiguration configuration = GraphicsEnvironment.isHeadless() ? null
+                : GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration();
+        BufferedImage sprite = configuration == null
+                ? new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB)
+                : configuration.createCompatibleImage(width, height, Transparency.OPAQUE);
+        Graphics2D g2d = sprite.createGraphics();
+        try (InputStream is = new FileInputStream(IMAGE_PATH + filename)) {
+            BufferedImage image = ImageIO.read(is);
+            if (image == null) {
+                throw new IOException("Unsupported image format");
+            }
+            g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g2d.drawImage(image, 0, 0, width, height, null);
+        } catch (IOException e) {
+            System.err.println("Error loading image " + IMAGE_PATH + filename + ": " + e.getMessage());
+            g2d.setColor(Color.LIGHT_GRAY);
+            g2d.fillRect(0, 0, width, height);
+            g2d.setColor(Color.BLACK);
+            g2d.drawString("?", width / 2 - 3, height / 2);
+        }
+        g2d.dispose();
+        return sprite;
+    }
+}
@@ -1,6 +1,8 @@
 package View;
 
+import Bot.HandAnalysis;
 import Controller.GameController;
+import Controller.SeatController;
 import Model.*;
 
 import javax.imageio.ImageIO;
@@ -10,10 +12,7 @@ import java.awt.event.ActionListener;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 /**
  * The GameView class is responsible for displaying the game board, player cards, and paths.
@@ -21,11 +20,12 @@ import java.util.Map;
 public class GameView extends JFrame {
     private JPanel player1Panel;
     private JPanel player2Panel;
-    private JPanel pathsPanel;
+    private BoardCanvas boardCanvas;
     private JLabel currentPlayerLabel;
 
-    private Map<String, JLabel> pathLabelMap;
     private GameController controller;
+    private SeatController seatController; // set instead of controller when the other player plays on another machine
+    private int localPlayerId; // the player who sits at this screen in a network game, 0 if both do
 
     /**
      * Constructs a GameView object.
@@ -38,7 +38,6 @@ public class GameView extends JFrame {
 
         setLayout(null);
 
-        pathLabelMap = new HashMap<>();
         // load and set the background image
         try {
             ImageIcon backgroundIcon = loadAndResizeImage("background.jpg", 1600, 1000);
@@ -63,17 +62,11 @@ public class GameView extends JFrame {
         currentPlayerLabel.setBounds(20, 20, 300, 30);
         getContentPane().add(currentPlayerLabel);
 
-        // Panel for the paths
-        pathsPanel = new JPanel(null);
-        pathsPanel.setOpaque(false);
-        pathsPanel.setBounds(100, 200, 1400, 600);
-        getContentPane().add(pathsPanel);
-
-        // Προσθήκη μονοπατιών (π.χ., "knossos", "phaistos", "malia", "zakros")
+        // the paths (π.χ., "knossos", "phaistos", "malia", "zakros"), drawn by one component
         String[] paths = {"knossos", "phaistos", "malia", "zakros"};
-        for (int i = 0; i < paths.length; i++) {
-            addPath(paths[i], i);
-        }
+        boardCanvas = new BoardCanvas(paths);
+        boardCanvas.setBounds(100, 200, 1400, 600);
+        getContentPane().add(boardCanvas);
 
         // Panels for the player cards
         player1Panel = createCardPanel(100, 50, "Player 1 Cards");
@@ -172,53 +165,6 @@ public class GameView extends JFrame {
         return panel;
     }
 
-    /**
-     * Adds paths with resized images.
-     *
-     * @param pathName the name of the path.
-     * @param index the index of the path.
-     */
-    private void addPath(String pathName, int index) {
-        int x = 50;
-        int y = index * 150;
-
-        JPanel pathPanel = new JPanel(null);
-        pathPanel.setOpaque(false);
-        pathPanel.setBounds(x, y, 1400, 150);
-
-        for (int i = 1; i <= 9; i++) {
-            String imageName;
-            if (i == 9) {
-                imageName = pathName.toLowerCase() + "Palace.jpg";
-            } else {
-                imageName = (i % 2 == 0) ? pathName.toLowerCase() + "2.jpg" : pathName.toLowerCase() + ".jpg";
-            }
-            // change the size of the image
-            ImageIcon icon;
-            try {
-                icon = loadAndResizeImage("paths/" + imageName, 140, 150);
-            } catch (IOException e) {
-                System.err.println("Failed to load image: paths/" + imageName);
-                e.printStackTrace();
-                icon = new ImageIcon(new BufferedImage(140, 150, BufferedImage.TYPE_INT_ARGB));
-            }
-
-            JLabel positionLabel = new JLabel(icon);
-            positionLabel.setBounds((i - 1) * 140, 0, 140, 150);
-            pathPanel.add(positionLabel);
-
-            String key = pathName.toLowerCase() + "-" + i;
-
-            if (pathLabelMap.containsKey(key)) {
-                System.out.println("Duplicate key detected: " + key);
-            }
-            pathLabelMap.put(key, positionLabel);
-            System.out.println("Added JLabel for key: " + key); // debug print
-        }
-
-        pathsPanel.add(pathPanel);
-    }
-
     /**
      * Sets the controller and sets listeners for the card buttons.
      *
@@ -263,73 +209,33 @@ public class GameView extends JFrame {
         }
     }
 
+    /**
+     * Connects the view with a network game whose other player plays on another machine.
+     *
+     * @param seatController the controller of the player at this screen.
+     * @param localPlayerId the ID of the player who sits at this screen.
+     */
+    public void setSeatController(SeatController seatController, int localPlayerId) {
+        this.seatController = seatController;
+        this.localPlayerId = localPlayerId;
+    }
+
+    /**
+     * Shows only the cards of the given player, for a game whose other player sits at another machine.
+     *
+     * @param localPlayerId the ID of the player who sits at this screen.
+     */
+    public void setLocalPlayer(int localPlayerId) {
+        this.localPlayerId = localPlayerId;
+    }
+
     /**
      * Updates the game board with the current state.
      *
      * @param board the current state of the board.
      */
     public void updateBoard(Board board) {
-        for (Path path : board.getPaths()) {
-            for (Position position : path.getPositions()) {
-                String key = path.getPathName().toLowerCase() + "-" + position.getIndex();
-                JLabel positionLabel = pathLabelMap.get(key);
-                if (positionLabel == null) {
-                    continue;
-                }
-
-                // load the base image
-                String imageName;
-                if (position.getIndex() == 9) {
-                    imageName = path.getPathName().toLowerCase() + "Palace.jpg";
-                } else {
-                    imageName = (position.getIndex() % 2 == 0) ? path.getPathName().toLowerCase() + "2.jpg" : path.getPathName().toLowerCase() + ".jpg";
-                }
-
-                BufferedImage baseImage;
-                try {
-                    baseImage = loadImage("paths/" + imageName);
-                    baseImage = resizeImage(baseImage, 140, 150);
-                } catch (IOException e) {
-                    System.err.println("Failed to load base path image: paths/" + imageName);
-                    e.printStackTrace();
-                    baseImage = new BufferedImage(140, 150, BufferedImage.TYPE_INT_ARGB);
-                    Graphics2D g2d = baseImage.createGraphics();
-                    g2d.setColor(Color.GRAY);
-                    g2d.fillRect(0, 0, 140, 150);
-                    g2d.dispose();
-                }
-
-                Graphics2D g2d = baseImage.createGraphics();
-                g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
-
-                // add pawns if they exist
-                List<Pawn> pawnsAtPos = position.getPawns();
-                if (!pawnsAtPos.isEmpty()) {
-                    ImageIcon combinedIcon = createCombinedPawnIcon(pawnsAtPos);
-                    g2d.drawImage(((ImageIcon) combinedIcon).getImage(), 0, 0, null);
-                }
-                // add the finding if it exists
-                else if (position.isFindingPosition() && position.getFinding() != null) {
-                    String findingImagePath = "findings/" + position.getFinding().getName() + ".jpg";
-                    try {
-                        ImageIcon findingIcon = loadAndResizeImage(findingImagePath, 140, 150);
-                        g2d.drawImage(findingIcon.getImage(), 0, 0, null);
-                    } catch (IOException e) {
-                        System.err.println("Error loading finding image: " + findingImagePath);
-                        e.printStackTrace();
-                        // add placeholder image
-                        g2d.setColor(Color.LIGHT_GRAY);
-                        g2d.fillRect(0, 0, 140, 150);
-                        g2d.setColor(Color.BLACK);
-                        g2d.drawString("Finding Not Found", 20, 75);
-                    }
-                }
-
-                g2d.dispose();
-
-                positionLabel.setIcon(new ImageIcon(baseImage));
-            }
-        }
+        boardCanvas.update(board);
     }
 
 
@@ -372,12 +278,19 @@ public class GameView extends JFrame {
 
             for (int i = 0; i < updatedCards.size(); i++) {
                 Card card = updatedCards.get(i);
-                JButton cardButton = new JButton();
+                CardButton cardButton = new CardButton(GameState.cardCode(card));
                 cardButton.setPreferredSize(new Dimension(80, 120));
 
-                // use getImageIcon() if the player is active
+                // use getImageIcon() if the player is active, for the player at this screen in a network game,
+                // or for both players in a replay
+                boolean replay = controller == null && seatController == null;
+                boolean local = localPlayerId == 0 || player.getId() == localPlayerId;
+                boolean active = local && (controller != null
+                        ? player.equals(controller.getActivePlayer())
+                        : seatController != null && seatController.isMyTurn());
+                boolean faceUp = active || replay || (localPlayerId != 0 && local);
                 ImageIcon icon;
-                if (player.equals(controller.getActivePlayer())) {
+                if (faceUp) {
                     icon = card.getImageIcon();
                 } else {
                     try {
@@ -391,14 +304,18 @@ public class GameView extends JFrame {
                 cardButton.setIcon(icon);
 
                 // tooltip only for the active player
-                cardButton.setToolTipText(player.equals(controller.getActivePlayer()) ? card.getPalaceName() : null);
+                cardButton.setToolTipText(faceUp ? card.getPalaceName() : null);
 
                 // the buttons should be enabled only for the active player
-                cardButton.setEnabled(player.equals(controller.getActivePlayer()));
+                cardButton.setEnabled(active);
 
                 // add listener for the card click
                 final int cardIndex = i;
-                cardButton.addActionListener(e -> controller.handleCardClick(controller.getPlayers(), player.getId(), cardIndex));
+                if (controller != null) {
+                    cardButton.addActionListener(e -> controller.handleCardClick(controller.getPlayers(), player.getId(), cardIndex));
+                } else if (seatController != null) {
+                    cardButton.addActionListener(e -> seatController.handleCardClick(cardIndex));
+                }
 
                 playerPanel.add(cardButton);
             }
@@ -408,6 +325,61 @@ public class GameView extends JFrame {
         });
     }
 
+    /**
+     * Shows on each card of a hand the estimated chance to win by playing it and by discarding it.
+     * Call on the event dispatch thread. A card only gets the estimates made for the card in its
+     * slot, so those of a hand that has changed since are ignored.
+     *
+     * @param player the player whose hand it is.
+     * @param estimate the estimates, by the slot of the card.
+     */
+    public void showHandEstimates(Player player, HandAnalysis.Estimate estimate) {
+        JPanel playerPanel = (player.getId() == 1) ? player1Panel : player2Panel;
+        int slots = Math.min(playerPanel.getComponentCount(), estimate.getSlots());
+        for (int slot = 0; slot < slots; slot++) {
+            // a hand redrawn since the analysis started may hold another card in the slot
+            if (playerPanel.getComponent(slot) instanceof CardButton button && button.cardCode == estimate.getCard(slot)) {
+                button.setEstimate(estimate.getPlay(slot), estimate.getDiscard(slot));
+            }
+        }
+    }
+
+    /**
+     * Shows a recorded game with a slider that scrubs through its turns.
+     * The cards of both players are shown face up and cannot be played.
+     *
+     * @param replay the recorded game.
+     * @param board the board the turns are drawn on.
+     * @param players the two players.
+     * @param deck the deck.
+     * @param pawns the pawns of both players.
+     */
+    public void showReplay(GameReplay replay, Board board, List<Player> players, Deck deck, List<Pawn> pawns) {
+        JSlider turnSlider = new JSlider(0, replay.getTurnCount(), 0);
+        turnSlider.setOpaque(false);
+        turnSlider.setBounds(100, 925, 1400, 30);
+        turnSlider.addChangeListener(e -> showReplayTurn(replay, turnSlider.getValue(), board, players, deck, pawns));
+        getContentPane().add(turnSlider);
+        currentPlayerLabel.setSize(600, 30);
+
+        showReplayTurn(replay, 0, board, players, deck, pawns);
+        revalidate();
+        repaint();
+    }
+
+    /**
+     * Seeks the replay to a turn and draws it.
+     */
+    private void showReplayTurn(GameReplay replay, int turn, Board board, List<Player> players, Deck deck, List<Pawn> pawns) {
+        GameState state = replay.seek(turn);
+        state.applyTo(board, players, deck, pawns);
+        updateBoard(board);
+        displayPlayerCards(players, players.get(0).getCardsOnHand(), players.get(1).getCardsOnHand());
+        currentPlayerLabel.setText("Turn " + turn + "/" + replay.getTurnCount()
+                + " - " + players.get(state.getActivePlayer()).getName()
+                + " - Score " + state.getScore(0) + " : " + state.getScore(1));
+    }
+
     /**
      * Displays the cards and the two players.
      *
@@ -428,6 +400,10 @@ public class GameView extends JFrame {
      * @param controller the GameController object.
      */
     public void enablePlayerInteraction(List<Player> players, int playerId, GameController controller) {
+        if (localPlayerId != 0 && playerId != localPlayerId) {
+            disablePlayerInteraction(); // the active player plays on another machine
+            return;
+        }
         JPanel activePanel = (playerId == 1) ? player1Panel : player2Panel;
         JPanel opponentPanel = (playerId == 1) ? player2Panel : player1Panel;
 
@@ -480,65 +456,50 @@ public class GameView extends JFrame {
     }
 
     /**
-     * Combines the images of multiple pawns into one (if there are at most 2 pawns, they will be side-by-side).
-     *
-     * @param pawns the list of pawns on a path.
-     * @return an ImageIcon that combines all the pawns.
+     * A card of a hand, with the chances to win by playing and by discarding it painted over its
+     * foot once they are known.
      */
-    private ImageIcon createCombinedPawnIcon(List<Pawn> pawns) {
-        List<BufferedImage> images = new ArrayList<>();
-        for (Pawn p : pawns) {
-            // use the current image icon, taking into account if it is revealed
-            ImageIcon pawnIcon = p.getCurrentImageIcon();
-            if (pawnIcon != null && pawnIcon.getImage() != null) {
-                BufferedImage pawnImage = new BufferedImage(40, 40, BufferedImage.TYPE_INT_ARGB);
-                Graphics g = pawnImage.getGraphics();
-                g.drawImage(pawnIcon.getImage(), 0, 0, null);
-                g.dispose();
-                images.add(pawnImage);
-            }
-        }
+    private static class CardButton extends JButton {
+        private static final long serialVersionUID = 1L;
+        private static final Color BAR_COLOR = new Color(0, 0, 0, 170);
+        private static final Font BAR_FONT = new Font(Font.SANS_SERIF, Font.BOLD, 11);
 
-        // if there are no images, return the placeholder image
-        if (images.isEmpty()) {
-            try {
-                return loadAndResizeImage("pionia/question.jpg", 40, 40);
-            } catch (IOException e) {
-                System.err.println("Error loading default pawn image.");
-                e.printStackTrace();
-                // Placeholder
-                BufferedImage placeholder = new BufferedImage(40, 40, BufferedImage.TYPE_INT_ARGB);
-                Graphics2D g2d = placeholder.createGraphics();
-                g2d.setColor(new Color(0, 0, 0, 0));
-                g2d.fillRect(0, 0, 40, 40);
-                g2d.dispose();
-                return new ImageIcon(placeholder);
-            }
-        }
+        private final int cardCode; // the card shown, as in GameState.cardCode
+        private double play = Double.NaN;
+        private double discard = Double.NaN;
 
-        // if there is only one image, return it
-        if (images.size() == 1) {
-            return new ImageIcon(images.get(0));
+        CardButton(int cardCode) {
+            this.cardCode = cardCode;
         }
 
-        // combine multiple images
-        int totalWidth = 40 * images.size();
-        int totalHeight = 40;
+        void setEstimate(double play, double discard) {
+            this.play = play;
+            this.discard = discard;
+            repaint();
+        }
 
-        BufferedImage combined = new BufferedImage(totalWidth, totalHeight, BufferedImage.TYPE_INT_ARGB);
-        Graphics2D g2d = combined.createGraphics();
-        g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
-        int xOffset = 0;
-        for (BufferedImage img : images) {
-            g2d.drawImage(img, xOffset, 0, null);
-            xOffset += 40;
+        @Override
+        protected void paintComponent(Graphics g) {
+            super.paintComponent(g);
+            if (Double.isNaN(play) && Double.isNaN(discard)) {
+                return;
+            }
+            int barHeight = 18;
+            int top = getHeight() - barHeight;
+            g.setColor(BAR_COLOR);
+            g.fillRect(0, top, getWidth(), barHeight);
+            g.setFont(BAR_FONT);
+            g.setColor(Color.WHITE);
+            String text = "P " + percent(play) + "  D " + percent(discard);
+            FontMetrics metrics = g.getFontMetrics();
+            g.drawString(text, (getWidth() - metrics.stringWidth(text)) / 2, top + (barHeight + metrics.getAscent()) / 2 - 2);
         }
-        g2d.dispose();
 
-        return new ImageIcon(combined);
+        private static String percent(double chance) {
+            return Double.isNaN(chance) ? "-" : Math.round(100 * chance) + "%";
+        }
     }
 
-
     /**
      * The main method for running the GameView.
      *